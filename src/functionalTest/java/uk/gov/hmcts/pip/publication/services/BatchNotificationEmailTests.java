@@ -24,7 +24,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
-import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.ACCEPTED;
 import static uk.gov.hmcts.pip.publication.services.utils.EmailNotificationClient.NOTIFICATION_TYPE;
 import static uk.gov.hmcts.pip.publication.services.utils.TestUtil.randomLocationId;
 
@@ -77,7 +77,7 @@ class BatchNotificationEmailTests extends FunctionalTestBase {
             requestBody
         );
 
-        assertThat(response.getStatusCode()).isEqualTo(OK.value());
+        assertThat(response.getStatusCode()).isEqualTo(ACCEPTED.value());
 
         String referenceId = response.getBody().asString();
         assertThat(referenceId)
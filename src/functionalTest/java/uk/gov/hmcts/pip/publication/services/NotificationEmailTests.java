@@ -8,6 +8,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -41,6 +42,7 @@ import java.util.stream.Stream;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.HttpStatus.ACCEPTED;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.OK;
 import static uk.gov.hmcts.pip.publication.services.utils.EmailNotificationClient.NOTIFICATION_TYPE;
@@ -90,7 +92,12 @@ class NotificationEmailTests extends FunctionalTestBase {
     }
 
     private Notification extractNotification(Response response, String email) throws NotificationClientException {
-        assertThat(response.getStatusCode()).isEqualTo(OK.value());
+        return extractNotification(response, email, OK);
+    }
+
+    private Notification extractNotification(Response response, String email, HttpStatus expectedStatus)
+        throws NotificationClientException {
+        assertThat(response.getStatusCode()).isEqualTo(expectedStatus.value());
 
         String referenceId = response.getBody().asString();
         assertThat(referenceId)
@@ -338,7 +345,7 @@ class NotificationEmailTests extends FunctionalTestBase {
             systemAdminAction
         );
 
-        Notification notification = extractNotification(response, TEST_EMAIL);
+        Notification notification = extractNotification(response, TEST_EMAIL, ACCEPTED);
 
         assertThat(notification.getSubject().get())
             .as(EMAIL_SUBJECT_ERROR)
@@ -23,6 +23,7 @@ class EmailClientTest extends RedisConfigurationTestBase {
 
     @Test
     void testClientHasCorrectApiKey() {
-        assertTrue(mockApiKey.contains(emailClient.getApiKey()), "Keys should match");
+        assertTrue(mockApiKey.contains(emailClient.getClients().getFirst().getNotificationClient().getApiKey()),
+                   "Keys should match");
     }
 }
@@ -12,6 +12,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import reactor.core.publisher.Mono;
 import uk.gov.hmcts.reform.pip.model.location.Location;
 import uk.gov.hmcts.reform.pip.model.publication.Artefact;
 import uk.gov.hmcts.reform.pip.model.publication.FileType;
@@ -26,8 +27,10 @@ import java.util.Map;
 import java.util.UUID;
 
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -153,7 +156,8 @@ class NotifySubscriptionTest extends IntegrationTestBase {
         when(dataManagementService.getArtefact(ARTEFACT_ID)).thenReturn(artefact);
         when(dataManagementService.getLocation(LOCATION_ID)).thenReturn(location);
         when(dataManagementService.getArtefactJsonBlob(ARTEFACT_ID)).thenReturn(PAYLOAD);
-        when(dataManagementService.getArtefactFile(ARTEFACT_ID, FileType.PDF, false)).thenReturn(PDF);
+        when(dataManagementService.fetchArtefactFile(ARTEFACT_ID, FileType.PDF, false)).thenReturn(Mono.just(PDF));
+        when(dataManagementService.fetchArtefactSummary(ARTEFACT_ID)).thenReturn(Mono.just(""));
 
         mockMvc.perform(post(BULK_SUBSCRIPTION_URL)
                             .content(OBJECT_MAPPER.writeValueAsString(bulkSubscriptionEmail))
@@ -162,6 +166,49 @@ class NotifySubscriptionTest extends IntegrationTestBase {
             .andExpect(content().string(IsNull.notNullValue()));
     }
 
+    @Test
+    void testGetBulkEmailStatus() throws Exception {
+        when(dataManagementService.getArtefact(ARTEFACT_ID)).thenReturn(artefact);
+        when(dataManagementService.getLocation(LOCATION_ID)).thenReturn(location);
+
+        String referenceId = mockMvc.perform(post(BULK_SUBSCRIPTION_URL)
+                                                 .content(OBJECT_MAPPER.writeValueAsString(bulkSubscriptionEmail))
+                                                 .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isAccepted())
+            .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(get(BULK_SUBSCRIPTION_URL + "/" + referenceId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.referenceId").value(referenceId))
+            .andExpect(jsonPath("$.queued").value(1));
+    }
+
+    @Test
+    void testStreamBulkEmail() throws Exception {
+        when(dataManagementService.getArtefact(ARTEFACT_ID)).thenReturn(artefact);
+        when(dataManagementService.getLocation(LOCATION_ID)).thenReturn(location);
+
+        mockMvc.perform(post(BULK_SUBSCRIPTION_URL + "/stream")
+                            .content(OBJECT_MAPPER.writeValueAsString(bulkSubscriptionEmail))
+                            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isAccepted())
+            .andExpect(content().string(IsNull.notNullValue()));
+    }
+
+    @Test
+    void testStreamBulkEmailBadRequest() throws Exception {
+        mockMvc.perform(post(BULK_SUBSCRIPTION_URL + "/stream")
+                            .content(BULK_SUBSCRIPTION_EMAIL_BODY_BAD_REQUEST)
+                            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetBulkEmailStatusNotFound() throws Exception {
+        mockMvc.perform(get(BULK_SUBSCRIPTION_URL + "/" + UUID.randomUUID()))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     void testSendBulkEmailBadRequest() throws Exception {
         mockMvc.perform(post(BULK_SUBSCRIPTION_URL)
@@ -706,7 +706,7 @@ class NotifyTest extends IntegrationTestBase {
         mockMvc.perform(post(NOTIFY_SYSTEM_ADMIN_URL)
                             .content(NOTIFY_SYSTEM_ADMIN_EMAIL_BODY)
                             .contentType(MediaType.APPLICATION_JSON))
-            .andExpect(status().isOk())
+            .andExpect(status().isAccepted())
             .andExpect(content().string(IsNull.notNullValue()));
     }
 
@@ -769,7 +769,7 @@ class NotifyTest extends IntegrationTestBase {
         mockMvc.perform(post(NOTIFY_LOCATION_SUBSCRIPTION_DELETE_URL)
                             .content(NOTIFY_LOCATION_SUBSCRIPTION_DELETE_EMAIL_BODY)
                             .contentType(MediaType.APPLICATION_JSON))
-            .andExpect(status().isOk())
+            .andExpect(status().isAccepted())
             .andExpect(content().string(IsNull.notNullValue()));
     }
 
@@ -7,6 +7,7 @@ import org.mockito.Captor;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
 import uk.gov.hmcts.reform.pip.publication.services.client.EmailClient;
 import uk.gov.hmcts.reform.pip.publication.services.service.AccountManagementService;
 import uk.gov.hmcts.reform.pip.publication.services.service.AwsS3Service;
@@ -19,6 +20,7 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
@@ -53,7 +55,9 @@ public class IntegrationTestBase extends RedisConfigurationTestBase {
     @BeforeEach
     void setupEmailClient() throws NotificationClientException {
         SendEmailResponse emailResponse = new SendEmailResponse(emailResponseValue);
-        when(emailClient.sendEmail(anyString(), anyString(), personalisationCapture.capture(),
+        when(emailClient.sendEmail(any(), anyString(), anyString(), personalisationCapture.capture(),
                                    anyString())).thenReturn(emailResponse);
+        when(emailClient.sendEmailAsync(any(), anyString(), anyString(), any(), anyString()))
+            .thenReturn(Mono.just(emailResponse));
     }
 }
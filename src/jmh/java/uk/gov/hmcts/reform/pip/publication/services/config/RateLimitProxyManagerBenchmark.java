@@ -0,0 +1,120 @@
+package uk.gov.hmcts.reform.pip.publication.services.config;
+
+import com.redis.testcontainers.RedisContainer;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.serialization.Mapper;
+import io.github.bucket4j.grid.jcache.JCacheProxyManager;
+import io.github.bucket4j.redis.redisson.Bucket4jRedisson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.redisson.jcache.configuration.RedissonConfiguration;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+
+/**
+ * Compares the cost of consuming a token from a rate limit bucket held through the JCache entry processor with one
+ * held natively in Redis through Redisson. Both run against the same Redis container, over a pool of keys so that
+ * the buckets are spread across Redis as they are for real recipients.
+ *
+ * <p>Run with {@code ./gradlew jmh}. Docker is needed to start the Redis container.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class RateLimitProxyManagerBenchmark {
+    private static final String REDIS_IMAGE_NAME = "redis:latest";
+    private static final int REDIS_PORT = 6379;
+    private static final String CACHE = "rate-limit-benchmark-cache";
+    private static final String KEY_PREFIX = "rate-limit-benchmark::";
+    private static final int KEY_COUNT = 10_000;
+    private static final Duration BUCKET_EXPIRY = Duration.ofMinutes(30);
+
+    @Param({"jcache", "redisson"})
+    @SuppressWarnings("checkstyle:VisibilityModifier")
+    public String backend;
+
+    private RedisContainer redisContainer;
+    private RedissonClient redissonClient;
+    private CacheManager cacheManager;
+    private ProxyManager<String> proxyManager;
+    private String[] keys;
+
+    private final Supplier<BucketConfiguration> bucketConfiguration = () -> BucketConfiguration.builder()
+        .addLimit(limit -> limit.capacity(Long.MAX_VALUE / 2).refillGreedy(Long.MAX_VALUE / 2, Duration.ofMinutes(1)))
+        .build();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        redisContainer = new RedisContainer(DockerImageName.parse(REDIS_IMAGE_NAME)).withExposedPorts(REDIS_PORT);
+        redisContainer.start();
+
+        Config config = new Config();
+        config.useSingleServer()
+            .setAddress("redis://" + redisContainer.getHost() + ":" + redisContainer.getMappedPort(REDIS_PORT));
+        redissonClient = Redisson.create(config);
+
+        if ("jcache".equals(backend)) {
+            cacheManager = Caching.getCachingProvider().getCacheManager();
+            MutableConfiguration<String, byte[]> cacheConfiguration = new MutableConfiguration<>();
+            proxyManager = new JCacheProxyManager<>(
+                cacheManager.createCache(CACHE, RedissonConfiguration.fromConfig(config, cacheConfiguration))
+            );
+        } else {
+            proxyManager = Bucket4jRedisson.casBasedBuilder(((Redisson) redissonClient).getCommandExecutor())
+                .expirationAfterWrite(ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(BUCKET_EXPIRY))
+                .keyMapper(Mapper.STRING)
+                .build();
+        }
+
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = KEY_PREFIX + "recipient" + i + "@justice.gov.uk";
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (cacheManager != null) {
+            cacheManager.destroyCache(CACHE);
+            cacheManager.close();
+        }
+        redissonClient.shutdown();
+        redisContainer.stop();
+    }
+
+    @Benchmark
+    public boolean tryConsume() {
+        String key = keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+        return proxyManager.builder()
+            .build(key, bucketConfiguration)
+            .tryConsume(1);
+    }
+}
@@ -1,24 +1,214 @@
 package uk.gov.hmcts.reform.pip.publication.services.client;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.SubscriptionPersonalisation;
 import uk.gov.service.notify.NotificationClient;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.SendEmailResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
 
 /**
- * Class to initiate the Gov Notify Client to send emails.
+ * Class to initiate the Gov Notify Clients to send emails. A client is set up for every configured API key, and each
+ * send is routed to the key the throughput governor has given it a token for, or otherwise the least loaded key, so
+ * send capacity can be raised by adding keys.
  */
 @Component
 @Slf4j
-public class EmailClient extends NotificationClient {
+public class EmailClient {
+    // An API key is made up of the key name, the service ID and the secret key, with the IDs each 36 characters and
+    // preceded by a hyphen
+    private static final int KEY_IDS_LENGTH = (36 + 1) * 2;
+
+    private final NotifyClientPool notifyClientPool;
 
     /**
-     * Constructor to setup client with api key.
+     * Constructor to setup a client for each api key.
      * @param apiKey API key used to connect to GovNotify taken from application.yaml
+     * @param additionalApiKeys Comma separated API keys to send with alongside the main key
+     * @param rateLimitedCooldown How long in milliseconds a key is avoided after being rate limited
+     * @param notifyTransport The transport used to send emails without blocking
+     * @param meterRegistry The registry to record the usage of each key in
      */
     @Autowired
-    public EmailClient(@Value("${notify.api.key}") String apiKey) {
-        super(apiKey);
+    public EmailClient(@Value("${notify.api.key}") String apiKey,
+                       @Value("${notify.api.additional-keys}") String additionalApiKeys,
+                       @Value("${notify.api.rate-limited-cooldown-in-ms}") long rateLimitedCooldown,
+                       NotifyTransport notifyTransport, MeterRegistry meterRegistry) {
+        this(new NotifyClientPool(createClients(apiKey, additionalApiKeys, notifyTransport), rateLimitedCooldown,
+                                  meterRegistry));
+    }
+
+    EmailClient(NotifyClientPool notifyClientPool) {
+        this.notifyClientPool = notifyClientPool;
+    }
+
+    /**
+     * Send an email, waiting for the response. Subscription emails whose shared personalisation has already been
+     * serialised are sent through the transport, so their request body is assembled from it rather than serialised
+     * again by the Notify client. All other emails are sent by the Notify client as before.
+     *
+     * @param templateId The ID of the Notify template.
+     * @param emailAddress The email address of the recipient.
+     * @param personalisation The personalisation for the template.
+     * @param reference The reference ID of the email.
+     * @return The Notify response.
+     * @throws NotificationClientException if the email could not be sent.
+     */
+    public SendEmailResponse sendEmail(String templateId, String emailAddress, Map<String, ?> personalisation,
+                                       String reference) throws NotificationClientException {
+        return sendEmail(null, templateId, emailAddress, personalisation, reference);
+    }
+
+    /**
+     * Send an email with the named API key, waiting for the response.
+     *
+     * @param keyName The name of the API key to send with, or null to send with the least loaded key.
+     * @param templateId The ID of the Notify template.
+     * @param emailAddress The email address of the recipient.
+     * @param personalisation The personalisation for the template.
+     * @param reference The reference ID of the email.
+     * @return The Notify response.
+     * @throws NotificationClientException if the email could not be sent.
+     */
+    public SendEmailResponse sendEmail(String keyName, String templateId, String emailAddress,
+                                       Map<String, ?> personalisation, String reference)
+        throws NotificationClientException {
+        NotifyKeyClient client = notifyClientPool.acquire(keyName);
+        try {
+            SendEmailResponse response = send(client, templateId, emailAddress, personalisation, reference);
+            notifyClientPool.recordOutcome(client, null);
+            return response;
+        } catch (NotificationClientException | RuntimeException e) {
+            notifyClientPool.recordOutcome(client, e);
+            throw e;
+        } finally {
+            notifyClientPool.release(client);
+        }
+    }
+
+    /**
+     * Send an email without blocking the calling thread, as an alternative to the blocking
+     * sendEmail.
+     *
+     * @param templateId The ID of the Notify template.
+     * @param emailAddress The email address of the recipient.
+     * @param personalisation The personalisation for the template.
+     * @param reference The reference ID of the email.
+     * @return A mono of the Notify response.
+     */
+    public Mono<SendEmailResponse> sendEmailAsync(String templateId, String emailAddress,
+                                                  Map<String, ?> personalisation, String reference) {
+        return sendEmailAsync(null, templateId, emailAddress, personalisation, reference);
+    }
+
+    /**
+     * Send an email with the named API key without blocking the calling thread.
+     *
+     * @param keyName The name of the API key to send with, or null to send with the least loaded key.
+     * @param templateId The ID of the Notify template.
+     * @param emailAddress The email address of the recipient.
+     * @param personalisation The personalisation for the template.
+     * @param reference The reference ID of the email.
+     * @return A mono of the Notify response.
+     */
+    public Mono<SendEmailResponse> sendEmailAsync(String keyName, String templateId, String emailAddress,
+                                                  Map<String, ?> personalisation, String reference) {
+        return Mono.using(
+            () -> notifyClientPool.acquire(keyName),
+            client -> client.getNotifyTransport()
+                .sendEmail(templateId, emailAddress, personalisation, reference)
+                .doOnSuccess(response -> notifyClientPool.recordOutcome(client, null))
+                .doOnError(e -> notifyClientPool.recordOutcome(client, e)),
+            notifyClientPool::release
+        );
+    }
+
+    List<NotifyKeyClient> getClients() {
+        return notifyClientPool.getClients();
+    }
+
+    /**
+     * Get the names of the configured API keys, in the order their clients are set up. The names do not include the
+     * secret, so can be used to key the send rate of each API key.
+     *
+     * @param apiKey The main API key.
+     * @param additionalApiKeys Comma separated API keys to send with alongside the main key.
+     * @return The name of each API key.
+     */
+    public static List<String> getKeyNames(String apiKey, String additionalApiKeys) {
+        List<String> apiKeys = getApiKeys(apiKey, additionalApiKeys);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < apiKeys.size(); i++) {
+            String name = getKeyName(apiKeys.get(i), i);
+            // Keys created with the same name are told apart by their position
+            names.add(names.contains(name) ? name + "-" + i : name);
+        }
+        return names;
+    }
+
+    private static SendEmailResponse send(NotifyKeyClient client, String templateId, String emailAddress,
+                                          Map<String, ?> personalisation, String reference)
+        throws NotificationClientException {
+        if (personalisation instanceof SubscriptionPersonalisation subscriptionPersonalisation
+            && subscriptionPersonalisation.hasSerialisedShared()) {
+            try {
+                return client.getNotifyTransport()
+                    .sendEmail(templateId, emailAddress, personalisation, reference)
+                    .block();
+            } catch (RuntimeException e) {
+                Throwable cause = Exceptions.unwrap(e);
+                if (cause instanceof NotificationClientException notificationClientException) {
+                    throw notificationClientException;
+                }
+                throw new NotificationClientException(e);
+            }
+        }
+        return client.getNotificationClient().sendEmail(templateId, emailAddress, personalisation, reference);
+    }
+
+    private static List<NotifyKeyClient> createClients(String apiKey, String additionalApiKeys,
+                                                       NotifyTransport notifyTransport) {
+        List<String> apiKeys = getApiKeys(apiKey, additionalApiKeys);
+        List<String> keyNames = getKeyNames(apiKey, additionalApiKeys);
+
+        List<NotifyKeyClient> clients = new ArrayList<>();
+        for (int i = 0; i < apiKeys.size(); i++) {
+            String key = apiKeys.get(i);
+            clients.add(new NotifyKeyClient(keyNames.get(i), new NotificationClient(key),
+                                            notifyTransport.withApiKey(key)));
+        }
+        log.info(writeLog(String.format("GOV.UK Notify emails will be sent using %s API key(s)", clients.size())));
+        return clients;
+    }
+
+    private static List<String> getApiKeys(String apiKey, String additionalApiKeys) {
+        return Stream.concat(Stream.of(apiKey), Arrays.stream(additionalApiKeys.split(",")))
+            .map(String::trim)
+            .filter(key -> !key.isEmpty())
+            .distinct()
+            .toList();
+    }
+
+    /**
+     * Get the name of the API key, which is safe to use in metrics as it does not include the secret. Keys that are
+     * not in the Notify format are named by their position instead.
+     */
+    private static String getKeyName(String apiKey, int index) {
+        return apiKey.length() > KEY_IDS_LENGTH
+            ? apiKey.substring(0, apiKey.length() - KEY_IDS_LENGTH)
+            : "key-" + index;
     }
 }
@@ -0,0 +1,130 @@
+package uk.gov.hmcts.reform.pip.publication.services.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import uk.gov.service.notify.NotificationClientException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Routes sends across the Notify clients for every configured API key. A send that has been given a token for a key
+ * by the throughput governor goes to that key. Any other send goes to the key with the fewest sends in flight,
+ * skipping any key that has been rate limited by Notify within the cooldown, and ties are broken in turn so the keys
+ * are used evenly. The sends in flight and the outcome of each send are recorded for every key,
+ * tagged by the name of the key rather than the key itself.
+ */
+final class NotifyClientPool {
+    static final String SENT = "sent";
+    static final String RATE_LIMITED = "rate-limited";
+    static final String NOTIFY_ERROR = "notify-error";
+
+    private static final String METRIC_PREFIX = "notify.client.";
+    private static final String KEY_TAG = "key";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final List<NotifyKeyClient> clients;
+    private final Map<String, NotifyKeyClient> clientsByName;
+    private final long rateLimitedCooldownMillis;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger next = new AtomicInteger();
+
+    NotifyClientPool(List<NotifyKeyClient> clients, long rateLimitedCooldownMillis, MeterRegistry meterRegistry) {
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("At least one GOV.UK Notify API key must be configured");
+        }
+        this.clients = List.copyOf(clients);
+        this.clientsByName = this.clients.stream()
+            .collect(Collectors.toMap(NotifyKeyClient::getName, Function.identity(), (first, second) -> first));
+        this.rateLimitedCooldownMillis = rateLimitedCooldownMillis;
+        this.meterRegistry = meterRegistry;
+
+        this.clients.forEach(client -> Gauge.builder(METRIC_PREFIX + "in-flight", client.getInFlight(),
+                                                     AtomicInteger::get)
+            .description("Sends to GOV.UK Notify currently in flight on the API key")
+            .tag(KEY_TAG, client.getName())
+            .register(meterRegistry));
+    }
+
+    /**
+     * Take the client for the named API key, or the least loaded API key if no key is named or the name is not
+     * known. Every call must be followed by a call to {@link #release(NotifyKeyClient)} once the send has completed.
+     *
+     * @param keyName The name of the API key the send has been given a token for, or null.
+     * @return The client to send with.
+     */
+    NotifyKeyClient acquire(String keyName) {
+        NotifyKeyClient selected = keyName == null ? null : clientsByName.get(keyName);
+        if (selected != null) {
+            selected.getInFlight().incrementAndGet();
+            return selected;
+        }
+
+        selected = clients.getFirst();
+        if (clients.size() > 1) {
+            long now = System.currentTimeMillis();
+            int start = Math.floorMod(next.getAndIncrement(), clients.size());
+            NotifyKeyClient leastLoaded = null;
+            NotifyKeyClient leastLoadedAvailable = null;
+
+            for (int i = 0; i < clients.size(); i++) {
+                NotifyKeyClient client = clients.get((start + i) % clients.size());
+                if (leastLoaded == null || client.getInFlight().get() < leastLoaded.getInFlight().get()) {
+                    leastLoaded = client;
+                }
+                if (!client.isRateLimited(now) && (leastLoadedAvailable == null
+                    || client.getInFlight().get() < leastLoadedAvailable.getInFlight().get())) {
+                    leastLoadedAvailable = client;
+                }
+            }
+            // If every key has been rate limited, the send still goes ahead on the least loaded key
+            selected = leastLoadedAvailable == null ? leastLoaded : leastLoadedAvailable;
+        }
+
+        selected.getInFlight().incrementAndGet();
+        return selected;
+    }
+
+    /**
+     * Free up the place taken on the API key by a completed send.
+     *
+     * @param client The client that was sent with.
+     */
+    void release(NotifyKeyClient client) {
+        client.getInFlight().decrementAndGet();
+    }
+
+    /**
+     * Record the outcome of a send on an API key. A key that is rate limited is avoided until the cooldown has passed.
+     *
+     * @param client The client that was sent with.
+     * @param error The error the send failed with, or null if it was sent.
+     */
+    void recordOutcome(NotifyKeyClient client, Throwable error) {
+        String outcome = SENT;
+        if (error != null) {
+            outcome = NOTIFY_ERROR;
+            if (error instanceof NotificationClientException exception
+                && exception.getHttpResult() == TOO_MANY_REQUESTS) {
+                outcome = RATE_LIMITED;
+                client.rateLimitedUntil(System.currentTimeMillis() + rateLimitedCooldownMillis);
+            }
+        }
+
+        Counter.builder(METRIC_PREFIX + "sends")
+            .description("Sends to GOV.UK Notify on the API key")
+            .tag(KEY_TAG, client.getName())
+            .tag(OUTCOME_TAG, outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    List<NotifyKeyClient> getClients() {
+        return clients;
+    }
+}
@@ -0,0 +1,23 @@
+package uk.gov.hmcts.reform.pip.publication.services.client;
+
+import uk.gov.service.notify.NotificationClientException;
+
+/**
+ * Error response from GOV.UK Notify when sending through a {@link NotifyTransport}. The HTTP status is carried in the
+ * same way as the stock Notify client, so callers can handle both the same way.
+ */
+public class NotifyHttpException extends NotificationClientException {
+    private static final long serialVersionUID = -2868173502958610461L;
+
+    private final int httpResult;
+
+    public NotifyHttpException(int httpResult, String message) {
+        super(String.format("Status code: %s %s", httpResult, message));
+        this.httpResult = httpResult;
+    }
+
+    @Override
+    public int getHttpResult() {
+        return httpResult;
+    }
+}
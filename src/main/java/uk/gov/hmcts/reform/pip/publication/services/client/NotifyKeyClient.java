@@ -0,0 +1,47 @@
+package uk.gov.hmcts.reform.pip.publication.services.client;
+
+import uk.gov.service.notify.NotificationClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The clients used to send emails to GOV.UK Notify with one API key, along with the number of sends currently in
+ * flight on the key and when it can next be used after being rate limited.
+ */
+final class NotifyKeyClient {
+    private final String name;
+    private final NotificationClient notificationClient;
+    private final NotifyTransport notifyTransport;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long rateLimitedUntil;
+
+    NotifyKeyClient(String name, NotificationClient notificationClient, NotifyTransport notifyTransport) {
+        this.name = name;
+        this.notificationClient = notificationClient;
+        this.notifyTransport = notifyTransport;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    NotificationClient getNotificationClient() {
+        return notificationClient;
+    }
+
+    NotifyTransport getNotifyTransport() {
+        return notifyTransport;
+    }
+
+    AtomicInteger getInFlight() {
+        return inFlight;
+    }
+
+    boolean isRateLimited(long now) {
+        return now < rateLimitedUntil;
+    }
+
+    void rateLimitedUntil(long until) {
+        rateLimitedUntil = until;
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gov.hmcts.reform.pip.publication.services.client;
+
+import org.json.JSONObject;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.SubscriptionPersonalisation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The JSON body of a send email request to GOV.UK Notify. Subscription emails share most of their personalisation,
+ * including the encoded files, with every other recipient of the artefact. Where that personalisation has already
+ * been serialised, its bytes are written into the body as they are, and only the fields for the recipient are
+ * serialised for each email.
+ */
+final class NotifyRequestBody {
+    private static final String TEMPLATE_ID = "template_id";
+    private static final String EMAIL_ADDRESS = "email_address";
+    private static final String REFERENCE = "reference";
+    private static final String PERSONALISATION = "personalisation";
+
+    private final List<byte[]> parts;
+    private final long contentLength;
+
+    private NotifyRequestBody(List<byte[]> parts) {
+        this.parts = parts;
+        this.contentLength = parts.stream().mapToLong(part -> part.length).sum();
+    }
+
+    static NotifyRequestBody create(String templateId, String emailAddress, Map<String, ?> personalisation,
+                                    String reference) {
+        if (personalisation instanceof SubscriptionPersonalisation subscriptionPersonalisation
+            && subscriptionPersonalisation.hasSerialisedShared()) {
+            return assemble(templateId, emailAddress, subscriptionPersonalisation, reference);
+        }
+
+        Map<String, Object> body = new HashMap<>();
+        body.put(TEMPLATE_ID, templateId);
+        body.put(EMAIL_ADDRESS, emailAddress);
+        if (personalisation != null) {
+            body.put(PERSONALISATION, personalisation);
+        }
+        if (reference != null) {
+            body.put(REFERENCE, reference);
+        }
+
+        // The body is built as a JSON object rather than left to Jackson, as file attachments in the
+        // personalisation are JSON objects created by the Notify client
+        return new NotifyRequestBody(List.of(new JSONObject(body).toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static NotifyRequestBody assemble(String templateId, String emailAddress,
+                                              SubscriptionPersonalisation personalisation, String reference) {
+        JSONObject fields = new JSONObject();
+        fields.put(TEMPLATE_ID, templateId);
+        fields.put(EMAIL_ADDRESS, emailAddress);
+        if (reference != null) {
+            fields.put(REFERENCE, reference);
+        }
+
+        String json = fields.toString();
+        String head = json.substring(0, json.length() - 1) + ",\"" + PERSONALISATION + "\":{";
+
+        // The recipient fields are written after the shared ones so they take precedence, the same as in the map
+        byte[] shared = personalisation.getSerialisedShared();
+        String recipient = SubscriptionPersonalisation.toJsonMembers(personalisation.getRecipient());
+        String tail = (shared.length > 0 && !recipient.isEmpty() ? "," : "") + recipient + "}}";
+
+        return new NotifyRequestBody(List.of(head.getBytes(StandardCharsets.UTF_8), shared,
+                                             tail.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Get the body as data buffers. The parts are wrapped rather than copied, so the shared personalisation is never
+     * duplicated for a request.
+     *
+     * @return The data buffers of the body.
+     */
+    Flux<DataBuffer> toDataBuffers() {
+        return Flux.fromIterable(parts)
+            .map(part -> DefaultDataBufferFactory.sharedInstance.wrap(part));
+    }
+}
@@ -0,0 +1,33 @@
+package uk.gov.hmcts.reform.pip.publication.services.client;
+
+import reactor.core.publisher.Mono;
+import uk.gov.service.notify.SendEmailResponse;
+
+import java.util.Map;
+
+/**
+ * A transport that sends emails to GOV.UK Notify without blocking the calling thread.
+ */
+public interface NotifyTransport {
+
+    /**
+     * Send an email through GOV.UK Notify.
+     *
+     * @param templateId The ID of the Notify template.
+     * @param emailAddress The email address of the recipient.
+     * @param personalisation The personalisation for the template.
+     * @param reference The reference ID of the email.
+     * @return A mono of the Notify response, which errors with a {@link NotifyHttpException} if Notify rejects the
+     *     email.
+     */
+    Mono<SendEmailResponse> sendEmail(String templateId, String emailAddress, Map<String, ?> personalisation,
+                                      String reference);
+
+    /**
+     * Create a transport that sends with a different API key, sharing the connections of this one.
+     *
+     * @param apiKey The API key to send with.
+     * @return The transport for the API key.
+     */
+    NotifyTransport withApiKey(String apiKey);
+}
@@ -0,0 +1,136 @@
+package uk.gov.hmcts.reform.pip.publication.services.client;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.SendEmailResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Sends emails to GOV.UK Notify over the Reactor Netty web client. Connections are held in a pool and kept alive
+ * between sends, so a pod can have many sends in flight without a thread waiting on each one. Requests are
+ * authenticated with a short-lived JWT signed with the secret part of the API key, the same as the stock Notify
+ * client.
+ */
+@Component
+public class WebClientNotifyTransport implements NotifyTransport {
+    private static final String SEND_EMAIL_PATH = "/v2/notifications/email";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String JWT_HEADER = base64Url("{\"typ\":\"JWT\",\"alg\":\"HS256\"}");
+    private static final String USER_AGENT = "NOTIFY-API-JAVA-CLIENT/publication-services";
+
+    // An API key is made up of the key name, the service ID and the secret key, with the IDs each 36 characters
+    private static final int ID_LENGTH = 36;
+    private static final int API_KEY_MIN_LENGTH = ID_LENGTH * 2 + 1;
+
+    private final WebClient webClient;
+    private final String serviceId;
+    private final String secretKey;
+
+    @Autowired
+    public WebClientNotifyTransport(@Value("${notify.api.key}") String apiKey,
+                                    @Value("${notify.transport.base-url}") String baseUrl,
+                                    @Value("${notify.transport.max-connections}") int maxConnections,
+                                    @Value("${notify.transport.max-idle-time-in-seconds}") int maxIdleTime,
+                                    @Value("${notify.transport.response-timeout-in-seconds}") int responseTimeout) {
+        this(createWebClient(baseUrl, maxConnections, maxIdleTime, responseTimeout), apiKey);
+    }
+
+    WebClientNotifyTransport(WebClient webClient, String apiKey) {
+        this.webClient = webClient;
+        if (apiKey != null && apiKey.length() >= API_KEY_MIN_LENGTH) {
+            this.serviceId = apiKey.substring(apiKey.length() - API_KEY_MIN_LENGTH, apiKey.length() - ID_LENGTH - 1);
+            this.secretKey = apiKey.substring(apiKey.length() - ID_LENGTH);
+        } else {
+            this.serviceId = null;
+            this.secretKey = null;
+        }
+    }
+
+    @Override
+    public Mono<SendEmailResponse> sendEmail(String templateId, String emailAddress,
+                                             Map<String, ?> personalisation, String reference) {
+        NotifyRequestBody requestBody = NotifyRequestBody.create(templateId, emailAddress, personalisation,
+                                                                 reference);
+
+        return Mono.fromCallable(this::createToken)
+            .flatMap(token -> webClient.post()
+                .uri(SEND_EMAIL_PATH)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .header(HttpHeaders.USER_AGENT, USER_AGENT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentLength(requestBody.getContentLength())
+                .body(BodyInserters.fromDataBuffers(requestBody.toDataBuffers()))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response -> response.bodyToMono(String.class)
+                    .defaultIfEmpty("")
+                    .map(message -> new NotifyHttpException(response.statusCode().value(), message)))
+                .bodyToMono(String.class))
+            .map(SendEmailResponse::new);
+    }
+
+    @Override
+    public NotifyTransport withApiKey(String apiKey) {
+        return new WebClientNotifyTransport(webClient, apiKey);
+    }
+
+    private String createToken() throws NotificationClientException {
+        if (serviceId == null) {
+            throw new NotificationClientException("The GOV.UK Notify API key is not valid");
+        }
+
+        String claims = base64Url(String.format("{\"iss\":\"%s\",\"iat\":%s}",
+                                                serviceId, Instant.now().getEpochSecond()));
+        String unsignedToken = JWT_HEADER + "." + claims;
+
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            byte[] signature = mac.doFinal(unsignedToken.getBytes(StandardCharsets.UTF_8));
+            return unsignedToken + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new NotificationClientException(e);
+        }
+    }
+
+    private static String base64Url(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static WebClient createWebClient(String baseUrl, int maxConnections, int maxIdleTime,
+                                             int responseTimeout) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("notify")
+            .maxConnections(maxConnections)
+            .maxIdleTime(Duration.ofSeconds(maxIdleTime))
+            .pendingAcquireMaxCount(-1)
+            .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .keepAlive(true)
+            .responseTimeout(Duration.ofSeconds(responseTimeout));
+
+        return WebClient.builder()
+            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .build();
+    }
+}
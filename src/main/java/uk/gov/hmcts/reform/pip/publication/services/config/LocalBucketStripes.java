@@ -0,0 +1,59 @@
+package uk.gov.hmcts.reform.pip.publication.services.config;
+
+import io.github.bucket4j.Bucket;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * In-process rate limit buckets, used in place of the buckets held in Redis while Redis is not responding. The
+ * buckets are split across a fixed number of stripes by key, each with its own lock, so that concurrent checks for
+ * different recipients rarely wait on each other. Each stripe holds a bounded number of buckets and removes the
+ * least recently used one once it is full, which at worst gives that recipient a full bucket again.
+ */
+class LocalBucketStripes {
+    private static final int STRIPE_COUNT = 16;
+
+    private final List<Map<String, Bucket>> stripes = new ArrayList<>(STRIPE_COUNT);
+
+    LocalBucketStripes(int maxSize) {
+        int maxStripeSize = Math.max((maxSize + STRIPE_COUNT - 1) / STRIPE_COUNT, 1);
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes.add(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > maxStripeSize;
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the local bucket for a key, creating it if there is not one yet.
+     *
+     * @param key The rate limit key.
+     * @param factory Creates a new bucket for the key.
+     * @return The local bucket for the key.
+     */
+    Bucket get(String key, Supplier<Bucket> factory) {
+        Map<String, Bucket> stripe = stripes.get(Math.floorMod(key.hashCode(), STRIPE_COUNT));
+        synchronized (stripe) {
+            return stripe.computeIfAbsent(key, k -> factory.get());
+        }
+    }
+
+    /**
+     * Remove all the local buckets, so the next time Redis stops responding each recipient starts again from its
+     * share of the limit.
+     */
+    void clear() {
+        for (Map<String, Bucket> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+}
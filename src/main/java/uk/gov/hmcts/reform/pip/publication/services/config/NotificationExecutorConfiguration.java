@@ -0,0 +1,59 @@
+package uk.gov.hmcts.reform.pip.publication.services.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Configures the executor used for asynchronous notification work. The executor has a bounded queue so that work is
+ * rejected once it is saturated instead of being queued until the pod runs out of memory, and exposes its active,
+ * queued and rejected task counts as metrics.
+ */
+@Configuration
+public class NotificationExecutorConfiguration {
+    public static final String NOTIFICATION_EXECUTOR = "notificationExecutor";
+    private static final String METRIC_PREFIX = "notification.executor.";
+
+    @Value("${notify.executor.core-pool-size}")
+    private int corePoolSize;
+
+    @Value("${notify.executor.max-pool-size}")
+    private int maxPoolSize;
+
+    @Value("${notify.executor.queue-capacity}")
+    private int queueCapacity;
+
+    @Bean(name = NOTIFICATION_EXECUTOR)
+    public ThreadPoolTaskExecutor notificationExecutor(MeterRegistry meterRegistry) {
+        Counter rejected = Counter.builder(METRIC_PREFIX + "rejected")
+            .description("Tasks rejected by the notification executor")
+            .register(meterRegistry);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("notification-");
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(Math.max(maxPoolSize, corePoolSize));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("Notification executor is saturated");
+        });
+        executor.initialize();
+
+        Gauge.builder(METRIC_PREFIX + "active", executor, ThreadPoolTaskExecutor::getActiveCount)
+            .description("Tasks currently running on the notification executor")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + "queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+            .description("Tasks waiting to run on the notification executor")
+            .register(meterRegistry);
+        return executor;
+    }
+}
@@ -6,6 +6,8 @@ import io.github.bucket4j.Bucket;
 import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.Refill;
 import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.github.bucket4j.distributed.proxy.AsyncProxyManager;
 import io.github.bucket4j.distributed.proxy.ProxyManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,6 +15,7 @@ import org.springframework.context.annotation.Configuration;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 import static uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit.STANDARD;
@@ -20,6 +23,9 @@ import static uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit.STA
 @Configuration
 public class RateLimitConfiguration {
     private ProxyManager<String> buckets;
+    private final ResolvedBucketCache<Bucket> resolvedBuckets;
+    private final ResolvedBucketCache<AsyncBucketProxy> resolvedAsyncBuckets;
+    private final LocalBucketStripes localBuckets;
 
     @Value("${rate-limit.email.capacity.standard}")
     private Integer standardEmailCapacity;
@@ -30,12 +36,91 @@ public class RateLimitConfiguration {
     @Value("${rate-limit.email.interval-in-minutes}")
     private Integer rateLimitInterval;
 
+    @Value("${rate-limit.fallback.replica-count}")
+    private Integer replicaCount;
+
     @Autowired
-    public RateLimitConfiguration(ProxyManager<String> buckets) {
+    public RateLimitConfiguration(ProxyManager<String> buckets,
+                                  @Value("${rate-limit.bucket-cache.max-size}") int bucketCacheMaxSize,
+                                  @Value("${rate-limit.bucket-cache.expiry-in-seconds}") long bucketCacheExpiry,
+                                  @Value("${rate-limit.fallback.max-size}") int fallbackMaxSize) {
         this.buckets = buckets;
+        this.resolvedBuckets = new ResolvedBucketCache<>(bucketCacheMaxSize, bucketCacheExpiry);
+        this.resolvedAsyncBuckets = new ResolvedBucketCache<>(bucketCacheMaxSize, bucketCacheExpiry);
+        this.localBuckets = new LocalBucketStripes(fallbackMaxSize);
     }
 
+    /**
+     * Get the bucket for a rate limit key. Buckets resolved recently are reused from a local cache, so the only
+     * call to Redis is the one made to consume from the bucket.
+     *
+     * @param key The rate limit key.
+     * @param emailLimit The limit the key is for.
+     * @return The bucket for the key.
+     */
     public Bucket resolveBucket(String key, EmailLimit emailLimit) {
+        return resolvedBuckets.get(key, () -> resolveRemoteBucket(key, emailLimit));
+    }
+
+    /**
+     * Non-blocking variant of {@link #resolveBucket(String, EmailLimit)}, for checking many keys at once. The calls
+     * to Redis for each key are sent without waiting on a thread, so the checks for a batch share round trips to
+     * Redis rather than each waiting for its own.
+     *
+     * @param key The rate limit key.
+     * @param emailLimit The limit the key is for.
+     * @return A future of the bucket for the key, already complete if the bucket was resolved recently.
+     */
+    public CompletableFuture<AsyncBucketProxy> resolveBucketAsync(String key, EmailLimit emailLimit) {
+        AsyncBucketProxy cached = resolvedAsyncBuckets.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        long resolvedAt = System.nanoTime();
+        Integer emailCapacity = STANDARD.equals(emailLimit) ? standardEmailCapacity : highEmailCapacity;
+        BucketConfiguration currentBucketConfiguration = getBucketConfiguration(emailCapacity).get();
+        AsyncProxyManager<String> asyncBuckets = buckets.asAsync();
+        AsyncBucketProxy bucket = asyncBuckets.builder()
+            .build(key, () -> CompletableFuture.completedFuture(currentBucketConfiguration));
+
+        return asyncBuckets.getProxyConfiguration(key)
+            .thenCompose(config -> config.isPresent() && isOutdated(config.get(), currentBucketConfiguration)
+                ? bucket.replaceConfiguration(currentBucketConfiguration, TokensInheritanceStrategy.PROPORTIONALLY)
+                : CompletableFuture.<Void>completedFuture(null))
+            .thenApply(unused -> {
+                resolvedAsyncBuckets.put(key, bucket, resolvedAt);
+                return bucket;
+            });
+    }
+
+    /**
+     * Get the in-process bucket for a rate limit key, used while Redis is not responding. Each replica of the
+     * service holds its own local buckets, so each is given an equal share of the capacity to keep the overall
+     * limit close to the one held in Redis.
+     *
+     * @param key The rate limit key.
+     * @param emailLimit The limit the key is for.
+     * @return The local bucket for the key.
+     */
+    public Bucket resolveLocalBucket(String key, EmailLimit emailLimit) {
+        return localBuckets.get(key, () -> {
+            Integer emailCapacity = STANDARD.equals(emailLimit) ? standardEmailCapacity : highEmailCapacity;
+            int replicas = Math.max(replicaCount, 1);
+            return Bucket.builder()
+                .addLimit(getBandwidth((emailCapacity + replicas - 1) / replicas))
+                .build();
+        });
+    }
+
+    /**
+     * Remove the in-process buckets once Redis is responding again and their usage has been reconciled into it.
+     */
+    public void clearLocalBuckets() {
+        localBuckets.clear();
+    }
+
+    private Bucket resolveRemoteBucket(String key, EmailLimit emailLimit) {
         Integer emailCapacity = STANDARD.equals(emailLimit) ? standardEmailCapacity : highEmailCapacity;
         Supplier<BucketConfiguration> configSupplier = getBucketConfiguration(emailCapacity);
 
@@ -49,24 +134,35 @@ public class RateLimitConfiguration {
     }
 
     private Supplier<BucketConfiguration> getBucketConfiguration(Integer emailCapacity) {
-        Refill refill = Refill.greedy(emailCapacity, Duration.ofMinutes(rateLimitInterval));
-        Bandwidth bandwidth = Bandwidth.classic(emailCapacity, refill);
+        Bandwidth bandwidth = getBandwidth(emailCapacity);
         return () -> BucketConfiguration.builder()
             .addLimit(bandwidth)
             .build();
     }
 
+    private Bandwidth getBandwidth(int emailCapacity) {
+        Refill refill = Refill.greedy(emailCapacity, Duration.ofMinutes(rateLimitInterval));
+        return Bandwidth.classic(emailCapacity, refill);
+    }
+
     private void refreshBucketConfiguration(String key, Bucket bucket, BucketConfiguration currentBucketConfiguration) {
         buckets.getProxyConfiguration(key).ifPresent(config -> {
-            if (config.getBandwidths().length > 0) {
-                Bandwidth persistedBandwidth = config.getBandwidths()[0];
-                Bandwidth currentBandwidth = currentBucketConfiguration.getBandwidths()[0];
-                if (persistedBandwidth.getCapacity() != currentBandwidth.getCapacity()
-                    || persistedBandwidth.getRefillPeriodNanos() != currentBandwidth.getRefillPeriodNanos()) {
-                    bucket.replaceConfiguration(currentBucketConfiguration, TokensInheritanceStrategy.PROPORTIONALLY);
-                }
+            if (isOutdated(config, currentBucketConfiguration)) {
+                bucket.replaceConfiguration(currentBucketConfiguration, TokensInheritanceStrategy.PROPORTIONALLY);
             }
         });
     }
 
+    private static boolean isOutdated(BucketConfiguration persistedConfiguration,
+                                      BucketConfiguration currentBucketConfiguration) {
+        if (persistedConfiguration.getBandwidths().length == 0) {
+            return false;
+        }
+
+        Bandwidth persistedBandwidth = persistedConfiguration.getBandwidths()[0];
+        Bandwidth currentBandwidth = currentBucketConfiguration.getBandwidths()[0];
+        return persistedBandwidth.getCapacity() != currentBandwidth.getCapacity()
+            || persistedBandwidth.getRefillPeriodNanos() != currentBandwidth.getRefillPeriodNanos();
+    }
+
 }
@@ -2,8 +2,12 @@ package uk.gov.hmcts.reform.pip.publication.services.config;
 
 import com.giffing.bucket4j.spring.boot.starter.config.cache.SyncCacheResolver;
 import com.giffing.bucket4j.spring.boot.starter.config.cache.jcache.JCacheCacheResolver;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
 import io.github.bucket4j.distributed.proxy.ProxyManager;
-import io.github.bucket4j.grid.jcache.JCacheProxyManager;
+import io.github.bucket4j.distributed.serialization.Mapper;
+import io.github.bucket4j.redis.redisson.Bucket4jRedisson;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
 import org.redisson.jcache.configuration.RedissonConfiguration;
 import org.springframework.beans.factory.annotation.Value;
@@ -55,6 +59,11 @@ public class RedisConfiguration {
         return config;
     }
 
+    @Bean(destroyMethod = "shutdown")
+    public RedissonClient redissonClient(Config redissonConfig) {
+        return Redisson.create(redissonConfig);
+    }
+
     @Bean
     public MutableConfiguration<String, String> jcacheConfiguration() {
         MutableConfiguration<String, String> config = new MutableConfiguration<>();
@@ -92,9 +101,19 @@ public class RedisConfiguration {
         return tokenCacheManager.getCache(TOKEN_CACHE);
     }
 
+    /**
+     * The storage for the rate limit buckets. Each bucket is held in its own Redis key as compact binary state, and
+     * is updated with a single compare-and-swap rather than through a JCache entry processor. A bucket is kept for
+     * the configured expiry after it would have refilled, as it is the same as a new bucket from then on.
+     */
     @Bean
-    ProxyManager<String> proxyManager(CacheManager cacheManager) {
-        return new JCacheProxyManager<>(cacheManager.getCache(CACHE));
+    ProxyManager<String> proxyManager(RedissonClient redissonClient) {
+        return Bucket4jRedisson.casBasedBuilder(((Redisson) redissonClient).getCommandExecutor())
+            .expirationAfterWrite(ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(
+                java.time.Duration.ofMinutes(cacheExpiry)
+            ))
+            .keyMapper(Mapper.STRING)
+            .build();
     }
 
     @Bean
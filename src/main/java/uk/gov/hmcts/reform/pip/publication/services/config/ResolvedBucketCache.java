@@ -0,0 +1,83 @@
+package uk.gov.hmcts.reform.pip.publication.services.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A bounded local cache of the bucket proxies resolved for each rate limit key. A proxy holds no bucket state
+ * itself, so reusing one only skips building it and checking its persisted configuration in Redis again. Entries
+ * expire a fixed time after they were resolved, so a configuration changed by another instance is checked again,
+ * and the least recently used entry is removed once the cache is full.
+ */
+class ResolvedBucketCache<B> {
+    private final int maxSize;
+    private final long expiryNanos;
+    private final Map<String, Entry<B>> entries;
+
+    ResolvedBucketCache(int maxSize, long expiryInSeconds) {
+        this.maxSize = Math.max(maxSize, 0);
+        this.expiryNanos = expiryInSeconds * 1_000_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<B>> eldest) {
+                return size() > ResolvedBucketCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the bucket proxy for a key, resolving it if it is not cached or has expired. The bucket is resolved
+     * outside the lock, so a slow Redis call does not hold up the keys that are already cached.
+     *
+     * @param key The rate limit key.
+     * @param resolver Resolves the bucket proxy for the key.
+     * @return The bucket proxy for the key.
+     */
+    B get(String key, Supplier<B> resolver) {
+        long now = System.nanoTime();
+        B cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        B bucket = resolver.get();
+        put(key, bucket, now);
+        return bucket;
+    }
+
+    /**
+     * Get the bucket proxy cached for a key, for callers that resolve the proxy without blocking.
+     *
+     * @param key The rate limit key.
+     * @return The bucket proxy for the key, or null if it is not cached or has expired.
+     */
+    B getIfPresent(String key) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry<B> entry = entries.get(key);
+            if (entry != null && now - entry.resolvedAt() < expiryNanos) {
+                return entry.bucket();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cache the bucket proxy resolved for a key.
+     *
+     * @param key The rate limit key.
+     * @param bucket The bucket proxy for the key.
+     * @param resolvedAt The {@link System#nanoTime()} the proxy started being resolved at.
+     */
+    void put(String key, B bucket, long resolvedAt) {
+        if (maxSize > 0) {
+            synchronized (entries) {
+                entries.put(key, new Entry<>(bucket, resolvedAt));
+            }
+        }
+    }
+
+    private record Entry<B>(B bucket, long resolvedAt) {
+    }
+}
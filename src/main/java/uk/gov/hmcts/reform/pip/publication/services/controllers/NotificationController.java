@@ -7,7 +7,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -22,6 +25,7 @@ import uk.gov.hmcts.reform.pip.model.subscription.LocationSubscriptionDeletion;
 import uk.gov.hmcts.reform.pip.model.system.admin.SystemAdminAction;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.S3UploadException;
 import uk.gov.hmcts.reform.pip.publication.services.helpers.MultiPartHelper;
+import uk.gov.hmcts.reform.pip.publication.services.models.BulkEmailJobStatus;
 import uk.gov.hmcts.reform.pip.publication.services.models.MediaApplication;
 import uk.gov.hmcts.reform.pip.publication.services.models.NoMatchArtefact;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.BulkSubscriptionEmail;
@@ -36,6 +40,7 @@ import uk.gov.hmcts.reform.pip.publication.services.service.NotificationService;
 import uk.gov.hmcts.reform.pip.publication.services.service.UserNotificationService;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -62,8 +67,12 @@ public class NotificationController {
     private static final String OK_RESPONSE = "200";
     private static final String ACCEPTED_RESPONSE = "202";
     private static final String BAD_REQUEST = "400";
+    private static final String NOT_FOUND = "404";
     private static final String UNSUPPORTED_MEDIA_TYPE = "415";
     private static final String INTERNAL_SERVER_ERROR = "500";
+    private static final String SERVICE_UNAVAILABLE = "503";
+    private static final String QUEUE_FULL_MESSAGE = "Bulk subscription email queue is full, retry after the "
+        + "number of seconds in the Retry-After header";
 
     @Autowired
     public NotificationController(NotificationService notificationService,
@@ -109,12 +118,35 @@ public class NotificationController {
     @ApiResponse(responseCode = ACCEPTED_RESPONSE, description = "Subscription email successfully sent to email: "
         + "{recipientEmail} with reference id: {reference id}")
     @ApiResponse(responseCode = BAD_REQUEST, description = BAD_PAYLOAD_ERROR_MESSAGE)
+    @ApiResponse(responseCode = SERVICE_UNAVAILABLE, description = QUEUE_FULL_MESSAGE)
     @Operation(summary = "Bulk send email subscriptions to a list of users and associated config")
     @PostMapping("/subscription")
     public ResponseEntity<String> sendSubscriptionEmail(@Valid @RequestBody BulkSubscriptionEmail body) {
         return ResponseEntity.accepted().body(notificationService.bulkSendSubscriptionEmail(body));
     }
 
+    @ApiResponse(responseCode = ACCEPTED_RESPONSE, description = "Subscription emails queued with reference id: "
+        + "{reference id}")
+    @ApiResponse(responseCode = BAD_REQUEST, description = BAD_PAYLOAD_ERROR_MESSAGE)
+    @ApiResponse(responseCode = SERVICE_UNAVAILABLE, description = QUEUE_FULL_MESSAGE)
+    @Operation(summary = "Bulk send email subscriptions to a list of users, streaming the list from the request",
+        description = "Accepts the same payload as /notify/subscription, with the artefactId before the "
+            + "subscriptionEmails. Invalid subscription emails are skipped rather than rejecting the request.")
+    @PostMapping(value = "/subscription/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> streamSubscriptionEmail(InputStream body) {
+        return ResponseEntity.accepted().body(notificationService.streamBulkSubscriptionEmail(body));
+    }
+
+    @ApiResponse(responseCode = OK_RESPONSE, description = "Progress of the bulk email job")
+    @ApiResponse(responseCode = NOT_FOUND, description = "Bulk email job with reference ID {referenceId} not found")
+    @Operation(summary = "Get the progress of a bulk email job",
+        description = "Covers bulk subscription emails, system admin update emails and location subscription "
+            + "deletion emails")
+    @GetMapping("/subscription/{referenceId}")
+    public ResponseEntity<BulkEmailJobStatus> getSubscriptionEmailStatus(@PathVariable String referenceId) {
+        return ResponseEntity.ok(notificationService.getBulkSubscriptionEmailStatus(referenceId));
+    }
+
     @ApiResponse(responseCode = OK_RESPONSE, description = "Unidentified blob email "
         + "successfully sent with referenceId: {Id}")
     @ApiResponse(responseCode = BAD_REQUEST, description = BAD_PAYLOAD_ERROR_MESSAGE)
@@ -190,22 +222,27 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.handleMiDataForReporting());
     }
 
-    @ApiResponse(responseCode = OK_RESPONSE, description = "System Admin user email notification")
+    @ApiResponse(responseCode = ACCEPTED_RESPONSE, description = "System Admin user email notifications queued "
+        + "with referenceId: {Id}")
     @ApiResponse(responseCode = BAD_REQUEST, description = BAD_PAYLOAD_ERROR_MESSAGE)
-    @Operation(summary = "Send notification email to system admin about update")
+    @Operation(summary = "Send notification email to system admin about update",
+        description = "The emails are sent in the background. Their progress, including any recipients that could "
+            + "not be sent an email, can be followed at /notify/subscription/{referenceId}")
     @PostMapping("/sysadmin/update")
     public ResponseEntity<String> sendSystemAdminUpdate(@RequestBody @Valid SystemAdminAction body) {
-        return ResponseEntity.ok(notificationService.sendSystemAdminUpdateEmailRequest(body));
+        return ResponseEntity.accepted().body(notificationService.sendSystemAdminUpdateEmailRequest(body));
     }
 
-    @ApiResponse(responseCode = OK_RESPONSE, description = "Location subscription email "
-        + "successfully sent with referenceId: {Id}")
+    @ApiResponse(responseCode = ACCEPTED_RESPONSE, description = "Location subscription emails queued "
+        + "with referenceId: {Id}")
     @ApiResponse(responseCode = BAD_REQUEST, description = NOTIFY_EXCEPTION_ERROR_MESSAGE)
-    @Operation(summary = "Send the location subscription deletion email to all the subscribers")
+    @Operation(summary = "Send the location subscription deletion email to all the subscribers",
+        description = "The emails are sent in the background. Their progress, including any recipients that could "
+            + "not be sent an email, can be followed at /notify/subscription/{referenceId}")
     @PostMapping("/location-subscription-delete")
     public ResponseEntity<String> sendDeleteLocationSubscriptionEmail(
         @RequestBody LocationSubscriptionDeletion locationSubscriptionDeletion) {
-        return ResponseEntity.ok(
+        return ResponseEntity.accepted().body(
             notificationService.sendDeleteLocationSubscriptionEmail(locationSubscriptionDeletion)
         );
     }
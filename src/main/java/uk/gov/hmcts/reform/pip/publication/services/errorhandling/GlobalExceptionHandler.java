@@ -1,6 +1,7 @@
 package uk.gov.hmcts.reform.pip.publication.services.errorhandling;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -8,10 +9,13 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.AzureSecretReadException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BadPayloadException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BulkEmailJobNotFoundException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BulkEmailQueueException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.CsvCreationException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ExcelCreationException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.PublicationNotFoundException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ServiceBusyException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ServiceToServiceException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ThirdPartyHealthCheckException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ThirdPartyServiceException;
@@ -134,6 +138,15 @@ public class GlobalExceptionHandler {
             .body(generateExceptionResponse(ex.getMessage()));
     }
 
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ExceptionResponse> handle(ServiceBusyException ex) {
+        log.warn(writeLog(ex.getMessage()));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+            .body(generateExceptionResponse(ex.getMessage()));
+    }
+
     @ExceptionHandler(AzureSecretReadException.class)
     public ResponseEntity<ExceptionResponse> handle(AzureSecretReadException ex) {
         log.error(writeLog(ex.getMessage()));
@@ -142,6 +155,22 @@ public class GlobalExceptionHandler {
             .body(generateExceptionResponse(ex.getMessage()));
     }
 
+    @ExceptionHandler(BulkEmailJobNotFoundException.class)
+    public ResponseEntity<ExceptionResponse> handle(BulkEmailJobNotFoundException ex) {
+        log.error(writeLog(ex.getMessage()));
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .body(generateExceptionResponse(ex.getMessage()));
+    }
+
+    @ExceptionHandler(BulkEmailQueueException.class)
+    public ResponseEntity<ExceptionResponse> handle(BulkEmailQueueException ex) {
+        log.error(writeLog(ex.getMessage()));
+
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .body(generateExceptionResponse(ex.getMessage()));
+    }
+
     private ExceptionResponse generateExceptionResponse(String message) {
         ExceptionResponse exceptionResponse = new ExceptionResponse();
         exceptionResponse.setMessage(message);
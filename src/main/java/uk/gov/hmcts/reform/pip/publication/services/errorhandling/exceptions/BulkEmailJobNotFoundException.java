@@ -0,0 +1,17 @@
+package uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions;
+
+/**
+ * Exception that captures the message when a bulk email job is not found.
+ */
+public class BulkEmailJobNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = -3892275503158823419L;
+
+    /**
+     * Constructor for the Exception.
+     * @param message The message to return to the end user
+     */
+    public BulkEmailJobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions;
+
+/**
+ * Exception that captures issues with adding a bulk email job to the bulk send queue.
+ */
+public class BulkEmailQueueException extends RuntimeException {
+
+    private static final long serialVersionUID = 5320416398372215741L;
+
+    /**
+     * Constructor for the Exception.
+     * @param message The message to return to the end user
+     */
+    public BulkEmailQueueException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions;
+
+/**
+ * Exception that captures the message when emails are not being sent because GOV.UK Notify is unavailable.
+ */
+public class NotifyUnavailableException extends ServiceBusyException {
+
+    private static final long serialVersionUID = -3301826487723361540L;
+
+    /**
+     * Constructor for the Exception.
+     * @param message The message to return to the end user
+     * @param retryAfterSeconds The number of seconds the caller should wait before retrying
+     */
+    public NotifyUnavailableException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+}
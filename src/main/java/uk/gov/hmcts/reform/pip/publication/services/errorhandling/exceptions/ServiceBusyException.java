@@ -0,0 +1,27 @@
+package uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Exception that captures the message when the service is too busy to accept more work.
+ */
+@Getter
+public class ServiceBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 4418867612208412973L;
+
+    /**
+     * The number of seconds the caller should wait before retrying.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructor for the Exception.
+     * @param message The message to return to the end user
+     * @param retryAfterSeconds The number of seconds the caller should wait before retrying
+     */
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,37 @@
+package uk.gov.hmcts.reform.pip.publication.services.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A chunk of the emails built for a batch email job, such as the system admin update emails, as held on the bulk
+ * send queue.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchEmailChunk {
+    private String referenceId;
+    private List<Recipient> recipients;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Recipient {
+        private String emailAddress;
+        private String template;
+        private Map<String, Object> personalisation;
+
+        public static Recipient from(EmailToSend email) {
+            return new Recipient(email.getEmailAddress(), email.getTemplate(), email.getPersonalisation());
+        }
+
+        public EmailToSend toEmailToSend(String referenceId) {
+            return new EmailToSend(emailAddress, template, personalisation, referenceId);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package uk.gov.hmcts.reform.pip.publication.services.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The progress of a bulk email job, including the recipients that could not be sent an email where they are known.
+ * A truncated job lost recipients that could not be read from its request, so they are not included in its counts.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkEmailJobStatus {
+    private String referenceId;
+    private long queued;
+    private long sent;
+    private long rateLimited;
+    private long failed;
+    private long skipped;
+    private boolean complete;
+    private boolean truncated;
+    private double throughputPerSecond;
+    private Long estimatedSecondsRemaining;
+    private List<String> failedRecipients;
+}
@@ -0,0 +1,13 @@
+package uk.gov.hmcts.reform.pip.publication.services.models;
+
+import lombok.Value;
+import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
+
+/**
+ * An email address to check against the rate limit of the template it is being sent with.
+ */
+@Value
+public class RateLimitCheck {
+    String email;
+    Templates template;
+}
@@ -0,0 +1,14 @@
+package uk.gov.hmcts.reform.pip.publication.services.models;
+
+import lombok.Value;
+
+/**
+ * A rate limit key among the most frequently checked, with its email address masked. The count is an estimate that
+ * may be over by up to the given error, but never under.
+ */
+@Value
+public class RateLimitHotKey {
+    String key;
+    long estimatedCount;
+    long maxOverestimate;
+}
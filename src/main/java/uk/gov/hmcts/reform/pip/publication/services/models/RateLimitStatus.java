@@ -0,0 +1,19 @@
+package uk.gov.hmcts.reform.pip.publication.services.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The current state of the email rate limiter, including the keys checked most often since the sketch was reset.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RateLimitStatus {
+    private boolean degraded;
+    private long unreconciledKeys;
+    private List<RateLimitHotKey> hotKeys;
+}
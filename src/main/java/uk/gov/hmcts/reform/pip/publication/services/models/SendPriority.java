@@ -0,0 +1,21 @@
+package uk.gov.hmcts.reform.pip.publication.services.models;
+
+/**
+ * The lanes that emails are sent to GOV.UK Notify through, from highest to lowest priority. Each lane has its own
+ * share of the concurrent sends and a reserved share of the Notify send rate, so emails a user is waiting on are not
+ * held up behind bulk sends.
+ */
+public enum SendPriority {
+    /**
+     * Emails a user is actively waiting on, such as sign in codes and account emails.
+     */
+    INTERACTIVE,
+    /**
+     * Emails sent to the team or individual users as part of running the service, such as reports.
+     */
+    OPERATIONAL,
+    /**
+     * Emails sent to many recipients at once, such as subscription emails.
+     */
+    BULK
+}
@@ -0,0 +1,22 @@
+package uk.gov.hmcts.reform.pip.publication.services.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import uk.gov.hmcts.reform.pip.model.publication.Artefact;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
+
+import java.util.List;
+
+/**
+ * A chunk of the recipients of a bulk subscription email job, as held on the bulk send queue.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SubscriptionEmailChunk {
+    private String referenceId;
+    private Artefact artefact;
+    private String locationName;
+    private List<SubscriptionEmail> subscriptionEmails;
+}
@@ -0,0 +1,71 @@
+package uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.json.JSONObject;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.RetentionPeriodDuration;
+
+import static uk.gov.service.notify.NotificationClient.prepareUpload;
+
+/**
+ * The files attached to the subscription emails for an artefact. The files are encoded for GOV.UK Notify once per
+ * artefact, and the same upload objects are shared by every subscription email sent for it.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ArtefactAttachments {
+    private static final int MAX_FILE_SIZE = 2_000_000;
+
+    private final JSONObject pdf;
+    private final JSONObject excel;
+    private final JSONObject flatFile;
+
+    /**
+     * Encode the PDF and Excel files for a raw data artefact. Files which are empty or too large to be attached
+     * to the email are left out.
+     *
+     * @param pdf The PDF file of the artefact.
+     * @param excel The Excel file of the artefact.
+     * @param retentionPeriod How long GOV.UK Notify should keep the files for.
+     * @return The encoded attachments.
+     * @throws NotificationClientException if a file could not be encoded.
+     */
+    public static ArtefactAttachments forRawData(byte[] pdf, byte[] excel, RetentionPeriodDuration retentionPeriod)
+        throws NotificationClientException {
+        return new ArtefactAttachments(encodeIfWithinSize(pdf, retentionPeriod),
+                                       encodeIfWithinSize(excel, retentionPeriod),
+                                       null);
+    }
+
+    /**
+     * Encode the file of a flat file artefact.
+     *
+     * @param flatFile The flat file of the artefact.
+     * @param retentionPeriod How long GOV.UK Notify should keep the file for.
+     * @return The encoded attachments.
+     * @throws NotificationClientException if the file could not be encoded.
+     */
+    public static ArtefactAttachments forFlatFile(byte[] flatFile, RetentionPeriodDuration retentionPeriod)
+        throws NotificationClientException {
+        return new ArtefactAttachments(null, null, prepareUpload(flatFile == null ? new byte[0] : flatFile,
+                                                                 false, retentionPeriod));
+    }
+
+    public boolean hasPdf() {
+        return pdf != null;
+    }
+
+    public boolean hasExcel() {
+        return excel != null;
+    }
+
+    private static JSONObject encodeIfWithinSize(byte[] file, RetentionPeriodDuration retentionPeriod)
+        throws NotificationClientException {
+        if (file == null || file.length == 0 || file.length >= MAX_FILE_SIZE) {
+            return null;
+        }
+        return prepareUpload(file, false, retentionPeriod);
+    }
+}
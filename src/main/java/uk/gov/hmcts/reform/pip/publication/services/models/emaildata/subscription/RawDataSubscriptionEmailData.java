@@ -7,10 +7,7 @@ import uk.gov.hmcts.reform.pip.model.publication.Artefact;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.EmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionTypes;
-import uk.gov.service.notify.RetentionPeriodDuration;
 
-import java.time.temporal.ChronoUnit;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -22,20 +19,23 @@ public class RawDataSubscriptionEmailData extends EmailData {
     private Artefact artefact;
     private String locationName;
     private String artefactSummary;
-    private byte[] pdf;
-    private byte[] excel;
-    private RetentionPeriodDuration fileRetentionWeeks;
+    private ArtefactAttachments attachments;
+    private SharedPersonalisation sharedPersonalisation = new SharedPersonalisation();
 
     public RawDataSubscriptionEmailData(SubscriptionEmail subscriptionEmail, Artefact artefact, String artefactSummary,
-                                        byte[] pdf, byte[] excel, String locationName,
-                                        int fileRetentionWeeks, String referenceId) {
+                                        ArtefactAttachments attachments, String locationName, String referenceId) {
         super(subscriptionEmail.getEmail(), referenceId);
         this.subscriptions = subscriptionEmail.getSubscriptions();
         this.artefact = artefact;
         this.locationName = locationName;
         this.artefactSummary = artefactSummary;
-        this.pdf = pdf == null ? new byte[0] : Arrays.copyOf(pdf, pdf.length);
-        this.excel = excel == null ? new byte[0] : Arrays.copyOf(excel, excel.length);
-        this.fileRetentionWeeks = new RetentionPeriodDuration(fileRetentionWeeks, ChronoUnit.WEEKS);
+        this.attachments = attachments;
+    }
+
+    public RawDataSubscriptionEmailData(SubscriptionEmail subscriptionEmail, Artefact artefact, String artefactSummary,
+                                        ArtefactAttachments attachments, String locationName, String referenceId,
+                                        SharedPersonalisation sharedPersonalisation) {
+        this(subscriptionEmail, artefact, artefactSummary, attachments, locationName, referenceId);
+        this.sharedPersonalisation = sharedPersonalisation;
     }
 }
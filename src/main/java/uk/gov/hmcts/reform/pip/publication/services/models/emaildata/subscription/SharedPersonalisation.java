@@ -0,0 +1,75 @@
+package uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The personalisation shared by every subscription email sent for an artefact, such as the list type, links, summary
+ * and attached files. It is built by the first email generated for the artefact and reused by the rest, so only the
+ * fields that differ between recipients are built for each email. The personalisation for each distinct set of
+ * subscriptions is also held, as many recipients (e.g. everyone subscribed only to the location) differ only by email
+ * address.
+ */
+public class SharedPersonalisation {
+    private final Map<Object, Map<String, Object>> recipientPersonalisations = new ConcurrentHashMap<>();
+    private volatile Map<String, Object> personalisation;
+    private volatile byte[] serialised;
+
+    /**
+     * Get the shared personalisation, building it if this is the first email for the artefact.
+     *
+     * @param builder Builds the shared personalisation.
+     * @return The shared personalisation, which cannot be modified.
+     */
+    public Map<String, Object> get(Supplier<Map<String, Object>> builder) {
+        Map<String, Object> shared = personalisation;
+        if (shared == null) {
+            synchronized (this) {
+                shared = personalisation;
+                if (shared == null) {
+                    shared = Map.copyOf(builder.get());
+                    personalisation = shared;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Get the shared personalisation serialised as JSON members, so the same bytes can be written into the request
+     * body of every email for the artefact. The shared personalisation must already have been built.
+     *
+     * @return The UTF-8 bytes of the serialised shared personalisation.
+     */
+    public byte[] getSerialised() {
+        byte[] json = serialised;
+        if (json == null) {
+            synchronized (this) {
+                json = serialised;
+                if (json == null) {
+                    if (personalisation == null) {
+                        throw new IllegalStateException("Shared personalisation has not been built");
+                    }
+                    json = SubscriptionPersonalisation.toJsonMembers(personalisation).getBytes(StandardCharsets.UTF_8);
+                    serialised = json;
+                }
+            }
+        }
+        return json;
+    }
+
+    /**
+     * Get the personalisation for a recipient, building it if this is the first recipient with the same
+     * subscriptions.
+     *
+     * @param signature Identifies the subscriptions of the recipient. Recipients with equal signatures must have the
+     *                  same personalisation.
+     * @param builder Builds the personalisation for the recipient.
+     * @return The personalisation for the recipient.
+     */
+    public Map<String, Object> getForRecipient(Object signature, Supplier<Map<String, Object>> builder) {
+        return recipientPersonalisations.computeIfAbsent(signature, key -> builder.get());
+    }
+}
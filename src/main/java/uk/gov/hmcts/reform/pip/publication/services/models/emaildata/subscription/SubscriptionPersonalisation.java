@@ -0,0 +1,135 @@
+package uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription;
+
+import org.json.JSONObject;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The personalisation of a single subscription email, made up of the personalisation shared by every recipient of the
+ * artefact overlaid with the fields for the recipient. The shared personalisation is read through rather than copied,
+ * and the recipient fields take precedence where both contain the same key. Both maps are expected to be
+ * unmodifiable, as their entries are returned as they are. Where the shared personalisation has already been
+ * serialised, the request body to GOV.UK Notify can be assembled from it without serialising it again.
+ */
+public class SubscriptionPersonalisation extends AbstractMap<String, Object> {
+    private final Map<String, Object> shared;
+    private final Map<String, Object> recipient;
+    private final Supplier<byte[]> serialisedShared;
+
+    public SubscriptionPersonalisation(Map<String, Object> shared, Map<String, Object> recipient) {
+        this(shared, recipient, null);
+    }
+
+    public SubscriptionPersonalisation(Map<String, Object> shared, Map<String, Object> recipient,
+                                       Supplier<byte[]> serialisedShared) {
+        this.shared = shared;
+        this.recipient = recipient;
+        this.serialisedShared = serialisedShared;
+    }
+
+    /**
+     * Serialise personalisation as the members of a JSON object, without the surrounding braces, so it can be
+     * written into a larger JSON object.
+     *
+     * @param personalisation The personalisation to serialise.
+     * @return The JSON members, or an empty string if there is no personalisation.
+     */
+    public static String toJsonMembers(Map<String, ?> personalisation) {
+        String json = new JSONObject(personalisation).toString();
+        return json.substring(1, json.length() - 1);
+    }
+
+    public boolean hasSerialisedShared() {
+        return serialisedShared != null;
+    }
+
+    /**
+     * Get the shared personalisation serialised by {@link #toJsonMembers(Map)}.
+     *
+     * @return The UTF-8 bytes of the serialised shared personalisation.
+     */
+    public byte[] getSerialisedShared() {
+        return serialisedShared.get();
+    }
+
+    public Map<String, Object> getRecipient() {
+        return recipient;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return recipient.containsKey(key) ? recipient.get(key) : shared.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return recipient.containsKey(key) || shared.containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new OverlayIterator();
+            }
+
+            @Override
+            public int size() {
+                int size = shared.size();
+                for (String key : recipient.keySet()) {
+                    if (!shared.containsKey(key)) {
+                        size++;
+                    }
+                }
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterates the recipient entries followed by the shared entries not overridden by the recipient.
+     */
+    private class OverlayIterator implements Iterator<Entry<String, Object>> {
+        private final Iterator<Entry<String, Object>> recipientEntries = recipient.entrySet().iterator();
+        private final Iterator<Entry<String, Object>> sharedEntries = shared.entrySet().iterator();
+        private Entry<String, Object> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+
+            if (recipientEntries.hasNext()) {
+                next = recipientEntries.next();
+                return true;
+            }
+
+            while (sharedEntries.hasNext()) {
+                Entry<String, Object> entry = sharedEntries.next();
+                if (!recipient.containsKey(entry.getKey())) {
+                    next = entry;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, Object> entry = next;
+            next = null;
+            return entry;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 import uk.gov.hmcts.reform.pip.model.location.Location;
 import uk.gov.hmcts.reform.pip.model.publication.Artefact;
 import uk.gov.hmcts.reform.pip.model.publication.FileType;
@@ -86,35 +87,55 @@ public class DataManagementService {
     }
 
     public String getArtefactSummary(UUID artefactId) {
-        try {
-            String response = webClient.get().uri(String.format("%s/publication/%s/summary", url, artefactId))
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve().bodyToMono(String.class)
-                .block();
+        return fetchArtefactSummary(artefactId).block();
+    }
 
-            return response == null ? "" : response;
-        } catch (WebClientResponseException ex) {
-            throw new ServiceToServiceException(SERVICE, ex.getMessage());
-        }
+    /**
+     * Non-blocking variant of {@link #getArtefactSummary(UUID)}, so the summary can be fetched alongside the
+     * artefact files before a subscription send.
+     *
+     * @param artefactId The ID of the artefact.
+     * @return A mono of the artefact summary, which is empty string if there is no summary.
+     */
+    public Mono<String> fetchArtefactSummary(UUID artefactId) {
+        return webClient.get().uri(String.format("%s/publication/%s/summary", url, artefactId))
+            .accept(MediaType.APPLICATION_JSON)
+            .retrieve()
+            .bodyToMono(String.class)
+            .defaultIfEmpty("")
+            .onErrorMap(WebClientResponseException.class,
+                        ex -> new ServiceToServiceException(SERVICE, ex.getMessage()));
     }
 
     public String getArtefactFile(UUID artefactId, FileType fileType, boolean additionalPdf) {
-        try {
-            return webClient.get()
-                .uri(String.format("%s/publication/%s/%s?maxFileSize=%s", url, artefactId, fileType, MAX_FILE_SIZE))
-                .header(SYSTEM_HEADER, TRUE)
-                .header(ADDITIONAL_PDF_HEADER, String.valueOf(additionalPdf))
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
-        } catch (WebClientResponseException ex) {
-            if (NOT_FOUND.equals(ex.getStatusCode())
-                || PAYLOAD_TOO_LARGE.equals(ex.getStatusCode())) {
-                return "";
-            }
-            throw new ServiceToServiceException(SERVICE, ex.getMessage());
-        }
+        return fetchArtefactFile(artefactId, fileType, additionalPdf).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #getArtefactFile(UUID, FileType, boolean)}, so the files for an artefact can be
+     * fetched at the same time rather than one after another.
+     *
+     * @param artefactId The ID of the artefact.
+     * @param fileType The type of file to fetch.
+     * @param additionalPdf Whether to fetch the additional PDF.
+     * @return A mono of the base64 encoded file, which is empty string if the file is missing or too large.
+     */
+    public Mono<String> fetchArtefactFile(UUID artefactId, FileType fileType, boolean additionalPdf) {
+        return webClient.get()
+            .uri(String.format("%s/publication/%s/%s?maxFileSize=%s", url, artefactId, fileType, MAX_FILE_SIZE))
+            .header(SYSTEM_HEADER, TRUE)
+            .header(ADDITIONAL_PDF_HEADER, String.valueOf(additionalPdf))
+            .accept(MediaType.APPLICATION_JSON)
+            .retrieve()
+            .bodyToMono(String.class)
+            .defaultIfEmpty("")
+            .onErrorResume(WebClientResponseException.class, ex -> {
+                if (NOT_FOUND.equals(ex.getStatusCode())
+                    || PAYLOAD_TOO_LARGE.equals(ex.getStatusCode())) {
+                    return Mono.just("");
+                }
+                return Mono.error(new ServiceToServiceException(SERVICE, ex.getMessage()));
+            });
     }
 
     public List<PublicationMiData> getMiData() {
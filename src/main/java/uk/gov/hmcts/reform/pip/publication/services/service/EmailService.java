@@ -1,71 +1,337 @@
 package uk.gov.hmcts.reform.pip.publication.services.service;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 import uk.gov.hmcts.reform.pip.publication.services.client.EmailClient;
 import uk.gov.hmcts.reform.pip.publication.services.config.NotifyConfigProperties;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.TooManyEmailsException;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
+import uk.gov.hmcts.reform.pip.publication.services.models.RateLimitCheck;
+import uk.gov.hmcts.reform.pip.publication.services.models.SendPriority;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.BatchEmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.EmailData;
 import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
 import uk.gov.service.notify.NotificationClientException;
 import uk.gov.service.notify.SendEmailResponse;
 
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
 
 import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
+import static uk.gov.hmcts.reform.pip.publication.services.service.NotifyEmailMetrics.GENERATED;
+import static uk.gov.hmcts.reform.pip.publication.services.service.NotifyEmailMetrics.NOTIFY_ERROR;
+import static uk.gov.hmcts.reform.pip.publication.services.service.NotifyEmailMetrics.RATE_LIMITED;
+import static uk.gov.hmcts.reform.pip.publication.services.service.NotifyEmailMetrics.SENT;
 
 @Component
 @Slf4j
 public class EmailService {
+    private static final int NO_RESPONSE = 0;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+    private static final double BACKOFF_JITTER = 0.5;
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
     private final EmailClient emailClient;
     private final RateLimitingService rateLimitingService;
     private final NotifyConfigProperties notifyConfigProperties;
+    private final NotifyThroughputGovernor notifyThroughputGovernor;
+    private final NotifyCircuitBreaker notifyCircuitBreaker;
+    private final NotifyEmailMetrics notifyEmailMetrics;
+    private final NotifySendLanes notifySendLanes;
+
+    @Value("${notify.retry.max-retries}")
+    private int maxRetries;
+
+    @Value("${notify.retry.initial-backoff-in-ms}")
+    private long initialBackoff;
+
+    @Value("${notify.retry.max-backoff-in-ms}")
+    private long maxBackoff;
 
     @Autowired
     public EmailService(EmailClient emailClient, RateLimitingService rateLimitingService,
-                        NotifyConfigProperties notifyConfigProperties) {
+                        NotifyConfigProperties notifyConfigProperties,
+                        NotifyThroughputGovernor notifyThroughputGovernor,
+                        NotifyCircuitBreaker notifyCircuitBreaker,
+                        NotifyEmailMetrics notifyEmailMetrics,
+                        NotifySendLanes notifySendLanes) {
         this.emailClient = emailClient;
         this.rateLimitingService = rateLimitingService;
         this.notifyConfigProperties = notifyConfigProperties;
+        this.notifyThroughputGovernor = notifyThroughputGovernor;
+        this.notifyCircuitBreaker = notifyCircuitBreaker;
+        this.notifyEmailMetrics = notifyEmailMetrics;
+        this.notifySendLanes = notifySendLanes;
     }
 
     public EmailToSend handleEmailGeneration(EmailData emailData, Templates emailTemplate) {
-        rateLimitingService.validate(emailData.getEmail(), emailTemplate);
-        return emailTemplate.getEmailGenerator()
-            .buildEmail(emailData, notifyConfigProperties.getLinks());
+        Timer.Sample sample = notifyEmailMetrics.start();
+        try {
+            rateLimitingService.validate(emailData.getEmail(), emailTemplate);
+        } catch (TooManyEmailsException e) {
+            notifyEmailMetrics.recordGeneration(sample, emailTemplate, RATE_LIMITED);
+            throw e;
+        }
+
+        return generateEmail(sample, emailData, emailTemplate);
+    }
+
+    /**
+     * Generate an email for a recipient already checked against their rate limit by
+     * {@link #screenRecipients(List, Templates)}, so their rate limit is not consumed a second time.
+     *
+     * @param emailData The data for the email.
+     * @param emailTemplate The template of the email.
+     * @return The email to send.
+     */
+    public EmailToSend handlePreScreenedEmailGeneration(EmailData emailData, Templates emailTemplate) {
+        return generateEmail(notifyEmailMetrics.start(), emailData, emailTemplate);
+    }
+
+    /**
+     * Check a list of recipients against their rate limits before any email is generated for them, so anything
+     * shared by their emails only needs to be fetched if at least one of them will be sent an email. The rate limit
+     * of each recipient returned has been consumed.
+     *
+     * @param emails The email addresses of the recipients.
+     * @param emailTemplate The template of the emails.
+     * @return The email addresses of the recipients within their rate limit.
+     */
+    public List<String> screenRecipients(List<String> emails, Templates emailTemplate) {
+        List<String> deliverable = applyEmailRateLimit(emails, emailTemplate);
+        notifyEmailMetrics.recordBatchRecipients(emailTemplate, deliverable.size(), emails.size() - deliverable.size());
+        return deliverable;
     }
 
     public List<EmailToSend> handleBatchEmailGeneration(BatchEmailData emailData, Templates emailTemplate) {
-        List<String> emails = applyEmailRateLimit(emailData.getEmails(), emailTemplate);
+        Timer.Sample sample = notifyEmailMetrics.start();
+        List<String> emails = screenRecipients(emailData.getEmails(), emailTemplate);
+
         emailData.setEmails(emails);
-        return emailTemplate.getBatchEmailGenerator()
+        List<EmailToSend> batch = emailTemplate.getBatchEmailGenerator()
             .buildEmail(emailData, notifyConfigProperties.getLinks());
+        notifyEmailMetrics.recordGeneration(sample, emailTemplate, GENERATED);
+        return batch;
     }
 
+    /**
+     * Send an email through GOV.UK Notify. Rate limited and server error responses, along with requests that could
+     * not connect to Notify, are retried with a jittered exponential backoff, while any other rejection fails
+     * straight away as retrying would not change the outcome. A request that got no response once it was sent is not
+     * retried, as Notify may already have accepted the email. Sends are rejected without calling Notify while the
+     * circuit breaker is open. Each send waits for the share of the send rate and concurrent sends available to the
+     * priority of its template.
+     *
+     * @param emailToSend The email to send.
+     * @return The Notify response.
+     * @throws NotifyException if the email could not be sent.
+     */
     public SendEmailResponse sendEmail(EmailToSend emailToSend) {
+        SendPriority priority = Templates.get(emailToSend.getTemplate()).getSendPriority();
+        int attempt = 0;
+        while (true) {
+            boolean trial = notifyCircuitBreaker.checkAvailable();
+            try {
+                String keyName = notifyThroughputGovernor.acquire(priority);
+                notifySendLanes.acquire(priority);
+                Timer.Sample sample = notifyEmailMetrics.start();
+                try {
+                    SendEmailResponse response = emailClient.sendEmail(
+                        keyName, emailToSend.getTemplate(), emailToSend.getEmailAddress(),
+                        emailToSend.getPersonalisation(), emailToSend.getReferenceId()
+                    );
+                    notifyEmailMetrics.recordSend(sample, emailToSend.getTemplate(), SENT);
+                    notifyCircuitBreaker.recordSuccess();
+                    logSent(emailToSend);
+                    return response;
+                } catch (NotificationClientException e) {
+                    notifyEmailMetrics.recordSend(sample, emailToSend.getTemplate(), sendOutcome(e));
+                    recordOutcome(e, keyName);
+                    if (!isRetryable(e) || attempt >= maxRetries) {
+                        throw handleFailure(emailToSend, e);
+                    }
+                } finally {
+                    notifySendLanes.release(priority);
+                }
+            } finally {
+                releaseTrial(trial);
+            }
+            // The place in the lane is given up while backing off, so other sends are not held up by the retry
+            backOff(attempt++, emailToSend);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #sendEmail(EmailToSend)}. Sends are throttled, retried and guarded by the circuit
+     * breaker in the same way, and any failure is surfaced as a {@link NotifyException}.
+     *
+     * @param emailToSend The email to send.
+     * @return A mono of the Notify response.
+     */
+    public Mono<SendEmailResponse> sendEmailAsync(EmailToSend emailToSend) {
+        SendPriority priority = Templates.get(emailToSend.getTemplate()).getSendPriority();
+        Callable<Capacity> awaitCapacity = () -> {
+            boolean trial = notifyCircuitBreaker.checkAvailable();
+            try {
+                String keyName = notifyThroughputGovernor.acquire(priority);
+                notifySendLanes.acquire(priority);
+                return new Capacity(trial, keyName);
+            } catch (RuntimeException e) {
+                releaseTrial(trial);
+                throw e;
+            }
+        };
+
+        // Waiting for the throughput governor and send lane blocks, so it is kept off the Netty event loop. The place
+        // in the lane, and the circuit breaker trial if this attempt holds it, are given up as soon as the attempt
+        // completes, fails or is cancelled, after its outcome has been recorded.
+        return Mono.using(awaitCapacity, capacity -> {
+                Timer.Sample sample = notifyEmailMetrics.start();
+                return emailClient.sendEmailAsync(
+                        capacity.keyName(), emailToSend.getTemplate(), emailToSend.getEmailAddress(),
+                        emailToSend.getPersonalisation(), emailToSend.getReferenceId()
+                    )
+                    .onErrorMap(EmailService::isNoResponse, e -> new NotificationClientException((Exception) e))
+                    .doOnSuccess(response -> {
+                        notifyEmailMetrics.recordSend(sample, emailToSend.getTemplate(), SENT);
+                        notifyCircuitBreaker.recordSuccess();
+                    })
+                    .doOnError(NotificationClientException.class, e -> {
+                        notifyEmailMetrics.recordSend(sample, emailToSend.getTemplate(), sendOutcome(e));
+                        recordOutcome(e, capacity.keyName());
+                    });
+            }, capacity -> {
+                notifySendLanes.release(priority);
+                releaseTrial(capacity.trial());
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(initialBackoff))
+                           .maxBackoff(Duration.ofMillis(Math.max(maxBackoff, initialBackoff)))
+                           .jitter(BACKOFF_JITTER)
+                           .filter(EmailService::isRetryable)
+                           .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+            .doOnSuccess(response -> logSent(emailToSend))
+            .onErrorMap(NotificationClientException.class, e -> handleFailure(emailToSend, e));
+    }
+
+    private void logSent(EmailToSend emailToSend) {
+        String emailDescription = Templates.get(emailToSend.getTemplate()).getDescription();
+        log.info(writeLog(
+            String.format("%s successfully sent with reference ID: %s",
+                          emailDescription, emailToSend.getReferenceId())
+        ));
+    }
+
+    private NotifyException handleFailure(EmailToSend emailToSend, NotificationClientException e) {
+        log.error(writeLog(String.format("Failed to send email. "
+                                             + "Reference ID: %s. "
+                                             + "Reason: %s", emailToSend.getReferenceId(), e)));
+        return new NotifyException(e.getMessage());
+    }
+
+    /**
+     * Feed the outcome of a failed send into the throughput governor and circuit breaker. A rate limit slows down
+     * sends on the API key that was rate limited, a server error or a request with no response counts towards opening
+     * the breaker, and any other rejection, including a rate limit, shows that Notify is up.
+     */
+    private void recordOutcome(NotificationClientException e, String keyName) {
+        int status = e.getHttpResult();
+        if (status == TOO_MANY_REQUESTS) {
+            notifyThroughputGovernor.onRateLimited(keyName);
+            notifyCircuitBreaker.recordSuccess();
+        } else if (status == NO_RESPONSE || status >= SERVER_ERROR) {
+            notifyCircuitBreaker.recordFailure();
+        } else {
+            notifyCircuitBreaker.recordSuccess();
+        }
+    }
+
+    private void releaseTrial(boolean trial) {
+        if (trial) {
+            notifyCircuitBreaker.releaseTrial();
+        }
+    }
+
+    private static String sendOutcome(NotificationClientException e) {
+        return e.getHttpResult() == TOO_MANY_REQUESTS ? RATE_LIMITED : NOTIFY_ERROR;
+    }
+
+    private void backOff(int attempt, EmailToSend emailToSend) {
+        long delay = Math.min(maxBackoff, initialBackoff << Math.min(attempt, MAX_BACKOFF_SHIFT));
+        long jitter = (long) (delay * BACKOFF_JITTER);
         try {
-            SendEmailResponse response = emailClient.sendEmail(emailToSend.getTemplate(), emailToSend.getEmailAddress(),
-                                         emailToSend.getPersonalisation(), emailToSend.getReferenceId());
-            String emailDescription = Templates.get(emailToSend.getTemplate()).getDescription();
-            log.info(writeLog(
-                String.format("%s successfully sent with reference ID: %s",
-                              emailDescription, emailToSend.getReferenceId())
-            ));
-            return response;
-        } catch (NotificationClientException e) {
-            log.error(writeLog(String.format("Failed to send email. "
-                                                       + "Reference ID: %s. "
-                                                       + "Reason: %s", emailToSend.getReferenceId(), e)));
-            throw new NotifyException(e.getMessage());
+            Thread.sleep(delay - jitter + ThreadLocalRandom.current().nextLong(jitter * 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NotifyException(String.format("Interrupted while retrying email with reference ID %s",
+                                                    emailToSend.getReferenceId()));
+        }
+    }
+
+    private EmailToSend generateEmail(Timer.Sample sample, EmailData emailData, Templates emailTemplate) {
+        EmailToSend email = emailTemplate.getEmailGenerator()
+            .buildEmail(emailData, notifyConfigProperties.getLinks());
+        notifyEmailMetrics.recordGeneration(sample, emailTemplate, GENERATED);
+        return email;
+    }
+
+    /**
+     * Whether a failed send can be retried without the recipient being sent the email twice. A request with no
+     * response is only retried if it could not connect to Notify, as one that timed out or lost its connection after
+     * being sent may have been accepted.
+     */
+    private static boolean isRetryable(Throwable throwable) {
+        if (throwable instanceof NotificationClientException exception) {
+            int status = exception.getHttpResult();
+            if (status == NO_RESPONSE) {
+                return isNotConnected(exception);
+            }
+            return status == TOO_MANY_REQUESTS || status >= SERVER_ERROR;
+        }
+        return false;
+    }
+
+    private static boolean isNotConnected(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Whether a request failed without a response from Notify, such as a connection failure or a timeout. These are
+     * raised as a {@link NotificationClientException} with no HTTP status, as the Notify client does for the
+     * blocking send.
+     */
+    private static boolean isNoResponse(Throwable throwable) {
+        return throwable instanceof WebClientRequestException || throwable instanceof TimeoutException;
     }
 
     private List<String> applyEmailRateLimit(List<String> emails, Templates emailTemplate) {
-        return emails.stream()
-            .filter(e -> rateLimitingService.isValid(e, emailTemplate))
+        List<RateLimitCheck> checks = emails.stream()
+            .map(email -> new RateLimitCheck(email, emailTemplate))
+            .toList();
+        return rateLimitingService.filterWithinLimit(checks).stream()
+            .map(RateLimitCheck::getEmail)
             .toList();
     }
+
+    private record Capacity(boolean trial, String keyName) {
+    }
 }
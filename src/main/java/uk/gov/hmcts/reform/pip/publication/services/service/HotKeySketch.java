@@ -0,0 +1,146 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Space-Saving sketch of the most frequently seen keys, held in a fixed number of counters. When a new key is seen
+ * and every counter is in use, the key with the lowest count is replaced and the new key inherits that count as its
+ * possible overestimate. Any key seen more often than the total count divided by the capacity is always held.
+ *
+ * <p>The counters are kept in the Stream-Summary layout, grouped by count in a list of groups ordered from the lowest
+ * count up. A counter is moved to the next group when its key is seen, and the key to replace is taken from the first
+ * group, so each key is added in constant time however large the capacity is and the lock is only held briefly.</p>
+ */
+class HotKeySketch {
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private CountGroup lowest;
+
+    HotKeySketch(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+    }
+
+    synchronized void add(String key) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            increment(counter);
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            if (lowest == null || lowest.count != 1) {
+                CountGroup group = new CountGroup(1);
+                group.next = lowest;
+                if (lowest != null) {
+                    lowest.previous = group;
+                }
+                lowest = group;
+            }
+            counter = new Counter(key, 0);
+            counters.put(key, counter);
+            moveTo(counter, lowest);
+            return;
+        }
+
+        // The new key joins the lowest group before the key it replaces leaves it, so the group is never left
+        // empty in between, then takes one more count for being seen
+        CountGroup group = lowest;
+        Counter evicted = group.counters.iterator().next();
+        counter = new Counter(key, group.count);
+        counters.put(key, counter);
+        moveTo(counter, group);
+        counters.remove(evicted.key);
+        moveTo(evicted, null);
+        increment(counter);
+    }
+
+    /**
+     * Get the keys with the highest counts.
+     *
+     * @param limit The number of keys to return.
+     * @return The keys with their counts, highest first.
+     */
+    synchronized List<Entry> top(int limit) {
+        return counters.values().stream()
+            .map(counter -> new Entry(counter.key, counter.group.count, counter.error))
+            .sorted(Comparator.comparingLong(Entry::count).reversed())
+            .limit(limit)
+            .toList();
+    }
+
+    synchronized void clear() {
+        counters.clear();
+        lowest = null;
+    }
+
+    private void increment(Counter counter) {
+        CountGroup current = counter.group;
+        CountGroup target = current.next;
+        if (target == null || target.count != current.count + 1) {
+            target = new CountGroup(current.count + 1);
+            target.previous = current;
+            target.next = current.next;
+            if (current.next != null) {
+                current.next.previous = target;
+            }
+            current.next = target;
+        }
+        moveTo(counter, target);
+    }
+
+    private void moveTo(Counter counter, CountGroup target) {
+        CountGroup current = counter.group;
+        if (current != null) {
+            current.counters.remove(counter);
+            if (current.counters.isEmpty()) {
+                unlink(current);
+            }
+        }
+
+        counter.group = target;
+        if (target != null) {
+            target.counters.add(counter);
+        }
+    }
+
+    private void unlink(CountGroup group) {
+        if (group.previous == null) {
+            lowest = group.next;
+        } else {
+            group.previous.next = group.next;
+        }
+        if (group.next != null) {
+            group.next.previous = group.previous;
+        }
+    }
+
+    record Entry(String key, long count, long error) {
+    }
+
+    private static final class Counter {
+        private final String key;
+        private final long error;
+        private CountGroup group;
+
+        private Counter(String key, long error) {
+            this.key = key;
+            this.error = error;
+        }
+    }
+
+    private static final class CountGroup {
+        private final long count;
+        private final Set<Counter> counters = new LinkedHashSet<>();
+        private CountGroup previous;
+        private CountGroup next;
+
+        private CountGroup(long count) {
+            this.count = count;
+        }
+    }
+}
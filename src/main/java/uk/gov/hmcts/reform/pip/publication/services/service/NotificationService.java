@@ -9,6 +9,7 @@ import uk.gov.hmcts.reform.pip.model.publication.Artefact;
 import uk.gov.hmcts.reform.pip.model.subscription.LocationSubscriptionDeletion;
 import uk.gov.hmcts.reform.pip.model.system.admin.SystemAdminAction;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ExcelCreationException;
+import uk.gov.hmcts.reform.pip.publication.services.models.BulkEmailJobStatus;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
 import uk.gov.hmcts.reform.pip.publication.services.models.MediaApplication;
 import uk.gov.hmcts.reform.pip.publication.services.models.NoMatchArtefact;
@@ -18,9 +19,15 @@ import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.reporting.S
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.reporting.UnidentifiedBlobEmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.LocationSubscriptionDeletionEmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.BulkSubscriptionEmail;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
 import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkEmailJobTracker;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkSubscriptionQueue;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkSubscriptionStreamService;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.SubscriptionEmailMerger;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -35,7 +42,11 @@ public class NotificationService {
 
     private final DataManagementService dataManagementService;
 
-    private final SubscriptionNotificationService subscriptionNotificationService;
+    private final BulkSubscriptionQueue bulkSubscriptionQueue;
+
+    private final BulkEmailJobTracker bulkEmailJobTracker;
+
+    private final BulkSubscriptionStreamService bulkSubscriptionStreamService;
 
     @Value("${notify.pi-team-email}")
     private String piTeamEmail;
@@ -50,11 +61,15 @@ public class NotificationService {
     public NotificationService(EmailService emailService,
                                FileCreationService fileCreationService,
                                DataManagementService dataManagementService,
-                               SubscriptionNotificationService subscriptionNotificationService) {
+                               BulkSubscriptionQueue bulkSubscriptionQueue,
+                               BulkEmailJobTracker bulkEmailJobTracker,
+                               BulkSubscriptionStreamService bulkSubscriptionStreamService) {
         this.emailService = emailService;
         this.fileCreationService = fileCreationService;
         this.dataManagementService = dataManagementService;
-        this.subscriptionNotificationService = subscriptionNotificationService;
+        this.bulkSubscriptionQueue = bulkSubscriptionQueue;
+        this.bulkEmailJobTracker = bulkEmailJobTracker;
+        this.bulkSubscriptionStreamService = bulkSubscriptionStreamService;
     }
 
     /**
@@ -114,46 +129,69 @@ public class NotificationService {
     }
 
     /**
-     * This method handles the sending the email to all system admins for some actions on the application.
+     * This method handles the sending the email to all system admins for some actions on the application. The emails
+     * are sent in the background, and their progress can be followed with the returned reference ID.
      *
      * @param body The body of the system admin update email.
      * @return The ID that references the system admin update email.
      */
     public String sendSystemAdminUpdateEmailRequest(SystemAdminAction body) {
         String referenceId = UUID.randomUUID().toString();
+        SystemAdminUpdateEmailData emailData = new SystemAdminUpdateEmailData(body, envName, referenceId);
+        List<String> recipients = emailData.getEmails();
         List<EmailToSend> email = emailService.handleBatchEmailGeneration(
-            new SystemAdminUpdateEmailData(body, envName, referenceId), Templates.SYSTEM_ADMIN_UPDATE_EMAIL
+            emailData, Templates.SYSTEM_ADMIN_UPDATE_EMAIL
         );
 
-        email.forEach(emailService::sendEmail);
+        bulkSubscriptionQueue.enqueueBatch(referenceId, recipients, email);
         return referenceId;
     }
 
     /**
-     * This method handles the bulk sending of subscription emails.
+     * This method handles the bulk sending of subscription emails. Entries for the same recipient are merged so
+     * each subscriber receives a single email for the artefact.
      *
      * @param bulkSubscriptionEmail The list of subscriptions that need to be fulfilled.
      * @return The ID that references the subscription notification email.
      */
     public String bulkSendSubscriptionEmail(BulkSubscriptionEmail bulkSubscriptionEmail) {
+        bulkSubscriptionQueue.checkAdmission();
         Artefact artefact = dataManagementService.getArtefact(bulkSubscriptionEmail.getArtefactId());
         String locationName = dataManagementService.getLocation(artefact.getLocationId()).getName();
         String referenceId = UUID.randomUUID().toString();
 
-        if (artefact.getIsFlatFile().equals(Boolean.TRUE)) {
-            subscriptionNotificationService.flatFileBulkSubscriptionEmailRequest(
-                bulkSubscriptionEmail, artefact, locationName, referenceId
-            );
-        } else {
-            subscriptionNotificationService.rawDataBulkSubscriptionEmailRequest(
-                bulkSubscriptionEmail, artefact, locationName, referenceId
-            );
-        }
+        List<SubscriptionEmail> subscriptionEmails = SubscriptionEmailMerger.merge(
+            bulkSubscriptionEmail.getSubscriptionEmails()
+        );
+        bulkSubscriptionQueue.enqueue(referenceId, artefact, locationName, subscriptionEmails);
         return referenceId;
     }
 
     /**
-     * This method handles the sending the email to all the subscribers who are subscribe to a location.
+     * This method handles the bulk sending of subscription emails, reading the subscriptions from the request as a
+     * stream so the full list of subscriptions is never held in memory.
+     *
+     * @param inputStream The request body containing the subscriptions that need to be fulfilled.
+     * @return The ID that references the subscription notification email.
+     */
+    public String streamBulkSubscriptionEmail(InputStream inputStream) {
+        return bulkSubscriptionStreamService.ingest(inputStream);
+    }
+
+    /**
+     * This method returns the progress of a bulk email job, such as a bulk subscription email or a batch of system
+     * admin update or location subscription deletion emails.
+     *
+     * @param referenceId The ID that references the bulk subscription email job.
+     * @return The status of the bulk subscription email job.
+     */
+    public BulkEmailJobStatus getBulkSubscriptionEmailStatus(String referenceId) {
+        return bulkEmailJobTracker.getStatus(referenceId);
+    }
+
+    /**
+     * This method handles the sending the email to all the subscribers who are subscribe to a location. The emails
+     * are sent in the background, and their progress can be followed with the returned reference ID.
      *
      * @param body The body of the location subscription notification email.
      * @return The ID that references the location subscription notification email.
@@ -167,7 +205,7 @@ public class NotificationService {
             Templates.DELETE_LOCATION_SUBSCRIPTION
         );
 
-        email.forEach(emailService::sendEmail);
+        bulkSubscriptionQueue.enqueueBatch(referenceId, body.getSubscriberEmails(), email);
         return referenceId;
     }
 }
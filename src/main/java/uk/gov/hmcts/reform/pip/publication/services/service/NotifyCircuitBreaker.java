@@ -0,0 +1,107 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
+
+/**
+ * Stops emails being sent to GOV.UK Notify while it is failing. The breaker opens once the configured number of
+ * consecutive failures is reached, and rejects sends until the open duration has passed. A single trial send is
+ * then let through, which closes the breaker if Notify responds or opens it again if it fails. A trial that ends
+ * without either, such as one that could not get a share of the send rate, is released so the next send can try.
+ */
+@Service
+@Slf4j
+public class NotifyCircuitBreaker {
+    private static final String UNAVAILABLE_MESSAGE = "GOV.UK Notify is currently unavailable, please retry later";
+    private static final long MILLIS_PER_SECOND = 1000;
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInProgress = new AtomicBoolean();
+    private volatile long openUntil;
+
+    @Autowired
+    public NotifyCircuitBreaker(@Value("${notify.circuit-breaker.failure-threshold}") int failureThreshold,
+                                @Value("${notify.circuit-breaker.open-duration-in-seconds}")
+                                int openDurationInSeconds) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = Duration.ofSeconds(openDurationInSeconds).toMillis();
+    }
+
+    /**
+     * Check whether a send can be made. A caller given the trial send must release it with
+     * {@link #releaseTrial()} once the attempt has finished, however it ended.
+     *
+     * @return True if the caller has been given the trial send.
+     * @throws NotifyUnavailableException if the breaker is open.
+     */
+    public boolean checkAvailable() {
+        long until = openUntil;
+        if (until == 0) {
+            return false;
+        }
+
+        long remaining = until - System.currentTimeMillis();
+        if (remaining > 0 || !trialInProgress.compareAndSet(false, true)) {
+            throw new NotifyUnavailableException(UNAVAILABLE_MESSAGE,
+                                                 Math.max(remaining, MILLIS_PER_SECOND) / MILLIS_PER_SECOND);
+        }
+        return true;
+    }
+
+    /**
+     * Release the trial send given by {@link #checkAvailable()}. This does nothing if the outcome of the trial has
+     * already been recorded.
+     */
+    public void releaseTrial() {
+        trialInProgress.set(false);
+    }
+
+    /**
+     * Whether sends are currently being rejected, so callers can hold back work rather than fail it.
+     *
+     * @return True if the breaker is open and the open duration has not yet passed, or a trial send is in progress.
+     */
+    public boolean isOpen() {
+        return openUntil > System.currentTimeMillis() || trialInProgress.get();
+    }
+
+    /**
+     * Record that Notify handled a send, even if it rejected the email itself.
+     */
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (openUntil != 0) {
+            log.info(writeLog("GOV.UK Notify has recovered, resuming sending emails"));
+            openUntil = 0;
+        }
+        trialInProgress.set(false);
+    }
+
+    /**
+     * Record that Notify failed to handle a send.
+     */
+    public void recordFailure() {
+        if (failureThreshold <= 0) {
+            return;
+        }
+
+        if (trialInProgress.get() || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openDurationMillis;
+            trialInProgress.set(false);
+            log.error(writeLog(String.format("GOV.UK Notify is failing, pausing sending emails for %s seconds",
+                                             openDurationMillis / MILLIS_PER_SECOND)));
+        }
+    }
+}
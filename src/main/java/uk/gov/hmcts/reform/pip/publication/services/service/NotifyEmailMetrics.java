@@ -0,0 +1,103 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
+
+/**
+ * Records the time taken to generate and send emails, tagged by template and outcome. Send timings cover a single
+ * call to GOV.UK Notify, so retries are recorded as separate attempts, and the timers publish histograms so
+ * percentiles can be aggregated across pods.
+ */
+@Component
+public class NotifyEmailMetrics {
+    public static final String GENERATED = "generated";
+    public static final String SENT = "sent";
+    public static final String RATE_LIMITED = "rate-limited";
+    public static final String NOTIFY_ERROR = "notify-error";
+    public static final String ACCEPTED = "accepted";
+
+    private static final String METRIC_PREFIX = "notify.email.";
+    private static final String TEMPLATE_TAG = "template";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final String UNKNOWN_TEMPLATE = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public NotifyEmailMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Start timing an email being generated or sent.
+     *
+     * @return The sample to pass back when recording the outcome.
+     */
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Record the outcome of generating an email.
+     *
+     * @param sample The sample started before the email was generated.
+     * @param template The template of the email.
+     * @param outcome The outcome of generating the email.
+     */
+    public void recordGeneration(Timer.Sample sample, Templates template, String outcome) {
+        sample.stop(timer("generation", "Time taken to generate emails", template.name(), outcome));
+    }
+
+    /**
+     * Record the outcome of a send to GOV.UK Notify.
+     *
+     * @param sample The sample started before the email was sent.
+     * @param templateId The Notify ID of the template of the email.
+     * @param outcome The outcome of the send.
+     */
+    public void recordSend(Timer.Sample sample, String templateId, String outcome) {
+        sample.stop(timer("send", "Time taken for GOV.UK Notify to handle a send", templateName(templateId),
+                          outcome));
+    }
+
+    /**
+     * Record the number of recipients in a batch email that were accepted or rejected by the rate limit.
+     *
+     * @param template The template of the email.
+     * @param accepted The number of recipients accepted.
+     * @param rateLimited The number of recipients rejected by the rate limit.
+     */
+    public void recordBatchRecipients(Templates template, int accepted, int rateLimited) {
+        recipientCounter(template, ACCEPTED).increment(accepted);
+        recipientCounter(template, RATE_LIMITED).increment(rateLimited);
+    }
+
+    private Timer timer(String name, String description, String template, String outcome) {
+        return Timer.builder(METRIC_PREFIX + name)
+            .description(description)
+            .tag(TEMPLATE_TAG, template)
+            .tag(OUTCOME_TAG, outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private Counter recipientCounter(Templates template, String outcome) {
+        return Counter.builder(METRIC_PREFIX + "batch.recipients")
+            .description("Recipients of batch emails, by whether they were within the rate limit")
+            .tag(TEMPLATE_TAG, template.name())
+            .tag(OUTCOME_TAG, outcome)
+            .register(meterRegistry);
+    }
+
+    private static String templateName(String templateId) {
+        try {
+            return Templates.get(templateId).name();
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN_TEMPLATE;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
+import uk.gov.hmcts.reform.pip.publication.services.models.SendPriority;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of concurrent sends to GOV.UK Notify for each send priority. Each lane has its own share of the
+ * connections to Notify, so a bulk send saturating its lane does not hold up the sends in the other lanes.
+ */
+@Service
+public class NotifySendLanes {
+    private final Map<SendPriority, Semaphore> lanes = new EnumMap<>(SendPriority.class);
+
+    @Autowired
+    public NotifySendLanes(MeterRegistry meterRegistry,
+                           @Value("${notify.lanes.max-concurrency.interactive}") int interactiveMaxConcurrency,
+                           @Value("${notify.lanes.max-concurrency.operational}") int operationalMaxConcurrency,
+                           @Value("${notify.lanes.max-concurrency.bulk}") int bulkMaxConcurrency) {
+        Map<SendPriority, Integer> maxConcurrency = new EnumMap<>(SendPriority.class);
+        maxConcurrency.put(SendPriority.INTERACTIVE, Math.max(interactiveMaxConcurrency, 1));
+        maxConcurrency.put(SendPriority.OPERATIONAL, Math.max(operationalMaxConcurrency, 1));
+        maxConcurrency.put(SendPriority.BULK, Math.max(bulkMaxConcurrency, 1));
+
+        maxConcurrency.forEach((priority, permits) -> {
+            Semaphore lane = new Semaphore(permits, true);
+            lanes.put(priority, lane);
+            Gauge.builder("notify.lane.in-flight", lane, semaphore -> permits - semaphore.availablePermits())
+                .description("Sends to GOV.UK Notify currently in flight for the send priority")
+                .tag("lane", priority.name())
+                .register(meterRegistry);
+        });
+    }
+
+    /**
+     * Wait until a send can be made in the lane for the send priority. Every call must be followed by a call to
+     * {@link #release(SendPriority)} once the send has completed.
+     *
+     * @param priority The priority of the email being sent.
+     * @throws NotifyException if interrupted while waiting.
+     */
+    public void acquire(SendPriority priority) {
+        try {
+            lanes.get(priority).acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NotifyException("Interrupted while waiting to send email to GOV.UK Notify");
+        }
+    }
+
+    /**
+     * Free up the place in the lane taken by a completed send.
+     *
+     * @param priority The priority of the email that was sent.
+     */
+    public void release(SendPriority priority) {
+        lanes.get(priority).release();
+    }
+}
@@ -0,0 +1,405 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.pip.publication.services.client.EmailClient;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
+import uk.gov.hmcts.reform.pip.publication.services.models.SendPriority;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
+
+/**
+ * Limits the rate of requests made to GOV.UK Notify across every pod. Notify limits each API key separately, so each
+ * key has its own token bucket in the shared bucket4j proxy manager, refilled at up to the maximum rate, and a send is
+ * given a token from the first key with one free, starting from a different key each time. Adding a key adds its rate
+ * to the total. The rate of a key is halved when Notify responds to it with a 429, down to the configured minimum,
+ * and is stepped back up towards the maximum by a scheduled check once the recovery interval has passed without
+ * another 429 on the key. The time each key was last adjusted is held in Redis and claimed with a compare-and-set, so
+ * a burst of 429s within the decrease cooldown halves its rate once, and only one pod steps it up in each recovery
+ * interval.
+ *
+ * <p>A share of the total rate of every key is reserved for each send priority above bulk. Lower priority sends also
+ * take a token from a bucket for each lane they are below, refilled at the rate left once the reservations of the
+ * higher lanes are taken away, so bulk sends can never use the quota reserved for interactive and operational
+ * emails.</p>
+ *
+ * <p>Each call to Redis is given the same latency budget as the rate limit checks. A send whose call does not complete
+ * within it takes its token from a bucket held on the pod instead, refilled at this pod's share of the maximum rate
+ * of every key, and is left to the least loaded key. Once enough calls in a row have failed, every send uses the
+ * pod's buckets until Redis responds again, and the rates are not adjusted in the meantime.</p>
+ */
+@Service
+@Slf4j
+public class NotifyThroughputGovernor {
+    private static final String KEY = "publication-services-notify-throughput";
+    private static final String API_KEY_PREFIX = KEY + "-key-";
+    private static final String LAST_ADJUSTMENT_SUFFIX = "-last-adjustment";
+    private static final int RAMP_UP_STEPS = 10;
+    private static final int FULL_SHARE = 100;
+    private static final String INTERRUPTED_MESSAGE = "Interrupted while waiting to send email to GOV.UK Notify";
+    private static final Executor REMOTE_EXECUTOR = Thread::startVirtualThread;
+    private static final long RECOVERY_CHECK_INTERVAL_MS = 1000;
+
+    private final ProxyManager<String> buckets;
+    private final int maxPerSecond;
+    private final int minPerSecond;
+    private final long recoveryIntervalMillis;
+    private final Map<SendPriority, Integer> laneShares = new EnumMap<>(SendPriority.class);
+    private final Map<SendPriority, Bucket> laneBuckets = new EnumMap<>(SendPriority.class);
+    private final List<String> keyNames;
+    private final Map<String, Bucket> keyBuckets = new HashMap<>();
+    private final Map<String, RAtomicLong> lastAdjustments = new HashMap<>();
+    private final AtomicInteger nextKey = new AtomicInteger();
+    private final Map<SendPriority, Bucket> localBuckets = new ConcurrentHashMap<>();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean degraded;
+
+    @Value("${rate-limit.notify.decrease-cooldown-in-ms}")
+    private long decreaseCooldown;
+
+    @Value("${rate-limit.latency-budget-in-ms}")
+    private long latencyBudget;
+
+    @Value("${rate-limit.fallback.replica-count}")
+    private int replicaCount;
+
+    @Value("${rate-limit.fallback.failure-threshold}")
+    private int failureThreshold;
+
+    @Autowired
+    public NotifyThroughputGovernor(ProxyManager<String> buckets, RedissonClient redissonClient,
+                                    @Value("${notify.api.key}") String apiKey,
+                                    @Value("${notify.api.additional-keys}") String additionalApiKeys,
+                                    @Value("${rate-limit.notify.max-per-second}") int maxPerSecond,
+                                    @Value("${rate-limit.notify.min-per-second}") int minPerSecond,
+                                    @Value("${rate-limit.notify.recovery-interval-in-seconds}")
+                                    int recoveryIntervalInSeconds,
+                                    @Value("${rate-limit.notify.reserved-percentage.interactive}")
+                                    int interactiveReservedPercentage,
+                                    @Value("${rate-limit.notify.reserved-percentage.operational}")
+                                    int operationalReservedPercentage) {
+        this.buckets = buckets;
+        this.keyNames = EmailClient.getKeyNames(apiKey, additionalApiKeys);
+        this.maxPerSecond = maxPerSecond;
+        this.minPerSecond = Math.clamp(minPerSecond, 1, Math.max(maxPerSecond, 1));
+        this.recoveryIntervalMillis = Duration.ofSeconds(recoveryIntervalInSeconds).toMillis();
+
+        int share = FULL_SHARE;
+        laneShares.put(SendPriority.INTERACTIVE, share);
+        share -= Math.clamp(interactiveReservedPercentage, 0, share);
+        laneShares.put(SendPriority.OPERATIONAL, share);
+        share -= Math.clamp(operationalReservedPercentage, 0, share);
+        laneShares.put(SendPriority.BULK, share);
+
+        // The bucket proxies only hold the key and how to create the bucket, so they are built once and reused
+        if (maxPerSecond > 0) {
+            keyNames.forEach(keyName -> {
+                keyBuckets.put(keyName, buckets.builder().build(API_KEY_PREFIX + keyName,
+                                                                () -> getBucketConfiguration(maxPerSecond)));
+                lastAdjustments.put(keyName, redissonClient.getAtomicLong(
+                    API_KEY_PREFIX + keyName + LAST_ADJUSTMENT_SUFFIX
+                ));
+            });
+            laneShares.forEach((lane, laneShare) -> {
+                if (laneShare < FULL_SHARE) {
+                    laneBuckets.put(lane, buckets.builder().build(
+                        KEY + "-" + lane.name().toLowerCase(Locale.ROOT),
+                        () -> getBucketConfiguration(getLaneRate(lane, getTotalRate()))
+                    ));
+                }
+            });
+        }
+    }
+
+    /**
+     * Wait until a request to Notify can be made within the rate of an API key and the share of the total rate
+     * available to the send priority.
+     *
+     * @param priority The priority of the email being sent.
+     * @return The name of the API key the send has been given a token for, or null if it can be sent with any key.
+     */
+    public String acquire(SendPriority priority) {
+        if (maxPerSecond <= 0) {
+            return null;
+        }
+
+        try {
+            // Tokens are taken from the most restrictive lane first, so a send waiting on its share of the rate does
+            // not hold tokens in the bucket of an API key
+            for (int ordinal = priority.ordinal(); ordinal > 0; ordinal--) {
+                SendPriority lane = SendPriority.values()[ordinal];
+                Bucket laneBucket = laneBuckets.get(lane);
+                if (laneBucket != null) {
+                    consume(laneBucket, lane);
+                }
+            }
+
+            KeyToken token = withinBudget(this::takeKeyToken, () -> new KeyToken(
+                null, getLocalBucket(SendPriority.INTERACTIVE).consumeIgnoringRateLimits(1)
+            ));
+            NANOSECONDS.sleep(token.waitNanos());
+            return token.keyName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NotifyException(INTERRUPTED_MESSAGE);
+        }
+    }
+
+    /**
+     * Reduce the rate of an API key after Notify has responded to it with a 429.
+     *
+     * @param keyName The name of the API key that was rate limited, or null if the send was not given a token for a
+     *     key, in which case no rate is reduced.
+     */
+    public void onRateLimited(String keyName) {
+        if (maxPerSecond <= 0 || keyName == null || !keyBuckets.containsKey(keyName)) {
+            return;
+        }
+
+        withinBudget(() -> {
+            reduceRate(keyName);
+            return null;
+        }, () -> null);
+    }
+
+    /**
+     * Step the rate of each API key back up once the recovery interval has passed since it was last adjusted. This is
+     * checked on a schedule rather than on each send, so sends do not make a call to Redis for it.
+     */
+    @Scheduled(fixedDelay = RECOVERY_CHECK_INTERVAL_MS)
+    public void recoverRate() {
+        if (maxPerSecond <= 0) {
+            return;
+        }
+
+        withinBudget(() -> {
+            long now = System.currentTimeMillis();
+            keyNames.forEach(keyName -> {
+                RAtomicLong lastAdjustment = lastAdjustments.get(keyName);
+                long adjustedAt = lastAdjustment.get();
+                if (now - adjustedAt >= recoveryIntervalMillis && lastAdjustment.compareAndSet(adjustedAt, now)) {
+                    rampUp(keyName);
+                }
+            });
+            return null;
+        }, () -> null);
+    }
+
+    /**
+     * Go back to sharing the rate through Redis once it responds within the latency budget again.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.fallback.reconcile-interval-in-ms}")
+    public void checkRedis() {
+        if (!degraded) {
+            return;
+        }
+
+        try {
+            getWithinBudget(this::getTotalRate);
+        } catch (TimeoutException | ExecutionException ex) {
+            return;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        consecutiveFailures.set(0);
+        degraded = false;
+        localBuckets.clear();
+        log.info(writeLog("Redis is responding again, the GOV.UK Notify send rate is being shared through Redis"));
+    }
+
+    /**
+     * Whether sends are currently being limited by the buckets held on this pod rather than in Redis.
+     *
+     * @return True if Redis has stopped responding within the latency budget.
+     */
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    private void consume(Bucket remoteBucket, SendPriority lane) throws InterruptedException {
+        if (latencyBudget <= 0) {
+            remoteBucket.asBlocking().consume(1);
+            return;
+        }
+
+        // The token is reserved in a single call, then waited for on this thread, so only the call to Redis is
+        // held to the latency budget rather than the wait for the rate
+        long waitNanos = withinBudget(() -> remoteBucket.consumeIgnoringRateLimits(1),
+                                      () -> getLocalBucket(lane).consumeIgnoringRateLimits(1));
+        NANOSECONDS.sleep(waitNanos);
+    }
+
+    /**
+     * Take a token from the first API key with one free, starting from the next key in turn so the keys are used
+     * evenly. If no key has a token free, one is reserved on the key whose turn it is, to be waited for.
+     */
+    private KeyToken takeKeyToken() {
+        int start = Math.floorMod(nextKey.getAndIncrement(), keyNames.size());
+        if (keyNames.size() > 1) {
+            for (int i = 0; i < keyNames.size(); i++) {
+                String keyName = keyNames.get((start + i) % keyNames.size());
+                if (keyBuckets.get(keyName).tryConsume(1)) {
+                    return new KeyToken(keyName, 0);
+                }
+            }
+        }
+
+        String keyName = keyNames.get(start);
+        return new KeyToken(keyName, keyBuckets.get(keyName).consumeIgnoringRateLimits(1));
+    }
+
+    private <T> T withinBudget(Supplier<T> remote, Supplier<T> local) {
+        if (latencyBudget <= 0) {
+            return remote.get();
+        }
+        if (degraded) {
+            return local.get();
+        }
+
+        try {
+            T result = getWithinBudget(remote);
+            consecutiveFailures.set(0);
+            return result;
+        } catch (TimeoutException | ExecutionException ex) {
+            recordFailure(ex instanceof ExecutionException ? ex.getCause().getMessage() : "timed out");
+            return local.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new NotifyException(INTERRUPTED_MESSAGE);
+        }
+    }
+
+    private <T> T getWithinBudget(Supplier<T> remote)
+        throws TimeoutException, ExecutionException, InterruptedException {
+        return CompletableFuture.supplyAsync(remote, REMOTE_EXECUTOR).get(latencyBudget, MILLISECONDS);
+    }
+
+    private void recordFailure(String reason) {
+        if (consecutiveFailures.incrementAndGet() >= Math.max(failureThreshold, 1) && !degraded) {
+            degraded = true;
+            log.error(writeLog(String.format(
+                "Redis did not respond within %s ms, the GOV.UK Notify send rate is being limited on each pod: %s",
+                latencyBudget, reason
+            )));
+        }
+    }
+
+    private Bucket getLocalBucket(SendPriority lane) {
+        // Each pod is given an equal share of the rate, in the same way as the local rate limit buckets
+        return localBuckets.computeIfAbsent(lane, key -> {
+            int replicas = Math.max(replicaCount, 1);
+            int maxTotalRate = maxPerSecond * keyNames.size();
+            return Bucket.builder()
+                .addLimit(getBandwidth(getLaneRate(key, (maxTotalRate + replicas - 1) / replicas)))
+                .build();
+        });
+    }
+
+    private void reduceRate(String keyName) {
+        // Sends in flight when the rate is exceeded all get a 429, so only the first of them within the cooldown
+        // reduces the rate, and the rest are left to back off
+        RAtomicLong lastAdjustment = lastAdjustments.get(keyName);
+        long adjustedAt = lastAdjustment.get();
+        long now = System.currentTimeMillis();
+        if (now - adjustedAt < decreaseCooldown || !lastAdjustment.compareAndSet(adjustedAt, now)) {
+            return;
+        }
+
+        int currentRate = getKeyRate(keyName);
+        int newRate = Math.max(currentRate / 2, minPerSecond);
+
+        if (newRate < currentRate) {
+            log.warn(writeLog(String.format("GOV.UK Notify rate limit reached on API key %s. Reducing send rate from "
+                                                + "%s to %s emails per second", keyName, currentRate, newRate)));
+            replaceRate(keyName, newRate);
+        }
+    }
+
+    private void rampUp(String keyName) {
+        int currentRate = getKeyRate(keyName);
+
+        if (currentRate < maxPerSecond) {
+            int newRate = Math.min(currentRate + Math.max(maxPerSecond / RAMP_UP_STEPS, 1), maxPerSecond);
+            log.info(writeLog(String.format("Increasing GOV.UK Notify send rate on API key %s from %s to %s emails "
+                                                + "per second", keyName, currentRate, newRate)));
+            replaceRate(keyName, newRate);
+        }
+    }
+
+    private void replaceRate(String keyName, int newRate) {
+        keyBuckets.get(keyName).replaceConfiguration(getBucketConfiguration(newRate),
+                                                     TokensInheritanceStrategy.PROPORTIONALLY);
+        if (laneBuckets.isEmpty()) {
+            return;
+        }
+
+        int totalRate = newRate + keyNames.stream()
+            .filter(name -> !name.equals(keyName))
+            .mapToInt(this::getKeyRate)
+            .sum();
+        laneBuckets.forEach((lane, laneBucket) -> laneBucket.replaceConfiguration(
+            getBucketConfiguration(getLaneRate(lane, totalRate)), TokensInheritanceStrategy.PROPORTIONALLY
+        ));
+    }
+
+    private int getLaneRate(SendPriority lane, int ratePerSecond) {
+        return Math.max(ratePerSecond * laneShares.get(lane) / FULL_SHARE, 1);
+    }
+
+    private int getTotalRate() {
+        return keyNames.stream()
+            .mapToInt(this::getKeyRate)
+            .sum();
+    }
+
+    private int getKeyRate(String keyName) {
+        return buckets.getProxyConfiguration(API_KEY_PREFIX + keyName)
+            .filter(config -> config.getBandwidths().length > 0)
+            .map(config -> (int) config.getBandwidths()[0].getCapacity())
+            .orElse(maxPerSecond);
+    }
+
+    private static BucketConfiguration getBucketConfiguration(int ratePerSecond) {
+        return BucketConfiguration.builder()
+            .addLimit(getBandwidth(ratePerSecond))
+            .build();
+    }
+
+    private static Bandwidth getBandwidth(int ratePerSecond) {
+        Refill refill = Refill.greedy(ratePerSecond, Duration.ofSeconds(1));
+        return Bandwidth.classic(ratePerSecond, refill);
+    }
+
+    private record KeyToken(String keyName, long waitNanos) {
+    }
+}
@@ -0,0 +1,41 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.pip.model.authentication.roles.IsAdmin;
+import uk.gov.hmcts.reform.pip.publication.services.models.RateLimitStatus;
+
+/**
+ * Actuator endpoint showing whether rate limits are being checked against Redis or the local buckets, and which
+ * keys are being checked most often. The hot keys include masked email addresses and can be reset, so the endpoint
+ * is restricted to admin callers in the same way as the notification controllers.
+ */
+@Component
+@IsAdmin
+@Endpoint(id = "ratelimits")
+public class RateLimitEndpoint {
+    private static final int HOT_KEY_LIMIT = 20;
+
+    private final RateLimitingService rateLimitingService;
+    private final RateLimitMetrics rateLimitMetrics;
+
+    @Autowired
+    public RateLimitEndpoint(RateLimitingService rateLimitingService, RateLimitMetrics rateLimitMetrics) {
+        this.rateLimitingService = rateLimitingService;
+        this.rateLimitMetrics = rateLimitMetrics;
+    }
+
+    @ReadOperation
+    public RateLimitStatus status() {
+        return new RateLimitStatus(rateLimitingService.isDegraded(), rateLimitingService.getUnreconciledKeyCount(),
+                                   rateLimitMetrics.getHotKeys(HOT_KEY_LIMIT));
+    }
+
+    @DeleteOperation
+    public void resetHotKeys() {
+        rateLimitMetrics.resetHotKeys();
+    }
+}
@@ -0,0 +1,151 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.pip.publication.services.helpers.EmailHelper;
+import uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit;
+import uk.gov.hmcts.reform.pip.publication.services.models.RateLimitHotKey;
+import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
+
+import java.util.List;
+
+/**
+ * Records how long email rate limit checks take and what they decide. Resolving a bucket and consuming from it are
+ * timed separately and tagged by where the bucket is held, so time spent waiting on Redis can be told apart from
+ * time spent in the rate limiter. The most frequently checked keys are tracked in a fixed size sketch rather than
+ * as tags, to keep email addresses out of the published metrics.
+ */
+@Component
+public class RateLimitMetrics {
+    public static final String REDIS = "redis";
+    public static final String LOCAL = "local";
+    public static final String TIMEOUT = "timeout";
+    public static final String ERROR = "error";
+
+    private static final String METRIC_PREFIX = "rate-limit.";
+    private static final String LIMIT_TAG = "limit";
+    private static final String BACKEND_TAG = "backend";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final String KEY_SEPARATOR = "::";
+
+    private final MeterRegistry meterRegistry;
+    private final HotKeySketch hotKeys;
+
+    @Autowired
+    public RateLimitMetrics(MeterRegistry meterRegistry,
+                            @Value("${rate-limit.metrics.hot-keys.capacity}") int hotKeyCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.hotKeys = new HotKeySketch(hotKeyCapacity);
+    }
+
+    /**
+     * Start timing a step of a rate limit check.
+     *
+     * @return The sample to pass back when recording the step.
+     */
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Record the time taken to resolve the bucket for a key.
+     *
+     * @param sample The sample started before the bucket was resolved.
+     * @param emailLimit The limit the bucket is for.
+     * @param backend Where the bucket is held.
+     */
+    public void recordResolution(Timer.Sample sample, EmailLimit emailLimit, String backend) {
+        sample.stop(Timer.builder(METRIC_PREFIX + "bucket.resolution")
+                        .description("Time taken to resolve the rate limit bucket for an email")
+                        .tag(LIMIT_TAG, emailLimit.name())
+                        .tag(BACKEND_TAG, backend)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    /**
+     * Record the time taken to consume from a bucket, and whether the email was within its limit.
+     *
+     * @param sample The sample started before consuming from the bucket.
+     * @param emailLimit The limit the bucket is for.
+     * @param backend Where the bucket is held.
+     * @param withinLimit Whether the email was within its limit.
+     */
+    public void recordConsume(Timer.Sample sample, EmailLimit emailLimit, String backend, boolean withinLimit) {
+        sample.stop(Timer.builder(METRIC_PREFIX + "consume")
+                        .description("Time taken to consume from the rate limit bucket for an email")
+                        .tag(LIMIT_TAG, emailLimit.name())
+                        .tag(BACKEND_TAG, backend)
+                        .tag(OUTCOME_TAG, withinLimit ? "within-limit" : "exceeded")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    /**
+     * Record an email rejected because its recipient has exceeded the rate limit of the template.
+     *
+     * @param template The template of the email.
+     */
+    public void recordRejection(Templates template) {
+        Counter.builder(METRIC_PREFIX + "rejections")
+            .description("Emails rejected by the rate limit")
+            .tag(LIMIT_TAG, template.getEmailLimit().name())
+            .tag("template", template.name())
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * Record a check made against the local buckets because Redis did not respond in time.
+     *
+     * @param emailLimit The limit the check is for.
+     * @param reason Why Redis was not used, either a timeout or an error.
+     */
+    public void recordFallback(EmailLimit emailLimit, String reason) {
+        Counter.builder(METRIC_PREFIX + "fallbacks")
+            .description("Rate limit checks that fell back to local buckets after Redis did not respond")
+            .tag(LIMIT_TAG, emailLimit.name())
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * Count a check for a key towards the most frequently checked keys.
+     *
+     * @param emailLimit The limit the key is for.
+     * @param email The email address of the key.
+     */
+    public void recordKey(EmailLimit emailLimit, String email) {
+        hotKeys.add(emailLimit.name() + KEY_SEPARATOR + email);
+    }
+
+    /**
+     * Get the most frequently checked keys, with their email addresses masked.
+     *
+     * @param limit The number of keys to return.
+     * @return The keys checked most often, highest first.
+     */
+    public List<RateLimitHotKey> getHotKeys(int limit) {
+        return hotKeys.top(limit).stream()
+            .map(entry -> new RateLimitHotKey(maskKey(entry.key()), entry.count(), entry.error()))
+            .toList();
+    }
+
+    /**
+     * Reset the most frequently checked keys, for example at the start of a publication window.
+     */
+    public void resetHotKeys() {
+        hotKeys.clear();
+    }
+
+    private static String maskKey(String key) {
+        int separator = key.indexOf(KEY_SEPARATOR);
+        return key.substring(0, separator + KEY_SEPARATOR.length())
+            + EmailHelper.maskEmail(key.substring(separator + KEY_SEPARATOR.length()));
+    }
+}
@@ -1,51 +1,358 @@
 package uk.gov.hmcts.reform.pip.publication.services.service;
 
 import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import uk.gov.hmcts.reform.pip.publication.services.config.RateLimitConfiguration;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.TooManyEmailsException;
 import uk.gov.hmcts.reform.pip.publication.services.helpers.EmailHelper;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit;
+import uk.gov.hmcts.reform.pip.publication.services.models.RateLimitCheck;
 import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
 import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
 
 @Service
 @Slf4j
 public class RateLimitingService {
+    private static final String KEY_NAMESPACE = "publication-services-email-limit::";
     private static final String EMAIL_PREFIX_SEPARATOR = "::";
     private static final String ERROR_MESSAGE = "Rate limit has been exceeded. %s failed to be sent to %s";
+    private static final Executor REMOTE_EXECUTOR = Thread::startVirtualThread;
 
     private final RateLimitConfiguration rateLimitConfiguration;
+    private final RateLimitMetrics rateLimitMetrics;
+    private final Map<RemoteKey, Long> unreconciledUsage = new ConcurrentHashMap<>();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean degraded;
+
+    @Value("${rate-limit.batch.max-concurrency}")
+    private int maxBatchConcurrency;
+
+    @Value("${rate-limit.latency-budget-in-ms}")
+    private long latencyBudget;
+
+    @Value("${rate-limit.fallback.failure-threshold}")
+    private int failureThreshold;
 
     @Autowired
-    public RateLimitingService(RateLimitConfiguration rateLimitConfiguration) {
+    public RateLimitingService(RateLimitConfiguration rateLimitConfiguration, RateLimitMetrics rateLimitMetrics) {
         this.rateLimitConfiguration = rateLimitConfiguration;
+        this.rateLimitMetrics = rateLimitMetrics;
     }
 
     public void validate(String email, Templates emailTemplate) {
         if (!isEmailWithinLimit(email, emailTemplate.getEmailLimit())) {
+            rateLimitMetrics.recordRejection(emailTemplate);
             throw new TooManyEmailsException(getErrorMessage(email, emailTemplate.getDescription()));
         }
     }
 
     public boolean isValid(String email, Templates emailTemplate) {
-        boolean isValid = isEmailWithinLimit(email, emailTemplate.getEmailLimit());
+        return recordOutcome(email, emailTemplate, isEmailWithinLimit(email, emailTemplate.getEmailLimit()));
+    }
+
+    /**
+     * Check a batch of emails against their rate limits, consuming from the limit of each email within it. The
+     * checks are sent to Redis without blocking, up to the batch concurrency at a time, so they share round trips
+     * to Redis and the batch takes about as long as its slowest round trip rather than the sum of them all. Each
+     * check falls back to the local buckets in the same way as a single check if Redis does not respond within the
+     * latency budget.
+     *
+     * @param checks The emails to check, along with the template each is being sent with.
+     * @return The checks for the emails within their rate limit, in the order they were given.
+     */
+    public List<RateLimitCheck> filterWithinLimit(List<RateLimitCheck> checks) {
+        if (checks.isEmpty()) {
+            return List.of();
+        }
+
+        Semaphore permits = new Semaphore(Math.max(maxBatchConcurrency, 1));
+        List<PendingCheck> pendingChecks = new ArrayList<>(checks.size());
+        for (RateLimitCheck check : checks) {
+            EmailLimit emailLimit = check.getTemplate().getEmailLimit();
+            rateLimitMetrics.recordKey(emailLimit, check.getEmail());
+            RemoteKey remoteKey = remoteKey(check.getEmail(), emailLimit);
+            pendingChecks.add(new PendingCheck(check, remoteKey, startRemoteCheck(remoteKey, permits),
+                                               System.nanoTime()));
+        }
+
+        List<RateLimitCheck> withinLimit = new ArrayList<>();
+        for (PendingCheck pendingCheck : pendingChecks) {
+            RateLimitCheck check = pendingCheck.check();
+            if (recordOutcome(check.getEmail(), check.getTemplate(), awaitRemoteCheck(pendingCheck))) {
+                withinLimit.add(check);
+            }
+        }
+        return withinLimit;
+    }
+
+    private boolean recordOutcome(String email, Templates emailTemplate, boolean isValid) {
         if (!isValid) {
+            rateLimitMetrics.recordRejection(emailTemplate);
             log.error(writeLog(getErrorMessage(email, emailTemplate.getDescription())));
         }
         return isValid;
     }
 
+    /**
+     * Send a check to Redis once one of the permits for the batch is free. Nothing is sent while the service is
+     * checking the local buckets, and a check that cannot get a permit within the latency budget is failed so it
+     * falls back to its local bucket.
+     */
+    private CompletableFuture<Boolean> startRemoteCheck(RemoteKey remoteKey, Semaphore permits) {
+        if (degraded && latencyBudget > 0) {
+            return null;
+        }
+
+        try {
+            if (latencyBudget <= 0) {
+                permits.acquireUninterruptibly();
+            } else if (!permits.tryAcquire(latencyBudget, MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new TimeoutException());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        CompletableFuture<Boolean> remote;
+        try {
+            remote = tryConsumeRemotelyAsync(remoteKey);
+        } catch (RuntimeException ex) {
+            remote = CompletableFuture.failedFuture(ex);
+        }
+        remote.whenComplete((result, error) -> permits.release());
+        return remote;
+    }
+
+    private boolean awaitRemoteCheck(PendingCheck pendingCheck) {
+        CompletableFuture<Boolean> remote = pendingCheck.remote();
+        if (remote == null) {
+            return tryConsumeLocally(pendingCheck.remoteKey(), true);
+        }
+        if (latencyBudget <= 0) {
+            return await(remote);
+        }
+
+        long remaining = pendingCheck.startedAt() + MILLISECONDS.toNanos(latencyBudget) - System.nanoTime();
+        try {
+            boolean withinLimit = remote.get(Math.max(remaining, 0), NANOSECONDS);
+            consecutiveFailures.set(0);
+            return withinLimit;
+        } catch (TimeoutException | ExecutionException ex) {
+            return fallBackToLocalBucket(pendingCheck.remoteKey(), remote, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return tryConsumeLocally(pendingCheck.remoteKey(), true);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Consume the usage counted against the local buckets from the buckets in Redis, once Redis is responding
+     * again. The service stays on the local buckets until all of it has been reconciled.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.fallback.reconcile-interval-in-ms}")
+    public void reconcile() {
+        if (!degraded && unreconciledUsage.isEmpty()) {
+            return;
+        }
+
+        for (RemoteKey remoteKey : List.copyOf(unreconciledUsage.keySet())) {
+            Long usage = unreconciledUsage.remove(remoteKey);
+            if (usage != null && !consumeRemotely(remoteKey, usage)) {
+                return;
+            }
+        }
+
+        if (degraded) {
+            consecutiveFailures.set(0);
+            degraded = false;
+            rateLimitConfiguration.clearLocalBuckets();
+            log.info(writeLog("Redis is responding again, rate limits are being checked against Redis"));
+        }
+    }
+
+    /**
+     * Whether rate limits are currently being checked against the local buckets rather than Redis.
+     *
+     * @return True if Redis has not responded in time and has not yet been reconciled.
+     */
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * Get the number of keys with usage counted against the local buckets that is still to be consumed from Redis.
+     *
+     * @return The number of keys waiting to be reconciled.
+     */
+    public long getUnreconciledKeyCount() {
+        return unreconciledUsage.size();
+    }
+
     private boolean isEmailWithinLimit(String email, EmailLimit emailLimit) {
-        String keyPrefix = emailLimit.getPrefix() + EMAIL_PREFIX_SEPARATOR;
-        Bucket bucket = rateLimitConfiguration.resolveBucket(keyPrefix + email, emailLimit);
-        return bucket.tryConsume(1);
+        rateLimitMetrics.recordKey(emailLimit, email);
+        RemoteKey remoteKey = remoteKey(email, emailLimit);
+        if (latencyBudget <= 0) {
+            return tryConsumeRemotely(remoteKey);
+        }
+        if (degraded) {
+            return tryConsumeLocally(remoteKey, true);
+        }
+
+        CompletableFuture<Boolean> remote = CompletableFuture.supplyAsync(() -> tryConsumeRemotely(remoteKey),
+                                                                          REMOTE_EXECUTOR);
+        try {
+            boolean withinLimit = remote.get(latencyBudget, MILLISECONDS);
+            consecutiveFailures.set(0);
+            return withinLimit;
+        } catch (TimeoutException | ExecutionException ex) {
+            return fallBackToLocalBucket(remoteKey, remote, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return tryConsumeLocally(remoteKey, true);
+        }
+    }
+
+    private boolean fallBackToLocalBucket(RemoteKey remoteKey, CompletableFuture<Boolean> remote, Exception ex) {
+        Throwable cause = ex instanceof ExecutionException ? ex.getCause() : ex;
+        boolean timedOut = cause instanceof TimeoutException;
+        rateLimitMetrics.recordFallback(remoteKey.emailLimit(), timedOut
+            ? RateLimitMetrics.TIMEOUT : RateLimitMetrics.ERROR);
+        enterDegradedMode(timedOut ? "timed out" : cause.getMessage());
+        // The check left running against Redis may still complete, in which case it has already counted this
+        // email there and it must not be counted again when the local usage is reconciled
+        boolean withinLimit = tryConsumeLocally(remoteKey, false);
+        if (withinLimit) {
+            remote.whenComplete((result, error) -> {
+                if (error != null) {
+                    unreconciledUsage.merge(remoteKey, 1L, Long::sum);
+                }
+            });
+        }
+        return withinLimit;
+    }
+
+    private static RemoteKey remoteKey(String email, EmailLimit emailLimit) {
+        // Each bucket is a key of its own in Redis, so the keys are namespaced to the service
+        return new RemoteKey(KEY_NAMESPACE + emailLimit.getPrefix() + EMAIL_PREFIX_SEPARATOR + email, emailLimit);
+    }
+
+    private boolean tryConsumeRemotely(RemoteKey remoteKey) {
+        Timer.Sample resolution = rateLimitMetrics.start();
+        Bucket bucket = rateLimitConfiguration.resolveBucket(remoteKey.key(), remoteKey.emailLimit());
+        rateLimitMetrics.recordResolution(resolution, remoteKey.emailLimit(), RateLimitMetrics.REDIS);
+        return tryConsume(bucket, remoteKey.emailLimit(), RateLimitMetrics.REDIS);
+    }
+
+    private CompletableFuture<Boolean> tryConsumeRemotelyAsync(RemoteKey remoteKey) {
+        EmailLimit emailLimit = remoteKey.emailLimit();
+        Timer.Sample resolution = rateLimitMetrics.start();
+        return rateLimitConfiguration.resolveBucketAsync(remoteKey.key(), emailLimit)
+            .thenCompose(bucket -> {
+                rateLimitMetrics.recordResolution(resolution, emailLimit, RateLimitMetrics.REDIS);
+                Timer.Sample consume = rateLimitMetrics.start();
+                return bucket.tryConsume(1).thenApply(withinLimit -> {
+                    rateLimitMetrics.recordConsume(consume, emailLimit, RateLimitMetrics.REDIS, withinLimit);
+                    return withinLimit;
+                });
+            });
+    }
+
+    private boolean tryConsumeLocally(RemoteKey remoteKey, boolean recordUsage) {
+        Timer.Sample resolution = rateLimitMetrics.start();
+        Bucket bucket = rateLimitConfiguration.resolveLocalBucket(remoteKey.key(), remoteKey.emailLimit());
+        rateLimitMetrics.recordResolution(resolution, remoteKey.emailLimit(), RateLimitMetrics.LOCAL);
+        boolean withinLimit = tryConsume(bucket, remoteKey.emailLimit(), RateLimitMetrics.LOCAL);
+        if (withinLimit && recordUsage) {
+            unreconciledUsage.merge(remoteKey, 1L, Long::sum);
+        }
+        return withinLimit;
+    }
+
+    private boolean tryConsume(Bucket bucket, EmailLimit emailLimit, String backend) {
+        Timer.Sample consume = rateLimitMetrics.start();
+        boolean withinLimit = bucket.tryConsume(1);
+        rateLimitMetrics.recordConsume(consume, emailLimit, backend, withinLimit);
+        return withinLimit;
+    }
+
+    private boolean consumeRemotely(RemoteKey remoteKey, long usage) {
+        CompletableFuture<Long> remote = CompletableFuture.supplyAsync(
+            () -> rateLimitConfiguration.resolveBucket(remoteKey.key(), remoteKey.emailLimit())
+                .consumeIgnoringRateLimits(usage),
+            REMOTE_EXECUTOR
+        );
+        try {
+            remote.get(latencyBudget, MILLISECONDS);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException ex) {
+            // Fall through to count the usage again if it is not consumed from Redis
+        }
+
+        remote.whenComplete((result, error) -> {
+            if (error != null) {
+                unreconciledUsage.merge(remoteKey, usage, Long::sum);
+            }
+        });
+        return false;
+    }
+
+    /**
+     * Check every email against the local buckets once enough checks in a row have failed against Redis, so a
+     * single slow response does not take the service off Redis.
+     */
+    private void enterDegradedMode(String reason) {
+        if (consecutiveFailures.incrementAndGet() >= Math.max(failureThreshold, 1) && !degraded) {
+            degraded = true;
+            log.error(writeLog(String.format(
+                "Redis did not respond within %s ms, rate limits are being checked locally: %s",
+                latencyBudget, reason
+            )));
+        }
     }
 
     private String getErrorMessage(String email, String description) {
         return String.format(ERROR_MESSAGE, description, EmailHelper.maskEmail(email));
     }
+
+    private record RemoteKey(String key, EmailLimit emailLimit) {
+    }
+
+    private record PendingCheck(RateLimitCheck check, RemoteKey remoteKey, CompletableFuture<Boolean> remote,
+                                long startedAt) {
+    }
 }
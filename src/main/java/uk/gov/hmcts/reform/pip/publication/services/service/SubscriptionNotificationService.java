@@ -3,22 +3,38 @@ package uk.gov.hmcts.reform.pip.publication.services.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple3;
 import uk.gov.hmcts.reform.pip.model.publication.Artefact;
 import uk.gov.hmcts.reform.pip.model.publication.FileType;
 import uk.gov.hmcts.reform.pip.model.publication.Language;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
-import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.TooManyEmailsException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
 import uk.gov.hmcts.reform.pip.publication.services.helpers.EmailHelper;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.ArtefactAttachments;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.FlatFileSubscriptionEmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.RawDataSubscriptionEmailData;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.SharedPersonalisation;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.BulkSubscriptionEmail;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
 import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkEmailDispatcher;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkEmailJobTracker;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.SubscriptionSendLedger;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.RetentionPeriodDuration;
 
+import java.time.temporal.ChronoUnit;
 import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
 
@@ -27,6 +43,9 @@ import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
 public class SubscriptionNotificationService {
     private final EmailService emailService;
     private final DataManagementService dataManagementService;
+    private final BulkEmailDispatcher bulkEmailDispatcher;
+    private final BulkEmailJobTracker bulkEmailJobTracker;
+    private final SubscriptionSendLedger subscriptionSendLedger;
 
     @Value("${payload.json.max-size-summary}")
     private int maxPayloadSizeForSummary;
@@ -35,17 +54,24 @@ public class SubscriptionNotificationService {
     private int fileRetentionWeeks;
 
     @Autowired
-    public SubscriptionNotificationService(EmailService emailService, DataManagementService dataManagementService) {
+    public SubscriptionNotificationService(EmailService emailService, DataManagementService dataManagementService,
+                                           BulkEmailDispatcher bulkEmailDispatcher,
+                                           BulkEmailJobTracker bulkEmailJobTracker,
+                                           SubscriptionSendLedger subscriptionSendLedger) {
         this.emailService = emailService;
         this.dataManagementService = dataManagementService;
+        this.bulkEmailDispatcher = bulkEmailDispatcher;
+        this.bulkEmailJobTracker = bulkEmailJobTracker;
+        this.subscriptionSendLedger = subscriptionSendLedger;
     }
 
-    private String flatFileSubscriptionEmailRequest(SubscriptionEmail body, Artefact artefact, byte[] artefactFlatFile,
-                                                    String locationName, String referenceId) {
+    private String flatFileSubscriptionEmailRequest(SubscriptionEmail body, Artefact artefact,
+                                                    ArtefactAttachments attachments, String locationName,
+                                                    String referenceId, SharedPersonalisation sharedPersonalisation) {
         FlatFileSubscriptionEmailData emailData = new FlatFileSubscriptionEmailData(
-            body, artefact, locationName, artefactFlatFile, fileRetentionWeeks, referenceId
+            body, artefact, locationName, attachments, referenceId, sharedPersonalisation
         );
-        EmailToSend email = emailService.handleEmailGeneration(
+        EmailToSend email = emailService.handlePreScreenedEmailGeneration(
             emailData, Templates.MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL
         );
 
@@ -55,81 +81,248 @@ public class SubscriptionNotificationService {
     }
 
     private String rawDataSubscriptionEmailRequest(SubscriptionEmail body, Artefact artefact, String artefactSummary,
-                                                   byte[] pdf, byte[] excel, String locationName,
-                                                   String referenceId) {
+                                                   ArtefactAttachments attachments, String locationName,
+                                                   String referenceId, SharedPersonalisation sharedPersonalisation) {
         RawDataSubscriptionEmailData emailData = new RawDataSubscriptionEmailData(
-            body, artefact, artefactSummary, pdf, excel, locationName, fileRetentionWeeks, referenceId
+            body, artefact, artefactSummary, attachments, locationName, referenceId, sharedPersonalisation
+        );
+        EmailToSend email = emailService.handlePreScreenedEmailGeneration(
+            emailData, Templates.MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL
         );
-        EmailToSend email = emailService.handleEmailGeneration(emailData, Templates.MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL);
 
         return emailService.sendEmail(email)
             .getReference()
             .orElse(null);
     }
 
-    @Async
     public void flatFileBulkSubscriptionEmailRequest(BulkSubscriptionEmail bulkSubscriptionEmail, Artefact artefact,
                                                      String locationName, String referenceId) {
+        List<SubscriptionEmail> recipients = removeRateLimited(
+            removeAlreadySent(bulkSubscriptionEmail.getSubscriptionEmails(), artefact, referenceId), artefact,
+            Templates.MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL, referenceId
+        );
+        if (recipients.isEmpty()) {
+            return;
+        }
 
         byte[] flatFileData = dataManagementService.getArtefactFlatFile(artefact.getArtefactId());
-        bulkSubscriptionEmail.getSubscriptionEmails().forEach(subscriptionEmail -> {
-            try {
-                log.info(writeLog(String.format("Sending subscription email for user %s",
-                                            EmailHelper.maskEmail(subscriptionEmail.getEmail()))));
+        ArtefactAttachments attachments;
+        try {
+            attachments = ArtefactAttachments.forFlatFile(flatFileData, getFileRetentionPeriod());
+        } catch (NotificationClientException e) {
+            log.warn(writeLog(String.format("Error adding attachment to flat file email. Artefact ID: %s",
+                                            artefact.getArtefactId())));
+            bulkEmailJobTracker.recordFailed(referenceId, emails(recipients));
+            return;
+        }
 
-                flatFileSubscriptionEmailRequest(subscriptionEmail, artefact, flatFileData, locationName, referenceId);
-            } catch (TooManyEmailsException ex) {
-                log.error(writeLog(ex.getMessage()));
-            } catch (NotifyException ignored) {
-                // This is a bulk email, so we don't want to stop the process if one email fails
-                // This exception is already logged at a higher level, so no need to log again here
-            }
-        });
+        SharedPersonalisation sharedPersonalisation = new SharedPersonalisation();
+        sendToRecipients(recipients, artefact, referenceId, subscriptionEmail ->
+            flatFileSubscriptionEmailRequest(subscriptionEmail, artefact, attachments, locationName, referenceId,
+                                             sharedPersonalisation)
+        );
     }
 
-    @Async
     public void rawDataBulkSubscriptionEmailRequest(BulkSubscriptionEmail bulkSubscriptionEmail, Artefact artefact,
                                                     String locationName, String referenceId) {
-        String artefactSummary = getArtefactSummary(artefact);
-        byte[] pdf;
-
-        if (artefact.getListType().hasAdditionalPdf()
-            && artefact.getLanguage().equals(Language.WELSH)) {
-            pdf = getFileBytes(artefact, FileType.PDF, true);
-        } else {
-            pdf = getFileBytes(artefact, FileType.PDF, false);
+        Templates template = rawDataTemplate(artefact);
+        List<SubscriptionEmail> recipients = removeRateLimited(
+            removeAlreadySent(bulkSubscriptionEmail.getSubscriptionEmails(), artefact, referenceId), artefact,
+            template, referenceId
+        );
+        if (recipients.isEmpty()) {
+            return;
+        }
+
+        boolean additionalPdf = artefact.getListType().hasAdditionalPdf()
+            && artefact.getLanguage().equals(Language.WELSH);
+
+        // The summary and files only depend on the artefact, so they are fetched together rather than one
+        // after another, meaning the first email waits on the slowest request instead of the sum of them all.
+        // Only the files the template links to are fetched.
+        Tuple3<String, byte[], byte[]> prefetched = Mono.zip(
+            getArtefactSummary(artefact),
+            template.usesPdf() ? getFileBytes(artefact, FileType.PDF, additionalPdf) : Mono.just(new byte[0]),
+            template.usesExcel() ? getFileBytes(artefact, FileType.EXCEL, false) : Mono.just(new byte[0])
+        ).block();
+
+        String artefactSummary = prefetched.getT1();
+        byte[] pdf = prefetched.getT2();
+        byte[] excel = prefetched.getT3();
+
+        ArtefactAttachments attachments;
+        try {
+            attachments = ArtefactAttachments.forRawData(pdf, excel, getFileRetentionPeriod());
+        } catch (NotificationClientException e) {
+            log.warn(writeLog(String.format("Error adding attachment to raw data email. Artefact ID: %s",
+                                            artefact.getArtefactId())));
+            bulkEmailJobTracker.recordFailed(referenceId, emails(recipients));
+            return;
         }
 
-        byte[] excel = artefact.getListType().hasExcel() ? getFileBytes(artefact, FileType.EXCEL, false)
-            : new byte[0];
+        SharedPersonalisation sharedPersonalisation = new SharedPersonalisation();
+        sendToRecipients(recipients, artefact, referenceId, subscriptionEmail ->
+            rawDataSubscriptionEmailRequest(subscriptionEmail, artefact, artefactSummary, attachments,
+                                            locationName, referenceId, sharedPersonalisation)
+        );
+    }
+
+    /**
+     * Send the email to each recipient, recording the outcome against the bulk email job. If GOV.UK Notify becomes
+     * unavailable part way through, the recipients not yet sent are left unrecorded and the chunk is failed, so it
+     * is paused on the queue and picked up again once Notify has recovered. Recipients already sent are skipped
+     * when it is redelivered. Each recipient is reserved in the send ledger before their email is sent, and marked
+     * as sent once it has been, so a recipient is never sent the same artefact by two pods at once. A recipient
+     * that cannot be reserved is still recorded, so the job is always completed.
+     */
+    private void sendToRecipients(List<SubscriptionEmail> recipients, Artefact artefact, String referenceId,
+                                  Consumer<SubscriptionEmail> send) {
+        AtomicBoolean paused = new AtomicBoolean();
 
-        bulkSubscriptionEmail.getSubscriptionEmails().forEach(subscriptionEmail -> {
+        bulkEmailDispatcher.dispatch(recipients, subscriptionEmail -> {
+            String email = subscriptionEmail.getEmail();
+            SubscriptionSendLedger.Reservation reservation = subscriptionSendLedger.reserve(
+                artefact.getArtefactId(), email, referenceId
+            );
+            if (!reservation.isReserved()) {
+                bulkEmailJobTracker.recordNotReserved(referenceId, email, reservation);
+                return;
+            }
 
+            boolean sent = false;
             try {
                 log.info(writeLog(String.format("Sending subscription email for user %s",
-                                                EmailHelper.maskEmail(subscriptionEmail.getEmail()))));
-                rawDataSubscriptionEmailRequest(subscriptionEmail, artefact, artefactSummary,  pdf,
-                                                excel, locationName, referenceId);
-            } catch (TooManyEmailsException ex) {
-                log.error(writeLog(ex.getMessage()));
+                                                EmailHelper.maskEmail(email))));
+                send.accept(subscriptionEmail);
+                sent = true;
+                subscriptionSendLedger.markSent(artefact.getArtefactId(), email, referenceId);
+                bulkEmailJobTracker.recordSent(referenceId, email);
+            } catch (NotifyUnavailableException ex) {
+                paused.set(true);
             } catch (NotifyException ignored) {
                 // This is a bulk email, so we don't want to stop the process if one email fails
                 // This exception is already logged at a higher level, so no need to log again here
+                bulkEmailJobTracker.recordFailed(referenceId, List.of(email));
+            } finally {
+                if (!sent) {
+                    subscriptionSendLedger.release(artefact.getArtefactId(), email, referenceId);
+                }
             }
         });
+        subscriptionSendLedger.refreshExpiry(artefact.getArtefactId());
+
+        if (paused.get()) {
+            throw new NotifyUnavailableException(String.format(
+                "Bulk email %s paused as GOV.UK Notify is unavailable", referenceId
+            ), 0);
+        }
+    }
+
+    /**
+     * Remove the recipients that have already been sent an email for the artefact, either by an earlier delivery of
+     * the same chunk or by an earlier job, such as a retried request from data management. Recipients sent by this
+     * job are recorded as sent again, which has no effect if the delivery that sent them had already recorded it.
+     */
+    private List<SubscriptionEmail> removeAlreadySent(List<SubscriptionEmail> subscriptionEmails, Artefact artefact,
+                                                      String referenceId) {
+        Map<String, String> sent = subscriptionSendLedger.findSent(artefact.getArtefactId(),
+                                                                   emails(subscriptionEmails));
+        if (sent.isEmpty()) {
+            return subscriptionEmails;
+        }
+
+        Map<Boolean, List<String>> sentByThisJob = sent.entrySet().stream()
+            .collect(Collectors.partitioningBy(entry -> entry.getValue().equals(referenceId),
+                                               Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        if (!sentByThisJob.get(true).isEmpty()) {
+            bulkEmailJobTracker.recordSent(referenceId, sentByThisJob.get(true));
+        }
+        if (!sentByThisJob.get(false).isEmpty()) {
+            bulkEmailJobTracker.recordSkipped(referenceId, sentByThisJob.get(false));
+        }
+
+        log.info(writeLog(String.format("Skipping %s recipients already sent artefact %s in bulk email %s",
+                                        sent.size(), artefact.getArtefactId(), referenceId)));
+        return subscriptionEmails.stream()
+            .filter(subscriptionEmail -> !sent.containsKey(subscriptionEmail.getEmail()))
+            .toList();
+    }
+
+    /**
+     * Remove the recipients who have reached their rate limit, recording them against the bulk email job. This is
+     * done before anything is fetched for the artefact, so nothing is fetched for a chunk where no one will be sent
+     * an email. The rate limit of each recipient kept has been consumed. The decision for each recipient is recorded
+     * in the send ledger, and a redelivered chunk reuses the decision recorded by its job rather than consuming their
+     * rate limit again.
+     */
+    private List<SubscriptionEmail> removeRateLimited(List<SubscriptionEmail> subscriptionEmails, Artefact artefact,
+                                                      Templates template, String referenceId) {
+        if (subscriptionEmails.isEmpty()) {
+            return subscriptionEmails;
+        }
+
+        Map<String, Boolean> screened = subscriptionSendLedger.findScreened(
+            artefact.getArtefactId(), emails(subscriptionEmails), referenceId
+        );
+        Set<String> deliverable = screened.entrySet().stream()
+            .filter(Map.Entry::getValue)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toCollection(HashSet::new));
+
+        List<String> unscreened = subscriptionEmails.stream()
+            .map(SubscriptionEmail::getEmail)
+            .filter(email -> !screened.containsKey(email))
+            .toList();
+        if (!unscreened.isEmpty()) {
+            List<String> withinLimit = emailService.screenRecipients(unscreened, template);
+            deliverable.addAll(withinLimit);
+
+            Set<String> withinLimitSet = Set.copyOf(withinLimit);
+            List<String> rateLimited = unscreened.stream()
+                .filter(email -> !withinLimitSet.contains(email))
+                .toList();
+            subscriptionSendLedger.markScreened(artefact.getArtefactId(), withinLimit, rateLimited, referenceId);
+            if (!rateLimited.isEmpty()) {
+                bulkEmailJobTracker.recordRateLimited(referenceId, rateLimited);
+            }
+        }
+
+        return subscriptionEmails.stream()
+            .filter(subscriptionEmail -> deliverable.contains(subscriptionEmail.getEmail()))
+            .toList();
     }
 
-    private String getArtefactSummary(Artefact artefact) {
+    /**
+     * Get the template a raw data artefact is expected to be sent with, from the files its list type has. A file too
+     * large to attach is only found once it has been fetched, so an email may still be sent with a template that
+     * links to fewer files.
+     */
+    private static Templates rawDataTemplate(Artefact artefact) {
+        return artefact.getListType().hasExcel()
+            ? Templates.MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL
+            : Templates.MEDIA_SUBSCRIPTION_PDF_EMAIL;
+    }
+
+    private static List<String> emails(List<SubscriptionEmail> subscriptionEmails) {
+        return subscriptionEmails.stream()
+            .map(SubscriptionEmail::getEmail)
+            .toList();
+    }
+
+    private Mono<String> getArtefactSummary(Artefact artefact) {
         if (payloadWithinLimitForSummary(artefact.getPayloadSize())) {
-            return dataManagementService.getArtefactSummary(artefact.getArtefactId());
+            return dataManagementService.fetchArtefactSummary(artefact.getArtefactId());
         }
-        return "";
+        return Mono.just("");
+    }
+
+    private Mono<byte[]> getFileBytes(Artefact artefact, FileType fileType, boolean additionalPdf) {
+        return dataManagementService.fetchArtefactFile(artefact.getArtefactId(), fileType, additionalPdf)
+            .map(artefactFile -> Base64.getDecoder().decode(artefactFile));
     }
 
-    private byte[] getFileBytes(Artefact artefact, FileType fileType, boolean additionalPdf) {
-        String artefactFile = dataManagementService.getArtefactFile(artefact.getArtefactId(),
-                                                                    fileType, additionalPdf);
-        return Base64.getDecoder().decode(artefactFile);
+    private RetentionPeriodDuration getFileRetentionPeriod() {
+        return new RetentionPeriodDuration(fileRetentionWeeks, ChronoUnit.WEEKS);
     }
 
     private boolean payloadWithinLimitForSummary(Float payloadSize) {
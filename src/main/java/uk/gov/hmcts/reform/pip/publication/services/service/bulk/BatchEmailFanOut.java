@@ -0,0 +1,118 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
+import uk.gov.hmcts.reform.pip.publication.services.helpers.EmailHelper;
+import uk.gov.hmcts.reform.pip.publication.services.models.BatchEmailChunk;
+import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
+import uk.gov.hmcts.reform.pip.publication.services.service.EmailService;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
+
+/**
+ * Sends a chunk of the emails built by a batch email generator, once it has been read from the bulk send queue.
+ * Sends are made without blocking, with the number in flight capped by the bulk email concurrency, and the chunk
+ * returns once every email in it has been sent or has failed. The outcome for each recipient is recorded against the
+ * reference ID of the batch, and can be followed through the bulk email job status.
+ *
+ * <p>Each recipient is reserved in the send ledger under the reference ID of the batch before their email is sent,
+ * and marked as sent once it has been, so recipients already sent by an earlier delivery of the chunk are not sent
+ * it again. A recipient left pending by a delivery that died is sent the email once the lease on them expires.</p>
+ */
+@Component
+@Slf4j
+public class BatchEmailFanOut {
+    private final EmailService emailService;
+    private final BulkEmailJobTracker bulkEmailJobTracker;
+    private final SubscriptionSendLedger subscriptionSendLedger;
+    private final int maxConcurrency;
+
+    @Autowired
+    public BatchEmailFanOut(EmailService emailService, BulkEmailJobTracker bulkEmailJobTracker,
+                            SubscriptionSendLedger subscriptionSendLedger,
+                            @Value("${notify.bulk.max-concurrency}") int maxConcurrency) {
+        this.emailService = emailService;
+        this.bulkEmailJobTracker = bulkEmailJobTracker;
+        this.subscriptionSendLedger = subscriptionSendLedger;
+        this.maxConcurrency = Math.max(maxConcurrency, 1);
+    }
+
+    /**
+     * Send the emails in a chunk, blocking until all of them have completed.
+     *
+     * @param chunk The chunk of emails to send, one per recipient.
+     * @throws NotifyUnavailableException if GOV.UK Notify became unavailable before every email was sent, so the
+     *     chunk is paused on the queue. The recipients not yet sent are left unrecorded.
+     */
+    public void send(BatchEmailChunk chunk) {
+        String referenceId = chunk.getReferenceId();
+        UUID batchId = UUID.fromString(referenceId);
+        AtomicBoolean paused = new AtomicBoolean();
+
+        Flux.fromIterable(chunk.getRecipients())
+            .map(recipient -> recipient.toEmailToSend(referenceId))
+            .flatMap(email -> sendToRecipient(batchId, email, paused), maxConcurrency)
+            .then()
+            .block();
+        subscriptionSendLedger.refreshExpiry(batchId);
+
+        if (paused.get()) {
+            throw new NotifyUnavailableException(String.format(
+                "Batch email %s paused as GOV.UK Notify is unavailable", referenceId
+            ), 0);
+        }
+    }
+
+    private Mono<Void> sendToRecipient(UUID batchId, EmailToSend email, AtomicBoolean paused) {
+        String referenceId = email.getReferenceId();
+        String emailAddress = email.getEmailAddress();
+
+        // The ledger and job tracker are called through Redis, so they are kept off the Netty event loop the
+        // response arrives on. A recipient that cannot be reserved still has an outcome recorded, so the batch is
+        // always completed.
+        return Mono.fromCallable(() -> subscriptionSendLedger.reserve(batchId, emailAddress, referenceId))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(reservation -> {
+                if (!reservation.isReserved()) {
+                    bulkEmailJobTracker.recordNotReserved(referenceId, emailAddress, reservation);
+                    return Mono.just(false);
+                }
+                return sendReserved(batchId, email, paused);
+            })
+            .filter(Boolean::booleanValue)
+            .doOnNext(sent -> {
+                subscriptionSendLedger.markSent(batchId, emailAddress, referenceId);
+                bulkEmailJobTracker.recordSent(referenceId, emailAddress);
+            })
+            .then();
+    }
+
+    private Mono<Boolean> sendReserved(UUID batchId, EmailToSend email, AtomicBoolean paused) {
+        String referenceId = email.getReferenceId();
+        String emailAddress = email.getEmailAddress();
+
+        return emailService.sendEmailAsync(email)
+            .publishOn(Schedulers.boundedElastic())
+            .map(response -> true)
+            .onErrorResume(ex -> Mono.fromCallable(() -> {
+                subscriptionSendLedger.release(batchId, emailAddress, referenceId);
+                if (ex instanceof NotifyUnavailableException) {
+                    paused.set(true);
+                } else {
+                    log.error(writeLog(String.format("Failed to send batch email %s to %s: %s", referenceId,
+                                                     EmailHelper.maskEmail(emailAddress), ex.getMessage())));
+                    bulkEmailJobTracker.recordFailedRecipient(referenceId, emailAddress, ex.getMessage());
+                }
+                return false;
+            }).subscribeOn(Schedulers.boundedElastic()));
+    }
+}
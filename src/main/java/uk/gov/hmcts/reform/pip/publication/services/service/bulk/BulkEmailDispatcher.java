@@ -0,0 +1,81 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
+
+/**
+ * Fans out bulk email sends across virtual threads. The number of sends in flight is capped by the configured
+ * concurrency, and an optional emails-per-second ceiling can be applied on top of that for each pod.
+ */
+@Component
+@Slf4j
+public class BulkEmailDispatcher {
+    private final int maxConcurrency;
+    private final Bucket throughputLimit;
+
+    @Autowired
+    public BulkEmailDispatcher(@Value("${notify.bulk.max-concurrency}") int maxConcurrency,
+                               @Value("${notify.bulk.max-emails-per-second}") int maxEmailsPerSecond) {
+        this.maxConcurrency = Math.max(maxConcurrency, 1);
+        this.throughputLimit = maxEmailsPerSecond > 0 ? createThroughputLimit(maxEmailsPerSecond) : null;
+    }
+
+    /**
+     * Run the task for every item, blocking until all of them have completed. Each task is expected to handle its
+     * own failures, so that one recipient failing does not stop the rest of the list from being sent.
+     *
+     * @param items The items to dispatch, usually one per recipient.
+     * @param task The task to run for each item.
+     */
+    public <T> void dispatch(Collection<T> items, Consumer<T> task) {
+        Semaphore permits = new Semaphore(maxConcurrency);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (T item : items) {
+                permits.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        awaitThroughputLimit();
+                        task.accept(item);
+                    } catch (RuntimeException ex) {
+                        log.error(writeLog(String.format("Unexpected error while dispatching bulk email: %s",
+                                                         ex.getMessage())));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private void awaitThroughputLimit() {
+        if (throughputLimit != null) {
+            try {
+                throughputLimit.asBlocking().consume(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Bucket createThroughputLimit(int maxEmailsPerSecond) {
+        Refill refill = Refill.greedy(maxEmailsPerSecond, Duration.ofSeconds(1));
+        return Bucket.builder()
+            .addLimit(Bandwidth.classic(maxEmailsPerSecond, refill))
+            .build();
+    }
+}
@@ -0,0 +1,418 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import org.redisson.api.RList;
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BulkEmailJobNotFoundException;
+import uk.gov.hmcts.reform.pip.publication.services.helpers.EmailHelper;
+import uk.gov.hmcts.reform.pip.publication.services.models.BulkEmailJobStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks the progress of bulk subscription email jobs. Each job is a single Redis hash keyed by the job reference ID,
+ * holding its counters along with the outcome recorded for each recipient, keyed by a hash of their email address.
+ * Every update is made by a script in a single call to Redis, so every pod working on the job updates the same hash
+ * without any locking, and the expiry of the hash is restarted with each update.
+ *
+ * <p>A recipient is only counted once, however many times their chunk is delivered. A later outcome replaces an
+ * earlier one, so a recipient who failed and was then sent on a redelivery is counted as sent. Recipients queued by
+ * address are marked in the hash as they are queued, so a recipient repeated later in a streamed request is only
+ * counted as queued once.</p>
+ */
+@Service
+public class BulkEmailJobTracker {
+    private static final String KEY_PREFIX = "publication-services-bulk-job::";
+    private static final String QUEUED = "queued";
+    private static final String SENT = "sent";
+    private static final String RATE_LIMITED = "rate-limited";
+    private static final String FAILED = "failed";
+    private static final String FAILED_RECIPIENTS = "failed-recipients";
+    private static final String SKIPPED = "skipped";
+    private static final String PROCESSED = "processed";
+    private static final String STARTED_AT = "started-at";
+    private static final String FINISHED_AT = "finished-at";
+    private static final String OPEN = "open";
+    private static final String TRUNCATED = "truncated";
+    private static final String REPLACE = "1";
+    private static final String KEEP = "0";
+    private static final double MILLIS_PER_SECOND = 1000.0;
+    private static final int MAX_FAILED_RECIPIENTS = 100;
+
+    private static final String FINISH_IF_COMPLETE = """
+        local function finishIfComplete(now)
+            local job = redis.call('hmget', KEYS[1], 'queued', 'processed', 'open', 'finished-at')
+            if tonumber(job[2]) >= tonumber(job[1]) and job[3] == '0' and job[4] == '0' then
+                redis.call('hset', KEYS[1], 'finished-at', now)
+            end
+        end
+        """;
+
+    // ARGV: expiry in ms, queued, open, started at
+    private static final String INITIALISE_SCRIPT = """
+        redis.call('del', KEYS[1])
+        redis.call('hset', KEYS[1], 'queued', ARGV[2], 'open', ARGV[3], 'started-at', ARGV[4], 'finished-at', 0,
+                   'sent', 0, 'rate-limited', 0, 'failed', 0, 'skipped', 0, 'processed', 0)
+        redis.call('pexpire', KEYS[1], ARGV[1])
+        return 1
+        """;
+
+    // ARGV: expiry in ms, recipients to add
+    private static final String ADD_QUEUED_SCRIPT = """
+        if redis.call('exists', KEYS[1]) == 0 then
+            return 0
+        end
+        redis.call('hincrby', KEYS[1], 'queued', ARGV[2])
+        redis.call('pexpire', KEYS[1], ARGV[1])
+        return 1
+        """;
+
+    // ARGV: expiry in ms, then the hash of each recipient's email address. Returns the hashes of the recipients not
+    // already queued, or all of them if the job is not being tracked, so no recipient is dropped
+    private static final String ADD_QUEUED_RECIPIENTS_SCRIPT = """
+        local added = {}
+        if redis.call('exists', KEYS[1]) == 0 then
+            for i = 2, #ARGV do
+                added[#added + 1] = ARGV[i]
+            end
+            return added
+        end
+        for i = 2, #ARGV do
+            if redis.call('hsetnx', KEYS[1], 'recipient::' .. ARGV[i], 'queued') == 1 then
+                added[#added + 1] = ARGV[i]
+            end
+        end
+        redis.call('hincrby', KEYS[1], 'queued', #added)
+        redis.call('pexpire', KEYS[1], ARGV[1])
+        return added
+        """;
+
+    // ARGV: expiry in ms
+    private static final String TRUNCATE_SCRIPT = """
+        if redis.call('exists', KEYS[1]) == 0 then
+            return 0
+        end
+        redis.call('hset', KEYS[1], 'truncated', 1)
+        redis.call('pexpire', KEYS[1], ARGV[1])
+        return 1
+        """;
+
+    // ARGV: expiry in ms, now
+    private static final String CLOSE_SCRIPT = FINISH_IF_COMPLETE + """
+        if redis.call('exists', KEYS[1]) == 0 then
+            return 0
+        end
+        redis.call('hset', KEYS[1], 'open', 0)
+        finishIfComplete(ARGV[2])
+        redis.call('pexpire', KEYS[1], ARGV[1])
+        return 1
+        """;
+
+    // ARGV: expiry in ms, now, outcome, whether to replace an earlier outcome, recipients without an address,
+    // then the hash of each recipient's email address
+    private static final String RECORD_SCRIPT = FINISH_IF_COMPLETE + """
+        if redis.call('exists', KEYS[1]) == 0 then
+            return 0
+        end
+        local outcome = ARGV[3]
+        local added = tonumber(ARGV[5])
+        for i = 6, #ARGV do
+            local field = 'recipient::' .. ARGV[i]
+            local previous = redis.call('hget', KEYS[1], field)
+            if not previous or previous == 'queued' then
+                redis.call('hset', KEYS[1], field, outcome)
+                added = added + 1
+            elseif previous ~= outcome and ARGV[4] == '1' then
+                redis.call('hset', KEYS[1], field, outcome)
+                redis.call('hincrby', KEYS[1], previous, -1)
+                redis.call('hincrby', KEYS[1], outcome, 1)
+            end
+        end
+        if added > 0 then
+            redis.call('hincrby', KEYS[1], outcome, added)
+            redis.call('hincrby', KEYS[1], 'processed', added)
+            finishIfComplete(ARGV[2])
+        end
+        redis.call('pexpire', KEYS[1], ARGV[1])
+        return added
+        """;
+
+    private final RedissonClient redissonClient;
+    private final Duration expiry;
+
+    @Autowired
+    public BulkEmailJobTracker(RedissonClient redissonClient,
+                               @Value("${notify.bulk.status.expiry-in-hours}") int expiryInHours) {
+        this.redissonClient = redissonClient;
+        this.expiry = Duration.ofHours(expiryInHours);
+    }
+
+    /**
+     * Start tracking a bulk email job.
+     *
+     * @param referenceId The reference ID of the job.
+     * @param recipients The number of recipients queued for the job.
+     */
+    public void start(String referenceId, long recipients) {
+        initialise(referenceId, recipients, false);
+    }
+
+    /**
+     * Start tracking a bulk email job whose recipients are still being received. The job cannot complete until it
+     * has been closed, even if every recipient queued so far has been processed.
+     *
+     * @param referenceId The reference ID of the job.
+     */
+    public void open(String referenceId) {
+        initialise(referenceId, 0, true);
+    }
+
+    public void addQueued(String referenceId, long recipients) {
+        eval(ADD_QUEUED_SCRIPT, referenceId, String.valueOf(recipients));
+    }
+
+    /**
+     * Add recipients to a job, counting only those not already queued for it. This is used when recipients are
+     * queued a chunk at a time, as a recipient can appear again in a later chunk once earlier ones have been queued.
+     *
+     * @param referenceId The reference ID of the job.
+     * @param emails The email addresses of the recipients, each appearing once.
+     * @return The email addresses of the recipients that had not already been queued.
+     */
+    public Set<String> addQueued(String referenceId, Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<String, String> emailsByHash = new HashMap<>();
+        List<String> values = new ArrayList<>(emails.size());
+        emails.forEach(email -> {
+            String hash = SubscriptionSendLedger.hash(email);
+            emailsByHash.put(hash, email);
+            values.add(hash);
+        });
+
+        List<String> added = redissonClient.getScript(StringCodec.INSTANCE).eval(
+            RScript.Mode.READ_WRITE, ADD_QUEUED_RECIPIENTS_SCRIPT, RScript.ReturnType.MULTI,
+            List.<Object>of(KEY_PREFIX + referenceId), arguments(values.toArray(String[]::new))
+        );
+        Set<String> addedEmails = new HashSet<>();
+        added.forEach(hash -> addedEmails.add(emailsByHash.get(hash)));
+        return addedEmails;
+    }
+
+    /**
+     * Mark a job opened with {@link #open(String)} as having received all of its recipients.
+     *
+     * @param referenceId The reference ID of the job.
+     */
+    public void close(String referenceId) {
+        eval(CLOSE_SCRIPT, referenceId, String.valueOf(System.currentTimeMillis()));
+    }
+
+    /**
+     * Mark a job as having lost recipients, because its request could not be read to the end after some of its
+     * recipients had been queued. Those recipients are not known, so they cannot be counted.
+     *
+     * @param referenceId The reference ID of the job.
+     */
+    public void markTruncated(String referenceId) {
+        eval(TRUNCATE_SCRIPT, referenceId);
+    }
+
+    public void recordSent(String referenceId, String email) {
+        recordSent(referenceId, List.of(email));
+    }
+
+    public void recordSent(String referenceId, Collection<String> emails) {
+        record(referenceId, SENT, REPLACE, 0, emails);
+    }
+
+    public void recordRateLimited(String referenceId, Collection<String> emails) {
+        record(referenceId, RATE_LIMITED, REPLACE, 0, emails);
+    }
+
+    public void recordFailed(String referenceId, Collection<String> emails) {
+        record(referenceId, FAILED, REPLACE, 0, emails);
+    }
+
+    /**
+     * Record recipients that failed before their email address could be read, such as invalid entries in a streamed
+     * request. These cannot be matched to a recipient, so they are always counted.
+     *
+     * @param referenceId The reference ID of the job.
+     * @param count The number of recipients that failed.
+     */
+    public void recordFailed(String referenceId, long count) {
+        record(referenceId, FAILED, REPLACE, count, List.of());
+    }
+
+    /**
+     * Record as failed the recipients of a chunk that is being given up on. Recipients who already have an outcome
+     * from an earlier delivery of the chunk keep it, so they are not counted twice.
+     *
+     * @param referenceId The reference ID of the job.
+     * @param emails The email addresses of the recipients in the chunk.
+     */
+    public void recordDropped(String referenceId, Collection<String> emails) {
+        record(referenceId, FAILED, KEEP, 0, emails);
+    }
+
+    /**
+     * Record a recipient that could not be sent an email, along with the reason, so the failure can be followed up
+     * from the job status. The email address is masked, and the list is trimmed back to the first failures after each
+     * one is added, so a job failing for every recipient does not fill Redis however many pods record at once.
+     *
+     * @param referenceId The reference ID of the job.
+     * @param email The email address of the recipient.
+     * @param reason The reason the email could not be sent.
+     */
+    public void recordFailedRecipient(String referenceId, String email, String reason) {
+        RList<String> failedRecipients = failedRecipients(referenceId);
+        failedRecipients.add(String.format("%s: %s", EmailHelper.maskEmail(email), reason));
+        failedRecipients.trim(0, MAX_FAILED_RECIPIENTS - 1);
+        failedRecipients.expire(expiry);
+        recordFailed(referenceId, List.of(email));
+    }
+
+    /**
+     * Record recipients that were not sent an email because an earlier job has already sent them one for the same
+     * artefact.
+     *
+     * @param referenceId The reference ID of the job.
+     * @param emails The email addresses of the recipients skipped.
+     */
+    public void recordSkipped(String referenceId, Collection<String> emails) {
+        record(referenceId, SKIPPED, REPLACE, 0, emails);
+    }
+
+    /**
+     * Record as skipped the recipients held by another delivery that is still sending them an email. Recipients who
+     * already have an outcome keep it, and an outcome recorded later by the delivery holding them replaces this one,
+     * so a recipient held by another delivery of the same job is counted by whichever delivery sends it.
+     *
+     * @param referenceId The reference ID of the job.
+     * @param emails The email addresses of the recipients held by another delivery.
+     */
+    public void recordHeld(String referenceId, Collection<String> emails) {
+        record(referenceId, SKIPPED, KEEP, 0, emails);
+    }
+
+    /**
+     * Record the outcome for a recipient that could not be reserved in the send ledger. A recipient already sent the
+     * email by this job is counted as sent, in case the delivery that sent it stopped before recording it, and one
+     * sent by another job is skipped. A recipient still held by another delivery is counted as skipped unless that
+     * delivery records an outcome for them.
+     *
+     * @param referenceId The reference ID of the job.
+     * @param email The email address of the recipient.
+     * @param reservation The state the recipient is held in by the send ledger.
+     */
+    public void recordNotReserved(String referenceId, String email, SubscriptionSendLedger.Reservation reservation) {
+        if (reservation.state() == SubscriptionSendLedger.State.PENDING) {
+            recordHeld(referenceId, List.of(email));
+        } else if (reservation.referenceId().equals(referenceId)) {
+            recordSent(referenceId, email);
+        } else {
+            recordSkipped(referenceId, List.of(email));
+        }
+    }
+
+    /**
+     * Get the current progress of a bulk email job.
+     *
+     * @param referenceId The reference ID of the job.
+     * @return The status of the job.
+     * @throws BulkEmailJobNotFoundException if the job is not being tracked.
+     */
+    public BulkEmailJobStatus getStatus(String referenceId) {
+        Map<String, String> job = job(referenceId).getAll(Set.of(
+            QUEUED, SENT, RATE_LIMITED, FAILED, SKIPPED, PROCESSED, STARTED_AT, FINISHED_AT, OPEN, TRUNCATED
+        ));
+        if (job.get(QUEUED) == null) {
+            throw new BulkEmailJobNotFoundException(String.format(
+                "Bulk email job with reference ID %s not found", referenceId
+            ));
+        }
+
+        long queued = field(job, QUEUED);
+        long sent = field(job, SENT);
+        long processed = field(job, PROCESSED);
+        long startedAt = field(job, STARTED_AT);
+        long finishedAt = field(job, FINISHED_AT);
+        List<String> failedRecipients = failedRecipients(referenceId).readAll();
+
+        boolean complete = processed >= queued && field(job, OPEN) == 0;
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+        double elapsedSeconds = Math.max(end - startedAt, 1) / MILLIS_PER_SECOND;
+
+        Long estimatedSecondsRemaining = null;
+        if (complete) {
+            estimatedSecondsRemaining = 0L;
+        } else if (processed > 0) {
+            estimatedSecondsRemaining = Math.round((queued - processed) / (processed / elapsedSeconds));
+        }
+
+        return new BulkEmailJobStatus(referenceId, queued, sent, field(job, RATE_LIMITED), field(job, FAILED),
+                                      field(job, SKIPPED), complete, field(job, TRUNCATED) > 0, sent / elapsedSeconds,
+                                      estimatedSecondsRemaining, failedRecipients);
+    }
+
+    private void record(String referenceId, String outcome, String replace, long count, Collection<String> emails) {
+        if (count == 0 && emails.isEmpty()) {
+            return;
+        }
+
+        List<String> values = new ArrayList<>(emails.size() + 4);
+        values.add(String.valueOf(System.currentTimeMillis()));
+        values.add(outcome);
+        values.add(replace);
+        values.add(String.valueOf(count));
+        emails.forEach(email -> values.add(SubscriptionSendLedger.hash(email)));
+        eval(RECORD_SCRIPT, referenceId, values.toArray(String[]::new));
+    }
+
+    private void initialise(String referenceId, long recipients, boolean open) {
+        eval(INITIALISE_SCRIPT, referenceId, String.valueOf(recipients), open ? "1" : "0",
+             String.valueOf(System.currentTimeMillis()));
+    }
+
+    private void eval(String script, String referenceId, String... values) {
+        redissonClient.getScript(StringCodec.INSTANCE).eval(
+            RScript.Mode.READ_WRITE, script, RScript.ReturnType.INTEGER,
+            List.<Object>of(KEY_PREFIX + referenceId), arguments(values)
+        );
+    }
+
+    private Object[] arguments(String... values) {
+        Object[] arguments = new Object[values.length + 1];
+        arguments[0] = String.valueOf(expiry.toMillis());
+        System.arraycopy(values, 0, arguments, 1, values.length);
+        return arguments;
+    }
+
+    private static long field(Map<String, String> job, String name) {
+        String value = job.get(name);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private RMap<String, String> job(String referenceId) {
+        return redissonClient.getMap(KEY_PREFIX + referenceId, StringCodec.INSTANCE);
+    }
+
+    private RList<String> failedRecipients(String referenceId) {
+        return redissonClient.getList(KEY_PREFIX + referenceId + "::" + FAILED_RECIPIENTS, StringCodec.INSTANCE);
+    }
+}
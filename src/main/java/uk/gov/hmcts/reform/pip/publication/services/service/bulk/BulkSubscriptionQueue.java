@@ -0,0 +1,383 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RStream;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.api.stream.StreamCreateGroupArgs;
+import org.redisson.api.stream.StreamReadGroupArgs;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.pip.model.publication.Artefact;
+import uk.gov.hmcts.reform.pip.publication.services.config.NotificationExecutorConfiguration;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BulkEmailQueueException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ServiceBusyException;
+import uk.gov.hmcts.reform.pip.publication.services.models.BatchEmailChunk;
+import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
+import uk.gov.hmcts.reform.pip.publication.services.models.SubscriptionEmailChunk;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.BulkSubscriptionEmail;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
+import uk.gov.hmcts.reform.pip.publication.services.service.NotifyCircuitBreaker;
+import uk.gov.hmcts.reform.pip.publication.services.service.SubscriptionNotificationService;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
+
+/**
+ * Durable queue for bulk subscription emails, backed by a Redis stream shared by every pod. Each bulk request is
+ * split into chunks of recipients which are read through a consumer group, so a chunk is only removed from the stream
+ * once it has been sent. The emails built for a batch email job, such as the system admin update emails, are queued
+ * on the same stream, so they are not lost if the pod that built them stops. Chunks left unacknowledged by a pod that
+ * has died are reclaimed by another pod once they have been idle for the configured timeout. Chunks are processed on
+ * the notification executor, and new chunks are only read while GOV.UK Notify is available and fewer chunks are in
+ * flight on this pod than the executor has threads, so a pod never holds chunks waiting in the executor queue that
+ * another pod could be sending.
+ */
+@Service
+@Slf4j
+public class BulkSubscriptionQueue {
+    private static final String STREAM = "publication-services-bulk-subscription-stream";
+    private static final String CONSUMER_GROUP = "publication-services";
+    private static final String DELIVERIES_PREFIX = "publication-services-bulk-subscription-deliveries::";
+    private static final String PAYLOAD = "payload";
+    private static final String BATCH_PAYLOAD = "batch-payload";
+    private static final String BUSY_GROUP = "BUSYGROUP";
+    private static final Duration DELIVERIES_EXPIRY = Duration.ofDays(1);
+
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final SubscriptionNotificationService subscriptionNotificationService;
+    private final BatchEmailFanOut batchEmailFanOut;
+    private final BulkEmailJobTracker bulkEmailJobTracker;
+    private final ThreadPoolTaskExecutor notificationExecutor;
+    private final NotifyCircuitBreaker notifyCircuitBreaker;
+    private final String consumerName = "consumer-" + UUID.randomUUID();
+    private final AtomicInteger chunksInFlight = new AtomicInteger();
+
+    private volatile boolean consumerGroupCreated;
+
+    @Value("${notify.bulk.queue.chunk-size}")
+    private int chunkSize;
+
+    @Value("${notify.bulk.queue.claim-idle-timeout-in-minutes}")
+    private long claimIdleTimeout;
+
+    @Value("${notify.bulk.queue.max-deliveries}")
+    private int maxDeliveries;
+
+    @Value("${notify.bulk.queue.max-backlog}")
+    private long maxBacklog;
+
+    @Value("${notify.bulk.queue.retry-after-in-seconds}")
+    private long retryAfterSeconds;
+
+    @Autowired
+    public BulkSubscriptionQueue(RedissonClient redissonClient, ObjectMapper objectMapper,
+                                 SubscriptionNotificationService subscriptionNotificationService,
+                                 BatchEmailFanOut batchEmailFanOut,
+                                 BulkEmailJobTracker bulkEmailJobTracker,
+                                 @Qualifier(NotificationExecutorConfiguration.NOTIFICATION_EXECUTOR)
+                                 ThreadPoolTaskExecutor notificationExecutor,
+                                 NotifyCircuitBreaker notifyCircuitBreaker) {
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.subscriptionNotificationService = subscriptionNotificationService;
+        this.batchEmailFanOut = batchEmailFanOut;
+        this.bulkEmailJobTracker = bulkEmailJobTracker;
+        this.notificationExecutor = notificationExecutor;
+        this.notifyCircuitBreaker = notifyCircuitBreaker;
+    }
+
+    /**
+     * Check the queue can accept another bulk subscription email job.
+     *
+     * @throws ServiceBusyException if the number of chunks waiting on the queue has reached the maximum backlog.
+     */
+    public void checkAdmission() {
+        if (maxBacklog <= 0) {
+            return;
+        }
+
+        long backlog = getStream().size();
+        if (backlog >= maxBacklog) {
+            throw new ServiceBusyException(String.format(
+                "Bulk subscription email queue is full with %s chunks waiting, please retry later", backlog
+            ), retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Add a bulk subscription email job to the queue, split into chunks of recipients.
+     *
+     * @param referenceId The reference ID of the bulk email job.
+     * @param artefact The artefact the subscription emails are for.
+     * @param locationName The name of the location of the artefact.
+     * @param subscriptionEmails The recipients of the subscription email.
+     */
+    public void enqueue(String referenceId, Artefact artefact, String locationName,
+                        List<SubscriptionEmail> subscriptionEmails) {
+        int size = getChunkSize();
+        bulkEmailJobTracker.start(referenceId, subscriptionEmails.size());
+
+        for (int start = 0; start < subscriptionEmails.size(); start += size) {
+            enqueueChunk(referenceId, artefact, locationName, List.copyOf(
+                subscriptionEmails.subList(start, Math.min(start + size, subscriptionEmails.size()))
+            ));
+        }
+
+        log.info(writeLog(String.format("Queued bulk subscription email %s for %s recipients",
+                                        referenceId, subscriptionEmails.size())));
+    }
+
+    /**
+     * Add a single chunk of recipients for a bulk subscription email job to the queue. The job tracking is left to
+     * the caller.
+     *
+     * @param referenceId The reference ID of the bulk email job.
+     * @param artefact The artefact the subscription emails are for.
+     * @param locationName The name of the location of the artefact.
+     * @param subscriptionEmails The recipients in the chunk.
+     */
+    public void enqueueChunk(String referenceId, Artefact artefact, String locationName,
+                             List<SubscriptionEmail> subscriptionEmails) {
+        ensureConsumerGroup();
+        SubscriptionEmailChunk chunk = new SubscriptionEmailChunk(referenceId, artefact, locationName,
+                                                                  subscriptionEmails);
+        getStream().add(StreamAddArgs.entry(PAYLOAD, serialise(referenceId, chunk)));
+    }
+
+    /**
+     * Add the emails built for a batch email job to the queue, split into chunks of recipients. The job is tracked
+     * for every recipient asked for, with those left out of the emails because they had reached their rate limit
+     * recorded as rate limited.
+     *
+     * @param referenceId The reference ID of the batch email job.
+     * @param recipients The email addresses of every recipient asked for.
+     * @param emails The emails built for the recipients within their rate limit.
+     */
+    public void enqueueBatch(String referenceId, Collection<String> recipients, List<EmailToSend> emails) {
+        Set<String> requested = new LinkedHashSet<>(recipients);
+        Set<String> built = new LinkedHashSet<>();
+        emails.forEach(email -> built.add(email.getEmailAddress()));
+
+        bulkEmailJobTracker.start(referenceId, requested.size());
+        bulkEmailJobTracker.recordRateLimited(referenceId, requested.stream()
+            .filter(recipient -> !built.contains(recipient))
+            .toList());
+
+        int size = getChunkSize();
+        for (int start = 0; start < emails.size(); start += size) {
+            List<BatchEmailChunk.Recipient> chunkRecipients = emails
+                .subList(start, Math.min(start + size, emails.size())).stream()
+                .map(BatchEmailChunk.Recipient::from)
+                .toList();
+            ensureConsumerGroup();
+            getStream().add(StreamAddArgs.entry(
+                BATCH_PAYLOAD, serialise(referenceId, new BatchEmailChunk(referenceId, chunkRecipients))
+            ));
+        }
+
+        log.info(writeLog(String.format("Queued batch email %s for %s of %s recipients",
+                                        referenceId, built.size(), requested.size())));
+    }
+
+    public int getChunkSize() {
+        return Math.max(chunkSize, 1);
+    }
+
+    /**
+     * Process the chunks waiting on the queue. Chunks abandoned by other consumers are reclaimed before any new
+     * chunks are read.
+     */
+    @Scheduled(fixedDelayString = "${notify.bulk.queue.poll-interval-in-ms}")
+    public void poll() {
+        try {
+            ensureConsumerGroup();
+            RStream<String, String> stream = getStream();
+
+            while (hasIdleThread() && !notifyCircuitBreaker.isOpen()) {
+                Map<StreamMessageId, Map<String, String>> messages = readNext(stream);
+                if (messages.isEmpty()) {
+                    return;
+                }
+                messages.forEach((id, fields) -> submit(stream, id, fields));
+            }
+        } catch (RedisException ex) {
+            log.error(writeLog(String.format("Failed to read from the bulk subscription email queue: %s",
+                                             ex.getMessage())));
+        }
+    }
+
+    private boolean hasIdleThread() {
+        int maxPoolSize = notificationExecutor.getMaxPoolSize();
+        return chunksInFlight.get() < maxPoolSize && notificationExecutor.getActiveCount() < maxPoolSize;
+    }
+
+    private void submit(RStream<String, String> stream, StreamMessageId id, Map<String, String> fields) {
+        chunksInFlight.incrementAndGet();
+        try {
+            notificationExecutor.execute(() -> {
+                try {
+                    handleMessage(stream, id, fields);
+                } finally {
+                    chunksInFlight.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // The executor is saturated by other work. The chunk is left pending so it is reclaimed once idle,
+            // rather than tying up the polling thread.
+            chunksInFlight.decrementAndGet();
+            log.warn(writeLog(String.format("Notification executor is saturated, bulk subscription email chunk %s "
+                                                + "will be retried once it has been idle", id)));
+        }
+    }
+
+    private Map<StreamMessageId, Map<String, String>> readNext(RStream<String, String> stream) {
+        Map<StreamMessageId, Map<String, String>> claimed = stream.autoClaim(
+            CONSUMER_GROUP, consumerName, claimIdleTimeout, MINUTES, new StreamMessageId(0, 0), 1
+        ).getMessages();
+
+        if (claimed != null && !claimed.isEmpty()) {
+            return claimed;
+        }
+
+        Map<StreamMessageId, Map<String, String>> messages = stream.readGroup(
+            CONSUMER_GROUP, consumerName, StreamReadGroupArgs.neverDelivered().count(1)
+        );
+        return messages == null ? Map.of() : messages;
+    }
+
+    private void handleMessage(RStream<String, String> stream, StreamMessageId id, Map<String, String> fields) {
+        RAtomicLong deliveries = redissonClient.getAtomicLong(DELIVERIES_PREFIX + id);
+        long deliveryCount = deliveries.incrementAndGet();
+        if (deliveryCount == 1) {
+            deliveries.expire(DELIVERIES_EXPIRY);
+        }
+
+        QueuedChunk chunk;
+        try {
+            chunk = read(fields);
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            log.error(writeLog(String.format("Dropping unreadable bulk subscription email chunk %s", id)));
+            complete(stream, id, deliveries);
+            return;
+        }
+
+        if (deliveryCount > maxDeliveries) {
+            log.error(writeLog(String.format("Dropping bulk subscription email chunk %s after %s deliveries",
+                                             id, maxDeliveries)));
+            bulkEmailJobTracker.recordDropped(chunk.referenceId(), chunk.recipients());
+            complete(stream, id, deliveries);
+            return;
+        }
+
+        try {
+            chunk.process().run();
+            complete(stream, id, deliveries);
+        } catch (NotifyUnavailableException ex) {
+            // The chunk has not failed, so the delivery is not counted towards the maximum
+            deliveries.decrementAndGet();
+            log.warn(writeLog(String.format(
+                "Paused bulk subscription email chunk %s for reference %s while GOV.UK Notify is unavailable",
+                id, chunk.referenceId()
+            )));
+        } catch (RuntimeException ex) {
+            log.error(writeLog(String.format(
+                "Failed to process bulk subscription email chunk %s for reference %s, it will be retried: %s",
+                id, chunk.referenceId(), ex.getMessage()
+            )));
+        }
+    }
+
+    private QueuedChunk read(Map<String, String> fields) throws JsonProcessingException {
+        if (fields.containsKey(BATCH_PAYLOAD)) {
+            BatchEmailChunk chunk = objectMapper.readValue(fields.get(BATCH_PAYLOAD), BatchEmailChunk.class);
+            return new QueuedChunk(chunk.getReferenceId(), chunk.getRecipients().stream()
+                .map(BatchEmailChunk.Recipient::getEmailAddress)
+                .toList(), () -> batchEmailFanOut.send(chunk));
+        }
+
+        SubscriptionEmailChunk chunk = objectMapper.readValue(fields.get(PAYLOAD), SubscriptionEmailChunk.class);
+        return new QueuedChunk(chunk.getReferenceId(), chunk.getSubscriptionEmails().stream()
+            .map(SubscriptionEmail::getEmail)
+            .toList(), () -> process(chunk));
+    }
+
+    private void process(SubscriptionEmailChunk chunk) {
+        BulkSubscriptionEmail bulkSubscriptionEmail = new BulkSubscriptionEmail();
+        bulkSubscriptionEmail.setArtefactId(chunk.getArtefact().getArtefactId());
+        bulkSubscriptionEmail.setSubscriptionEmails(chunk.getSubscriptionEmails());
+
+        if (Boolean.TRUE.equals(chunk.getArtefact().getIsFlatFile())) {
+            subscriptionNotificationService.flatFileBulkSubscriptionEmailRequest(
+                bulkSubscriptionEmail, chunk.getArtefact(), chunk.getLocationName(), chunk.getReferenceId()
+            );
+        } else {
+            subscriptionNotificationService.rawDataBulkSubscriptionEmailRequest(
+                bulkSubscriptionEmail, chunk.getArtefact(), chunk.getLocationName(), chunk.getReferenceId()
+            );
+        }
+    }
+
+    private void complete(RStream<String, String> stream, StreamMessageId id, RAtomicLong deliveries) {
+        stream.ack(CONSUMER_GROUP, id);
+        stream.remove(id);
+        deliveries.delete();
+    }
+
+    private String serialise(String referenceId, Object chunk) {
+        try {
+            return objectMapper.writeValueAsString(chunk);
+        } catch (JsonProcessingException ex) {
+            throw new BulkEmailQueueException(String.format(
+                "Failed to queue bulk subscription email %s: %s", referenceId, ex.getMessage()
+            ));
+        }
+    }
+
+    private void ensureConsumerGroup() {
+        if (consumerGroupCreated) {
+            return;
+        }
+
+        try {
+            getStream().createGroup(StreamCreateGroupArgs.name(CONSUMER_GROUP).id(StreamMessageId.ALL).makeStream());
+        } catch (RedisException ex) {
+            if (ex.getMessage() == null || !ex.getMessage().contains(BUSY_GROUP)) {
+                throw ex;
+            }
+        }
+        consumerGroupCreated = true;
+    }
+
+    private RStream<String, String> getStream() {
+        return redissonClient.getStream(STREAM, StringCodec.INSTANCE);
+    }
+
+    /**
+     * A chunk read from the queue, with the recipients to record as dropped if it is given up on.
+     */
+    private record QueuedChunk(String referenceId, List<String> recipients, Runnable process) {
+    }
+}
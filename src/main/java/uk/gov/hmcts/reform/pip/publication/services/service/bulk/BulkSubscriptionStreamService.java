@@ -0,0 +1,226 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.pip.model.publication.Artefact;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BadPayloadException;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
+import uk.gov.hmcts.reform.pip.publication.services.service.DataManagementService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
+
+/**
+ * Reads a bulk subscription email request as a stream, so the full list of recipients is never held in memory. Each
+ * recipient is validated as it is read, and recipients are handed to the bulk send queue a chunk at a time, with any
+ * repeated recipients within a chunk merged into a single entry. A recipient who was queued in an earlier chunk is
+ * dropped from later ones and counted as merged, as the job tracker records each recipient queued. The artefact ID
+ * must appear in the request before the list of subscription emails.
+ *
+ * <p>Each entry is read as a whole before it is bound, so an entry that is not a valid subscription email is counted
+ * as rejected and the rest of the list is still read. If the request itself cannot be read to the end once a chunk
+ * has been queued, the chunks already queued are still sent and the job is kept, with the unreadable entry counted as
+ * rejected and the job marked as truncated, so the caller is given the reference ID to follow the job and can see
+ * from its status that recipients were lost.</p>
+ */
+@Service
+@Slf4j
+public class BulkSubscriptionStreamService {
+    private static final String ARTEFACT_ID = "artefactId";
+    private static final String SUBSCRIPTION_EMAILS = "subscriptionEmails";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final DataManagementService dataManagementService;
+    private final BulkSubscriptionQueue bulkSubscriptionQueue;
+    private final BulkEmailJobTracker bulkEmailJobTracker;
+
+    @Autowired
+    public BulkSubscriptionStreamService(ObjectMapper objectMapper, Validator validator,
+                                         DataManagementService dataManagementService,
+                                         BulkSubscriptionQueue bulkSubscriptionQueue,
+                                         BulkEmailJobTracker bulkEmailJobTracker) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.dataManagementService = dataManagementService;
+        this.bulkSubscriptionQueue = bulkSubscriptionQueue;
+        this.bulkEmailJobTracker = bulkEmailJobTracker;
+    }
+
+    /**
+     * Read a bulk subscription email request and queue its recipients.
+     *
+     * @param inputStream The request body.
+     * @return The ID that references the bulk subscription email job.
+     */
+    public String ingest(InputStream inputStream) {
+        bulkSubscriptionQueue.checkAdmission();
+        String referenceId = null;
+        try (JsonParser parser = objectMapper.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new BadPayloadException("Bulk subscription email request must be a JSON object");
+            }
+
+            UUID artefactId = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                parser.nextToken();
+
+                if (ARTEFACT_ID.equals(fieldName)) {
+                    artefactId = parser.readValueAs(UUID.class);
+                } else if (SUBSCRIPTION_EMAILS.equals(fieldName) && referenceId == null) {
+                    if (artefactId == null) {
+                        throw new BadPayloadException(ARTEFACT_ID + " must be provided before " + SUBSCRIPTION_EMAILS);
+                    }
+                    referenceId = readSubscriptionEmails(parser, artefactId);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (referenceId == null) {
+                throw new BadPayloadException(SUBSCRIPTION_EMAILS + " must not be empty");
+            }
+            return referenceId;
+        } catch (IOException e) {
+            if (referenceId != null) {
+                log.warn(writeLog(String.format("Failed to read the end of bulk request %s after its recipients "
+                                                    + "were queued: %s", referenceId, e.getMessage())));
+                return referenceId;
+            }
+            throw new BadPayloadException(String.format("Failed to read bulk subscription email request: %s",
+                                                        e.getMessage()));
+        }
+    }
+
+    private String readSubscriptionEmails(JsonParser parser, UUID artefactId) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new BadPayloadException(SUBSCRIPTION_EMAILS + " must be a list");
+        }
+
+        Artefact artefact = null;
+        String locationName = null;
+        String referenceId = UUID.randomUUID().toString();
+        int chunkSize = bulkSubscriptionQueue.getChunkSize();
+
+        SubscriptionEmailMerger chunk = new SubscriptionEmailMerger();
+        long received = 0;
+        long rejected = 0;
+        long merged = 0;
+        boolean queued = false;
+
+        try {
+            try {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    // Reading the entry as a tree consumes all of it, so an entry that cannot be bound does not stop
+                    // the rest of the list from being read
+                    JsonNode entry = parser.readValueAsTree();
+                    SubscriptionEmail subscriptionEmail = bind(entry);
+                    if (received == 0) {
+                        // The artefact is only fetched once the first subscription has been read, so a malformed
+                        // request is rejected without calling data management
+                        artefact = dataManagementService.getArtefact(artefactId);
+                        locationName = dataManagementService.getLocation(artefact.getLocationId()).getName();
+                        bulkEmailJobTracker.open(referenceId);
+                    }
+                    received++;
+
+                    if (subscriptionEmail != null && validator.validate(subscriptionEmail).isEmpty()) {
+                        // Only entries within the same chunk can be merged, as earlier chunks have already been queued.
+                        // An entry for a recipient in an earlier chunk is dropped when its chunk is queued.
+                        if (!chunk.add(subscriptionEmail)) {
+                            merged++;
+                        }
+                    } else {
+                        rejected++;
+                        log.warn(writeLog(String.format("Skipping invalid subscription email at position %s in bulk "
+                                                            + "request %s", received, referenceId)));
+                    }
+
+                    if (chunk.size() >= chunkSize) {
+                        merged += queueChunk(referenceId, artefact, locationName, chunk.drain());
+                        queued = true;
+                    }
+                }
+            } catch (IOException e) {
+                // Until a chunk has been queued nothing will be sent, so the whole request can still be rejected
+                if (!queued) {
+                    throw e;
+                }
+                received++;
+                rejected++;
+                bulkEmailJobTracker.markTruncated(referenceId);
+                log.warn(writeLog(String.format("Failed to read bulk request %s after position %s, so the rest of "
+                                                    + "its recipients are lost. Recipients already read are still "
+                                                    + "queued: %s", referenceId, received, e.getMessage())));
+            }
+
+            if (chunk.size() > 0) {
+                merged += queueChunk(referenceId, artefact, locationName, chunk.drain());
+            }
+        } finally {
+            // Close the job even if the request could not be read to the end, so the chunks already queued can
+            // still complete it
+            if (received > 0) {
+                closeJob(referenceId, rejected);
+            }
+        }
+
+        if (received == 0) {
+            return null;
+        }
+
+        log.info(writeLog(String.format("Queued bulk subscription email %s for %s recipients",
+                                        referenceId, received - rejected - merged)));
+        return referenceId;
+    }
+
+    private SubscriptionEmail bind(JsonNode entry) {
+        try {
+            return objectMapper.treeToValue(entry, SubscriptionEmail.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void closeJob(String referenceId, long rejected) {
+        if (rejected > 0) {
+            bulkEmailJobTracker.addQueued(referenceId, rejected);
+            bulkEmailJobTracker.recordFailed(referenceId, rejected);
+        }
+        bulkEmailJobTracker.close(referenceId);
+    }
+
+    /**
+     * Queue the recipients in a chunk that were not queued in an earlier chunk.
+     *
+     * @return The number of recipients in the chunk that had already been queued.
+     */
+    private long queueChunk(String referenceId, Artefact artefact, String locationName,
+                            List<SubscriptionEmail> chunk) {
+        Set<String> added = bulkEmailJobTracker.addQueued(referenceId, chunk.stream()
+            .map(SubscriptionEmail::getEmail)
+            .toList());
+        List<SubscriptionEmail> newRecipients = chunk.stream()
+            .filter(subscriptionEmail -> added.contains(subscriptionEmail.getEmail()))
+            .toList();
+
+        if (!newRecipients.isEmpty()) {
+            bulkSubscriptionQueue.enqueueChunk(referenceId, artefact, locationName, newRecipients);
+        }
+        return chunk.size() - newRecipients.size();
+    }
+}
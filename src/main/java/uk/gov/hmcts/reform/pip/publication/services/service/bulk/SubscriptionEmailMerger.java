@@ -0,0 +1,105 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionTypes;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Merges the subscription emails in a bulk request by recipient. A user with more than one matching subscription
+ * (e.g. a case number and a location) can appear in the request several times, so their entries are combined into a
+ * single subscription email covering all of their subscriptions, meaning they only get one email per artefact.
+ * Email addresses are compared ignoring case and surrounding whitespace, and recipients keep the order they were
+ * first seen in.
+ */
+public class SubscriptionEmailMerger {
+    private final Map<String, SubscriptionEmail> recipients = new LinkedHashMap<>();
+
+    /**
+     * Merge a list of subscription emails by recipient.
+     *
+     * @param subscriptionEmails The subscription emails to merge.
+     * @return One subscription email per recipient.
+     */
+    public static List<SubscriptionEmail> merge(List<SubscriptionEmail> subscriptionEmails) {
+        SubscriptionEmailMerger merger = new SubscriptionEmailMerger();
+        subscriptionEmails.forEach(merger::add);
+        return merger.drain();
+    }
+
+    /**
+     * Add a subscription email, merging it into any existing entry for the same recipient.
+     *
+     * @param subscriptionEmail The subscription email to add.
+     * @return True if this is a new recipient, false if it was merged into an existing one.
+     */
+    public boolean add(SubscriptionEmail subscriptionEmail) {
+        String key = normalise(subscriptionEmail.getEmail());
+        SubscriptionEmail existing = recipients.get(key);
+        if (existing == null) {
+            recipients.put(key, subscriptionEmail);
+            return true;
+        }
+
+        recipients.put(key, combine(existing, subscriptionEmail));
+        return false;
+    }
+
+    /**
+     * The number of distinct recipients currently held.
+     *
+     * @return The number of recipients.
+     */
+    public int size() {
+        return recipients.size();
+    }
+
+    /**
+     * Return the merged subscription emails and clear them from the merger.
+     *
+     * @return One subscription email per recipient, in the order they were first added.
+     */
+    public List<SubscriptionEmail> drain() {
+        List<SubscriptionEmail> merged = new ArrayList<>(recipients.values());
+        recipients.clear();
+        return merged;
+    }
+
+    private static SubscriptionEmail combine(SubscriptionEmail existing, SubscriptionEmail duplicate) {
+        // A new instance is built so the entries from the request are never modified
+        Map<SubscriptionTypes, List<String>> subscriptions = new ConcurrentHashMap<>();
+        union(subscriptions, existing.getSubscriptions());
+        union(subscriptions, duplicate.getSubscriptions());
+
+        SubscriptionEmail merged = new SubscriptionEmail();
+        merged.setEmail(existing.getEmail());
+        merged.setSubscriptions(subscriptions);
+        return merged;
+    }
+
+    private static void union(Map<SubscriptionTypes, List<String>> target,
+                              Map<SubscriptionTypes, List<String>> source) {
+        if (source == null) {
+            return;
+        }
+
+        source.forEach((type, values) -> {
+            Set<String> combined = new LinkedHashSet<>(target.getOrDefault(type, List.of()));
+            if (values != null) {
+                combined.addAll(values);
+            }
+            target.put(type, new ArrayList<>(combined));
+        });
+    }
+
+    static String normalise(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
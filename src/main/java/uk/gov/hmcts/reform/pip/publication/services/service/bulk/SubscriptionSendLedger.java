@@ -0,0 +1,294 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Records which recipients have already been sent a subscription email for an artefact, so a retried or redelivered
+ * bulk request does not email them again. The ledger is a Redis hash per artefact, mapping a short hash of each
+ * recipient's email address to the state of their email and the reference ID of the job sending it. Email addresses
+ * are hashed so they are never stored in Redis. Batch emails, which have no artefact, are recorded under the reference
+ * ID of their batch.
+ *
+ * <p>A recipient is reserved in the ledger as pending before their email is sent, and marked as sent once it has
+ * been, or released again if the send fails, so two pods sending to the same recipient at once cannot both send it.
+ * A pending reservation holds a lease, kept shorter than the time a chunk waits before it is claimed by another pod.
+ * A pod that dies between reserving and sending leaves a reservation whose lease has expired by the time the chunk is
+ * redelivered, so the recipient is reserved again and sent the email rather than never being sent it.</p>
+ *
+ * <p>Before a recipient is reserved, whether they were within their rate limit is recorded as screened or rate
+ * limited for the job, and a released reservation is returned to screened. A redelivered chunk reuses the decision
+ * recorded for its job rather than screening the recipient again, so their rate limit is only consumed once.</p>
+ */
+@Service
+public class SubscriptionSendLedger {
+    private static final String KEY_PREFIX = "publication-services-sent-ledger::";
+    private static final int HASH_BYTES = 12;
+    private static final String PENDING = "pending";
+    private static final String SENT = "sent";
+    private static final String SCREENED = "screened";
+    private static final String RATE_LIMITED = "limited";
+    private static final String SEPARATOR = "|";
+
+    // ARGV: hash of the email address, reference ID, now, lease in ms. Returns the state of the recipient and the
+    // job holding them, which is this job if they were reserved. An entry without a state was written before pending
+    // entries were recorded, so is treated as sent
+    private static final String RESERVE_SCRIPT = """
+        local entry = redis.call('hget', KEYS[1], ARGV[1])
+        if entry then
+            local state, owner, leaseUntil = string.match(entry, '^(%a+)|([^|]*)|?(%d*)$')
+            if not state then
+                state, owner = 'sent', entry
+            end
+            local screened = state == 'screened' or state == 'limited'
+            if not screened and (state ~= 'pending' or (tonumber(leaseUntil) or 0) > tonumber(ARGV[3])) then
+                return {state, owner}
+            end
+        end
+        redis.call('hset', KEYS[1], ARGV[1], 'pending|' .. ARGV[2] .. '|' .. (tonumber(ARGV[3]) + tonumber(ARGV[4])))
+        return {'reserved', ARGV[2]}
+        """;
+
+    // ARGV: hash of the email address, reference ID
+    private static final String RELEASE_SCRIPT = """
+        local entry = redis.call('hget', KEYS[1], ARGV[1])
+        if entry and string.find(entry, 'pending|' .. ARGV[2] .. '|', 1, true) == 1 then
+            return redis.call('hset', KEYS[1], ARGV[1], 'screened|' .. ARGV[2])
+        end
+        return 0
+        """;
+
+    // ARGV: reference ID, expiry in ms, then the hash of each email address followed by its screening decision. A
+    // recipient already reserved or sent keeps their entry
+    private static final String SCREEN_SCRIPT = """
+        for i = 3, #ARGV, 2 do
+            local entry = redis.call('hget', KEYS[1], ARGV[i])
+            if not entry or string.find(entry, '^screened|') or string.find(entry, '^limited|') then
+                redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1] .. '|' .. ARGV[1])
+            end
+        end
+        return redis.call('pexpire', KEYS[1], ARGV[2])
+        """;
+
+    private final RedissonClient redissonClient;
+    private final Duration expiry;
+    private final Duration lease;
+
+    @Autowired
+    public SubscriptionSendLedger(RedissonClient redissonClient,
+                                  @Value("${notify.bulk.ledger.expiry-in-hours}") int expiryInHours,
+                                  @Value("${notify.bulk.ledger.lease-in-seconds}") int leaseInSeconds) {
+        this.redissonClient = redissonClient;
+        this.expiry = Duration.ofHours(expiryInHours);
+        this.lease = Duration.ofSeconds(leaseInSeconds);
+    }
+
+    /**
+     * Find which of the given recipients have already been sent an email for the artefact, in a single call to Redis.
+     *
+     * @param artefactId The ID of the artefact.
+     * @param emails The email addresses of the recipients.
+     * @return The recipients already sent an email, mapped to the reference ID of the job that sent it. Recipients
+     *     only reserved are not included.
+     */
+    public Map<String, String> findSent(UUID artefactId, Collection<String> emails) {
+        Map<String, String> emailsByHash = emails.stream()
+            .collect(Collectors.toMap(SubscriptionSendLedger::hash, Function.identity(), (first, second) -> first));
+
+        Map<String, String> entriesByHash = ledger(artefactId).getAll(Set.copyOf(emailsByHash.keySet()));
+
+        Map<String, String> sent = new HashMap<>();
+        entriesByHash.forEach((hash, entry) -> {
+            String sentBy = sentBy(entry);
+            if (sentBy != null) {
+                sent.put(emailsByHash.get(hash), sentBy);
+            }
+        });
+        return sent;
+    }
+
+    /**
+     * Find which of the given recipients have already been screened against their rate limit by the job, in a single
+     * call to Redis. A recipient reserved by the job was screened as within their rate limit.
+     *
+     * @param artefactId The ID of the artefact.
+     * @param emails The email addresses of the recipients.
+     * @param referenceId The reference ID of the job.
+     * @return The recipients already screened by the job, mapped to whether they were within their rate limit.
+     */
+    public Map<String, Boolean> findScreened(UUID artefactId, Collection<String> emails, String referenceId) {
+        Map<String, String> emailsByHash = emails.stream()
+            .collect(Collectors.toMap(SubscriptionSendLedger::hash, Function.identity(), (first, second) -> first));
+
+        Map<String, String> entriesByHash = ledger(artefactId).getAll(Set.copyOf(emailsByHash.keySet()));
+
+        Map<String, Boolean> screened = new HashMap<>();
+        entriesByHash.forEach((hash, entry) -> {
+            if (entry.equals(RATE_LIMITED + SEPARATOR + referenceId)) {
+                screened.put(emailsByHash.get(hash), false);
+            } else if (entry.equals(SCREENED + SEPARATOR + referenceId)
+                || entry.startsWith(PENDING + SEPARATOR + referenceId + SEPARATOR)) {
+                screened.put(emailsByHash.get(hash), true);
+            }
+        });
+        return screened;
+    }
+
+    /**
+     * Record whether each recipient was within their rate limit when screened by the job, so a redelivery of the
+     * chunk does not screen them again. This also restarts the expiry of the ledger, as the chunk may send no emails.
+     *
+     * @param artefactId The ID of the artefact.
+     * @param deliverable The email addresses of the recipients within their rate limit.
+     * @param rateLimited The email addresses of the recipients who had reached their rate limit.
+     * @param referenceId The reference ID of the job.
+     */
+    public void markScreened(UUID artefactId, Collection<String> deliverable, Collection<String> rateLimited,
+                             String referenceId) {
+        List<Object> args = new ArrayList<>();
+        args.add(referenceId);
+        args.add(String.valueOf(expiry.toMillis()));
+        deliverable.forEach(email -> {
+            args.add(hash(email));
+            args.add(SCREENED);
+        });
+        rateLimited.forEach(email -> {
+            args.add(hash(email));
+            args.add(RATE_LIMITED);
+        });
+
+        redissonClient.getScript(StringCodec.INSTANCE).eval(
+            RScript.Mode.READ_WRITE, SCREEN_SCRIPT, RScript.ReturnType.INTEGER,
+            List.<Object>of(KEY_PREFIX + artefactId), args.toArray()
+        );
+    }
+
+    /**
+     * Reserve a recipient for a job before sending them an email for the artefact. The reservation is made in a
+     * single call to Redis that only succeeds if the recipient has not been sent the email and is not held by a
+     * pending reservation whose lease is still running. A recipient screened by any job can be reserved.
+     *
+     * @param artefactId The ID of the artefact.
+     * @param email The email address of the recipient.
+     * @param referenceId The reference ID of the job sending the email.
+     * @return The reservation if the recipient was reserved, otherwise the state of the recipient and the reference
+     *     ID of the job holding them.
+     */
+    public Reservation reserve(UUID artefactId, String email, String referenceId) {
+        List<String> result = redissonClient.getScript(StringCodec.INSTANCE).eval(
+            RScript.Mode.READ_WRITE, RESERVE_SCRIPT, RScript.ReturnType.MULTI,
+            List.<Object>of(KEY_PREFIX + artefactId), hash(email), referenceId,
+            String.valueOf(System.currentTimeMillis()), String.valueOf(lease.toMillis())
+        );
+        return new Reservation(State.valueOf(result.get(0).toUpperCase(Locale.ROOT)), result.get(1));
+    }
+
+    /**
+     * Mark a recipient reserved with {@link #reserve(UUID, String, String)} as sent, once their email has been
+     * accepted by GOV.UK Notify.
+     *
+     * @param artefactId The ID of the artefact.
+     * @param email The email address of the recipient.
+     * @param referenceId The reference ID of the job that sent the email.
+     */
+    public void markSent(UUID artefactId, String email, String referenceId) {
+        ledger(artefactId).fastPut(hash(email), SENT + SEPARATOR + referenceId);
+    }
+
+    /**
+     * Release a recipient reserved with {@link #reserve(UUID, String, String)} whose email could not be sent, so it
+     * can be sent again by a later delivery. The recipient is returned to screened for the job, so the later delivery
+     * does not screen them again. The recipient is only released if the job still holds their pending reservation, so
+     * a reservation taken over after the lease expired is left alone.
+     *
+     * @param artefactId The ID of the artefact.
+     * @param email The email address of the recipient.
+     * @param referenceId The reference ID of the job that reserved the recipient.
+     */
+    public void release(UUID artefactId, String email, String referenceId) {
+        redissonClient.getScript(StringCodec.INSTANCE).eval(
+            RScript.Mode.READ_WRITE, RELEASE_SCRIPT, RScript.ReturnType.INTEGER,
+            List.<Object>of(KEY_PREFIX + artefactId), hash(email), referenceId
+        );
+    }
+
+    /**
+     * Restart the expiry of the ledger for an artefact. This is called once a batch of sends is complete rather than
+     * on every send, to save a call to Redis per email.
+     *
+     * @param artefactId The ID of the artefact.
+     */
+    public void refreshExpiry(UUID artefactId) {
+        ledger(artefactId).expire(expiry);
+    }
+
+    private static String sentBy(String entry) {
+        if (entry.startsWith(SENT + SEPARATOR)) {
+            return entry.substring(SENT.length() + SEPARATOR.length());
+        }
+        return entry.contains(SEPARATOR) ? null : entry;
+    }
+
+    private RMap<String, String> ledger(UUID artefactId) {
+        return redissonClient.getMap(KEY_PREFIX + artefactId, StringCodec.INSTANCE);
+    }
+
+    /**
+     * Get the short hash of an email address that it is recorded under in Redis.
+     *
+     * @param email The email address.
+     * @return The hash of the normalised email address.
+     */
+    static String hash(String email) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(SubscriptionEmailMerger.normalise(email).getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, HASH_BYTES));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The state of a recipient in the ledger.
+     */
+    public enum State {
+        RESERVED,
+        PENDING,
+        SENT
+    }
+
+    /**
+     * The result of reserving a recipient.
+     *
+     * @param state {@link State#RESERVED} if the recipient was reserved, otherwise the state they are held in.
+     * @param referenceId The reference ID of the job holding the recipient.
+     */
+    public record Reservation(State state, String referenceId) {
+        public boolean isReserved() {
+            return state == State.RESERVED;
+        }
+    }
+}
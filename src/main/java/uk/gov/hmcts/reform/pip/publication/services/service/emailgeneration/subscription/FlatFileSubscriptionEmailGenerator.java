@@ -1,67 +1,55 @@
 package uk.gov.hmcts.reform.pip.publication.services.service.emailgeneration.subscription;
 
-import lombok.extern.slf4j.Slf4j;
-import org.json.JSONObject;
 import org.springframework.stereotype.Service;
 import uk.gov.hmcts.reform.pip.model.publication.Artefact;
-import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
-import uk.gov.hmcts.reform.pip.publication.services.helpers.EmailHelper;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
 import uk.gov.hmcts.reform.pip.publication.services.models.PersonalisationLinks;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.EmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.FlatFileSubscriptionEmailData;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.SharedPersonalisation;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.SubscriptionPersonalisation;
 import uk.gov.hmcts.reform.pip.publication.services.service.emailgeneration.EmailGenerator;
-import uk.gov.service.notify.NotificationClientException;
 
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
-import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL;
-import static uk.gov.service.notify.NotificationClient.prepareUpload;
 
 /**
  * Generate the flat file subscription email with personalisation for GOV.UK Notify template.
  */
 @Service
-@Slf4j
 public class FlatFileSubscriptionEmailGenerator extends EmailGenerator {
+    private static final DateTimeFormatter CONTENT_DATE_FORMAT = DateTimeFormatter.ofPattern("dd MMMM yyyy");
+
     @Override
     public EmailToSend buildEmail(EmailData email, PersonalisationLinks personalisationLinks) {
         FlatFileSubscriptionEmailData emailData = (FlatFileSubscriptionEmailData) email;
+
+        // Nothing in the personalisation is specific to the recipient, so every email for the artefact shares it
+        SharedPersonalisation sharedPersonalisation = emailData.getSharedPersonalisation();
+        Map<String, Object> personalisation = sharedPersonalisation.get(
+            () -> buildEmailPersonalisation(emailData, emailData.getArtefact(), personalisationLinks)
+        );
         return generateEmail(emailData, MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL.getTemplate(),
-                             buildEmailPersonalisation(emailData, emailData.getArtefact(), personalisationLinks));
+                             new SubscriptionPersonalisation(personalisation, Map.of(),
+                                                             sharedPersonalisation::getSerialised));
     }
 
     private Map<String, Object> buildEmailPersonalisation(FlatFileSubscriptionEmailData emailData, Artefact artefact,
                                                           PersonalisationLinks personalisationLinks) {
-        try {
-            Map<String, Object> personalisation = new ConcurrentHashMap<>();
-            populateLocationPersonalisation(personalisation, emailData.getLocationName());
-
-            personalisation.put("list_type", artefact.getListType().getFriendlyName());
-            JSONObject uploadedFile = prepareUpload(emailData.getArtefactFlatFile(), false,
-                                                    emailData.getFileRetentionWeeks());
+        Map<String, Object> personalisation = new HashMap<>();
+        populateLocationPersonalisation(personalisation, emailData.getLocationName());
 
-            personalisation.put("link_to_file", uploadedFile);
-            personalisation.put("start_page_link", personalisationLinks.getStartPageLink());
-            personalisation.put("subscription_page_link", personalisationLinks.getSubscriptionPageLink());
+        personalisation.put("list_type", artefact.getListType().getFriendlyName());
+        personalisation.put("link_to_file", emailData.getAttachments().getFlatFile());
+        personalisation.put("start_page_link", personalisationLinks.getStartPageLink());
+        personalisation.put("subscription_page_link", personalisationLinks.getSubscriptionPageLink());
 
-            personalisation.put(
-                "content_date",
-                artefact.getContentDate().format(DateTimeFormatter.ofPattern("dd MMMM yyyy"))
-            );
+        personalisation.put("content_date", artefact.getContentDate().format(CONTENT_DATE_FORMAT));
 
-            return personalisation;
-        } catch (NotificationClientException e) {
-            log.warn(writeLog(String.format(
-                "Error adding attachment to flat file email %s. Artefact ID: %s",
-                EmailHelper.maskEmail(emailData.getEmail()),
-                emailData.getArtefact().getArtefactId()
-            )));
-            throw new NotifyException(e.getMessage());
-        }
+        return personalisation;
     }
 
     private void populateLocationPersonalisation(Map<String, Object> personalisation,String locationName) {
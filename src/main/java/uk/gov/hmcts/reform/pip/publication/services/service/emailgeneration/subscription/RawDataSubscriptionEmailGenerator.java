@@ -9,23 +9,23 @@ import uk.gov.hmcts.reform.pip.publication.services.helpers.EmailHelper;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
 import uk.gov.hmcts.reform.pip.publication.services.models.PersonalisationLinks;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.EmailData;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.ArtefactAttachments;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.RawDataSubscriptionEmailData;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.SubscriptionPersonalisation;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionTypes;
 import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
 import uk.gov.hmcts.reform.pip.publication.services.service.emailgeneration.EmailGenerator;
-import uk.gov.service.notify.NotificationClientException;
 
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static uk.gov.hmcts.reform.pip.model.LogBuilder.writeLog;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_EXCEL_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_NO_DOWNLOAD_LINK_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL;
-import static uk.gov.service.notify.NotificationClient.prepareUpload;
 
 /**
  * Generate the raw data subscription email with personalisation for GOV.UK Notify template.
@@ -39,16 +39,31 @@ public class RawDataSubscriptionEmailGenerator extends EmailGenerator {
     private static final String DISPLAY_CASE_URN = "display_case_urn";
     private static final String YES = "Yes";
     private static final String NO = "No";
-    private static final int MAX_FILE_SIZE = 2_000_000;
+    private static final DateTimeFormatter CONTENT_DATE_FORMAT = DateTimeFormatter.ofPattern("dd MMMM yyyy");
 
     @Override
     public EmailToSend buildEmail(EmailData email, PersonalisationLinks personalisationLinks) {
         RawDataSubscriptionEmailData emailData = (RawDataSubscriptionEmailData) email;
-        Map<String, Object> personalisations = buildEmailPersonalisation(
-            emailData, emailData.getArtefact(), personalisationLinks
-        );
-        Templates template = determineTemplate(personalisations);
-        return generateEmail(emailData, template.getTemplate(), personalisations);
+        try {
+            Map<String, Object> sharedPersonalisation = emailData.getSharedPersonalisation().get(
+                () -> buildSharedPersonalisation(emailData, emailData.getArtefact(), personalisationLinks)
+            );
+            Map<String, Object> personalisations = emailData.getSharedPersonalisation().getForRecipient(
+                subscriptionSignature(emailData.getSubscriptions()),
+                () -> new SubscriptionPersonalisation(
+                    sharedPersonalisation, buildRecipientPersonalisation(emailData, emailData.getArtefact()),
+                    emailData.getSharedPersonalisation()::getSerialised
+                )
+            );
+            Templates template = determineTemplate(sharedPersonalisation);
+            return generateEmail(emailData, template.getTemplate(), personalisations);
+        } catch (Exception e) {
+            log.warn(writeLog(
+                String.format("Error adding attachment to raw data email %s. Artefact ID: %s",
+                              EmailHelper.maskEmail(emailData.getEmail()), emailData.getArtefact().getArtefactId())
+            ));
+            throw new NotifyException(e.getMessage());
+        }
     }
 
     private Templates determineTemplate(Map<String, Object> personalisations) {
@@ -68,58 +83,55 @@ public class RawDataSubscriptionEmailGenerator extends EmailGenerator {
         }
     }
 
-    private Map<String, Object> buildEmailPersonalisation(RawDataSubscriptionEmailData emailData, Artefact artefact,
-                                                          PersonalisationLinks personalisationLinks) {
-        try {
-            Map<String, Object> personalisation = new ConcurrentHashMap<>();
-            Map<SubscriptionTypes, List<String>> subscriptions = emailData.getSubscriptions();
-
-            populateCaseNumberPersonalisation(artefact, personalisation,
-                                              subscriptions.get(SubscriptionTypes.CASE_NUMBER));
-            populateCaseUrnPersonalisation(personalisation, subscriptions.get(SubscriptionTypes.CASE_URN));
-            populateLocationPersonalisation(personalisation, emailData.getLocationName());
-
-            personalisation.put("list_type", artefact.getListType().getFriendlyName());
-            personalisation.put("start_page_link", personalisationLinks.getStartPageLink());
-            personalisation.put("subscription_page_link", personalisationLinks.getSubscriptionPageLink());
-            personalisation.putAll(populateFilesPersonalisation(emailData));
-            personalisation.putAll(populateSummaryPersonalisation(emailData.getArtefactSummary()));
-
-            personalisation.put(
-                "content_date",
-                artefact.getContentDate().format(DateTimeFormatter.ofPattern("dd MMMM yyyy"))
-            );
-            return personalisation;
-        } catch (Exception e) {
-            log.warn(writeLog(
-                String.format("Error adding attachment to raw data email %s. Artefact ID: %s",
-                              EmailHelper.maskEmail(emailData.getEmail()), emailData.getArtefact().getArtefactId())
-            ));
-            throw new NotifyException(e.getMessage());
-        }
+    /**
+     * Build the personalisation which is the same for every recipient of the artefact.
+     */
+    private Map<String, Object> buildSharedPersonalisation(RawDataSubscriptionEmailData emailData, Artefact artefact,
+                                                           PersonalisationLinks personalisationLinks) {
+        Map<String, Object> personalisation = new HashMap<>();
+        populateLocationPersonalisation(personalisation, emailData.getLocationName());
+
+        personalisation.put("list_type", artefact.getListType().getFriendlyName());
+        personalisation.put("start_page_link", personalisationLinks.getStartPageLink());
+        personalisation.put("subscription_page_link", personalisationLinks.getSubscriptionPageLink());
+        populateFilesPersonalisation(personalisation, emailData.getAttachments());
+        populateSummaryPersonalisation(personalisation, emailData.getArtefactSummary());
+
+        personalisation.put("content_date", artefact.getContentDate().format(CONTENT_DATE_FORMAT));
+        return personalisation;
     }
 
-    private void populateCaseNumberPersonalisation(Artefact artefact, Map<String, Object> personalisation,
-                                                   List<String> content) {
-
-        if (content == null || content.isEmpty()) {
-            personalisation.put(DISPLAY_CASE_NUMBERS, NO);
-            personalisation.put(CASE_NUMBERS, "");
-        } else {
-            personalisation.put(DISPLAY_CASE_NUMBERS, YES);
-            personalisation.put(CASE_NUMBERS, CaseNameHelper.generateCaseNumberPersonalisation(artefact, content));
-        }
+    /**
+     * Build the personalisation for the case numbers and URNs the recipient is subscribed to.
+     */
+    private Map<String, Object> buildRecipientPersonalisation(RawDataSubscriptionEmailData emailData,
+                                                              Artefact artefact) {
+        Map<SubscriptionTypes, List<String>> subscriptions = emailData.getSubscriptions();
+        List<String> caseNumbers = subscriptions.get(SubscriptionTypes.CASE_NUMBER);
+        List<String> caseUrns = subscriptions.get(SubscriptionTypes.CASE_URN);
+
+        boolean hasCaseNumbers = caseNumbers != null && !caseNumbers.isEmpty();
+        boolean hasCaseUrns = caseUrns != null && !caseUrns.isEmpty();
+
+        return Map.of(
+            DISPLAY_CASE_NUMBERS, hasCaseNumbers ? YES : NO,
+            CASE_NUMBERS, hasCaseNumbers ? CaseNameHelper.generateCaseNumberPersonalisation(artefact, caseNumbers) : "",
+            DISPLAY_CASE_URN, hasCaseUrns ? YES : NO,
+            CASE_URN, hasCaseUrns ? caseUrns : ""
+        );
     }
 
-    private void populateCaseUrnPersonalisation(Map<String, Object> personalisation, List<String> content) {
+    /**
+     * The case numbers and URNs are the only subscriptions in the personalisation, so recipients subscribed to the same
+     * ones share a signature whatever order they are in.
+     */
+    private static List<List<String>> subscriptionSignature(Map<SubscriptionTypes, List<String>> subscriptions) {
+        return List.of(sorted(subscriptions.get(SubscriptionTypes.CASE_NUMBER)),
+                       sorted(subscriptions.get(SubscriptionTypes.CASE_URN)));
+    }
 
-        if (content == null || content.isEmpty()) {
-            personalisation.put(DISPLAY_CASE_URN, NO);
-            personalisation.put(CASE_URN, "");
-        } else {
-            personalisation.put(DISPLAY_CASE_URN, YES);
-            personalisation.put(CASE_URN, content);
-        }
+    private static List<String> sorted(List<String> values) {
+        return values == null ? List.of() : values.stream().sorted().toList();
     }
 
     private void populateLocationPersonalisation(Map<String, Object> personalisation, String locationName) {
@@ -127,55 +139,27 @@ public class RawDataSubscriptionEmailGenerator extends EmailGenerator {
         personalisation.put("locations", locationName);
     }
 
-    private Map<String, Object> populateFilesPersonalisation(RawDataSubscriptionEmailData emailData)
-        throws NotificationClientException {
-        Map<String, Object> personalisation = populatePdfPersonalisation(emailData);
-        personalisation.putAll(populateExcelPersonalisation(emailData));
-        return personalisation;
-    }
-
-    private Map<String, Object> populatePdfPersonalisation(RawDataSubscriptionEmailData emailData)
-        throws NotificationClientException {
-        byte[] artefactPdfBytes = emailData.getPdf();
-        boolean pdfWithinSize = artefactPdfBytes.length < MAX_FILE_SIZE && artefactPdfBytes.length > 0;
-
-        Map<String, Object> personalisation = new ConcurrentHashMap<>();
-
+    private void populateFilesPersonalisation(Map<String, Object> personalisation,
+                                              ArtefactAttachments attachments) {
         personalisation.put(
-            "pdf_link_text", pdfWithinSize ? "Download the case list as a PDF." : ""
+            "pdf_link_text", attachments.hasPdf() ? "Download the case list as a PDF." : ""
         );
         personalisation.put(
-            "pdf_link_to_file", pdfWithinSize
-                ? prepareUpload(artefactPdfBytes, false, emailData.getFileRetentionWeeks()) : ""
+            "pdf_link_to_file", attachments.hasPdf() ? attachments.getPdf() : ""
         );
 
-        return personalisation;
-    }
-
-    private Map<String, Object> populateExcelPersonalisation(RawDataSubscriptionEmailData emailData)
-        throws NotificationClientException {
-        Map<String, Object> personalisation = new ConcurrentHashMap<>();
-        byte[] excelBytes = emailData.getExcel();
-        boolean excelWithinSize = excelBytes.length < MAX_FILE_SIZE && excelBytes.length > 0;
-
         personalisation.put(
             "excel_link_text",
-            excelWithinSize ? "Download the case list as an Excel spreadsheet." : ""
+            attachments.hasExcel() ? "Download the case list as an Excel spreadsheet." : ""
         );
-
         personalisation.put(
             "excel_link_to_file",
-            excelWithinSize ? prepareUpload(excelBytes, false, emailData.getFileRetentionWeeks()) : ""
+            attachments.hasExcel() ? attachments.getExcel() : ""
         );
-
-        return personalisation;
     }
 
-    private Map<String, Object> populateSummaryPersonalisation(String artefactSummary) {
-        Map<String, Object> personalisation = new ConcurrentHashMap<>();
+    private void populateSummaryPersonalisation(Map<String, Object> personalisation, String artefactSummary) {
         personalisation.put("display_summary", !artefactSummary.isEmpty());
         personalisation.put("summary_of_cases", artefactSummary);
-
-        return personalisation;
     }
 }
@@ -0,0 +1,214 @@
+package uk.gov.hmcts.reform.pip.publication.services.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import uk.gov.service.notify.NotificationClient;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.SendEmailResponse;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class NotifyClientPoolTest {
+    private static final String TEMPLATE_ID = "template";
+    private static final String EMAIL = "test@testing.com";
+    private static final String REFERENCE = "reference";
+    private static final Map<String, Object> PERSONALISATION = Map.of("name", "Test");
+    private static final String FIRST_KEY = "first";
+    private static final String SECOND_KEY = "second";
+    private static final String CLIENT_MESSAGE = "Selected client does not match";
+    private static final String METRIC_MESSAGE = "Metric value does not match";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private NotificationClient firstNotificationClient;
+
+    @Mock
+    private NotificationClient secondNotificationClient;
+
+    @Mock
+    private NotifyTransport firstTransport;
+
+    @Mock
+    private NotifyTransport secondTransport;
+
+    @Mock
+    private SendEmailResponse sendEmailResponse;
+
+    @Test
+    void testAcquireLeastLoadedKey() {
+        NotifyClientPool pool = createPool();
+
+        NotifyKeyClient first = pool.acquire(null);
+        NotifyKeyClient second = pool.acquire(null);
+
+        assertThat(second)
+            .as(CLIENT_MESSAGE)
+            .isNotSameAs(first);
+
+        pool.release(first);
+
+        assertThat(pool.acquire(null))
+            .as(CLIENT_MESSAGE)
+            .isSameAs(first);
+    }
+
+    @Test
+    void testAcquireNamedKey() {
+        NotifyClientPool pool = createPool();
+        NotifyKeyClient second = pool.getClients().getLast();
+
+        assertThat(pool.acquire(SECOND_KEY))
+            .as(CLIENT_MESSAGE)
+            .isSameAs(second);
+        assertThat(pool.acquire(SECOND_KEY))
+            .as("Named key should be used even when it is the most loaded")
+            .isSameAs(second);
+    }
+
+    @Test
+    void testAcquireUnknownKeyUsesLeastLoaded() {
+        NotifyClientPool pool = createPool();
+        NotifyKeyClient first = pool.acquire(FIRST_KEY);
+
+        assertThat(pool.acquire("unknown"))
+            .as(CLIENT_MESSAGE)
+            .isNotSameAs(first);
+    }
+
+    @Test
+    void testRateLimitedKeyAvoided() {
+        NotifyClientPool pool = createPool();
+        NotifyKeyClient rateLimited = pool.getClients().getFirst();
+        pool.recordOutcome(rateLimited, new NotifyHttpException(429, "Rate limited"));
+
+        for (int i = 0; i < 3; i++) {
+            NotifyKeyClient client = pool.acquire(null);
+            assertThat(client)
+                .as(CLIENT_MESSAGE)
+                .isNotSameAs(rateLimited);
+            pool.release(client);
+        }
+
+        assertThat(meterRegistry.get("notify.client.sends")
+                       .tag("key", FIRST_KEY)
+                       .tag("outcome", NotifyClientPool.RATE_LIMITED)
+                       .counter().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testAllKeysRateLimitedStillSends() {
+        NotifyClientPool pool = createPool();
+        pool.getClients().forEach(client -> pool.recordOutcome(client, new NotifyHttpException(429, "")));
+
+        assertThat(pool.acquire(null))
+            .as(CLIENT_MESSAGE)
+            .isNotNull();
+    }
+
+    @Test
+    void testInFlightTrackedPerKey() {
+        NotifyClientPool pool = createPool();
+        pool.acquire(null);
+
+        double inFlight = meterRegistry.get("notify.client.in-flight").gauges().stream()
+            .mapToDouble(gauge -> gauge.value())
+            .sum();
+
+        assertThat(inFlight)
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testNoKeysConfigured() {
+        assertThatThrownBy(() -> new NotifyClientPool(List.of(), 0, meterRegistry))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testEmailClientSendsWithPooledKey() throws NotificationClientException {
+        EmailClient emailClient = new EmailClient(createPool(List.of(
+            new NotifyKeyClient(FIRST_KEY, firstNotificationClient, firstTransport)
+        )));
+        when(firstNotificationClient.sendEmail(TEMPLATE_ID, EMAIL, PERSONALISATION, REFERENCE))
+            .thenReturn(sendEmailResponse);
+
+        assertThat(emailClient.sendEmail(TEMPLATE_ID, EMAIL, PERSONALISATION, REFERENCE))
+            .as("Email response does not match")
+            .isEqualTo(sendEmailResponse);
+
+        assertThat(emailClient.getClients().getFirst().getInFlight().get())
+            .as("Key should be released once sent")
+            .isZero();
+
+        assertThat(meterRegistry.get("notify.client.sends")
+                       .tag("key", FIRST_KEY)
+                       .tag("outcome", NotifyClientPool.SENT)
+                       .counter().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testEmailClientReleasesKeyOnFailure() throws NotificationClientException {
+        EmailClient emailClient = new EmailClient(createPool(List.of(
+            new NotifyKeyClient(FIRST_KEY, firstNotificationClient, firstTransport)
+        )));
+        when(firstNotificationClient.sendEmail(TEMPLATE_ID, EMAIL, PERSONALISATION, REFERENCE))
+            .thenThrow(new NotificationClientException("Failed"));
+
+        assertThatThrownBy(() -> emailClient.sendEmail(TEMPLATE_ID, EMAIL, PERSONALISATION, REFERENCE))
+            .isInstanceOf(NotificationClientException.class);
+
+        assertThat(emailClient.getClients().getFirst().getInFlight().get())
+            .as("Key should be released once failed")
+            .isZero();
+    }
+
+    @Test
+    void testEmailClientSendsAsyncWithPooledKey() {
+        EmailClient emailClient = new EmailClient(createPool(List.of(
+            new NotifyKeyClient(SECOND_KEY, secondNotificationClient, secondTransport)
+        )));
+        when(secondTransport.sendEmail(TEMPLATE_ID, EMAIL, PERSONALISATION, REFERENCE))
+            .thenReturn(Mono.just(sendEmailResponse));
+
+        assertThat(emailClient.sendEmailAsync(TEMPLATE_ID, EMAIL, PERSONALISATION, REFERENCE).block())
+            .as("Email response does not match")
+            .isEqualTo(sendEmailResponse);
+
+        assertThat(emailClient.getClients().getFirst().getInFlight().get())
+            .as("Key should be released once sent")
+            .isZero();
+        verify(firstTransport, never()).sendEmail(TEMPLATE_ID, EMAIL, PERSONALISATION, REFERENCE);
+    }
+
+    private NotifyClientPool createPool() {
+        return createPool(List.of(
+            new NotifyKeyClient(FIRST_KEY, firstNotificationClient, firstTransport),
+            new NotifyKeyClient(SECOND_KEY, secondNotificationClient, secondTransport)
+        ));
+    }
+
+    private NotifyClientPool createPool(List<NotifyKeyClient> clients) {
+        return new NotifyClientPool(clients, 60_000, meterRegistry);
+    }
+}
@@ -0,0 +1,79 @@
+package uk.gov.hmcts.reform.pip.publication.services.client;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.SubscriptionPersonalisation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotifyRequestBodyTest {
+    private static final String TEMPLATE_ID = "template";
+    private static final String EMAIL = "test@testing.com";
+    private static final String REFERENCE = "reference";
+    private static final String PERSONALISATION = "personalisation";
+    private static final String BODY_MESSAGE = "Request body does not match";
+    private static final Map<String, Object> SHARED = Map.of("list_type", "List \"type\"", "locations", "Location");
+
+    @Test
+    void testCreateWithMapPersonalisation() {
+        JSONObject body = read(NotifyRequestBody.create(TEMPLATE_ID, EMAIL, Map.of("name", "Test"), REFERENCE));
+
+        assertThat(body.getString("template_id")).as(BODY_MESSAGE).isEqualTo(TEMPLATE_ID);
+        assertThat(body.getString("email_address")).as(BODY_MESSAGE).isEqualTo(EMAIL);
+        assertThat(body.getString("reference")).as(BODY_MESSAGE).isEqualTo(REFERENCE);
+        assertThat(body.getJSONObject(PERSONALISATION).getString("name")).as(BODY_MESSAGE).isEqualTo("Test");
+    }
+
+    @Test
+    void testCreateWithPreSerialisedPersonalisation() {
+        SubscriptionPersonalisation personalisation = preSerialised(Map.of("case_urn", "URN1"));
+
+        JSONObject body = read(NotifyRequestBody.create(TEMPLATE_ID, EMAIL, personalisation, REFERENCE));
+
+        assertThat(body.getString("email_address")).as(BODY_MESSAGE).isEqualTo(EMAIL);
+        assertThat(body.getJSONObject(PERSONALISATION).toMap())
+            .as(BODY_MESSAGE)
+            .isEqualTo(Map.of("list_type", "List \"type\"", "locations", "Location", "case_urn", "URN1"));
+    }
+
+    @Test
+    void testCreateWithPreSerialisedPersonalisationAndNoRecipientFields() {
+        SubscriptionPersonalisation personalisation = preSerialised(Map.of());
+
+        JSONObject body = read(NotifyRequestBody.create(TEMPLATE_ID, EMAIL, personalisation, null));
+
+        assertThat(body.has("reference")).as(BODY_MESSAGE).isFalse();
+        assertThat(body.getJSONObject(PERSONALISATION).toMap()).as(BODY_MESSAGE).isEqualTo(SHARED);
+    }
+
+    @Test
+    void testContentLengthMatchesBody() {
+        NotifyRequestBody requestBody = NotifyRequestBody.create(TEMPLATE_ID, EMAIL,
+                                                                 preSerialised(Map.of("case_num", "123")), REFERENCE);
+
+        assertThat(readBytes(requestBody))
+            .as("Content length does not match")
+            .hasSize((int) requestBody.getContentLength());
+    }
+
+    private static SubscriptionPersonalisation preSerialised(Map<String, Object> recipient) {
+        byte[] serialisedShared = SubscriptionPersonalisation.toJsonMembers(SHARED).getBytes(StandardCharsets.UTF_8);
+        return new SubscriptionPersonalisation(SHARED, recipient, () -> serialisedShared);
+    }
+
+    private static JSONObject read(NotifyRequestBody requestBody) {
+        return new JSONObject(new String(readBytes(requestBody), StandardCharsets.UTF_8));
+    }
+
+    private static byte[] readBytes(NotifyRequestBody requestBody) {
+        DataBuffer buffer = DataBufferUtils.join(requestBody.toDataBuffers()).block();
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        return bytes;
+    }
+}
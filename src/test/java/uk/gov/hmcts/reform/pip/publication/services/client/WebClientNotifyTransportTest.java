@@ -0,0 +1,196 @@
+package uk.gov.hmcts.reform.pip.publication.services.client;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.SubscriptionPersonalisation;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.SendEmailResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ActiveProfiles("test")
+class WebClientNotifyTransportTest {
+    private static final String SERVICE_ID = UUID.randomUUID().toString();
+    private static final String API_KEY = "test_key-" + SERVICE_ID + "-" + UUID.randomUUID();
+    private static final String TEMPLATE_ID = UUID.randomUUID().toString();
+    private static final String EMAIL = "test@testing.com";
+    private static final String REFERENCE = "reference";
+    private static final String NOTIFICATION_ID = UUID.randomUUID().toString();
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String RESPONSE_BODY = "{"
+        + "\"id\":\"" + NOTIFICATION_ID + "\","
+        + "\"reference\":\"" + REFERENCE + "\","
+        + "\"content\":{\"body\":\"Email body\",\"subject\":\"Email subject\",\"from_email\":\"from@email.com\"},"
+        + "\"template\":{\"id\":\"" + TEMPLATE_ID + "\",\"version\":1,\"uri\":\"https://example.com/template_uri\"}"
+        + "}";
+
+    private final MockWebServer mockNotifyEndpoint = new MockWebServer();
+
+    private WebClientNotifyTransport notifyTransport;
+
+    @BeforeEach
+    void setup() {
+        WebClient webClient = WebClient.builder()
+            .baseUrl(mockNotifyEndpoint.url("/").toString())
+            .build();
+        notifyTransport = new WebClientNotifyTransport(webClient, API_KEY);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        mockNotifyEndpoint.close();
+    }
+
+    @Test
+    void testSendEmailSuccess() throws InterruptedException {
+        mockNotifyEndpoint.enqueue(new MockResponse()
+                                       .setResponseCode(201)
+                                       .addHeader(CONTENT_TYPE_HEADER, "application/json")
+                                       .setBody(RESPONSE_BODY));
+
+        SendEmailResponse response = notifyTransport.sendEmail(TEMPLATE_ID, EMAIL, Map.of("name", "Test"),
+                                                               REFERENCE).block();
+
+        assertThat(response.getNotificationId())
+            .as("Notification ID does not match")
+            .isEqualTo(UUID.fromString(NOTIFICATION_ID));
+
+        RecordedRequest request = mockNotifyEndpoint.takeRequest(1, TimeUnit.SECONDS);
+        assertThat(request.getPath())
+            .as("Request path does not match")
+            .isEqualTo("/v2/notifications/email");
+
+        JSONObject body = new JSONObject(request.getBody().readUtf8());
+        assertThat(body.getString("template_id"))
+            .as("Template ID does not match")
+            .isEqualTo(TEMPLATE_ID);
+        assertThat(body.getString("email_address"))
+            .as("Email address does not match")
+            .isEqualTo(EMAIL);
+        assertThat(body.getJSONObject("personalisation").getString("name"))
+            .as("Personalisation does not match")
+            .isEqualTo("Test");
+    }
+
+    @Test
+    void testSendEmailWithPreSerialisedPersonalisation() throws InterruptedException {
+        mockNotifyEndpoint.enqueue(new MockResponse()
+                                       .setResponseCode(201)
+                                       .addHeader(CONTENT_TYPE_HEADER, "application/json")
+                                       .setBody(RESPONSE_BODY));
+
+        Map<String, Object> shared = Map.of("list_type", "List type", "link_to_file", new JSONObject(Map.of(
+            "file", "ZmlsZQ==", "confirm_email_before_download", false
+        )));
+        byte[] serialisedShared = SubscriptionPersonalisation.toJsonMembers(shared).getBytes(StandardCharsets.UTF_8);
+        SubscriptionPersonalisation personalisation = new SubscriptionPersonalisation(
+            shared, Map.of("case_num", "123"), () -> serialisedShared
+        );
+
+        notifyTransport.sendEmail(TEMPLATE_ID, EMAIL, personalisation, REFERENCE).block();
+
+        RecordedRequest request = mockNotifyEndpoint.takeRequest(1, TimeUnit.SECONDS);
+        JSONObject body = new JSONObject(request.getBody().readUtf8());
+        assertThat(body.getString("reference"))
+            .as("Reference does not match")
+            .isEqualTo(REFERENCE);
+
+        JSONObject sentPersonalisation = body.getJSONObject("personalisation");
+        assertThat(sentPersonalisation.getString("case_num"))
+            .as("Personalisation does not match")
+            .isEqualTo("123");
+        assertThat(sentPersonalisation.getString("list_type"))
+            .as("Personalisation does not match")
+            .isEqualTo("List type");
+        assertThat(sentPersonalisation.getJSONObject("link_to_file").getString("file"))
+            .as("Personalisation does not match")
+            .isEqualTo("ZmlsZQ==");
+        assertThat(request.getHeader("Content-Length"))
+            .as("Content length does not match")
+            .isEqualTo(String.valueOf(request.getBodySize()));
+    }
+
+    @Test
+    void testSendEmailIsAuthenticatedWithServiceId() throws InterruptedException {
+        mockNotifyEndpoint.enqueue(new MockResponse()
+                                       .setResponseCode(201)
+                                       .addHeader(CONTENT_TYPE_HEADER, "application/json")
+                                       .setBody(RESPONSE_BODY));
+
+        notifyTransport.sendEmail(TEMPLATE_ID, EMAIL, Map.of(), REFERENCE).block();
+
+        String authorisation = mockNotifyEndpoint.takeRequest(1, TimeUnit.SECONDS).getHeader("Authorization");
+        assertThat(authorisation)
+            .as("Request should use a bearer token")
+            .startsWith("Bearer ");
+
+        String[] token = authorisation.substring("Bearer ".length()).split("\\.");
+        assertThat(token)
+            .as("Token should be a signed JWT")
+            .hasSize(3);
+
+        JSONObject claims = new JSONObject(new String(Base64.getUrlDecoder().decode(token[1]),
+                                                      StandardCharsets.UTF_8));
+        assertThat(claims.getString("iss"))
+            .as("Token issuer should be the service ID")
+            .isEqualTo(SERVICE_ID);
+    }
+
+    @Test
+    void testTransportWithOtherApiKeyIsAuthenticatedWithItsServiceId() throws InterruptedException {
+        mockNotifyEndpoint.enqueue(new MockResponse()
+                                       .setResponseCode(201)
+                                       .addHeader(CONTENT_TYPE_HEADER, "application/json")
+                                       .setBody(RESPONSE_BODY));
+        String otherServiceId = UUID.randomUUID().toString();
+
+        notifyTransport.withApiKey("other_key-" + otherServiceId + "-" + UUID.randomUUID())
+            .sendEmail(TEMPLATE_ID, EMAIL, Map.of(), REFERENCE)
+            .block();
+
+        String authorisation = mockNotifyEndpoint.takeRequest(1, TimeUnit.SECONDS).getHeader("Authorization");
+        String[] token = authorisation.substring("Bearer ".length()).split("\\.");
+        JSONObject claims = new JSONObject(new String(Base64.getUrlDecoder().decode(token[1]),
+                                                      StandardCharsets.UTF_8));
+        assertThat(claims.getString("iss"))
+            .as("Token issuer should be the service ID of the other key")
+            .isEqualTo(otherServiceId);
+    }
+
+    @Test
+    void testSendEmailRateLimited() {
+        mockNotifyEndpoint.enqueue(new MockResponse()
+                                       .setResponseCode(429)
+                                       .setBody("{\"errors\":[{\"error\":\"RateLimitError\"}]}"));
+
+        assertThatThrownBy(() -> notifyTransport.sendEmail(TEMPLATE_ID, EMAIL, Map.of(), REFERENCE).block())
+            .as("Rate limited response should error with the status code")
+            .hasCauseInstanceOf(NotifyHttpException.class)
+            .satisfies(ex -> assertThat(((NotifyHttpException) ex.getCause()).getHttpResult()).isEqualTo(429));
+    }
+
+    @Test
+    void testSendEmailWithInvalidApiKey() {
+        WebClientNotifyTransport invalidTransport = new WebClientNotifyTransport(WebClient.create(), "invalid");
+
+        assertThatThrownBy(() -> invalidTransport.sendEmail(TEMPLATE_ID, EMAIL, Map.of(), REFERENCE).block())
+            .as("Invalid API key should error before sending")
+            .hasCauseInstanceOf(NotificationClientException.class)
+            .hasMessageContaining("The GOV.UK Notify API key is not valid");
+    }
+}
@@ -0,0 +1,220 @@
+package uk.gov.hmcts.reform.pip.publication.services.config;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.AsyncProxyManager;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteAsyncBucketBuilder;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit.HIGH;
+import static uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit.STANDARD;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class RateLimitConfigurationTest {
+    private static final String KEY = "STANDARD::test@email.com";
+    private static final String OTHER_KEY = "HIGH::test@email.com";
+    private static final String BUCKET_MESSAGE = "Bucket does not match";
+
+    @Mock
+    private ProxyManager<String> proxyManager;
+
+    @Mock
+    private RemoteBucketBuilder<String> bucketBuilder;
+
+    @Mock
+    private BucketProxy bucketProxy;
+
+    @Mock
+    private AsyncProxyManager<String> asyncProxyManager;
+
+    @Mock
+    private RemoteAsyncBucketBuilder<String> asyncBucketBuilder;
+
+    @Mock
+    private AsyncBucketProxy asyncBucketProxy;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(proxyManager.builder()).thenReturn(bucketBuilder);
+        lenient().when(bucketBuilder.build(anyString(), anyConfiguration())).thenReturn(bucketProxy);
+        lenient().when(proxyManager.getProxyConfiguration(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void testResolvedBucketReused() {
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(10, 60);
+
+        Bucket first = rateLimitConfiguration.resolveBucket(KEY, STANDARD);
+        Bucket second = rateLimitConfiguration.resolveBucket(KEY, STANDARD);
+
+        assertThat(second)
+            .as(BUCKET_MESSAGE)
+            .isSameAs(first);
+        verify(bucketBuilder).build(anyString(), anyConfiguration());
+        verify(proxyManager).getProxyConfiguration(KEY);
+    }
+
+    @Test
+    void testBucketResolvedForEachKey() {
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(10, 60);
+
+        rateLimitConfiguration.resolveBucket(KEY, STANDARD);
+        rateLimitConfiguration.resolveBucket(OTHER_KEY, HIGH);
+
+        verify(proxyManager).getProxyConfiguration(KEY);
+        verify(proxyManager).getProxyConfiguration(OTHER_KEY);
+    }
+
+    @Test
+    void testBucketResolvedAgainWhenExpired() {
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(10, 0);
+
+        rateLimitConfiguration.resolveBucket(KEY, STANDARD);
+        rateLimitConfiguration.resolveBucket(KEY, STANDARD);
+
+        verify(proxyManager, times(2)).getProxyConfiguration(KEY);
+    }
+
+    @Test
+    void testLeastRecentlyUsedBucketRemovedWhenFull() {
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(1, 60);
+
+        rateLimitConfiguration.resolveBucket(KEY, STANDARD);
+        rateLimitConfiguration.resolveBucket(OTHER_KEY, HIGH);
+        rateLimitConfiguration.resolveBucket(KEY, STANDARD);
+
+        verify(proxyManager, times(2)).getProxyConfiguration(KEY);
+        verify(proxyManager).getProxyConfiguration(OTHER_KEY);
+    }
+
+    @Test
+    void testBucketNotCachedWhenCacheDisabled() {
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(0, 60);
+
+        rateLimitConfiguration.resolveBucket(KEY, STANDARD);
+        rateLimitConfiguration.resolveBucket(KEY, STANDARD);
+
+        verify(proxyManager, times(2)).getProxyConfiguration(KEY);
+    }
+
+    @Test
+    void testAsyncBucketReused() {
+        setupAsyncBucket(Optional.empty());
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(10, 60);
+
+        AsyncBucketProxy first = rateLimitConfiguration.resolveBucketAsync(KEY, STANDARD).join();
+        AsyncBucketProxy second = rateLimitConfiguration.resolveBucketAsync(KEY, STANDARD).join();
+
+        assertThat(second)
+            .as(BUCKET_MESSAGE)
+            .isSameAs(first);
+        verify(asyncProxyManager).getProxyConfiguration(KEY);
+        verify(asyncBucketProxy, never()).replaceConfiguration(any(), any());
+    }
+
+    @Test
+    void testAsyncBucketConfigurationReplacedWhenOutdated() {
+        BucketConfiguration persistedConfiguration = BucketConfiguration.builder()
+            .addLimit(limit -> limit.capacity(5).refillGreedy(5, Duration.ofMinutes(1)))
+            .build();
+        setupAsyncBucket(Optional.of(persistedConfiguration));
+        when(asyncBucketProxy.replaceConfiguration(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(10, 60);
+
+        rateLimitConfiguration.resolveBucketAsync(KEY, STANDARD).join();
+
+        verify(asyncBucketProxy).replaceConfiguration(any(BucketConfiguration.class),
+                                                      any(TokensInheritanceStrategy.class));
+    }
+
+    @Test
+    void testLocalBucketCapacitySharedAcrossReplicas() {
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(10, 60);
+        ReflectionTestUtils.setField(rateLimitConfiguration, "highEmailCapacity", 4);
+
+        Bucket bucket = rateLimitConfiguration.resolveLocalBucket(OTHER_KEY, HIGH);
+
+        assertThat(bucket.getAvailableTokens())
+            .as("Local bucket capacity does not match")
+            .isEqualTo(2);
+        verifyNoInteractions(proxyManager);
+    }
+
+    @Test
+    void testLocalBucketReusedUntilCleared() {
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(10, 60);
+
+        Bucket first = rateLimitConfiguration.resolveLocalBucket(KEY, STANDARD);
+        assertThat(rateLimitConfiguration.resolveLocalBucket(KEY, STANDARD))
+            .as(BUCKET_MESSAGE)
+            .isSameAs(first);
+
+        rateLimitConfiguration.clearLocalBuckets();
+
+        assertThat(rateLimitConfiguration.resolveLocalBucket(KEY, STANDARD))
+            .as(BUCKET_MESSAGE)
+            .isNotSameAs(first);
+    }
+
+    @Test
+    void testLocalBucketGivenAtLeastOneToken() {
+        RateLimitConfiguration rateLimitConfiguration = createConfiguration(10, 60);
+
+        assertThat(rateLimitConfiguration.resolveLocalBucket(KEY, STANDARD).getAvailableTokens())
+            .as("Local bucket capacity does not match")
+            .isEqualTo(1);
+    }
+
+    private RateLimitConfiguration createConfiguration(int maxSize, long expiryInSeconds) {
+        RateLimitConfiguration rateLimitConfiguration = new RateLimitConfiguration(proxyManager, maxSize,
+                                                                                   expiryInSeconds, 100);
+        ReflectionTestUtils.setField(rateLimitConfiguration, "standardEmailCapacity", 1);
+        ReflectionTestUtils.setField(rateLimitConfiguration, "highEmailCapacity", 2);
+        ReflectionTestUtils.setField(rateLimitConfiguration, "rateLimitInterval", 1);
+        ReflectionTestUtils.setField(rateLimitConfiguration, "replicaCount", 2);
+        return rateLimitConfiguration;
+    }
+
+    private void setupAsyncBucket(Optional<BucketConfiguration> persistedConfiguration) {
+        when(proxyManager.asAsync()).thenReturn(asyncProxyManager);
+        when(asyncProxyManager.builder()).thenReturn(asyncBucketBuilder);
+        when(asyncBucketBuilder.build(anyString(), anyAsyncConfiguration())).thenReturn(asyncBucketProxy);
+        when(asyncProxyManager.getProxyConfiguration(KEY))
+            .thenReturn(CompletableFuture.completedFuture(persistedConfiguration));
+    }
+
+    private static Supplier<BucketConfiguration> anyConfiguration() {
+        return ArgumentMatchers.any();
+    }
+
+    private static Supplier<CompletableFuture<BucketConfiguration>> anyAsyncConfiguration() {
+        return ArgumentMatchers.any();
+    }
+}
@@ -0,0 +1,76 @@
+package uk.gov.hmcts.reform.pip.publication.services.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.hmcts.reform.pip.publication.services.config.NotificationExecutorConfiguration;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NotificationExecutorConfigurationTest {
+    private static final String METRIC_MESSAGE = "Metric value does not match";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    void setup() {
+        NotificationExecutorConfiguration configuration = new NotificationExecutorConfiguration();
+        ReflectionTestUtils.setField(configuration, "corePoolSize", 1);
+        ReflectionTestUtils.setField(configuration, "maxPoolSize", 1);
+        ReflectionTestUtils.setField(configuration, "queueCapacity", 1);
+        executor = configuration.notificationExecutor(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void testExecutorRejectsWorkWhenSaturated() {
+        executor.execute(this::awaitRelease);
+        executor.execute(this::awaitRelease);
+
+        assertThatThrownBy(() -> executor.execute(this::awaitRelease))
+            .isInstanceOf(RejectedExecutionException.class)
+            .hasMessage("Notification executor is saturated");
+
+        assertThat(meterRegistry.get("notification.executor.rejected").counter().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1.0);
+
+        assertThat(meterRegistry.get("notification.executor.queued").gauge().value())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1.0);
+    }
+
+    @Test
+    void testExecutorThreadName() {
+        assertThat(executor.getThreadNamePrefix())
+            .as("Thread name prefix does not match")
+            .isEqualTo("notification-");
+
+        assertThat(meterRegistry.get("notification.executor.active").gauge())
+            .as("Active gauge should be registered")
+            .isNotNull();
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
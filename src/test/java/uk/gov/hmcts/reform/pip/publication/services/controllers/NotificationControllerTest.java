@@ -22,6 +22,7 @@ import uk.gov.hmcts.reform.pip.model.system.admin.ActionResult;
 import uk.gov.hmcts.reform.pip.model.system.admin.ChangeType;
 import uk.gov.hmcts.reform.pip.model.system.admin.DeleteLocationAction;
 import uk.gov.hmcts.reform.pip.model.system.admin.SystemAdminAction;
+import uk.gov.hmcts.reform.pip.publication.services.models.BulkEmailJobStatus;
 import uk.gov.hmcts.reform.pip.publication.services.models.MediaApplication;
 import uk.gov.hmcts.reform.pip.publication.services.models.NoMatchArtefact;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.BulkSubscriptionEmail;
@@ -36,6 +37,7 @@ import uk.gov.hmcts.reform.pip.publication.services.service.NotificationService;
 import uk.gov.hmcts.reform.pip.publication.services.service.LegacyThirdPartyManagementService;
 import uk.gov.hmcts.reform.pip.publication.services.service.UserNotificationService;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.LocalDateTime;
@@ -192,6 +194,30 @@ class NotificationControllerTest {
         assertEquals(REFERENCE_ID, responseEntity.getBody(), "Response body should contain accepted message");
     }
 
+    @Test
+    void testStreamSubscriptionEmailReturnsAcceptedResponse() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        when(notificationService.streamBulkSubscriptionEmail(body)).thenReturn(REFERENCE_ID);
+
+        ResponseEntity<String> responseEntity = notificationController.streamSubscriptionEmail(body);
+
+        assertEquals(HttpStatus.ACCEPTED, responseEntity.getStatusCode(), STATUS_CODES_MATCH);
+        assertEquals(REFERENCE_ID, responseEntity.getBody(), "Response body should contain the reference ID");
+    }
+
+    @Test
+    void testGetSubscriptionEmailStatusReturnsOk() {
+        BulkEmailJobStatus status = new BulkEmailJobStatus();
+        status.setReferenceId(REFERENCE_ID);
+        when(notificationService.getBulkSubscriptionEmailStatus(REFERENCE_ID)).thenReturn(status);
+
+        ResponseEntity<BulkEmailJobStatus> responseEntity =
+            notificationController.getSubscriptionEmailStatus(REFERENCE_ID);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode(), STATUS_CODES_MATCH);
+        assertEquals(status, responseEntity.getBody(), "Response body should contain the job status");
+    }
+
     @Test
     void testSendMediaReportingEmailReturnsSuccessMessage() {
         assertEquals(REFERENCE_ID, notificationController.sendMediaReportingEmail(validMediaApplicationList).getBody(),
@@ -305,8 +331,8 @@ class NotificationControllerTest {
     }
 
     @Test
-    void testSendSystemAdminUpdateShouldReturnOkResponse() {
-        assertEquals(HttpStatus.OK, notificationController
+    void testSendSystemAdminUpdateShouldReturnAcceptedResponse() {
+        assertEquals(HttpStatus.ACCEPTED, notificationController
                          .sendSystemAdminUpdate(systemAdminAction).getStatusCode(),
                      STATUS_CODES_MATCH);
     }
@@ -320,8 +346,8 @@ class NotificationControllerTest {
     }
 
     @Test
-    void testSendDeleteLocationSubscriptionEmailShouldReturnOkResponse() {
-        assertEquals(HttpStatus.OK, notificationController
+    void testSendDeleteLocationSubscriptionEmailShouldReturnAcceptedResponse() {
+        assertEquals(HttpStatus.ACCEPTED, notificationController
                          .sendDeleteLocationSubscriptionEmail(locationSubscriptionDeletion).getStatusCode(),
                      STATUS_CODES_MATCH);
     }
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.ObjectError;
@@ -11,10 +12,14 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.AzureSecretReadException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BadPayloadException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BulkEmailJobNotFoundException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BulkEmailQueueException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.CsvCreationException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ExcelCreationException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.PublicationNotFoundException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ServiceBusyException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ServiceToServiceException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ThirdPartyHealthCheckException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ThirdPartyServiceException;
@@ -198,4 +203,48 @@ class GlobalExceptionHandlerTest {
         assertNotNull(responseEntity.getBody(), BODY_RESPONSE);
         assertEquals(TEST_MESSAGE, responseEntity.getBody().getMessage(), PASSED_IN_MESSAGE);
     }
+
+    @Test
+    void testHandleBulkEmailQueueException() {
+        BulkEmailQueueException exception = new BulkEmailQueueException(TEST_MESSAGE);
+        ResponseEntity<ExceptionResponse> responseEntity = globalExceptionHandler.handle(exception);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, responseEntity.getStatusCode(), STATUS_CODE);
+        assertNotNull(responseEntity.getBody(), BODY_RESPONSE);
+        assertEquals(TEST_MESSAGE, responseEntity.getBody().getMessage(), PASSED_IN_MESSAGE);
+    }
+
+    @Test
+    void testHandleBulkEmailJobNotFoundException() {
+        BulkEmailJobNotFoundException exception = new BulkEmailJobNotFoundException(TEST_MESSAGE);
+        ResponseEntity<ExceptionResponse> responseEntity = globalExceptionHandler.handle(exception);
+
+        assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode(), STATUS_CODE);
+        assertNotNull(responseEntity.getBody(), BODY_RESPONSE);
+        assertEquals(TEST_MESSAGE, responseEntity.getBody().getMessage(), PASSED_IN_MESSAGE);
+    }
+
+    @Test
+    void testHandleServiceBusyException() {
+        ServiceBusyException exception = new ServiceBusyException(TEST_MESSAGE, 60);
+        ResponseEntity<ExceptionResponse> responseEntity = globalExceptionHandler.handle(exception);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseEntity.getStatusCode(), STATUS_CODE);
+        assertEquals("60", responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER),
+                     "Retry-After header does not match");
+        assertNotNull(responseEntity.getBody(), BODY_RESPONSE);
+        assertEquals(TEST_MESSAGE, responseEntity.getBody().getMessage(), PASSED_IN_MESSAGE);
+    }
+
+    @Test
+    void testHandleNotifyUnavailableException() {
+        NotifyUnavailableException exception = new NotifyUnavailableException(TEST_MESSAGE, 30);
+        ResponseEntity<ExceptionResponse> responseEntity = globalExceptionHandler.handle(exception);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseEntity.getStatusCode(), STATUS_CODE);
+        assertEquals("30", responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER),
+                     "Retry-After header does not match");
+        assertNotNull(responseEntity.getBody(), BODY_RESPONSE);
+        assertEquals(TEST_MESSAGE, responseEntity.getBody().getMessage(), PASSED_IN_MESSAGE);
+    }
 }
@@ -70,4 +70,30 @@ class CustomExceptionTest {
         AzureSecretReadException exception = new AzureSecretReadException(TEST_MESSAGE);
         assertEquals(TEST_MESSAGE, exception.getMessage(), EXPECTED_MESSAGE);
     }
+
+    @Test
+    void testCreationOfBulkEmailQueueException() {
+        BulkEmailQueueException exception = new BulkEmailQueueException(TEST_MESSAGE);
+        assertEquals(TEST_MESSAGE, exception.getMessage(), EXPECTED_MESSAGE);
+    }
+
+    @Test
+    void testCreationOfBulkEmailJobNotFoundException() {
+        BulkEmailJobNotFoundException exception = new BulkEmailJobNotFoundException(TEST_MESSAGE);
+        assertEquals(TEST_MESSAGE, exception.getMessage(), EXPECTED_MESSAGE);
+    }
+
+    @Test
+    void testCreationOfServiceBusyException() {
+        ServiceBusyException exception = new ServiceBusyException(TEST_MESSAGE, 60);
+        assertEquals(TEST_MESSAGE, exception.getMessage(), EXPECTED_MESSAGE);
+        assertEquals(60, exception.getRetryAfterSeconds(), "The retry after seconds should match");
+    }
+
+    @Test
+    void testCreationOfNotifyUnavailableException() {
+        NotifyUnavailableException exception = new NotifyUnavailableException(TEST_MESSAGE, 30);
+        assertEquals(TEST_MESSAGE, exception.getMessage(), EXPECTED_MESSAGE);
+        assertEquals(30, exception.getRetryAfterSeconds(), "The retry after seconds should match");
+    }
 }
@@ -0,0 +1,91 @@
+package uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import uk.gov.service.notify.NotificationClient;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.RetentionPeriodDuration;
+
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mockStatic;
+
+class ArtefactAttachmentsTest {
+    private static final byte[] FILE = "Test byte".getBytes();
+    private static final byte[] FILE_TOO_LARGE = new byte[2_000_000];
+    private static final RetentionPeriodDuration RETENTION_PERIOD = new RetentionPeriodDuration(78, ChronoUnit.WEEKS);
+    private static final String ERROR_MESSAGE = "Error message";
+
+    @Test
+    void testRawDataAttachmentsWithPdfAndExcel() throws NotificationClientException {
+        ArtefactAttachments attachments = ArtefactAttachments.forRawData(FILE, FILE, RETENTION_PERIOD);
+
+        assertThat(attachments.hasPdf())
+            .as("PDF should be attached")
+            .isTrue();
+
+        assertThat(attachments.hasExcel())
+            .as("Excel should be attached")
+            .isTrue();
+
+        assertThat(attachments.getPdf().get("retention_period"))
+            .as("Retention period does not match")
+            .isEqualTo(RETENTION_PERIOD.toString());
+    }
+
+    @Test
+    void testRawDataAttachmentsSkipEmptyFiles() throws NotificationClientException {
+        ArtefactAttachments attachments = ArtefactAttachments.forRawData(new byte[0], null, RETENTION_PERIOD);
+
+        assertThat(attachments.hasPdf())
+            .as("Empty PDF should not be attached")
+            .isFalse();
+
+        assertThat(attachments.hasExcel())
+            .as("Missing Excel should not be attached")
+            .isFalse();
+    }
+
+    @Test
+    void testRawDataAttachmentsSkipFilesOverMaxSize() throws NotificationClientException {
+        ArtefactAttachments attachments = ArtefactAttachments.forRawData(FILE_TOO_LARGE, FILE, RETENTION_PERIOD);
+
+        assertThat(attachments.hasPdf())
+            .as("PDF over the maximum size should not be attached")
+            .isFalse();
+
+        assertThat(attachments.hasExcel())
+            .as("Excel should be attached")
+            .isTrue();
+    }
+
+    @Test
+    void testFlatFileAttachment() throws NotificationClientException {
+        ArtefactAttachments attachments = ArtefactAttachments.forFlatFile(FILE, RETENTION_PERIOD);
+
+        assertThat(attachments.getFlatFile())
+            .as("Flat file should be attached")
+            .isNotNull();
+
+        assertThat(attachments.hasPdf())
+            .as("Flat file attachments should not contain a PDF")
+            .isFalse();
+    }
+
+    @Test
+    void testFlatFileAttachmentWithException() {
+        try (MockedStatic<NotificationClient> mockStatic = mockStatic(NotificationClient.class)) {
+            mockStatic.when(() -> NotificationClient.prepareUpload(eq(FILE), eq(false),
+                                                                   any(RetentionPeriodDuration.class)))
+                .thenThrow(new NotificationClientException(ERROR_MESSAGE));
+
+            assertThatThrownBy(() -> ArtefactAttachments.forFlatFile(FILE, RETENTION_PERIOD))
+                .isInstanceOf(NotificationClientException.class)
+                .hasMessage(ERROR_MESSAGE);
+        }
+    }
+}
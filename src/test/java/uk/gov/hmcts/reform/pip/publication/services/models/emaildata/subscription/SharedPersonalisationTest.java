@@ -0,0 +1,81 @@
+package uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedPersonalisationTest {
+    private static final Map<String, Object> SHARED = Map.of(
+        "list_type", "List type",
+        "locations", "Location name"
+    );
+    private static final String PERSONALISATION_MESSAGE = "Personalisation does not match";
+    private static final String BUILD_MESSAGE = "Number of times the personalisation was built does not match";
+
+    private final SharedPersonalisation sharedPersonalisation = new SharedPersonalisation();
+    private final AtomicInteger builds = new AtomicInteger();
+
+    @Test
+    void testSharedPersonalisationBuiltOnce() {
+        Map<String, Object> first = sharedPersonalisation.get(this::buildShared);
+        Map<String, Object> second = sharedPersonalisation.get(this::buildShared);
+
+        assertThat(builds.get())
+            .as(BUILD_MESSAGE)
+            .isEqualTo(1);
+
+        assertThat(second)
+            .as(PERSONALISATION_MESSAGE)
+            .isSameAs(first)
+            .isEqualTo(SHARED);
+    }
+
+    @Test
+    void testRecipientPersonalisationBuiltOncePerSignature() {
+        Map<String, Object> first = sharedPersonalisation.getForRecipient(List.of("123"), this::buildShared);
+        Map<String, Object> second = sharedPersonalisation.getForRecipient(List.of("123"), this::buildShared);
+        Map<String, Object> other = sharedPersonalisation.getForRecipient(List.of("456"), this::buildShared);
+
+        assertThat(builds.get())
+            .as(BUILD_MESSAGE)
+            .isEqualTo(2);
+
+        assertThat(second)
+            .as(PERSONALISATION_MESSAGE)
+            .isSameAs(first)
+            .isNotSameAs(other);
+    }
+
+    @Test
+    void testSerialisedOnce() {
+        sharedPersonalisation.get(this::buildShared);
+        byte[] serialised = sharedPersonalisation.getSerialised();
+
+        assertThat(new JSONObject("{" + new String(serialised, StandardCharsets.UTF_8) + "}").toMap())
+            .as(PERSONALISATION_MESSAGE)
+            .isEqualTo(SHARED);
+
+        assertThat(sharedPersonalisation.getSerialised())
+            .as("Serialised personalisation should be reused")
+            .isSameAs(serialised);
+    }
+
+    @Test
+    void testSerialisedBeforeBuilt() {
+        assertThatThrownBy(sharedPersonalisation::getSerialised)
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private Map<String, Object> buildShared() {
+        builds.incrementAndGet();
+        return new HashMap<>(SHARED);
+    }
+}
@@ -0,0 +1,67 @@
+package uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SubscriptionPersonalisationTest {
+    private static final Map<String, Object> SHARED = Map.of(
+        "list_type", "List type",
+        "locations", "Location name",
+        "case_num", ""
+    );
+    private static final Map<String, Object> RECIPIENT = Map.of(
+        "case_num", "123",
+        "display_case_num", "Yes"
+    );
+    private static final String PERSONALISATION_MESSAGE = "Personalisation does not match";
+
+    @Test
+    void testRecipientFieldsOverlaySharedFields() {
+        Map<String, Object> personalisation = new SubscriptionPersonalisation(SHARED, RECIPIENT);
+
+        assertThat(personalisation)
+            .as(PERSONALISATION_MESSAGE)
+            .hasSize(4)
+            .containsEntry("list_type", "List type")
+            .containsEntry("locations", "Location name")
+            .containsEntry("case_num", "123")
+            .containsEntry("display_case_num", "Yes");
+    }
+
+    @Test
+    void testEqualToMergedMap() {
+        Map<String, Object> merged = new HashMap<>(SHARED);
+        merged.putAll(RECIPIENT);
+
+        assertThat(new SubscriptionPersonalisation(SHARED, RECIPIENT))
+            .as(PERSONALISATION_MESSAGE)
+            .isEqualTo(merged);
+    }
+
+    @Test
+    void testSerialisedToJson() {
+        JSONObject json = new JSONObject(new SubscriptionPersonalisation(SHARED, RECIPIENT));
+
+        assertThat(json.getString("case_num"))
+            .as(PERSONALISATION_MESSAGE)
+            .isEqualTo("123");
+
+        assertThat(json.length())
+            .as(PERSONALISATION_MESSAGE)
+            .isEqualTo(4);
+    }
+
+    @Test
+    void testCannotBeModified() {
+        Map<String, Object> personalisation = new SubscriptionPersonalisation(SHARED, RECIPIENT);
+
+        assertThatThrownBy(() -> personalisation.put("list_type", "Other"))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -1,15 +1,24 @@
 package uk.gov.hmcts.reform.pip.publication.services.notify;
 
 import org.junit.jupiter.api.Test;
+import uk.gov.hmcts.reform.pip.publication.services.models.SendPriority;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.BAD_BLOB_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.EXISTING_USER_WELCOME_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.INACTIVE_USER_NOTIFICATION_EMAIL_CFT;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.INACTIVE_USER_NOTIFICATION_EMAIL_CRIME;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_APPLICATION_REPORTING_EMAIL;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_EXCEL_EMAIL;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_NO_DOWNLOAD_LINK_EMAIL;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EMAIL;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_USER_VERIFICATION_EMAIL;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.OTP_EMAIL;
 
 class TemplatesTest {
 
@@ -72,4 +81,21 @@ class TemplatesTest {
             Templates.get("NotFoundTemplate"), "Expected exception has not been thrown");
         assertEquals("Template does not exist", ex.getMessage(), "Exception message does not match");
     }
+
+    @Test
+    void testGetSendPriority() {
+        assertEquals(SendPriority.INTERACTIVE, OTP_EMAIL.getSendPriority(), SHOULD_MATCH_MESSAGE);
+        assertEquals(SendPriority.INTERACTIVE, MEDIA_USER_VERIFICATION_EMAIL.getSendPriority(), SHOULD_MATCH_MESSAGE);
+        assertEquals(SendPriority.OPERATIONAL, BAD_BLOB_EMAIL.getSendPriority(), SHOULD_MATCH_MESSAGE);
+        assertEquals(SendPriority.BULK, MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL.getSendPriority(), SHOULD_MATCH_MESSAGE);
+    }
+
+    @Test
+    void testFilesUsedByTemplate() {
+        assertTrue(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.usesPdf(), "PDF and Excel template should use a PDF");
+        assertTrue(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.usesExcel(), "PDF and Excel template should use an Excel file");
+        assertFalse(MEDIA_SUBSCRIPTION_PDF_EMAIL.usesExcel(), "PDF template should not use an Excel file");
+        assertFalse(MEDIA_SUBSCRIPTION_EXCEL_EMAIL.usesPdf(), "Excel template should not use a PDF");
+        assertFalse(MEDIA_SUBSCRIPTION_NO_DOWNLOAD_LINK_EMAIL.usesPdf(), "No link template should not use a PDF");
+    }
 }
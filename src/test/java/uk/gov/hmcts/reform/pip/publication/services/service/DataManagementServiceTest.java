@@ -12,6 +12,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 import uk.gov.hmcts.reform.pip.model.location.Location;
 import uk.gov.hmcts.reform.pip.model.publication.Artefact;
 import uk.gov.hmcts.reform.pip.model.publication.FileType;
@@ -26,6 +28,7 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -257,6 +260,47 @@ class DataManagementServiceTest {
         assertTrue(exception.getMessage().contains("500"), "Exception didn't contain correct message");
     }
 
+    @Test
+    void testFetchArtefactSummaryAndFileTogether() throws JsonProcessingException {
+        mockDataManagementEndpoint.enqueue(new MockResponse().addHeader(
+            CONTENT_TYPE_HEADER,
+            com.azure.core.http.ContentType.APPLICATION_JSON
+        ).setBody(HELLO));
+        mockDataManagementEndpoint.enqueue(
+            new MockResponse()
+                .addHeader(CONTENT_TYPE_HEADER, com.azure.core.http.ContentType.APPLICATION_JSON)
+                .setBody(ow.writeValueAsString(HELLO))
+        );
+
+        Tuple2<String, String> response = Mono.zip(
+            dataManagementService.fetchArtefactSummary(ARTEFACT_ID),
+            dataManagementService.fetchArtefactFile(ARTEFACT_ID, FileType.PDF, false)
+        ).block();
+
+        assertNotNull(response, "Response doesn't exist");
+        assertEquals(2, mockDataManagementEndpoint.getRequestCount(), "Both requests should have been made");
+        assertTrue(response.getT1().length() > 0 && response.getT2().length() > 0, "Response doesn't exist");
+    }
+
+    @Test
+    void testFetchArtefactFileNotFoundReturnsEmptyString() {
+        mockDataManagementEndpoint.enqueue(new MockResponse().setResponseCode(404));
+
+        String response = dataManagementService.fetchArtefactFile(ARTEFACT_ID, FileType.EXCEL, false).block();
+        assertEquals("", response, "Response not empty");
+    }
+
+    @Test
+    void testFetchArtefactSummaryError() {
+        mockDataManagementEndpoint.enqueue(new MockResponse().setResponseCode(500));
+
+        Mono<String> summary = dataManagementService.fetchArtefactSummary(ARTEFACT_ID);
+        ServiceToServiceException exception = assertThrows(ServiceToServiceException.class, summary::block,
+                                                           "Exception");
+
+        assertTrue(exception.getMessage().contains("500"), "Exception didn't contain correct message");
+    }
+
     @Test
     void testGetMiDataReturnsOk() throws JsonProcessingException {
         PublicationMiData data1 = new PublicationMiData();
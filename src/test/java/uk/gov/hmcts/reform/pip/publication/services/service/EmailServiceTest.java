@@ -3,36 +3,59 @@ package uk.gov.hmcts.reform.pip.publication.services.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
 import uk.gov.hmcts.reform.pip.publication.services.client.EmailClient;
 import uk.gov.hmcts.reform.pip.publication.services.config.NotifyConfigProperties;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.TooManyEmailsException;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
 import uk.gov.hmcts.reform.pip.publication.services.models.PersonalisationLinks;
+import uk.gov.hmcts.reform.pip.publication.services.models.RateLimitCheck;
+import uk.gov.hmcts.reform.pip.publication.services.models.SendPriority;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.LocationSubscriptionDeletionEmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.useraccount.MediaWelcomeEmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.WelcomeEmail;
 import uk.gov.service.notify.NotificationClientException;
 import uk.gov.service.notify.SendEmailResponse;
 
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.DELETE_LOCATION_SUBSCRIPTION;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_NEW_ACCOUNT_SETUP;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.OTP_EMAIL;
 
 @ActiveProfiles("test")
 @ExtendWith(MockitoExtension.class)
@@ -54,6 +77,8 @@ class EmailServiceTest {
     private static final String EMAIL_MESSAGE = "Email address does not match";
     private static final String TEMPLATE_MESSAGE = "Notify template does not match";
     private static final String ERROR_MESSAGE = "Test message";
+    private static final String EXCEPTION_MESSAGE = "Exception response does not match";
+    private static final String KEY_NAME = "key-0";
     private static final Map<String, Object> PERSONALISATION = Map.of("Value", "OtherValue");
 
     private static final TooManyEmailsException TOO_MANY_EMAILS_EXCEPTION = new TooManyEmailsException(ERROR_MESSAGE);
@@ -73,12 +98,24 @@ class EmailServiceTest {
     @Mock
     private NotifyConfigProperties notifyConfigProperties;
 
+    @Mock
+    private NotifyThroughputGovernor notifyThroughputGovernor;
+
+    @Mock
+    private NotifyCircuitBreaker notifyCircuitBreaker;
+
+    @Mock
+    private NotifyEmailMetrics notifyEmailMetrics;
+
+    @Mock
+    private NotifySendLanes notifySendLanes;
+
     @InjectMocks
     private EmailService emailService;
 
     @BeforeEach
     void setup() {
-
+        lenient().when(notifyThroughputGovernor.acquire(any())).thenReturn(KEY_NAME);
     }
 
     @Test
@@ -103,6 +140,9 @@ class EmailServiceTest {
         assertThat(result.getTemplate())
             .as(TEMPLATE_MESSAGE)
             .isEqualTo(MEDIA_NEW_ACCOUNT_SETUP.getTemplate());
+
+        verify(notifyEmailMetrics).recordGeneration(any(), eq(MEDIA_NEW_ACCOUNT_SETUP),
+                                                    eq(NotifyEmailMetrics.GENERATED));
     }
 
     @Test
@@ -115,6 +155,40 @@ class EmailServiceTest {
             .as("")
             .isInstanceOf(TooManyEmailsException.class)
             .hasMessage(ERROR_MESSAGE);
+
+        verify(notifyEmailMetrics).recordGeneration(any(), eq(MEDIA_NEW_ACCOUNT_SETUP),
+                                                    eq(NotifyEmailMetrics.RATE_LIMITED));
+    }
+
+    @Test
+    void testHandlePreScreenedEmailGenerationDoesNotConsumeRateLimit() {
+        when(notifyConfigProperties.getLinks()).thenReturn(personalisationLinks);
+
+        WelcomeEmail welcomeEmail = new WelcomeEmail(EMAIL, false, FORENAME + " " + SURNAME);
+        MediaWelcomeEmailData emailData = new MediaWelcomeEmailData(welcomeEmail);
+
+        EmailToSend result = emailService.handlePreScreenedEmailGeneration(emailData, MEDIA_NEW_ACCOUNT_SETUP);
+
+        assertThat(result.getEmailAddress())
+            .as(EMAIL_MESSAGE)
+            .isEqualTo(EMAIL);
+
+        verifyNoInteractions(rateLimitingService);
+        verify(notifyEmailMetrics).recordGeneration(any(), eq(MEDIA_NEW_ACCOUNT_SETUP),
+                                                    eq(NotifyEmailMetrics.GENERATED));
+    }
+
+    @Test
+    void testScreenRecipientsRemovesRecipientsOverRateLimit() {
+        when(rateLimitingService.filterWithinLimit(List.of(new RateLimitCheck(EMAIL1, MEDIA_SUBSCRIPTION_PDF_EMAIL),
+                                                           new RateLimitCheck(EMAIL2, MEDIA_SUBSCRIPTION_PDF_EMAIL))))
+            .thenReturn(List.of(new RateLimitCheck(EMAIL1, MEDIA_SUBSCRIPTION_PDF_EMAIL)));
+
+        assertThat(emailService.screenRecipients(List.of(EMAIL1, EMAIL2), MEDIA_SUBSCRIPTION_PDF_EMAIL))
+            .as(EMAIL_MESSAGE)
+            .containsExactly(EMAIL1);
+
+        verify(notifyEmailMetrics).recordBatchRecipients(MEDIA_SUBSCRIPTION_PDF_EMAIL, 1, 1);
     }
 
     @Test
@@ -123,7 +197,7 @@ class EmailServiceTest {
             List.of(EMAIL1, EMAIL2, EMAIL3), LOCATION_NAME, REFERENCE_ID
         );
 
-        when(rateLimitingService.isValid(anyString(), eq(DELETE_LOCATION_SUBSCRIPTION))).thenReturn(true);
+        when(rateLimitingService.filterWithinLimit(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         List<EmailToSend> results = emailService.handleBatchEmailGeneration(emailData, DELETE_LOCATION_SUBSCRIPTION);
 
@@ -154,9 +228,8 @@ class EmailServiceTest {
             List.of(EMAIL1, EMAIL2, EMAIL3), LOCATION_NAME, REFERENCE_ID
         );
 
-        when(rateLimitingService.isValid(EMAIL1, DELETE_LOCATION_SUBSCRIPTION)).thenReturn(false);
-        when(rateLimitingService.isValid(EMAIL2, DELETE_LOCATION_SUBSCRIPTION)).thenReturn(true);
-        when(rateLimitingService.isValid(EMAIL3, DELETE_LOCATION_SUBSCRIPTION)).thenReturn(false);
+        when(rateLimitingService.filterWithinLimit(anyList()))
+            .thenReturn(List.of(new RateLimitCheck(EMAIL2, DELETE_LOCATION_SUBSCRIPTION)));
 
         List<EmailToSend> results = emailService.handleBatchEmailGeneration(emailData, DELETE_LOCATION_SUBSCRIPTION);
 
@@ -171,6 +244,8 @@ class EmailServiceTest {
         assertThat(results.get(0).getTemplate())
             .as(TEMPLATE_MESSAGE)
             .isEqualTo(DELETE_LOCATION_SUBSCRIPTION.getTemplate());
+
+        verify(notifyEmailMetrics).recordBatchRecipients(DELETE_LOCATION_SUBSCRIPTION, 1, 2);
     }
 
     @Test
@@ -178,13 +253,32 @@ class EmailServiceTest {
         EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
                                                   PERSONALISATION, UUID.randomUUID().toString());
 
-        when(emailClient.sendEmail(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
                                    emailToSend.getReferenceId()))
             .thenReturn(sendEmailResponse);
 
         assertThat(emailService.sendEmail(emailToSend))
             .as("Email response does not match expected response")
             .isEqualTo(sendEmailResponse);
+
+        verify(notifyEmailMetrics).recordSend(any(), eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate()),
+                                              eq(NotifyEmailMetrics.SENT));
+    }
+
+    @Test
+    void testSendEmailUsesLaneForTemplatePriority() throws NotificationClientException {
+        EmailToSend emailToSend = new EmailToSend(EMAIL, OTP_EMAIL.getTemplate(), PERSONALISATION,
+                                                  UUID.randomUUID().toString());
+
+        when(emailClient.sendEmail(KEY_NAME, OTP_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenReturn(sendEmailResponse);
+
+        emailService.sendEmail(emailToSend);
+
+        verify(notifyThroughputGovernor).acquire(SendPriority.INTERACTIVE);
+        verify(notifySendLanes).acquire(SendPriority.INTERACTIVE);
+        verify(notifySendLanes).release(SendPriority.INTERACTIVE);
     }
 
     @Test
@@ -193,7 +287,7 @@ class EmailServiceTest {
         EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
                                                   PERSONALISATION, UUID.randomUUID().toString());
 
-        when(emailClient.sendEmail(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
                                    emailToSend.getReferenceId()))
             .thenThrow(new NotificationClientException(exceptionMessage));
 
@@ -201,5 +295,364 @@ class EmailServiceTest {
             .as("Exception response does not match")
             .isInstanceOf(NotifyException.class)
             .hasMessage(exceptionMessage);
+
+        verify(notifyEmailMetrics).recordSend(any(), eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate()),
+                                              eq(NotifyEmailMetrics.NOTIFY_ERROR));
+    }
+
+    @Test
+    void testSendEmailRetriedWhenNotifyRateLimited() throws NotificationClientException {
+        ReflectionTestUtils.setField(emailService, "maxRetries", 3);
+        EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
+                                                  PERSONALISATION, UUID.randomUUID().toString());
+        NotificationClientException rateLimitedException = mock(NotificationClientException.class);
+        when(rateLimitedException.getHttpResult()).thenReturn(429);
+
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenThrow(rateLimitedException)
+            .thenReturn(sendEmailResponse);
+
+        assertThat(emailService.sendEmail(emailToSend))
+            .as("Email response does not match expected response")
+            .isEqualTo(sendEmailResponse);
+
+        verify(notifyThroughputGovernor, times(2)).acquire(SendPriority.BULK);
+        verify(notifyThroughputGovernor).onRateLimited(KEY_NAME);
+    }
+
+    @Test
+    void testSendEmailFailsWhenNotifyRateLimitedAfterRetries() throws NotificationClientException {
+        ReflectionTestUtils.setField(emailService, "maxRetries", 1);
+        EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
+                                                  PERSONALISATION, UUID.randomUUID().toString());
+        NotificationClientException rateLimitedException = mock(NotificationClientException.class);
+        when(rateLimitedException.getHttpResult()).thenReturn(429);
+        when(rateLimitedException.getMessage()).thenReturn(ERROR_MESSAGE);
+
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenThrow(rateLimitedException);
+
+        assertThatThrownBy(() -> emailService.sendEmail(emailToSend))
+            .as("Exception response does not match")
+            .isInstanceOf(NotifyException.class)
+            .hasMessage(ERROR_MESSAGE);
+
+        verify(notifyThroughputGovernor, times(2)).acquire(SendPriority.BULK);
+        verify(notifyThroughputGovernor, times(2)).onRateLimited(KEY_NAME);
+        verify(notifyEmailMetrics, times(2)).recordSend(any(), eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate()),
+                                                        eq(NotifyEmailMetrics.RATE_LIMITED));
+    }
+
+    @Test
+    void testSendEmailRetriedWhenNotifyServerError() throws NotificationClientException {
+        ReflectionTestUtils.setField(emailService, "maxRetries", 3);
+        EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
+                                                  PERSONALISATION, UUID.randomUUID().toString());
+        NotificationClientException serverErrorException = mock(NotificationClientException.class);
+        when(serverErrorException.getHttpResult()).thenReturn(503);
+
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenThrow(serverErrorException)
+            .thenReturn(sendEmailResponse);
+
+        assertThat(emailService.sendEmail(emailToSend))
+            .as("Email response does not match expected response")
+            .isEqualTo(sendEmailResponse);
+
+        verify(notifyCircuitBreaker).recordFailure();
+        verify(notifyCircuitBreaker).recordSuccess();
+        verify(notifyThroughputGovernor, never()).onRateLimited(any());
+    }
+
+    @Test
+    void testSendEmailNotRetriedWhenNotifyRejectsRequest() throws NotificationClientException {
+        ReflectionTestUtils.setField(emailService, "maxRetries", 3);
+        EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
+                                                  PERSONALISATION, UUID.randomUUID().toString());
+        NotificationClientException badRequestException = mock(NotificationClientException.class);
+        when(badRequestException.getHttpResult()).thenReturn(400);
+        when(badRequestException.getMessage()).thenReturn(ERROR_MESSAGE);
+
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenThrow(badRequestException);
+
+        assertThatThrownBy(() -> emailService.sendEmail(emailToSend))
+            .as("Exception response does not match")
+            .isInstanceOf(NotifyException.class)
+            .hasMessage(ERROR_MESSAGE);
+
+        verify(emailClient, times(1)).sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL,
+                                                PERSONALISATION, emailToSend.getReferenceId());
+        verify(notifyCircuitBreaker, never()).recordFailure();
+        verify(notifySendLanes).release(SendPriority.BULK);
+    }
+
+    @Test
+    void testSendEmailRejectedWhenCircuitBreakerOpen() throws NotificationClientException {
+        EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
+                                                  PERSONALISATION, UUID.randomUUID().toString());
+        doThrow(new NotifyUnavailableException(ERROR_MESSAGE, 30)).when(notifyCircuitBreaker).checkAvailable();
+
+        assertThatThrownBy(() -> emailService.sendEmail(emailToSend))
+            .as("Exception response does not match")
+            .isInstanceOf(NotifyUnavailableException.class)
+            .hasMessage(ERROR_MESSAGE);
+
+        verify(emailClient, never()).sendEmail(any(), anyString(), anyString(), any(), anyString());
+        verify(notifySendLanes, never()).acquire(any());
+    }
+
+    @Test
+    void testSendEmailRetriedWhenNotifyCannotBeConnectedTo() throws NotificationClientException {
+        ReflectionTestUtils.setField(emailService, "maxRetries", 3);
+        EmailToSend emailToSend = createBulkEmail();
+
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenThrow(new NotificationClientException(new ConnectException("Connection refused")))
+            .thenReturn(sendEmailResponse);
+
+        assertThat(emailService.sendEmail(emailToSend))
+            .as("Email response does not match expected response")
+            .isEqualTo(sendEmailResponse);
+
+        verify(notifyCircuitBreaker).recordFailure();
+        verify(notifyCircuitBreaker).recordSuccess();
+    }
+
+    @Test
+    void testSendEmailNotRetriedWhenNoResponseFromNotify() throws NotificationClientException {
+        ReflectionTestUtils.setField(emailService, "maxRetries", 3);
+        EmailToSend emailToSend = createBulkEmail();
+
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenThrow(new NotificationClientException(new IOException("Read timed out")));
+
+        assertThatThrownBy(() -> emailService.sendEmail(emailToSend))
+            .as(EXCEPTION_MESSAGE)
+            .isInstanceOf(NotifyException.class);
+
+        verify(emailClient).sendEmail(any(), anyString(), anyString(), any(), anyString());
+        verify(notifyCircuitBreaker).recordFailure();
+    }
+
+    @Test
+    void testSendEmailTrialResolvedWhenNotifyRateLimited() throws NotificationClientException {
+        EmailToSend emailToSend = createBulkEmail();
+        NotificationClientException rateLimitedException = mock(NotificationClientException.class);
+        when(rateLimitedException.getHttpResult()).thenReturn(429);
+        when(notifyCircuitBreaker.checkAvailable()).thenReturn(true);
+
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenThrow(rateLimitedException);
+
+        assertThatThrownBy(() -> emailService.sendEmail(emailToSend))
+            .as(EXCEPTION_MESSAGE)
+            .isInstanceOf(NotifyException.class);
+
+        verify(notifyThroughputGovernor).onRateLimited(KEY_NAME);
+        verify(notifyCircuitBreaker).recordSuccess();
+        verify(notifyCircuitBreaker).releaseTrial();
+    }
+
+    @Test
+    void testSendEmailTrialReleasedWhenCapacityNotAcquired() {
+        EmailToSend emailToSend = createBulkEmail();
+        when(notifyCircuitBreaker.checkAvailable()).thenReturn(true);
+        doThrow(new NotifyException(ERROR_MESSAGE)).when(notifyThroughputGovernor).acquire(SendPriority.BULK);
+
+        assertThatThrownBy(() -> emailService.sendEmail(emailToSend))
+            .as(EXCEPTION_MESSAGE)
+            .isInstanceOf(NotifyException.class);
+
+        verify(notifyCircuitBreaker).releaseTrial();
+        verify(notifySendLanes, never()).release(any());
+    }
+
+    @Test
+    void testSendEmailTrialReleasedWhenClientThrowsUnexpectedException() throws NotificationClientException {
+        EmailToSend emailToSend = createBulkEmail();
+        when(notifyCircuitBreaker.checkAvailable()).thenReturn(true);
+
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenThrow(new IllegalStateException(ERROR_MESSAGE));
+
+        assertThatThrownBy(() -> emailService.sendEmail(emailToSend))
+            .as(EXCEPTION_MESSAGE)
+            .isInstanceOf(IllegalStateException.class);
+
+        verify(notifyCircuitBreaker).releaseTrial();
+        verify(notifySendLanes).release(SendPriority.BULK);
+    }
+
+    @Test
+    void testSendEmailDoesNotReleaseTrialItWasNotGiven() throws NotificationClientException {
+        EmailToSend emailToSend = createBulkEmail();
+
+        when(emailClient.sendEmail(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL, PERSONALISATION,
+                                   emailToSend.getReferenceId()))
+            .thenReturn(sendEmailResponse);
+
+        emailService.sendEmail(emailToSend);
+
+        verify(notifyCircuitBreaker, never()).releaseTrial();
+    }
+
+    @Test
+    void testSendEmailAsyncWithSuccess() {
+        EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
+                                                  PERSONALISATION, UUID.randomUUID().toString());
+
+        when(emailClient.sendEmailAsync(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL,
+                                        PERSONALISATION, emailToSend.getReferenceId()))
+            .thenReturn(Mono.just(sendEmailResponse));
+
+        assertThat(emailService.sendEmailAsync(emailToSend).block())
+            .as("Email response does not match expected response")
+            .isEqualTo(sendEmailResponse);
+
+        verify(notifyThroughputGovernor).acquire(SendPriority.BULK);
+    }
+
+    @Test
+    void testSendEmailAsyncRetriedWhenNotifyRateLimited() {
+        ReflectionTestUtils.setField(emailService, "maxRetries", 3);
+        ReflectionTestUtils.setField(emailService, "initialBackoff", 1L);
+        ReflectionTestUtils.setField(emailService, "maxBackoff", 1L);
+        EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
+                                                  PERSONALISATION, UUID.randomUUID().toString());
+        NotificationClientException rateLimitedException = mock(NotificationClientException.class);
+        when(rateLimitedException.getHttpResult()).thenReturn(429);
+
+        when(emailClient.sendEmailAsync(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL,
+                                        PERSONALISATION, emailToSend.getReferenceId()))
+            .thenReturn(Mono.error(rateLimitedException))
+            .thenReturn(Mono.just(sendEmailResponse));
+
+        assertThat(emailService.sendEmailAsync(emailToSend).block())
+            .as("Email response does not match expected response")
+            .isEqualTo(sendEmailResponse);
+
+        verify(notifyThroughputGovernor, times(2)).acquire(SendPriority.BULK);
+        verify(notifySendLanes, times(2)).release(SendPriority.BULK);
+        verify(notifyThroughputGovernor).onRateLimited(KEY_NAME);
+        verify(notifyEmailMetrics).recordSend(any(), eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate()),
+                                              eq(NotifyEmailMetrics.RATE_LIMITED));
+        verify(notifyEmailMetrics).recordSend(any(), eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate()),
+                                              eq(NotifyEmailMetrics.SENT));
+    }
+
+    @Test
+    void testSendEmailAsyncRetriedWhenNotifyCannotBeConnectedTo() {
+        ReflectionTestUtils.setField(emailService, "maxRetries", 3);
+        ReflectionTestUtils.setField(emailService, "initialBackoff", 1L);
+        ReflectionTestUtils.setField(emailService, "maxBackoff", 1L);
+        EmailToSend emailToSend = createBulkEmail();
+        WebClientRequestException requestException = new WebClientRequestException(
+            new ConnectException("Connection refused"), HttpMethod.POST, URI.create("http://localhost"),
+            new HttpHeaders()
+        );
+
+        when(emailClient.sendEmailAsync(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL,
+                                        PERSONALISATION, emailToSend.getReferenceId()))
+            .thenReturn(Mono.error(requestException))
+            .thenReturn(Mono.just(sendEmailResponse));
+
+        assertThat(emailService.sendEmailAsync(emailToSend).block())
+            .as("Email response does not match expected response")
+            .isEqualTo(sendEmailResponse);
+
+        verify(notifyCircuitBreaker).recordFailure();
+        verify(notifyCircuitBreaker).recordSuccess();
+    }
+
+    @Test
+    void testSendEmailAsyncNotRetriedWhenConnectionLostAfterSending() {
+        ReflectionTestUtils.setField(emailService, "maxRetries", 3);
+        EmailToSend emailToSend = createBulkEmail();
+        WebClientRequestException requestException = new WebClientRequestException(
+            new IOException("Connection reset"), HttpMethod.POST, URI.create("http://localhost"), new HttpHeaders()
+        );
+
+        when(emailClient.sendEmailAsync(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL,
+                                        PERSONALISATION, emailToSend.getReferenceId()))
+            .thenReturn(Mono.error(requestException));
+
+        Mono<SendEmailResponse> response = emailService.sendEmailAsync(emailToSend);
+        assertThatThrownBy(response::block)
+            .as(EXCEPTION_MESSAGE)
+            .isInstanceOf(NotifyException.class);
+
+        verify(emailClient).sendEmailAsync(any(), anyString(), anyString(), any(), anyString());
+        verify(notifyCircuitBreaker).recordFailure();
+    }
+
+    @Test
+    void testSendEmailAsyncTrialReleasedAfterOutcomeRecorded() {
+        EmailToSend emailToSend = createBulkEmail();
+        NotificationClientException serverErrorException = mock(NotificationClientException.class);
+        when(serverErrorException.getHttpResult()).thenReturn(503);
+        when(notifyCircuitBreaker.checkAvailable()).thenReturn(true);
+
+        when(emailClient.sendEmailAsync(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL,
+                                        PERSONALISATION, emailToSend.getReferenceId()))
+            .thenReturn(Mono.error(serverErrorException));
+
+        Mono<SendEmailResponse> response = emailService.sendEmailAsync(emailToSend);
+        assertThatThrownBy(response::block)
+            .as(EXCEPTION_MESSAGE)
+            .isInstanceOf(NotifyException.class);
+
+        InOrder inOrder = inOrder(notifyCircuitBreaker);
+        inOrder.verify(notifyCircuitBreaker).recordFailure();
+        inOrder.verify(notifyCircuitBreaker).releaseTrial();
+    }
+
+    @Test
+    void testSendEmailAsyncTrialReleasedWhenCapacityNotAcquired() {
+        EmailToSend emailToSend = createBulkEmail();
+        when(notifyCircuitBreaker.checkAvailable()).thenReturn(true);
+        doThrow(new NotifyException(ERROR_MESSAGE)).when(notifySendLanes).acquire(SendPriority.BULK);
+
+        Mono<SendEmailResponse> response = emailService.sendEmailAsync(emailToSend);
+        assertThatThrownBy(response::block)
+            .as(EXCEPTION_MESSAGE)
+            .isInstanceOf(NotifyException.class);
+
+        verify(notifyCircuitBreaker).releaseTrial();
+        verify(notifySendLanes, never()).release(any());
+        verifyNoInteractions(emailClient);
+    }
+
+    @Test
+    void testSendEmailAsyncWithFailure() {
+        String exceptionMessage = "This is an exception";
+        EmailToSend emailToSend = new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(),
+                                                  PERSONALISATION, UUID.randomUUID().toString());
+
+        when(emailClient.sendEmailAsync(KEY_NAME, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), EMAIL,
+                                        PERSONALISATION, emailToSend.getReferenceId()))
+            .thenReturn(Mono.error(new NotificationClientException(exceptionMessage)));
+
+        Mono<SendEmailResponse> response = emailService.sendEmailAsync(emailToSend);
+        assertThatThrownBy(response::block)
+            .as("Exception response does not match")
+            .isInstanceOf(NotifyException.class)
+            .hasMessage(exceptionMessage);
+
+        verify(notifyThroughputGovernor, never()).onRateLimited(any());
+        verify(notifySendLanes).release(SendPriority.BULK);
+    }
+
+    private static EmailToSend createBulkEmail() {
+        return new EmailToSend(EMAIL, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate(), PERSONALISATION,
+                               UUID.randomUUID().toString());
     }
 }
@@ -15,6 +15,8 @@ import uk.gov.hmcts.reform.pip.model.system.admin.ActionResult;
 import uk.gov.hmcts.reform.pip.model.system.admin.ChangeType;
 import uk.gov.hmcts.reform.pip.model.system.admin.DeleteLocationAction;
 import uk.gov.hmcts.reform.pip.model.system.admin.SystemAdminAction;
+import uk.gov.hmcts.reform.pip.publication.services.models.BulkEmailJobStatus;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ServiceBusyException;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
 import uk.gov.hmcts.reform.pip.publication.services.models.MediaApplication;
 import uk.gov.hmcts.reform.pip.publication.services.models.NoMatchArtefact;
@@ -28,8 +30,13 @@ import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionE
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionTypes;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.WelcomeEmail;
 import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkEmailJobTracker;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkSubscriptionQueue;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkSubscriptionStreamService;
 import uk.gov.service.notify.SendEmailResponse;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -41,8 +48,13 @@ import java.util.concurrent.ConcurrentHashMap;
 import static java.util.Map.entry;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL;
@@ -104,6 +116,15 @@ class NotificationServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private BulkSubscriptionQueue bulkSubscriptionQueue;
+
+    @Mock
+    private BulkEmailJobTracker bulkEmailJobTracker;
+
+    @Mock
+    private BulkSubscriptionStreamService bulkSubscriptionStreamService;
+
     @InjectMocks
     private NotificationService notificationService;
 
@@ -184,10 +205,13 @@ class NotificationServiceTest {
         when(emailService.handleBatchEmailGeneration(any(SystemAdminUpdateEmailData.class),
                                                      eq(Templates.SYSTEM_ADMIN_UPDATE_EMAIL)))
             .thenReturn(List.of(validEmailBodyForEmailClient));
-        when(emailService.sendEmail(validEmailBodyForEmailClient)).thenReturn(sendEmailResponse);
 
-        assertNotNull(notificationService.sendSystemAdminUpdateEmailRequest(systemAdminActionEmailBody),
-                      REFERENCE_ID_MESSAGE);
+        String referenceId = notificationService.sendSystemAdminUpdateEmailRequest(systemAdminActionEmailBody);
+        assertNotNull(referenceId, REFERENCE_ID_MESSAGE);
+
+        verify(bulkSubscriptionQueue).enqueueBatch(referenceId, systemAdminActionEmailBody.getEmailList(),
+                                                   List.of(validEmailBodyForEmailClient));
+        verify(emailService, never()).sendEmail(any());
     }
 
     @Test
@@ -199,9 +223,50 @@ class NotificationServiceTest {
         when(emailService.handleBatchEmailGeneration(any(LocationSubscriptionDeletionEmailData.class),
                                                      eq(Templates.DELETE_LOCATION_SUBSCRIPTION)))
             .thenReturn(List.of(validEmailBodyForEmailClient));
-        when(emailService.sendEmail(validEmailBodyForEmailClient)).thenReturn(sendEmailResponse);
 
-        assertNotNull(notificationService.sendDeleteLocationSubscriptionEmail(locationSubscriptionDeletionBody),
-                      REFERENCE_ID_MESSAGE);
+        String referenceId = notificationService.sendDeleteLocationSubscriptionEmail(locationSubscriptionDeletionBody);
+        assertNotNull(referenceId, REFERENCE_ID_MESSAGE);
+
+        verify(bulkSubscriptionQueue).enqueueBatch(referenceId, List.of(EMAIL), List.of(validEmailBodyForEmailClient));
+        verify(emailService, never()).sendEmail(any());
+    }
+
+    @Test
+    void testBulkSendSubscriptionEmailIsQueued() {
+        when(dataManagementService.getArtefact(ARTEFACT_ID)).thenReturn(artefact);
+        when(dataManagementService.getLocation(LOCATION_ID.toString())).thenReturn(location);
+
+        String referenceId = notificationService.bulkSendSubscriptionEmail(bulkSubscriptionEmail);
+
+        assertNotNull(referenceId, REFERENCE_ID_MESSAGE);
+        verify(bulkSubscriptionQueue).enqueue(referenceId, artefact, LOCATION_NAME, List.of(subscriptionEmail));
+    }
+
+    @Test
+    void testGetBulkSubscriptionEmailStatus() {
+        BulkEmailJobStatus status = new BulkEmailJobStatus();
+        when(bulkEmailJobTracker.getStatus(SUCCESS_REF_ID)).thenReturn(status);
+
+        assertEquals(status, notificationService.getBulkSubscriptionEmailStatus(SUCCESS_REF_ID),
+                     "Bulk email job status does not match");
+    }
+
+    @Test
+    void testStreamBulkSubscriptionEmail() {
+        InputStream inputStream = new ByteArrayInputStream(TEST_BYTE);
+        when(bulkSubscriptionStreamService.ingest(inputStream)).thenReturn(SUCCESS_REF_ID);
+
+        assertEquals(SUCCESS_REF_ID, notificationService.streamBulkSubscriptionEmail(inputStream),
+                     REFERENCE_ID_MESSAGE);
+    }
+
+    @Test
+    void testBulkSendSubscriptionEmailRejectedWhenQueueFull() {
+        doThrow(new ServiceBusyException("Queue full", 60)).when(bulkSubscriptionQueue).checkAdmission();
+
+        assertThrows(ServiceBusyException.class,
+                     () -> notificationService.bulkSendSubscriptionEmail(bulkSubscriptionEmail),
+                     "Service busy exception should be thrown");
+        verifyNoInteractions(dataManagementService);
     }
 }
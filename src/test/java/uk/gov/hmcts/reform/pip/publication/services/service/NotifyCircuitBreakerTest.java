@@ -0,0 +1,139 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ActiveProfiles("test")
+class NotifyCircuitBreakerTest {
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final int OPEN_DURATION = 30;
+    private static final String OPEN_MESSAGE = "Circuit breaker should be open";
+    private static final String CLOSED_MESSAGE = "Circuit breaker should be closed";
+
+    @Test
+    void testBreakerClosedByDefault() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(FAILURE_THRESHOLD, OPEN_DURATION);
+
+        assertThat(breaker.isOpen()).as(CLOSED_MESSAGE).isFalse();
+        assertThatCode(breaker::checkAvailable).doesNotThrowAnyException();
+    }
+
+    @Test
+    void testBreakerOpensAfterThreshold() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(FAILURE_THRESHOLD, OPEN_DURATION);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure();
+        }
+
+        assertThat(breaker.isOpen()).as(OPEN_MESSAGE).isTrue();
+        assertThatThrownBy(breaker::checkAvailable)
+            .isInstanceOf(NotifyUnavailableException.class)
+            .hasMessage("GOV.UK Notify is currently unavailable, please retry later")
+            .extracting("retryAfterSeconds")
+            .isEqualTo(30L);
+    }
+
+    @Test
+    void testBreakerStaysClosedBelowThreshold() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(FAILURE_THRESHOLD, OPEN_DURATION);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        assertThat(breaker.isOpen()).as(CLOSED_MESSAGE).isFalse();
+    }
+
+    @Test
+    void testBreakerDisabledWhenThresholdNotSet() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(0, OPEN_DURATION);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure();
+        }
+
+        assertThat(breaker.isOpen()).as(CLOSED_MESSAGE).isFalse();
+        assertThatCode(breaker::checkAvailable).doesNotThrowAnyException();
+    }
+
+    @Test
+    void testSingleTrialAllowedAfterOpenDuration() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(1, 0);
+        breaker.recordFailure();
+
+        assertThatCode(breaker::checkAvailable).doesNotThrowAnyException();
+        assertThatThrownBy(breaker::checkAvailable)
+            .as("Only one trial send should be allowed")
+            .isInstanceOf(NotifyUnavailableException.class);
+    }
+
+    @Test
+    void testTrialGivenToFirstSendAfterOpenDuration() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(1, 0);
+        assertThat(breaker.checkAvailable()).as("No trial should be given while closed").isFalse();
+
+        breaker.recordFailure();
+
+        assertThat(breaker.checkAvailable()).as("Trial should be given").isTrue();
+        assertThat(breaker.isOpen()).as("Breaker should hold back work during the trial").isTrue();
+    }
+
+    @Test
+    void testReleasedTrialLetsNextSendTry() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(1, 0);
+        breaker.recordFailure();
+        breaker.checkAvailable();
+
+        breaker.releaseTrial();
+
+        assertThat(breaker.isOpen()).as(CLOSED_MESSAGE).isFalse();
+        assertThat(breaker.checkAvailable()).as("Next send should be given the trial").isTrue();
+    }
+
+    @Test
+    void testFailedTrialOpensBreakerAgain() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(FAILURE_THRESHOLD, OPEN_DURATION);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure();
+        }
+        ReflectionTestUtils.setField(breaker, "openUntil", System.currentTimeMillis() - 1);
+        breaker.checkAvailable();
+
+        breaker.recordFailure();
+        breaker.releaseTrial();
+
+        assertThat(breaker.isOpen()).as(OPEN_MESSAGE).isTrue();
+        assertThatThrownBy(breaker::checkAvailable).isInstanceOf(NotifyUnavailableException.class);
+    }
+
+    @Test
+    void testSuccessfulTrialClosesBreaker() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(1, 0);
+        breaker.recordFailure();
+        breaker.checkAvailable();
+        breaker.recordSuccess();
+
+        assertThatCode(breaker::checkAvailable).doesNotThrowAnyException();
+        assertThatCode(breaker::checkAvailable).doesNotThrowAnyException();
+    }
+
+    @Test
+    void testFailureCountResetAfterRecovery() {
+        NotifyCircuitBreaker breaker = new NotifyCircuitBreaker(FAILURE_THRESHOLD, OPEN_DURATION);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure();
+        }
+        breaker.recordSuccess();
+        assertThat(breaker.isOpen()).as(CLOSED_MESSAGE).isFalse();
+
+        breaker.recordFailure();
+        assertThat(breaker.isOpen())
+            .as("A single failure after recovering should not open the breaker")
+            .isFalse();
+    }
+}
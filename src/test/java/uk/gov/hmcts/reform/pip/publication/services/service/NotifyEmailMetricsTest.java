@@ -0,0 +1,87 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.DELETE_LOCATION_SUBSCRIPTION;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_NEW_ACCOUNT_SETUP;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL;
+
+@ActiveProfiles("test")
+class NotifyEmailMetricsTest {
+    private static final String TEMPLATE_TAG = "template";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final String METRIC_MESSAGE = "Metric value does not match";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NotifyEmailMetrics notifyEmailMetrics = new NotifyEmailMetrics(meterRegistry);
+
+    @Test
+    void testRecordGeneration() {
+        notifyEmailMetrics.recordGeneration(notifyEmailMetrics.start(), MEDIA_NEW_ACCOUNT_SETUP,
+                                            NotifyEmailMetrics.GENERATED);
+
+        assertThat(meterRegistry.get("notify.email.generation")
+                       .tag(TEMPLATE_TAG, MEDIA_NEW_ACCOUNT_SETUP.name())
+                       .tag(OUTCOME_TAG, NotifyEmailMetrics.GENERATED)
+                       .timer().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testRecordSendTaggedByTemplateAndOutcome() {
+        String templateId = MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.getTemplate();
+        notifyEmailMetrics.recordSend(notifyEmailMetrics.start(), templateId, NotifyEmailMetrics.SENT);
+        notifyEmailMetrics.recordSend(notifyEmailMetrics.start(), templateId, NotifyEmailMetrics.SENT);
+        notifyEmailMetrics.recordSend(notifyEmailMetrics.start(), templateId, NotifyEmailMetrics.RATE_LIMITED);
+
+        assertThat(meterRegistry.get("notify.email.send")
+                       .tag(TEMPLATE_TAG, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.name())
+                       .tag(OUTCOME_TAG, NotifyEmailMetrics.SENT)
+                       .timer().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(2);
+
+        assertThat(meterRegistry.get("notify.email.send")
+                       .tag(TEMPLATE_TAG, MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL.name())
+                       .tag(OUTCOME_TAG, NotifyEmailMetrics.RATE_LIMITED)
+                       .timer().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testRecordSendForUnknownTemplate() {
+        notifyEmailMetrics.recordSend(notifyEmailMetrics.start(), "unknown-template", NotifyEmailMetrics.NOTIFY_ERROR);
+
+        assertThat(meterRegistry.get("notify.email.send")
+                       .tag(TEMPLATE_TAG, "UNKNOWN")
+                       .tag(OUTCOME_TAG, NotifyEmailMetrics.NOTIFY_ERROR)
+                       .timer().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testRecordBatchRecipients() {
+        notifyEmailMetrics.recordBatchRecipients(DELETE_LOCATION_SUBSCRIPTION, 3, 2);
+
+        assertThat(meterRegistry.get("notify.email.batch.recipients")
+                       .tag(TEMPLATE_TAG, DELETE_LOCATION_SUBSCRIPTION.name())
+                       .tag(OUTCOME_TAG, NotifyEmailMetrics.ACCEPTED)
+                       .counter().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(3.0);
+
+        assertThat(meterRegistry.get("notify.email.batch.recipients")
+                       .tag(TEMPLATE_TAG, DELETE_LOCATION_SUBSCRIPTION.name())
+                       .tag(OUTCOME_TAG, NotifyEmailMetrics.RATE_LIMITED)
+                       .counter().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(2.0);
+    }
+}
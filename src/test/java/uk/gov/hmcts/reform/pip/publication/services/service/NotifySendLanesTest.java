@@ -0,0 +1,96 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
+import uk.gov.hmcts.reform.pip.publication.services.models.SendPriority;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ActiveProfiles("test")
+class NotifySendLanesTest {
+    private static final String IN_FLIGHT_METRIC = "notify.lane.in-flight";
+    private static final String LANE_TAG = "lane";
+    private static final String IN_FLIGHT_MESSAGE = "Sends in flight do not match";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NotifySendLanes notifySendLanes = new NotifySendLanes(meterRegistry, 2, 1, 1);
+
+    @Test
+    void testInFlightSendsTrackedPerLane() {
+        notifySendLanes.acquire(SendPriority.INTERACTIVE);
+        notifySendLanes.acquire(SendPriority.INTERACTIVE);
+        notifySendLanes.acquire(SendPriority.BULK);
+
+        assertThat(inFlight(SendPriority.INTERACTIVE))
+            .as(IN_FLIGHT_MESSAGE)
+            .isEqualTo(2);
+
+        assertThat(inFlight(SendPriority.BULK))
+            .as(IN_FLIGHT_MESSAGE)
+            .isEqualTo(1);
+
+        notifySendLanes.release(SendPriority.INTERACTIVE);
+
+        assertThat(inFlight(SendPriority.INTERACTIVE))
+            .as(IN_FLIGHT_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testFullBulkLaneDoesNotBlockInteractiveLane() {
+        notifySendLanes.acquire(SendPriority.BULK);
+
+        CompletableFuture<Void> interactive = CompletableFuture.runAsync(
+            () -> notifySendLanes.acquire(SendPriority.INTERACTIVE)
+        );
+
+        assertThat(interactive)
+            .as("Interactive send should not wait for the bulk lane")
+            .succeedsWithin(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testAcquireWaitsForPlaceInLane() {
+        notifySendLanes.acquire(SendPriority.BULK);
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(
+            () -> notifySendLanes.acquire(SendPriority.BULK)
+        );
+
+        assertThat(waiting)
+            .as("Bulk send should wait for a place in the lane")
+            .failsWithin(200, TimeUnit.MILLISECONDS);
+
+        notifySendLanes.release(SendPriority.BULK);
+
+        assertThat(waiting)
+            .as("Bulk send should go ahead once a place in the lane is free")
+            .succeedsWithin(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testAcquireInterrupted() {
+        notifySendLanes.acquire(SendPriority.OPERATIONAL);
+        Thread.currentThread().interrupt();
+
+        assertThatThrownBy(() -> notifySendLanes.acquire(SendPriority.OPERATIONAL))
+            .isInstanceOf(NotifyException.class);
+
+        assertThat(Thread.interrupted())
+            .as("Interrupt flag should be restored")
+            .isTrue();
+    }
+
+    private double inFlight(SendPriority priority) {
+        return meterRegistry.get(IN_FLIGHT_METRIC)
+            .tag(LANE_TAG, priority.name())
+            .gauge().value();
+    }
+}
@@ -0,0 +1,541 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BlockingBucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.hmcts.reform.pip.publication.services.models.SendPriority;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class NotifyThroughputGovernorTest {
+    private static final int MAX_PER_SECOND = 50;
+    private static final int MIN_PER_SECOND = 5;
+    private static final String RATE_MESSAGE = "Send rate does not match";
+    private static final String KEY = "publication-services-notify-throughput";
+    private static final String API_KEY = "testingApiKey";
+    private static final String SECOND_API_KEY = "secondApiKey";
+    private static final String KEY_NAME = "key-0";
+    private static final String SECOND_KEY_NAME = "key-1";
+    private static final String KEY_BUCKET = KEY + "-key-" + KEY_NAME;
+    private static final String SECOND_KEY_BUCKET = KEY + "-key-" + SECOND_KEY_NAME;
+    private static final String LAST_ADJUSTMENT = "-last-adjustment";
+    private static final String OPERATIONAL_KEY = KEY + "-operational";
+    private static final String BULK_KEY = KEY + "-bulk";
+    private static final String DEGRADED_MESSAGE = "Governor degraded state does not match";
+    private static final String REDIS_ERROR = "Redis is unavailable";
+    private static final String KEY_MESSAGE = "API key does not match";
+
+    @Mock
+    private ProxyManager<String> buckets;
+
+    @Mock
+    private RemoteBucketBuilder<String> bucketBuilder;
+
+    @Mock
+    private BucketProxy bucket;
+
+    @Mock
+    private BucketProxy secondBucket;
+
+    @Mock
+    private BucketProxy operationalBucket;
+
+    @Mock
+    private BucketProxy bulkBucket;
+
+    @Mock
+    private BlockingBucket operationalBlockingBucket;
+
+    @Mock
+    private BlockingBucket bulkBlockingBucket;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RAtomicLong lastAdjustment;
+
+    @Mock
+    private RAtomicLong secondLastAdjustment;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(redissonClient.getAtomicLong(KEY_BUCKET + LAST_ADJUSTMENT)).thenReturn(lastAdjustment);
+        lenient().when(redissonClient.getAtomicLong(SECOND_KEY_BUCKET + LAST_ADJUSTMENT))
+            .thenReturn(secondLastAdjustment);
+        lenient().when(buckets.builder()).thenReturn(bucketBuilder);
+        lenient().when(bucketBuilder.build(eq(KEY_BUCKET), ArgumentMatchers.<Supplier<BucketConfiguration>>any()))
+            .thenReturn(bucket);
+        lenient().when(bucketBuilder.build(eq(SECOND_KEY_BUCKET),
+                                           ArgumentMatchers.<Supplier<BucketConfiguration>>any()))
+            .thenReturn(secondBucket);
+        lenient().when(bucketBuilder.build(eq(OPERATIONAL_KEY), ArgumentMatchers.<Supplier<BucketConfiguration>>any()))
+            .thenReturn(operationalBucket);
+        lenient().when(bucketBuilder.build(eq(BULK_KEY), ArgumentMatchers.<Supplier<BucketConfiguration>>any()))
+            .thenReturn(bulkBucket);
+        lenient().when(operationalBucket.asBlocking()).thenReturn(operationalBlockingBucket);
+        lenient().when(bulkBucket.asBlocking()).thenReturn(bulkBlockingBucket);
+    }
+
+    @Test
+    void testAcquireWaitsForToken() {
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+
+        assertThat(governor.acquire(SendPriority.BULK))
+            .as(KEY_MESSAGE)
+            .isEqualTo(KEY_NAME);
+
+        verify(bucket).consumeIgnoringRateLimits(1);
+        verify(bucket, never()).tryConsume(anyLong());
+        verify(bucket, never()).replaceConfiguration(any(), any());
+    }
+
+    @Test
+    void testAcquireDisabledWhenNoMaximumRate() {
+        NotifyThroughputGovernor governor = createGovernor(0, 60, 0, 0);
+
+        assertThat(governor.acquire(SendPriority.BULK))
+            .as(KEY_MESSAGE)
+            .isNull();
+
+        verifyNoInteractions(buckets);
+    }
+
+    @Test
+    void testRateHalvedWhenRateLimited() {
+        when(lastAdjustment.compareAndSet(eq(0L), anyLong())).thenReturn(true);
+        when(buckets.getProxyConfiguration(anyString())).thenReturn(Optional.of(createConfiguration(40)));
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+
+        governor.onRateLimited(KEY_NAME);
+
+        assertThat(getReplacedRate())
+            .as(RATE_MESSAGE)
+            .isEqualTo(20);
+    }
+
+    @Test
+    void testRateNotReducedAgainWithinDecreaseCooldown() {
+        when(lastAdjustment.get()).thenReturn(System.currentTimeMillis());
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+        ReflectionTestUtils.setField(governor, "decreaseCooldown", 60_000L);
+
+        governor.onRateLimited(KEY_NAME);
+
+        verify(lastAdjustment, never()).compareAndSet(anyLong(), anyLong());
+        verify(buckets, never()).getProxyConfiguration(anyString());
+        verify(bucket, never()).replaceConfiguration(any(), any());
+    }
+
+    @Test
+    void testRateNotReducedWhenAnotherPodHasReducedIt() {
+        when(lastAdjustment.get()).thenReturn(1000L);
+        when(lastAdjustment.compareAndSet(eq(1000L), anyLong())).thenReturn(false);
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+
+        governor.onRateLimited(KEY_NAME);
+
+        verify(buckets, never()).getProxyConfiguration(anyString());
+        verify(bucket, never()).replaceConfiguration(any(), any());
+    }
+
+    @Test
+    void testRateNotReducedBelowMinimum() {
+        when(lastAdjustment.compareAndSet(anyLong(), anyLong())).thenReturn(true);
+        when(buckets.getProxyConfiguration(anyString())).thenReturn(Optional.of(createConfiguration(MIN_PER_SECOND)));
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+
+        governor.onRateLimited(KEY_NAME);
+
+        verify(bucket, never()).replaceConfiguration(any(), any());
+    }
+
+    @Test
+    void testRateIncreasedAfterRecoveryInterval() {
+        when(lastAdjustment.compareAndSet(anyLong(), anyLong())).thenReturn(true);
+        when(buckets.getProxyConfiguration(anyString())).thenReturn(Optional.of(createConfiguration(20)));
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 0, 0, 0);
+
+        governor.recoverRate();
+
+        assertThat(getReplacedRate())
+            .as(RATE_MESSAGE)
+            .isEqualTo(25);
+    }
+
+    @Test
+    void testRateNotIncreasedWhenAnotherPodHasAdjustedIt() {
+        when(lastAdjustment.get()).thenReturn(1000L);
+        when(lastAdjustment.compareAndSet(eq(1000L), anyLong())).thenReturn(false);
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 0, 0, 0);
+
+        governor.recoverRate();
+
+        verify(bucket, never()).replaceConfiguration(any(), any());
+        verify(buckets, never()).getProxyConfiguration(anyString());
+    }
+
+    @Test
+    void testRateNotIncreasedWithinRecoveryInterval() {
+        when(lastAdjustment.get()).thenReturn(System.currentTimeMillis());
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+
+        governor.recoverRate();
+
+        verify(lastAdjustment, never()).compareAndSet(anyLong(), anyLong());
+        verify(bucket, never()).replaceConfiguration(any(), any());
+    }
+
+    @Test
+    void testRateNotIncreasedAboveMaximum() {
+        when(lastAdjustment.compareAndSet(anyLong(), anyLong())).thenReturn(true);
+        when(buckets.getProxyConfiguration(anyString()))
+            .thenReturn(Optional.of(createConfiguration(MAX_PER_SECOND)));
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 0, 0, 0);
+
+        governor.recoverRate();
+
+        verify(bucket, never()).replaceConfiguration(any(), any());
+    }
+
+    @Test
+    void testAcquireDoesNotCheckRecovery() {
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 0, 0, 0);
+
+        governor.acquire(SendPriority.BULK);
+
+        verify(bucket).consumeIgnoringRateLimits(1);
+        verifyNoInteractions(lastAdjustment);
+    }
+
+    @Test
+    void testBulkAcquireWaitsForShareOfEachLaneAbove() throws InterruptedException {
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 10, 20);
+
+        governor.acquire(SendPriority.BULK);
+
+        verify(bulkBlockingBucket).consume(1);
+        verify(operationalBlockingBucket).consume(1);
+        verify(bucket).consumeIgnoringRateLimits(1);
+    }
+
+    @Test
+    void testOperationalAcquireDoesNotUseBulkShare() throws InterruptedException {
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 10, 20);
+
+        governor.acquire(SendPriority.OPERATIONAL);
+
+        verify(operationalBlockingBucket).consume(1);
+        verify(bucket).consumeIgnoringRateLimits(1);
+        verifyNoInteractions(bulkBucket);
+    }
+
+    @Test
+    void testInteractiveAcquireOnlyUsesApiKeyRate() {
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 10, 20);
+
+        governor.acquire(SendPriority.INTERACTIVE);
+
+        verify(bucket).consumeIgnoringRateLimits(1);
+        verifyNoInteractions(operationalBucket, bulkBucket);
+    }
+
+    @Test
+    void testBucketProxiesBuiltOnce() {
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 10, 20);
+
+        governor.acquire(SendPriority.BULK);
+        governor.acquire(SendPriority.BULK);
+
+        verify(bucketBuilder).build(eq(KEY_BUCKET), ArgumentMatchers.<Supplier<BucketConfiguration>>any());
+        verify(bucketBuilder).build(eq(OPERATIONAL_KEY), ArgumentMatchers.<Supplier<BucketConfiguration>>any());
+        verify(bucketBuilder).build(eq(BULK_KEY), ArgumentMatchers.<Supplier<BucketConfiguration>>any());
+        verify(bucket, times(2)).consumeIgnoringRateLimits(1);
+    }
+
+    @Test
+    void testLaneRatesReducedWhenRateLimited() {
+        when(lastAdjustment.compareAndSet(anyLong(), anyLong())).thenReturn(true);
+        when(buckets.getProxyConfiguration(anyString())).thenReturn(Optional.of(createConfiguration(40)));
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 10, 20);
+
+        governor.onRateLimited(KEY_NAME);
+
+        assertThat(getReplacedRate())
+            .as(RATE_MESSAGE)
+            .isEqualTo(20);
+
+        assertThat(getReplacedRate(operationalBucket))
+            .as(RATE_MESSAGE)
+            .isEqualTo(18);
+
+        assertThat(getReplacedRate(bulkBucket))
+            .as(RATE_MESSAGE)
+            .isEqualTo(14);
+    }
+
+    @Test
+    void testAcquireRoutesToApiKeyWithTokenFree() {
+        when(bucket.tryConsume(1)).thenReturn(false);
+        when(secondBucket.tryConsume(1)).thenReturn(true);
+        NotifyThroughputGovernor governor = createGovernor(SECOND_API_KEY, MAX_PER_SECOND, 60, 0, 0);
+
+        assertThat(governor.acquire(SendPriority.BULK))
+            .as(KEY_MESSAGE)
+            .isEqualTo(SECOND_KEY_NAME);
+
+        verify(bucket, never()).consumeIgnoringRateLimits(anyLong());
+        verify(secondBucket, never()).consumeIgnoringRateLimits(anyLong());
+    }
+
+    @Test
+    void testAcquireStartsFromNextApiKeyInTurn() {
+        when(bucket.tryConsume(1)).thenReturn(true);
+        when(secondBucket.tryConsume(1)).thenReturn(true);
+        NotifyThroughputGovernor governor = createGovernor(SECOND_API_KEY, MAX_PER_SECOND, 60, 0, 0);
+
+        assertThat(governor.acquire(SendPriority.BULK))
+            .as(KEY_MESSAGE)
+            .isEqualTo(KEY_NAME);
+
+        assertThat(governor.acquire(SendPriority.BULK))
+            .as(KEY_MESSAGE)
+            .isEqualTo(SECOND_KEY_NAME);
+    }
+
+    @Test
+    void testAcquireWaitsOnApiKeyInTurnWhenNoneHaveTokenFree() {
+        when(bucket.tryConsume(1)).thenReturn(false);
+        when(secondBucket.tryConsume(1)).thenReturn(false);
+        NotifyThroughputGovernor governor = createGovernor(SECOND_API_KEY, MAX_PER_SECOND, 60, 0, 0);
+
+        assertThat(governor.acquire(SendPriority.BULK))
+            .as(KEY_MESSAGE)
+            .isEqualTo(KEY_NAME);
+
+        verify(bucket).consumeIgnoringRateLimits(1);
+        verify(secondBucket, never()).consumeIgnoringRateLimits(anyLong());
+    }
+
+    @Test
+    void testRateLimitedOnlyReducesThatApiKey() {
+        when(secondLastAdjustment.compareAndSet(eq(0L), anyLong())).thenReturn(true);
+        when(buckets.getProxyConfiguration(anyString())).thenReturn(Optional.of(createConfiguration(40)));
+        NotifyThroughputGovernor governor = createGovernor(SECOND_API_KEY, MAX_PER_SECOND, 60, 0, 0);
+
+        governor.onRateLimited(SECOND_KEY_NAME);
+
+        assertThat(getReplacedRate(secondBucket))
+            .as(RATE_MESSAGE)
+            .isEqualTo(20);
+
+        verify(bucket, never()).replaceConfiguration(any(), any());
+        verifyNoInteractions(lastAdjustment);
+    }
+
+    @Test
+    void testLaneRatesFollowTotalOfEveryApiKey() {
+        when(secondLastAdjustment.compareAndSet(anyLong(), anyLong())).thenReturn(true);
+        when(buckets.getProxyConfiguration(anyString())).thenReturn(Optional.of(createConfiguration(40)));
+        NotifyThroughputGovernor governor = createGovernor(SECOND_API_KEY, MAX_PER_SECOND, 60, 10, 20);
+
+        governor.onRateLimited(SECOND_KEY_NAME);
+
+        assertThat(getReplacedRate(operationalBucket))
+            .as(RATE_MESSAGE)
+            .isEqualTo(54);
+
+        assertThat(getReplacedRate(bulkBucket))
+            .as(RATE_MESSAGE)
+            .isEqualTo(42);
+    }
+
+    @Test
+    void testRateLimitedWithoutApiKeyDoesNotReduceRate() {
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+
+        governor.onRateLimited(null);
+        governor.onRateLimited("unknown");
+
+        verifyNoInteractions(lastAdjustment);
+        verify(buckets, never()).getProxyConfiguration(anyString());
+    }
+
+    @Test
+    void testRateIncreasedForEachApiKey() {
+        when(lastAdjustment.compareAndSet(anyLong(), anyLong())).thenReturn(true);
+        when(secondLastAdjustment.compareAndSet(anyLong(), anyLong())).thenReturn(true);
+        when(buckets.getProxyConfiguration(anyString())).thenReturn(Optional.of(createConfiguration(20)));
+        NotifyThroughputGovernor governor = createGovernor(SECOND_API_KEY, MAX_PER_SECOND, 0, 0, 0);
+
+        governor.recoverRate();
+
+        assertThat(getReplacedRate(bucket))
+            .as(RATE_MESSAGE)
+            .isEqualTo(25);
+
+        assertThat(getReplacedRate(secondBucket))
+            .as(RATE_MESSAGE)
+            .isEqualTo(25);
+    }
+
+    @Test
+    void testAcquireFallsBackToLocalBucketWhenRedisFails() {
+        when(bucket.consumeIgnoringRateLimits(1)).thenThrow(new RedisException(REDIS_ERROR));
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+        setLatencyBudget(governor, 1000L, 2);
+
+        governor.acquire(SendPriority.INTERACTIVE);
+
+        assertThat(governor.isDegraded())
+            .as(DEGRADED_MESSAGE)
+            .isFalse();
+
+        governor.acquire(SendPriority.INTERACTIVE);
+
+        assertThat(governor.isDegraded())
+            .as(DEGRADED_MESSAGE)
+            .isTrue();
+
+        governor.acquire(SendPriority.INTERACTIVE);
+        governor.onRateLimited(KEY_NAME);
+
+        verify(bucket, times(2)).consumeIgnoringRateLimits(1);
+        verify(buckets, never()).getProxyConfiguration(anyString());
+    }
+
+    @Test
+    void testAcquireFallsBackToLocalBucketWhenRedisIsSlow() {
+        when(bucket.consumeIgnoringRateLimits(1)).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return 0L;
+        });
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+        setLatencyBudget(governor, 50L, 1);
+
+        governor.acquire(SendPriority.INTERACTIVE);
+
+        assertThat(governor.isDegraded())
+            .as(DEGRADED_MESSAGE)
+            .isTrue();
+    }
+
+    @Test
+    void testAcquireStaysOnRedisWhenFailuresAreNotConsecutive() {
+        when(bucket.consumeIgnoringRateLimits(1))
+            .thenThrow(new RedisException(REDIS_ERROR))
+            .thenReturn(0L)
+            .thenThrow(new RedisException(REDIS_ERROR));
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+        setLatencyBudget(governor, 1000L, 2);
+
+        governor.acquire(SendPriority.INTERACTIVE);
+        governor.acquire(SendPriority.INTERACTIVE);
+        governor.acquire(SendPriority.INTERACTIVE);
+
+        assertThat(governor.isDegraded())
+            .as(DEGRADED_MESSAGE)
+            .isFalse();
+    }
+
+    @Test
+    void testCheckRedisReturnsToRedisOnceResponding() {
+        when(bucket.consumeIgnoringRateLimits(1))
+            .thenThrow(new RedisException(REDIS_ERROR))
+            .thenReturn(0L);
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+        setLatencyBudget(governor, 1000L, 1);
+
+        governor.acquire(SendPriority.INTERACTIVE);
+        governor.checkRedis();
+
+        assertThat(governor.isDegraded())
+            .as(DEGRADED_MESSAGE)
+            .isFalse();
+
+        governor.acquire(SendPriority.INTERACTIVE);
+
+        verify(bucket, times(2)).consumeIgnoringRateLimits(1);
+    }
+
+    @Test
+    void testCheckRedisDoesNothingWhenNotDegraded() {
+        NotifyThroughputGovernor governor = createGovernor(MAX_PER_SECOND, 60, 0, 0);
+
+        governor.checkRedis();
+
+        verify(buckets, never()).getProxyConfiguration(anyString());
+    }
+
+    private static void setLatencyBudget(NotifyThroughputGovernor governor, long latencyBudget,
+                                         int failureThreshold) {
+        ReflectionTestUtils.setField(governor, "latencyBudget", latencyBudget);
+        ReflectionTestUtils.setField(governor, "replicaCount", 2);
+        ReflectionTestUtils.setField(governor, "failureThreshold", failureThreshold);
+    }
+
+    private NotifyThroughputGovernor createGovernor(int maxPerSecond, int recoveryIntervalInSeconds,
+                                                    int interactiveReservedPercentage,
+                                                    int operationalReservedPercentage) {
+        return createGovernor("", maxPerSecond, recoveryIntervalInSeconds, interactiveReservedPercentage,
+                              operationalReservedPercentage);
+    }
+
+    private NotifyThroughputGovernor createGovernor(String additionalApiKeys, int maxPerSecond,
+                                                    int recoveryIntervalInSeconds,
+                                                    int interactiveReservedPercentage,
+                                                    int operationalReservedPercentage) {
+        return new NotifyThroughputGovernor(buckets, redissonClient, API_KEY, additionalApiKeys, maxPerSecond,
+                                            MIN_PER_SECOND, recoveryIntervalInSeconds,
+                                            interactiveReservedPercentage, operationalReservedPercentage);
+    }
+
+    private long getReplacedRate() {
+        return getReplacedRate(bucket);
+    }
+
+    private static long getReplacedRate(BucketProxy proxy) {
+        ArgumentCaptor<BucketConfiguration> captor = ArgumentCaptor.forClass(BucketConfiguration.class);
+        verify(proxy).replaceConfiguration(captor.capture(), eq(TokensInheritanceStrategy.PROPORTIONALLY));
+        return captor.getValue().getBandwidths()[0].getCapacity();
+    }
+
+    private static BucketConfiguration createConfiguration(int ratePerSecond) {
+        return BucketConfiguration.builder()
+            .addLimit(Bandwidth.classic(ratePerSecond, Refill.greedy(ratePerSecond, Duration.ofSeconds(1))))
+            .build();
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+import uk.gov.hmcts.reform.pip.publication.services.models.RateLimitHotKey;
+import uk.gov.hmcts.reform.pip.publication.services.models.RateLimitStatus;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class RateLimitEndpointTest {
+    private static final List<RateLimitHotKey> HOT_KEYS = List.of(
+        new RateLimitHotKey("STANDARD::t***@justice.gov.uk", 5, 0)
+    );
+
+    @Mock
+    private RateLimitingService rateLimitingService;
+
+    @Mock
+    private RateLimitMetrics rateLimitMetrics;
+
+    @InjectMocks
+    private RateLimitEndpoint rateLimitEndpoint;
+
+    @Test
+    void testStatus() {
+        when(rateLimitingService.isDegraded()).thenReturn(true);
+        when(rateLimitingService.getUnreconciledKeyCount()).thenReturn(3L);
+        when(rateLimitMetrics.getHotKeys(20)).thenReturn(HOT_KEYS);
+
+        assertThat(rateLimitEndpoint.status())
+            .as("Rate limit status does not match")
+            .isEqualTo(new RateLimitStatus(true, 3, HOT_KEYS));
+    }
+
+    @Test
+    void testResetHotKeys() {
+        rateLimitEndpoint.resetHotKeys();
+
+        verify(rateLimitMetrics).resetHotKeys();
+    }
+}
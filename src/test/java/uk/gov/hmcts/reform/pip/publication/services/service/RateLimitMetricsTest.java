@@ -0,0 +1,144 @@
+package uk.gov.hmcts.reform.pip.publication.services.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+import uk.gov.hmcts.reform.pip.publication.services.models.RateLimitHotKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit.HIGH;
+import static uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit.STANDARD;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_NEW_ACCOUNT_SETUP;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.OTP_EMAIL;
+
+@ActiveProfiles("test")
+class RateLimitMetricsTest {
+    private static final String TEST_EMAIL = "test@justice.gov.uk";
+    private static final String OTHER_EMAIL = "other@justice.gov.uk";
+    private static final String THIRD_EMAIL = "third@justice.gov.uk";
+    private static final String FOURTH_EMAIL = "fourth@justice.gov.uk";
+    private static final String LIMIT_TAG = "limit";
+    private static final String BACKEND_TAG = "backend";
+    private static final String METRIC_MESSAGE = "Metric value does not match";
+    private static final String HOT_KEYS_MESSAGE = "Hot keys do not match";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimitMetrics rateLimitMetrics = new RateLimitMetrics(meterRegistry, 2);
+
+    @Test
+    void testRecordResolutionTaggedByLimitAndBackend() {
+        rateLimitMetrics.recordResolution(rateLimitMetrics.start(), STANDARD, RateLimitMetrics.REDIS);
+        rateLimitMetrics.recordResolution(rateLimitMetrics.start(), STANDARD, RateLimitMetrics.LOCAL);
+
+        assertThat(meterRegistry.get("rate-limit.bucket.resolution")
+                       .tag(LIMIT_TAG, STANDARD.name())
+                       .tag(BACKEND_TAG, RateLimitMetrics.REDIS)
+                       .timer().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testRecordConsumeTaggedByOutcome() {
+        rateLimitMetrics.recordConsume(rateLimitMetrics.start(), HIGH, RateLimitMetrics.REDIS, true);
+        rateLimitMetrics.recordConsume(rateLimitMetrics.start(), HIGH, RateLimitMetrics.REDIS, false);
+        rateLimitMetrics.recordConsume(rateLimitMetrics.start(), HIGH, RateLimitMetrics.REDIS, false);
+
+        assertThat(meterRegistry.get("rate-limit.consume")
+                       .tag(LIMIT_TAG, HIGH.name())
+                       .tag("outcome", "exceeded")
+                       .timer().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(2);
+    }
+
+    @Test
+    void testRecordRejectionTaggedByLimitAndTemplate() {
+        rateLimitMetrics.recordRejection(OTP_EMAIL);
+        rateLimitMetrics.recordRejection(OTP_EMAIL);
+        rateLimitMetrics.recordRejection(MEDIA_NEW_ACCOUNT_SETUP);
+
+        assertThat(meterRegistry.get("rate-limit.rejections")
+                       .tag(LIMIT_TAG, HIGH.name())
+                       .tag("template", OTP_EMAIL.name())
+                       .counter().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(2);
+
+        assertThat(meterRegistry.get("rate-limit.rejections")
+                       .tag(LIMIT_TAG, STANDARD.name())
+                       .tag("template", MEDIA_NEW_ACCOUNT_SETUP.name())
+                       .counter().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testRecordFallbackTaggedByReason() {
+        rateLimitMetrics.recordFallback(STANDARD, RateLimitMetrics.TIMEOUT);
+
+        assertThat(meterRegistry.get("rate-limit.fallbacks")
+                       .tag(LIMIT_TAG, STANDARD.name())
+                       .tag("reason", RateLimitMetrics.TIMEOUT)
+                       .counter().count())
+            .as(METRIC_MESSAGE)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testHotKeysMaskedAndOrderedByCount() {
+        rateLimitMetrics.recordKey(STANDARD, TEST_EMAIL);
+        rateLimitMetrics.recordKey(HIGH, OTHER_EMAIL);
+        rateLimitMetrics.recordKey(HIGH, OTHER_EMAIL);
+
+        assertThat(rateLimitMetrics.getHotKeys(10))
+            .as(HOT_KEYS_MESSAGE)
+            .containsExactly(new RateLimitHotKey("HIGH::o****@justice.gov.uk", 2, 0),
+                             new RateLimitHotKey("STANDARD::t***@justice.gov.uk", 1, 0));
+    }
+
+    @Test
+    void testLeastCheckedHotKeyReplacedWhenFull() {
+        rateLimitMetrics.recordKey(STANDARD, TEST_EMAIL);
+        rateLimitMetrics.recordKey(STANDARD, TEST_EMAIL);
+        rateLimitMetrics.recordKey(STANDARD, OTHER_EMAIL);
+        rateLimitMetrics.recordKey(STANDARD, THIRD_EMAIL);
+
+        assertThat(rateLimitMetrics.getHotKeys(10))
+            .as(HOT_KEYS_MESSAGE)
+            .containsExactlyInAnyOrder(new RateLimitHotKey("STANDARD::t***@justice.gov.uk", 2, 0),
+                                       new RateLimitHotKey("STANDARD::t****@justice.gov.uk", 2, 1));
+    }
+
+    @Test
+    void testReplacedHotKeyCountCarriedThroughEachReplacement() {
+        rateLimitMetrics.recordKey(STANDARD, TEST_EMAIL);
+        rateLimitMetrics.recordKey(STANDARD, TEST_EMAIL);
+        rateLimitMetrics.recordKey(STANDARD, TEST_EMAIL);
+        rateLimitMetrics.recordKey(STANDARD, OTHER_EMAIL);
+        rateLimitMetrics.recordKey(STANDARD, THIRD_EMAIL);
+        rateLimitMetrics.recordKey(STANDARD, FOURTH_EMAIL);
+
+        assertThat(rateLimitMetrics.getHotKeys(10))
+            .as(HOT_KEYS_MESSAGE)
+            .containsExactlyInAnyOrder(new RateLimitHotKey("STANDARD::t***@justice.gov.uk", 3, 0),
+                                       new RateLimitHotKey("STANDARD::f*****@justice.gov.uk", 3, 2));
+    }
+
+    @Test
+    void testHotKeysLimitedAndReset() {
+        rateLimitMetrics.recordKey(STANDARD, TEST_EMAIL);
+        rateLimitMetrics.recordKey(STANDARD, OTHER_EMAIL);
+
+        assertThat(rateLimitMetrics.getHotKeys(1))
+            .as(HOT_KEYS_MESSAGE)
+            .hasSize(1);
+
+        rateLimitMetrics.resetHotKeys();
+
+        assertThat(rateLimitMetrics.getHotKeys(10))
+            .as(HOT_KEYS_MESSAGE)
+            .isEmpty();
+    }
+}
@@ -1,6 +1,7 @@
 package uk.gov.hmcts.reform.pip.publication.services.service;
 
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
 import nl.altindag.log.LogCaptor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,22 +9,36 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.client.RedisException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.util.ReflectionTestUtils;
 import uk.gov.hmcts.reform.pip.publication.services.config.RateLimitConfiguration;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.TooManyEmailsException;
+import uk.gov.hmcts.reform.pip.publication.services.models.RateLimitCheck;
 import uk.gov.hmcts.reform.pip.publication.services.notify.Templates;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static uk.gov.hmcts.reform.pip.publication.services.models.EmailLimit.STANDARD;
 
 @ActiveProfiles("test")
 @ExtendWith(MockitoExtension.class)
 class RateLimitingServiceTest {
     private static final String TEST_EMAIL = "test1@rateLimit.com";
+    private static final String TEST_EMAIL2 = "test2@rateLimit.com";
+    private static final String TEST_EMAIL3 = "test3@rateLimit.com";
 
     private static final Templates TEMPLATE_WITH_STANDARD_EMAIL_LIMIT = Templates.EXISTING_USER_WELCOME_EMAIL;
     private static final String STANDARD_CAPACITY_ERROR_MESSAGE = "Rate limit has been exceeded. Existing media "
@@ -34,15 +49,31 @@ class RateLimitingServiceTest {
     private static final String RESPONSE_TRUE_MESSAGE = "Method should return true";
     private static final String RESPONSE_FALSE_MESSAGE = "Method should return false";
     private static final String LOG_MESSAGE = "Error log does not match";
+    private static final String REDIS_ERROR = "Redis is unavailable";
 
     private LogCaptor logCaptor = LogCaptor.forClass(RateLimitingService.class);
 
     @Mock
     private RateLimitConfiguration rateLimitConfiguration;
 
+    @Mock
+    private RateLimitMetrics rateLimitMetrics;
+
     @Mock
     private Bucket bucket;
 
+    @Mock
+    private Bucket otherBucket;
+
+    @Mock
+    private Bucket localBucket;
+
+    @Mock
+    private AsyncBucketProxy asyncBucket;
+
+    @Mock
+    private AsyncBucketProxy otherAsyncBucket;
+
     @InjectMocks
     private RateLimitingService rateLimitingService;
 
@@ -103,5 +134,227 @@ class RateLimitingServiceTest {
         assertThat(logCaptor.getErrorLogs().get(0))
             .as(LOG_MESSAGE)
             .contains(STANDARD_CAPACITY_ERROR_MESSAGE);
+
+        verify(rateLimitMetrics).recordRejection(TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+    }
+
+    @Test
+    void testIsValidRecordsMetrics() {
+        when(rateLimitConfiguration.resolveBucket(any(), any())).thenReturn(bucket);
+        when(bucket.tryConsume(1)).thenReturn(true);
+
+        rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+
+        verify(rateLimitMetrics).recordKey(STANDARD, TEST_EMAIL);
+        verify(rateLimitMetrics).recordResolution(any(), eq(STANDARD), eq(RateLimitMetrics.REDIS));
+        verify(rateLimitMetrics).recordConsume(any(), eq(STANDARD), eq(RateLimitMetrics.REDIS), eq(true));
+        verify(rateLimitMetrics, never()).recordRejection(any());
+    }
+
+    @Test
+    void testFilterWithinLimitKeepsEmailsWithinLimitInOrder() {
+        ReflectionTestUtils.setField(rateLimitingService, "maxBatchConcurrency", 2);
+        List<RateLimitCheck> checks = List.of(
+            new RateLimitCheck(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT),
+            new RateLimitCheck(TEST_EMAIL2, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT),
+            new RateLimitCheck(TEST_EMAIL3, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT)
+        );
+
+        when(rateLimitConfiguration.resolveBucketAsync(endsWith(TEST_EMAIL), any()))
+            .thenReturn(CompletableFuture.completedFuture(asyncBucket));
+        when(rateLimitConfiguration.resolveBucketAsync(endsWith(TEST_EMAIL2), any()))
+            .thenReturn(CompletableFuture.completedFuture(otherAsyncBucket));
+        when(rateLimitConfiguration.resolveBucketAsync(endsWith(TEST_EMAIL3), any()))
+            .thenReturn(CompletableFuture.completedFuture(asyncBucket));
+        when(asyncBucket.tryConsume(1)).thenReturn(CompletableFuture.completedFuture(true));
+        when(otherAsyncBucket.tryConsume(1)).thenReturn(CompletableFuture.completedFuture(false));
+
+        assertThat(rateLimitingService.filterWithinLimit(checks))
+            .as("Emails within the rate limit do not match")
+            .containsExactly(checks.get(0), checks.get(2));
+
+        assertThat(logCaptor.getErrorLogs())
+            .as(LOG_MESSAGE)
+            .hasSize(1);
+        verify(rateLimitConfiguration, never()).resolveBucket(any(), any());
+        verify(rateLimitMetrics, times(2)).recordConsume(any(), eq(STANDARD), eq(RateLimitMetrics.REDIS), eq(true));
+    }
+
+    @Test
+    void testFilterWithinLimitSendsChecksBeforeAwaitingThem() {
+        ReflectionTestUtils.setField(rateLimitingService, "maxBatchConcurrency", 2);
+        List<RateLimitCheck> checks = List.of(
+            new RateLimitCheck(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT),
+            new RateLimitCheck(TEST_EMAIL2, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT)
+        );
+        CompletableFuture<Boolean> first = new CompletableFuture<>();
+
+        when(rateLimitConfiguration.resolveBucketAsync(endsWith(TEST_EMAIL), any()))
+            .thenReturn(CompletableFuture.completedFuture(asyncBucket));
+        when(rateLimitConfiguration.resolveBucketAsync(endsWith(TEST_EMAIL2), any()))
+            .thenReturn(CompletableFuture.completedFuture(otherAsyncBucket));
+        when(asyncBucket.tryConsume(1)).thenReturn(first);
+        when(otherAsyncBucket.tryConsume(1)).thenAnswer(invocation -> {
+            // The second check is sent while the first is still waiting on Redis
+            first.complete(true);
+            return CompletableFuture.completedFuture(true);
+        });
+
+        assertThat(rateLimitingService.filterWithinLimit(checks))
+            .as("Emails within the rate limit do not match")
+            .containsExactlyElementsOf(checks);
+    }
+
+    @Test
+    void testFilterWithinLimitFallsBackToLocalBucketWhenRedisFails() {
+        ReflectionTestUtils.setField(rateLimitingService, "maxBatchConcurrency", 2);
+        ReflectionTestUtils.setField(rateLimitingService, "latencyBudget", 1000L);
+        List<RateLimitCheck> checks = List.of(new RateLimitCheck(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT));
+
+        when(rateLimitConfiguration.resolveBucketAsync(any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new RedisException(REDIS_ERROR)));
+        when(rateLimitConfiguration.resolveLocalBucket(any(), any())).thenReturn(localBucket);
+        when(localBucket.tryConsume(1)).thenReturn(true);
+
+        assertThat(rateLimitingService.filterWithinLimit(checks))
+            .as("Emails within the rate limit do not match")
+            .containsExactlyElementsOf(checks);
+
+        verify(rateLimitMetrics).recordFallback(STANDARD, RateLimitMetrics.ERROR);
+        assertThat(rateLimitingService.isDegraded())
+            .as("Rate limits should be checked locally")
+            .isTrue();
+        assertThat(rateLimitingService.getUnreconciledKeyCount())
+            .as("Local usage should be reconciled later")
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testFilterWithinLimitWithNoChecks() {
+        assertThat(rateLimitingService.filterWithinLimit(List.of()))
+            .as("No emails should be returned")
+            .isEmpty();
+
+        verifyNoInteractions(rateLimitConfiguration);
+    }
+
+    @Test
+    void testIsValidFallsBackToLocalBucketWhenRedisFails() {
+        ReflectionTestUtils.setField(rateLimitingService, "latencyBudget", 1000L);
+        when(rateLimitConfiguration.resolveBucket(any(), any())).thenThrow(new RedisException(REDIS_ERROR));
+        when(rateLimitConfiguration.resolveLocalBucket(any(), any())).thenReturn(localBucket);
+        when(localBucket.tryConsume(1)).thenReturn(true);
+
+        assertThat(rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT))
+            .as(RESPONSE_TRUE_MESSAGE)
+            .isTrue();
+
+        assertThat(rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT))
+            .as(RESPONSE_TRUE_MESSAGE)
+            .isTrue();
+
+        verify(rateLimitConfiguration).resolveBucket(any(), any());
+        verify(rateLimitMetrics).recordFallback(STANDARD, RateLimitMetrics.ERROR);
+        verify(rateLimitMetrics, times(2)).recordConsume(any(), eq(STANDARD), eq(RateLimitMetrics.LOCAL), eq(true));
+        assertThat(logCaptor.getErrorLogs())
+            .as(LOG_MESSAGE)
+            .hasSize(1)
+            .first()
+            .asString()
+            .contains(REDIS_ERROR);
+    }
+
+    @Test
+    void testIsValidStaysOnRedisUntilFailureThresholdReached() {
+        ReflectionTestUtils.setField(rateLimitingService, "latencyBudget", 1000L);
+        ReflectionTestUtils.setField(rateLimitingService, "failureThreshold", 2);
+        when(rateLimitConfiguration.resolveBucket(any(), any()))
+            .thenThrow(new RedisException(REDIS_ERROR))
+            .thenReturn(bucket)
+            .thenThrow(new RedisException(REDIS_ERROR))
+            .thenThrow(new RedisException(REDIS_ERROR));
+        when(bucket.tryConsume(1)).thenReturn(true);
+        when(rateLimitConfiguration.resolveLocalBucket(any(), any())).thenReturn(localBucket);
+        when(localBucket.tryConsume(1)).thenReturn(true);
+
+        rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+        rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+        rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+
+        assertThat(rateLimitingService.isDegraded())
+            .as("Service should stay on Redis until the failures are consecutive")
+            .isFalse();
+
+        rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+
+        assertThat(rateLimitingService.isDegraded())
+            .as("Service should check locally once the failure threshold is reached")
+            .isTrue();
+    }
+
+    @Test
+    void testIsValidFallsBackToLocalBucketWhenRedisIsSlow() {
+        ReflectionTestUtils.setField(rateLimitingService, "latencyBudget", 50L);
+        when(rateLimitConfiguration.resolveBucket(any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return bucket;
+        });
+        when(rateLimitConfiguration.resolveLocalBucket(any(), any())).thenReturn(localBucket);
+        when(localBucket.tryConsume(1)).thenReturn(false);
+
+        assertThat(rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT))
+            .as(RESPONSE_FALSE_MESSAGE)
+            .isFalse();
+
+        assertThat(logCaptor.getErrorLogs())
+            .as(LOG_MESSAGE)
+            .anyMatch(log -> log.contains("did not respond within 50 ms"));
+        verify(rateLimitMetrics).recordFallback(STANDARD, RateLimitMetrics.TIMEOUT);
+    }
+
+    @Test
+    void testReconcileConsumesLocalUsageFromRedis() {
+        ReflectionTestUtils.setField(rateLimitingService, "latencyBudget", 1000L);
+        when(rateLimitConfiguration.resolveBucket(any(), any()))
+            .thenThrow(new RedisException(REDIS_ERROR))
+            .thenReturn(bucket);
+        when(rateLimitConfiguration.resolveLocalBucket(any(), any())).thenReturn(localBucket);
+        when(localBucket.tryConsume(1)).thenReturn(true);
+        when(bucket.tryConsume(1)).thenReturn(true);
+
+        rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+        rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+        rateLimitingService.reconcile();
+
+        verify(bucket).consumeIgnoringRateLimits(2);
+        verify(rateLimitConfiguration).clearLocalBuckets();
+
+        assertThat(rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT))
+            .as(RESPONSE_TRUE_MESSAGE)
+            .isTrue();
+        verify(rateLimitConfiguration, times(2)).resolveLocalBucket(any(), any());
+    }
+
+    @Test
+    void testReconcileStaysOnLocalBucketsWhileRedisFails() {
+        ReflectionTestUtils.setField(rateLimitingService, "latencyBudget", 1000L);
+        when(rateLimitConfiguration.resolveBucket(any(), any())).thenThrow(new RedisException(REDIS_ERROR));
+        when(rateLimitConfiguration.resolveLocalBucket(any(), any())).thenReturn(localBucket);
+        when(localBucket.tryConsume(1)).thenReturn(true);
+
+        rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+        rateLimitingService.reconcile();
+        rateLimitingService.isValid(TEST_EMAIL, TEMPLATE_WITH_STANDARD_EMAIL_LIMIT);
+
+        verify(rateLimitConfiguration, never()).clearLocalBuckets();
+        verify(rateLimitConfiguration, times(2)).resolveBucket(any(), any());
+        verify(rateLimitConfiguration, times(2)).resolveLocalBucket(any(), any());
+    }
+
+    @Test
+    void testReconcileWithNothingToReconcile() {
+        rateLimitingService.reconcile();
+
+        verifyNoInteractions(rateLimitConfiguration);
     }
 }
@@ -7,45 +7,63 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
 import uk.gov.hmcts.reform.pip.model.publication.Artefact;
 import uk.gov.hmcts.reform.pip.model.publication.FileType;
 import uk.gov.hmcts.reform.pip.model.publication.Language;
 import uk.gov.hmcts.reform.pip.model.publication.ListType;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
-import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.TooManyEmailsException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.FlatFileSubscriptionEmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.RawDataSubscriptionEmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.BulkSubscriptionEmail;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionTypes;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkEmailDispatcher;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.BulkEmailJobTracker;
+import uk.gov.hmcts.reform.pip.publication.services.service.bulk.SubscriptionSendLedger;
+import uk.gov.service.notify.NotificationClient;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.RetentionPeriodDuration;
 import uk.gov.service.notify.SendEmailResponse;
 
-import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
-import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL;
+import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL;
 
 @ActiveProfiles("test")
 @ExtendWith(MockitoExtension.class)
 class SubscriptionNotificationServiceTest {
     private static final String EMAIL = "test@email.com";
+    private static final String OTHER_EMAIL = "other@email.com";
     private static final String FILE_CONTENT = "123";
     private static final String ARTEFACT_SUMMARY = "Test artefact summary";
     private static final UUID ARTEFACT_ID = UUID.randomUUID();
@@ -53,6 +71,7 @@ class SubscriptionNotificationServiceTest {
     private static final String LOCATION_NAME = "Location Name";
     private static final byte[] ARTEFACT_FLAT_FILE = "Test byte".getBytes();
     private static final String SUCCESS_REF_ID = "successRefId";
+    private static final String OTHER_REF_ID = "otherRefId";
     private static final String TEST_EXCEPTION_MESSAGE = "Test Exception Message";
     private static final String REFERENCE_ID_MESSAGE = "Reference ID does not match";
     private static final Map<String, Object> PERSONALISATION_MAP = Map.of("email", EMAIL);
@@ -77,6 +96,15 @@ class SubscriptionNotificationServiceTest {
     @Mock
     private DataManagementService dataManagementService;
 
+    @Mock
+    private BulkEmailJobTracker bulkEmailJobTracker;
+
+    @Mock
+    private SubscriptionSendLedger subscriptionSendLedger;
+
+    @Spy
+    private BulkEmailDispatcher bulkEmailDispatcher = new BulkEmailDispatcher(2, 0);
+
     @InjectMocks
     private SubscriptionNotificationService notificationService;
 
@@ -108,6 +136,9 @@ class SubscriptionNotificationServiceTest {
 
         lenient().when(sendEmailResponse.getReference()).thenReturn(Optional.of(SUCCESS_REF_ID));
         lenient().when(emailService.sendEmail(any())).thenReturn(sendEmailResponse);
+        lenient().when(emailService.screenRecipients(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(subscriptionSendLedger.reserve(eq(ARTEFACT_ID), anyString(), eq(SUCCESS_REF_ID)))
+            .thenReturn(reservation(SubscriptionSendLedger.State.RESERVED, SUCCESS_REF_ID));
     }
 
     @Test
@@ -118,8 +149,8 @@ class SubscriptionNotificationServiceTest {
             ArgumentCaptor.forClass(FlatFileSubscriptionEmailData.class);
 
         when(dataManagementService.getArtefactFlatFile(ARTEFACT_ID)).thenReturn(ARTEFACT_FLAT_FILE);
-        when(emailService.handleEmailGeneration(argument.capture(),
-                                                eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
+        when(emailService.handlePreScreenedEmailGeneration(argument.capture(),
+                                                            eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
             .thenReturn(validEmailBodyForEmailClientFlatFile);
 
         notificationService.flatFileBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact, LOCATION_NAME,
@@ -133,13 +164,58 @@ class SubscriptionNotificationServiceTest {
                      "Incorrect email address set");
         assertEquals(LOCATION_NAME, flatFileSubscriptionEmailData.getLocationName(),
                      "Incorrect location name");
-        assertArrayEquals(
-            flatFileSubscriptionEmailData.getArtefactFlatFile(),
-            ARTEFACT_FLAT_FILE,
-            "Incorrect artefact flat file"
-        );
+        assertNotNull(flatFileSubscriptionEmailData.getAttachments().getFlatFile(),
+                      "Incorrect artefact flat file");
 
         assertEquals(SUCCESS_REF_ID, flatFileSubscriptionEmailData.getReferenceId(), REFERENCE_ID_MESSAGE);
+        verify(bulkEmailJobTracker).recordSent(SUCCESS_REF_ID, EMAIL);
+        verify(subscriptionSendLedger).reserve(ARTEFACT_ID, EMAIL, SUCCESS_REF_ID);
+        verify(subscriptionSendLedger).markSent(ARTEFACT_ID, EMAIL, SUCCESS_REF_ID);
+        verify(subscriptionSendLedger, never()).release(any(), any(), any());
+        verify(subscriptionSendLedger).refreshExpiry(ARTEFACT_ID);
+    }
+
+    @Test
+    void testBulkSubscriptionRecordsRecipientHeldByAnotherDelivery() {
+        artefact.setIsFlatFile(true);
+        SubscriptionSendLedger.Reservation reservation = reservation(SubscriptionSendLedger.State.PENDING,
+                                                                     OTHER_REF_ID);
+        when(dataManagementService.getArtefactFlatFile(ARTEFACT_ID)).thenReturn(ARTEFACT_FLAT_FILE);
+        when(subscriptionSendLedger.reserve(ARTEFACT_ID, EMAIL, SUCCESS_REF_ID)).thenReturn(reservation);
+
+        notificationService.flatFileBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact, LOCATION_NAME,
+                                                                 SUCCESS_REF_ID);
+
+        verify(bulkEmailJobTracker).recordNotReserved(SUCCESS_REF_ID, EMAIL, reservation);
+        verify(emailService, never()).handlePreScreenedEmailGeneration(any(), any());
+        verify(subscriptionSendLedger, never()).release(any(), any(), any());
+    }
+
+    @Test
+    void testBulkSubscriptionSkipsRecipientsSentByEarlierJob() {
+        artefact.setIsFlatFile(true);
+        when(subscriptionSendLedger.findSent(ARTEFACT_ID, List.of(EMAIL))).thenReturn(Map.of(EMAIL, OTHER_REF_ID));
+
+        notificationService.flatFileBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact, LOCATION_NAME,
+                                                                 SUCCESS_REF_ID);
+
+        verify(bulkEmailJobTracker).recordSkipped(SUCCESS_REF_ID, List.of(EMAIL));
+        verify(dataManagementService, never()).getArtefactFlatFile(any());
+        verify(emailService, never()).sendEmail(any());
+    }
+
+    @Test
+    void testBulkSubscriptionRedeliveryRecordsRecipientsSentWithoutSendingAgain() {
+        artefact.setIsFlatFile(false);
+        when(subscriptionSendLedger.findSent(ARTEFACT_ID, List.of(EMAIL))).thenReturn(Map.of(EMAIL, SUCCESS_REF_ID));
+
+        notificationService.rawDataBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact, LOCATION_NAME,
+                                                                SUCCESS_REF_ID);
+
+        verify(bulkEmailJobTracker).recordSent(SUCCESS_REF_ID, List.of(EMAIL));
+        verify(bulkEmailJobTracker, never()).recordSkipped(any(), anyCollection());
+        verify(dataManagementService, never()).fetchArtefactSummary(any());
+        verify(emailService, never()).sendEmail(any());
     }
 
     @Test
@@ -151,12 +227,14 @@ class SubscriptionNotificationServiceTest {
         ArgumentCaptor<RawDataSubscriptionEmailData> argument =
             ArgumentCaptor.forClass(RawDataSubscriptionEmailData.class);
 
-        when(dataManagementService.getArtefactSummary(ARTEFACT_ID)).thenReturn(ARTEFACT_SUMMARY);
-        when(dataManagementService.getArtefactFile(ARTEFACT_ID, FileType.PDF, false)).thenReturn(FILE_CONTENT);
-        when(dataManagementService.getArtefactFile(ARTEFACT_ID, FileType.EXCEL, false)).thenReturn(FILE_CONTENT);
+        when(dataManagementService.fetchArtefactSummary(ARTEFACT_ID)).thenReturn(Mono.just(ARTEFACT_SUMMARY));
+        when(dataManagementService.fetchArtefactFile(ARTEFACT_ID, FileType.PDF, false))
+            .thenReturn(Mono.just(FILE_CONTENT));
+        when(dataManagementService.fetchArtefactFile(ARTEFACT_ID, FileType.EXCEL, false))
+            .thenReturn(Mono.just(FILE_CONTENT));
 
-        when(emailService.handleEmailGeneration(argument.capture(),
-                                                eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL)))
+        when(emailService.handlePreScreenedEmailGeneration(argument.capture(),
+                                                            eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL)))
             .thenReturn(validEmailBodyForEmailClientRawDataWithPdfAndExcel);
 
         notificationService.rawDataBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact, LOCATION_NAME,
@@ -172,10 +250,8 @@ class SubscriptionNotificationServiceTest {
                      "Incorrect location name");
         assertEquals(ARTEFACT_SUMMARY, rawDataSubscriptionEmailData.getArtefactSummary(),
                           "Incorrect summary content");
-        assertArrayEquals(Base64.getDecoder().decode(FILE_CONTENT), rawDataSubscriptionEmailData.getPdf(),
-                          "Incorrect PDF content");
-        assertArrayEquals(Base64.getDecoder().decode(FILE_CONTENT), rawDataSubscriptionEmailData.getExcel(),
-                          "Incorrect excel content");
+        assertTrue(rawDataSubscriptionEmailData.getAttachments().hasPdf(), "Incorrect PDF content");
+        assertTrue(rawDataSubscriptionEmailData.getAttachments().hasExcel(), "Incorrect excel content");
 
         assertEquals(SUCCESS_REF_ID, rawDataSubscriptionEmailData.getReferenceId(), REFERENCE_ID_MESSAGE);
     }
@@ -184,9 +260,12 @@ class SubscriptionNotificationServiceTest {
     void testBulkSubscriptionRequestWhenMultipleSubscriptions() {
         artefact.setIsFlatFile(true);
 
+        ArgumentCaptor<FlatFileSubscriptionEmailData> argument =
+            ArgumentCaptor.forClass(FlatFileSubscriptionEmailData.class);
+
         when(dataManagementService.getArtefactFlatFile(ARTEFACT_ID)).thenReturn(ARTEFACT_FLAT_FILE);
-        when(emailService.handleEmailGeneration(any(FlatFileSubscriptionEmailData.class),
-                                                eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
+        when(emailService.handlePreScreenedEmailGeneration(argument.capture(),
+                                                            eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
             .thenReturn(validEmailBodyForEmailClientFlatFile);
 
         BulkSubscriptionEmail bulkSubscriptionEmailWithMultiple = new BulkSubscriptionEmail();
@@ -197,7 +276,34 @@ class SubscriptionNotificationServiceTest {
                                                                  LOCATION_NAME, SUCCESS_REF_ID);
 
         verify(emailService, times(2))
-            .handleEmailGeneration(any(FlatFileSubscriptionEmailData.class), eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL));
+            .handlePreScreenedEmailGeneration(any(FlatFileSubscriptionEmailData.class),
+                                              eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL));
+
+        List<FlatFileSubscriptionEmailData> emailData = argument.getAllValues();
+        assertSame(emailData.get(0).getAttachments(), emailData.get(1).getAttachments(),
+                   "Attachments should be shared by every subscription email for the artefact");
+    }
+
+    @Test
+    void testBulkFlatFileSubscriptionNotSentWhenAttachmentFails() {
+        artefact.setIsFlatFile(true);
+        when(dataManagementService.getArtefactFlatFile(ARTEFACT_ID)).thenReturn(ARTEFACT_FLAT_FILE);
+
+        try (MockedStatic<NotificationClient> mockStatic = mockStatic(NotificationClient.class);
+             LogCaptor logCaptor = LogCaptor.forClass(SubscriptionNotificationService.class)) {
+            mockStatic.when(() -> NotificationClient.prepareUpload(eq(ARTEFACT_FLAT_FILE), eq(false),
+                                                                   any(RetentionPeriodDuration.class)))
+                .thenThrow(new NotificationClientException(TEST_EXCEPTION_MESSAGE));
+
+            notificationService.flatFileBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact,
+                                                                     LOCATION_NAME, SUCCESS_REF_ID);
+
+            verify(emailService, never()).handlePreScreenedEmailGeneration(any(), any());
+            verify(bulkEmailJobTracker).recordFailed(SUCCESS_REF_ID, List.of(EMAIL));
+            assertTrue(logCaptor.getWarnLogs().get(0).contains(
+                "Error adding attachment to flat file email. Artefact ID: " + ARTEFACT_ID),
+                       "Warning message is not correct");
+        }
     }
 
     @Test
@@ -210,10 +316,11 @@ class SubscriptionNotificationServiceTest {
         ArgumentCaptor<RawDataSubscriptionEmailData> argument =
             ArgumentCaptor.forClass(RawDataSubscriptionEmailData.class);
 
-        when(dataManagementService.getArtefactFile(ARTEFACT_ID, FileType.PDF, true)).thenReturn(FILE_CONTENT);
+        when(dataManagementService.fetchArtefactFile(ARTEFACT_ID, FileType.PDF, true))
+            .thenReturn(Mono.just(FILE_CONTENT));
 
-        when(emailService.handleEmailGeneration(argument.capture(),
-                                                eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL)))
+        when(emailService.handlePreScreenedEmailGeneration(argument.capture(),
+                                                            eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL)))
             .thenReturn(validEmailBodyForEmailClientRawDataWithPdfAndExcel);
 
         notificationService.rawDataBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact, LOCATION_NAME,
@@ -234,11 +341,12 @@ class SubscriptionNotificationServiceTest {
         ArgumentCaptor<RawDataSubscriptionEmailData> argument =
             ArgumentCaptor.forClass(RawDataSubscriptionEmailData.class);
 
-        when(dataManagementService.getArtefactSummary(ARTEFACT_ID)).thenReturn(ARTEFACT_SUMMARY);
-        when(dataManagementService.getArtefactFile(ARTEFACT_ID, FileType.PDF, true)).thenReturn(FILE_CONTENT);
+        when(dataManagementService.fetchArtefactSummary(ARTEFACT_ID)).thenReturn(Mono.just(ARTEFACT_SUMMARY));
+        when(dataManagementService.fetchArtefactFile(ARTEFACT_ID, FileType.PDF, true))
+            .thenReturn(Mono.just(FILE_CONTENT));
 
-        when(emailService.handleEmailGeneration(argument.capture(),
-                                                eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL)))
+        when(emailService.handlePreScreenedEmailGeneration(argument.capture(),
+                                                            eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL)))
             .thenReturn(validEmailBodyForEmailClientRawDataWithPdfAndExcel);
 
         notificationService.rawDataBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact, LOCATION_NAME,
@@ -246,8 +354,7 @@ class SubscriptionNotificationServiceTest {
 
         RawDataSubscriptionEmailData rawDataSubscriptionEmailData = argument.getValue();
 
-        assertArrayEquals(Base64.getDecoder().decode(FILE_CONTENT), rawDataSubscriptionEmailData.getPdf(),
-                          "Incorrect PDF content");
+        assertTrue(rawDataSubscriptionEmailData.getAttachments().hasPdf(), "Incorrect PDF content");
     }
 
     @Test
@@ -259,11 +366,12 @@ class SubscriptionNotificationServiceTest {
         ArgumentCaptor<RawDataSubscriptionEmailData> argument =
             ArgumentCaptor.forClass(RawDataSubscriptionEmailData.class);
 
-        when(dataManagementService.getArtefactSummary(ARTEFACT_ID)).thenReturn(ARTEFACT_SUMMARY);
-        when(dataManagementService.getArtefactFile(ARTEFACT_ID, FileType.PDF, false)).thenReturn(FILE_CONTENT);
+        when(dataManagementService.fetchArtefactSummary(ARTEFACT_ID)).thenReturn(Mono.just(ARTEFACT_SUMMARY));
+        when(dataManagementService.fetchArtefactFile(ARTEFACT_ID, FileType.PDF, false))
+            .thenReturn(Mono.just(FILE_CONTENT));
 
-        when(emailService.handleEmailGeneration(argument.capture(),
-                                                eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL)))
+        when(emailService.handlePreScreenedEmailGeneration(argument.capture(),
+                                                            eq(MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL)))
             .thenReturn(validEmailBodyForEmailClientRawDataWithPdfAndExcel);
 
         notificationService.rawDataBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact, LOCATION_NAME,
@@ -271,16 +379,17 @@ class SubscriptionNotificationServiceTest {
 
         RawDataSubscriptionEmailData rawDataSubscriptionEmailData = argument.getValue();
 
-        assertArrayEquals(new byte[0], rawDataSubscriptionEmailData.getExcel(),
-                          "Incorrect excel content");
+        assertFalse(rawDataSubscriptionEmailData.getAttachments().hasExcel(), "Incorrect excel content");
+        verify(emailService).screenRecipients(List.of(EMAIL), MEDIA_SUBSCRIPTION_PDF_EMAIL);
+        verify(dataManagementService, never()).fetchArtefactFile(ARTEFACT_ID, FileType.EXCEL, false);
     }
 
     @Test
     void testBulkSubscriptionContinuesWhenNotifyException() {
         artefact.setIsFlatFile(true);
 
-        when(emailService.handleEmailGeneration(any(FlatFileSubscriptionEmailData.class),
-                                                eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
+        when(emailService.handlePreScreenedEmailGeneration(any(FlatFileSubscriptionEmailData.class),
+                                                            eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
             .thenThrow(new NotifyException(TEST_EXCEPTION_MESSAGE));
 
         BulkSubscriptionEmail bulkSubscriptionEmailWithMultiple = new BulkSubscriptionEmail();
@@ -291,34 +400,142 @@ class SubscriptionNotificationServiceTest {
                                                                  LOCATION_NAME, SUCCESS_REF_ID);
 
         verify(emailService, times(2))
-            .handleEmailGeneration(any(FlatFileSubscriptionEmailData.class), eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL));
+            .handlePreScreenedEmailGeneration(any(FlatFileSubscriptionEmailData.class),
+                                              eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL));
+        verify(bulkEmailJobTracker, times(2)).recordFailed(SUCCESS_REF_ID, List.of(EMAIL));
+        verify(bulkEmailJobTracker, never()).recordSent(any(), anyString());
+        verify(subscriptionSendLedger, times(2)).release(ARTEFACT_ID, EMAIL, SUCCESS_REF_ID);
+    }
+
+    @Test
+    void testBulkSubscriptionNothingFetchedWhenAllRecipientsRateLimited() {
+        artefact.setIsFlatFile(false);
+        artefact.setListType(ListType.SJP_PUBLIC_LIST);
+        when(emailService.screenRecipients(List.of(EMAIL), MEDIA_SUBSCRIPTION_PDF_EXCEL_EMAIL)).thenReturn(List.of());
+
+        notificationService.rawDataBulkSubscriptionEmailRequest(bulkSubscriptionEmail, artefact, LOCATION_NAME,
+                                                                SUCCESS_REF_ID);
+
+        verify(bulkEmailJobTracker).recordRateLimited(SUCCESS_REF_ID, List.of(EMAIL));
+        verify(dataManagementService, never()).fetchArtefactSummary(any());
+        verify(dataManagementService, never()).fetchArtefactFile(any(), any(), anyBoolean());
+        verify(emailService, never()).handlePreScreenedEmailGeneration(any(), any());
+    }
+
+    @Test
+    void testBulkSubscriptionOnlySendsToRecipientsWithinRateLimit() {
+        artefact.setIsFlatFile(true);
+
+        SubscriptionEmail rateLimitedSubscriptionEmail = new SubscriptionEmail();
+        rateLimitedSubscriptionEmail.setEmail(OTHER_EMAIL);
+        rateLimitedSubscriptionEmail.setSubscriptions(subscriptions);
+
+        BulkSubscriptionEmail bulkSubscriptionEmailWithMultiple = new BulkSubscriptionEmail();
+        bulkSubscriptionEmailWithMultiple.setArtefactId(ARTEFACT_ID);
+        bulkSubscriptionEmailWithMultiple.setSubscriptionEmails(List.of(subscriptionEmail,
+                                                                        rateLimitedSubscriptionEmail));
+
+        when(emailService.screenRecipients(List.of(EMAIL, OTHER_EMAIL), MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL))
+            .thenReturn(List.of(EMAIL));
+        when(dataManagementService.getArtefactFlatFile(ARTEFACT_ID)).thenReturn(ARTEFACT_FLAT_FILE);
+        when(emailService.handlePreScreenedEmailGeneration(any(FlatFileSubscriptionEmailData.class),
+                                                            eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
+            .thenReturn(validEmailBodyForEmailClientFlatFile);
+
+        notificationService.flatFileBulkSubscriptionEmailRequest(bulkSubscriptionEmailWithMultiple, artefact,
+                                                                 LOCATION_NAME, SUCCESS_REF_ID);
+
+        verify(bulkEmailJobTracker).recordRateLimited(SUCCESS_REF_ID, List.of(OTHER_EMAIL));
+        verify(bulkEmailJobTracker).recordSent(SUCCESS_REF_ID, EMAIL);
+        verify(subscriptionSendLedger).reserve(ARTEFACT_ID, EMAIL, SUCCESS_REF_ID);
+        verify(subscriptionSendLedger, never()).reserve(ARTEFACT_ID, OTHER_EMAIL, SUCCESS_REF_ID);
+        verify(subscriptionSendLedger).markScreened(ARTEFACT_ID, List.of(EMAIL), List.of(OTHER_EMAIL),
+                                                    SUCCESS_REF_ID);
     }
 
     @Test
-    void testBulkSubscriptionContinuesWhenTooManyEmailsException() {
+    void testBulkSubscriptionRedeliveryDoesNotScreenRecipientsAgain() {
         artefact.setIsFlatFile(true);
 
-        when(emailService.handleEmailGeneration(any(FlatFileSubscriptionEmailData.class),
-                                                eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
-            .thenThrow(new TooManyEmailsException(TEST_EXCEPTION_MESSAGE));
+        SubscriptionEmail rateLimitedSubscriptionEmail = new SubscriptionEmail();
+        rateLimitedSubscriptionEmail.setEmail(OTHER_EMAIL);
+        rateLimitedSubscriptionEmail.setSubscriptions(subscriptions);
+
+        BulkSubscriptionEmail bulkSubscriptionEmailWithMultiple = new BulkSubscriptionEmail();
+        bulkSubscriptionEmailWithMultiple.setArtefactId(ARTEFACT_ID);
+        bulkSubscriptionEmailWithMultiple.setSubscriptionEmails(List.of(subscriptionEmail,
+                                                                        rateLimitedSubscriptionEmail));
+
+        when(subscriptionSendLedger.findScreened(ARTEFACT_ID, List.of(EMAIL, OTHER_EMAIL), SUCCESS_REF_ID))
+            .thenReturn(Map.of(EMAIL, true, OTHER_EMAIL, false));
+        when(dataManagementService.getArtefactFlatFile(ARTEFACT_ID)).thenReturn(ARTEFACT_FLAT_FILE);
+        when(emailService.handlePreScreenedEmailGeneration(any(FlatFileSubscriptionEmailData.class),
+                                                            eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
+            .thenReturn(validEmailBodyForEmailClientFlatFile);
+
+        notificationService.flatFileBulkSubscriptionEmailRequest(bulkSubscriptionEmailWithMultiple, artefact,
+                                                                 LOCATION_NAME, SUCCESS_REF_ID);
+
+        verify(emailService, never()).screenRecipients(any(), any());
+        verify(subscriptionSendLedger, never()).markScreened(any(), any(), any(), any());
+        verify(bulkEmailJobTracker, never()).recordRateLimited(any(), any());
+        verify(bulkEmailJobTracker).recordSent(SUCCESS_REF_ID, EMAIL);
+        verify(subscriptionSendLedger, never()).reserve(ARTEFACT_ID, OTHER_EMAIL, SUCCESS_REF_ID);
+    }
+
+    @Test
+    void testBulkSubscriptionOnlyScreensRecipientsNotAlreadyScreened() {
+        artefact.setIsFlatFile(true);
+
+        SubscriptionEmail otherSubscriptionEmail = new SubscriptionEmail();
+        otherSubscriptionEmail.setEmail(OTHER_EMAIL);
+        otherSubscriptionEmail.setSubscriptions(subscriptions);
+
+        BulkSubscriptionEmail bulkSubscriptionEmailWithMultiple = new BulkSubscriptionEmail();
+        bulkSubscriptionEmailWithMultiple.setArtefactId(ARTEFACT_ID);
+        bulkSubscriptionEmailWithMultiple.setSubscriptionEmails(List.of(subscriptionEmail, otherSubscriptionEmail));
+
+        when(subscriptionSendLedger.findScreened(ARTEFACT_ID, List.of(EMAIL, OTHER_EMAIL), SUCCESS_REF_ID))
+            .thenReturn(Map.of(EMAIL, true));
+        when(dataManagementService.getArtefactFlatFile(ARTEFACT_ID)).thenReturn(ARTEFACT_FLAT_FILE);
+        when(emailService.handlePreScreenedEmailGeneration(any(FlatFileSubscriptionEmailData.class),
+                                                            eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
+            .thenReturn(validEmailBodyForEmailClientFlatFile);
+
+        notificationService.flatFileBulkSubscriptionEmailRequest(bulkSubscriptionEmailWithMultiple, artefact,
+                                                                 LOCATION_NAME, SUCCESS_REF_ID);
+
+        verify(emailService).screenRecipients(List.of(OTHER_EMAIL), MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL);
+        verify(subscriptionSendLedger).markScreened(ARTEFACT_ID, List.of(OTHER_EMAIL), List.of(), SUCCESS_REF_ID);
+        verify(bulkEmailJobTracker).recordSent(SUCCESS_REF_ID, EMAIL);
+        verify(bulkEmailJobTracker).recordSent(SUCCESS_REF_ID, OTHER_EMAIL);
+    }
+
+    @Test
+    void testBulkSubscriptionPausedWhenNotifyUnavailable() {
+        artefact.setIsFlatFile(true);
+
+        when(emailService.handlePreScreenedEmailGeneration(any(FlatFileSubscriptionEmailData.class),
+                                                            eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)))
+            .thenThrow(new NotifyUnavailableException(TEST_EXCEPTION_MESSAGE, 30));
 
         BulkSubscriptionEmail bulkSubscriptionEmailWithMultiple = new BulkSubscriptionEmail();
         bulkSubscriptionEmailWithMultiple.setArtefactId(ARTEFACT_ID);
         bulkSubscriptionEmailWithMultiple.setSubscriptionEmails(List.of(subscriptionEmail, subscriptionEmail));
 
-        try (LogCaptor logCaptor = LogCaptor.forClass(SubscriptionNotificationService.class)) {
+        NotifyUnavailableException exception = assertThrows(NotifyUnavailableException.class, () ->
             notificationService.flatFileBulkSubscriptionEmailRequest(bulkSubscriptionEmailWithMultiple, artefact,
-                                                                     LOCATION_NAME, SUCCESS_REF_ID);
+                                                                     LOCATION_NAME, SUCCESS_REF_ID));
 
-            verify(emailService, times(2)).handleEmailGeneration(
-                    any(FlatFileSubscriptionEmailData.class),
-                    eq(MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL)
-            );
+        assertTrue(exception.getMessage().contains(SUCCESS_REF_ID), "Exception message does not match");
+        verify(bulkEmailJobTracker, never()).recordFailed(any(), anyCollection());
+        verify(bulkEmailJobTracker, never()).recordSent(any(), anyString());
+        verify(subscriptionSendLedger, times(2)).release(ARTEFACT_ID, EMAIL, SUCCESS_REF_ID);
+        verify(subscriptionSendLedger).refreshExpiry(ARTEFACT_ID);
+    }
 
-            assertEquals(2, logCaptor.getErrorLogs().size(),
-                         "Incorrect number of error logs for too many emails");
-            assertTrue(logCaptor.getErrorLogs().get(0).contains(TEST_EXCEPTION_MESSAGE),
-                         "Incorrect number of error logs for too many emails");
-        }
+    private static SubscriptionSendLedger.Reservation reservation(SubscriptionSendLedger.State state,
+                                                                  String referenceId) {
+        return new SubscriptionSendLedger.Reservation(state, referenceId);
     }
 }
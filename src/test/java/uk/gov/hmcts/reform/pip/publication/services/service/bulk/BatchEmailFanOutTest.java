@@ -0,0 +1,135 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
+import uk.gov.hmcts.reform.pip.publication.services.models.BatchEmailChunk;
+import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
+import uk.gov.hmcts.reform.pip.publication.services.service.EmailService;
+import uk.gov.service.notify.SendEmailResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class BatchEmailFanOutTest {
+    private static final UUID BATCH_ID = UUID.randomUUID();
+    private static final String REFERENCE_ID = BATCH_ID.toString();
+    private static final String TEMPLATE = "template";
+    private static final String FIRST_RECIPIENT = "first@testing.com";
+    private static final String SECOND_RECIPIENT = "second@testing.com";
+
+    private static final EmailToSend FIRST_EMAIL = new EmailToSend(FIRST_RECIPIENT, TEMPLATE, Map.of(),
+                                                                   REFERENCE_ID);
+    private static final EmailToSend SECOND_EMAIL = new EmailToSend(SECOND_RECIPIENT, TEMPLATE, Map.of(),
+                                                                    REFERENCE_ID);
+    private static final BatchEmailChunk CHUNK = new BatchEmailChunk(REFERENCE_ID, List.of(
+        BatchEmailChunk.Recipient.from(FIRST_EMAIL), BatchEmailChunk.Recipient.from(SECOND_EMAIL)
+    ));
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private BulkEmailJobTracker bulkEmailJobTracker;
+
+    @Mock
+    private SubscriptionSendLedger subscriptionSendLedger;
+
+    @Mock
+    private SendEmailResponse sendEmailResponse;
+
+    private BatchEmailFanOut batchEmailFanOut;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(subscriptionSendLedger.reserve(eq(BATCH_ID), anyString(), eq(REFERENCE_ID)))
+            .thenReturn(new SubscriptionSendLedger.Reservation(SubscriptionSendLedger.State.RESERVED, REFERENCE_ID));
+        batchEmailFanOut = new BatchEmailFanOut(emailService, bulkEmailJobTracker, subscriptionSendLedger, 2);
+    }
+
+    @Test
+    void testSendRecordsEveryRecipient() {
+        when(emailService.sendEmailAsync(FIRST_EMAIL)).thenReturn(Mono.just(sendEmailResponse));
+        when(emailService.sendEmailAsync(SECOND_EMAIL)).thenReturn(Mono.just(sendEmailResponse));
+
+        batchEmailFanOut.send(CHUNK);
+
+        verify(subscriptionSendLedger).reserve(BATCH_ID, FIRST_RECIPIENT, REFERENCE_ID);
+        verify(subscriptionSendLedger).reserve(BATCH_ID, SECOND_RECIPIENT, REFERENCE_ID);
+        verify(subscriptionSendLedger).markSent(BATCH_ID, FIRST_RECIPIENT, REFERENCE_ID);
+        verify(subscriptionSendLedger).markSent(BATCH_ID, SECOND_RECIPIENT, REFERENCE_ID);
+        verify(bulkEmailJobTracker).recordSent(REFERENCE_ID, FIRST_RECIPIENT);
+        verify(bulkEmailJobTracker).recordSent(REFERENCE_ID, SECOND_RECIPIENT);
+        verify(bulkEmailJobTracker, never()).recordFailedRecipient(anyString(), anyString(), anyString());
+        verify(subscriptionSendLedger).refreshExpiry(BATCH_ID);
+    }
+
+    @Test
+    void testSendRecordsFailedRecipientAndContinues() {
+        when(emailService.sendEmailAsync(FIRST_EMAIL)).thenReturn(Mono.error(new NotifyException("Failed to send")));
+        when(emailService.sendEmailAsync(SECOND_EMAIL)).thenReturn(Mono.just(sendEmailResponse));
+
+        batchEmailFanOut.send(CHUNK);
+
+        verify(bulkEmailJobTracker).recordFailedRecipient(REFERENCE_ID, FIRST_RECIPIENT, "Failed to send");
+        verify(subscriptionSendLedger).release(BATCH_ID, FIRST_RECIPIENT, REFERENCE_ID);
+        verify(bulkEmailJobTracker).recordSent(REFERENCE_ID, SECOND_RECIPIENT);
+    }
+
+    @Test
+    void testSendRecordsRecipientAlreadyReserved() {
+        SubscriptionSendLedger.Reservation reservation =
+            new SubscriptionSendLedger.Reservation(SubscriptionSendLedger.State.PENDING, REFERENCE_ID);
+        when(subscriptionSendLedger.reserve(BATCH_ID, FIRST_RECIPIENT, REFERENCE_ID)).thenReturn(reservation);
+        when(emailService.sendEmailAsync(SECOND_EMAIL)).thenReturn(Mono.just(sendEmailResponse));
+
+        batchEmailFanOut.send(CHUNK);
+
+        verify(emailService, never()).sendEmailAsync(FIRST_EMAIL);
+        verify(bulkEmailJobTracker).recordNotReserved(REFERENCE_ID, FIRST_RECIPIENT, reservation);
+        verify(bulkEmailJobTracker, never()).recordSent(REFERENCE_ID, FIRST_RECIPIENT);
+        verify(bulkEmailJobTracker).recordSent(REFERENCE_ID, SECOND_RECIPIENT);
+    }
+
+    @Test
+    void testSendPausesChunkWhenNotifyUnavailable() {
+        when(emailService.sendEmailAsync(FIRST_EMAIL))
+            .thenReturn(Mono.error(new NotifyUnavailableException("Unavailable", 0)));
+        when(emailService.sendEmailAsync(SECOND_EMAIL)).thenReturn(Mono.just(sendEmailResponse));
+
+        assertThatThrownBy(() -> batchEmailFanOut.send(CHUNK))
+            .as("Chunk should be paused")
+            .isInstanceOf(NotifyUnavailableException.class);
+
+        verify(subscriptionSendLedger).release(BATCH_ID, FIRST_RECIPIENT, REFERENCE_ID);
+        verify(bulkEmailJobTracker, never()).recordFailedRecipient(anyString(), anyString(), anyString());
+        verify(bulkEmailJobTracker).recordSent(REFERENCE_ID, SECOND_RECIPIENT);
+    }
+
+    @Test
+    void testSendWithNoRecipients() {
+        batchEmailFanOut.send(new BatchEmailChunk(REFERENCE_ID, List.of()));
+
+        verify(emailService, never()).sendEmailAsync(any());
+        verify(bulkEmailJobTracker, never()).recordSent(anyString(), anyString());
+        verify(subscriptionSendLedger).refreshExpiry(BATCH_ID);
+    }
+}
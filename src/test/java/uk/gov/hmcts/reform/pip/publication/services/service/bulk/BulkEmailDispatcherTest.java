@@ -0,0 +1,82 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkEmailDispatcherTest {
+    private static final List<Integer> ITEMS = IntStream.range(0, 50).boxed().toList();
+
+    @Test
+    void testDispatchRunsTaskForEveryItem() {
+        BulkEmailDispatcher dispatcher = new BulkEmailDispatcher(5, 0);
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+
+        dispatcher.dispatch(ITEMS, processed::add);
+
+        assertThat(processed)
+            .as("All items should have been processed")
+            .containsExactlyInAnyOrderElementsOf(ITEMS);
+    }
+
+    @Test
+    void testDispatchDoesNotExceedMaxConcurrency() {
+        BulkEmailDispatcher dispatcher = new BulkEmailDispatcher(3, 0);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        dispatcher.dispatch(ITEMS, item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+        });
+
+        assertThat(maxInFlight.get())
+            .as("Number of sends in flight should not exceed the concurrency cap")
+            .isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void testDispatchContinuesWhenTaskFails() {
+        BulkEmailDispatcher dispatcher = new BulkEmailDispatcher(5, 0);
+        AtomicInteger processed = new AtomicInteger();
+
+        dispatcher.dispatch(ITEMS, item -> {
+            if (item % 2 == 0) {
+                throw new NotifyException("Test message");
+            }
+            processed.incrementAndGet();
+        });
+
+        assertThat(processed.get())
+            .as("Failed items should not stop the remaining items from being processed")
+            .isEqualTo(ITEMS.size() / 2);
+    }
+
+    @Test
+    void testDispatchAppliesEmailsPerSecondCeiling() {
+        BulkEmailDispatcher dispatcher = new BulkEmailDispatcher(10, 5);
+        AtomicInteger processed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        dispatcher.dispatch(IntStream.range(0, 10).boxed().toList(), item -> processed.incrementAndGet());
+
+        assertThat((System.nanoTime() - start) / 1_000_000)
+            .as("Sends above the emails-per-second ceiling should wait for the next refill")
+            .isGreaterThanOrEqualTo(900);
+        assertThat(processed.get())
+            .as("All items should have been processed")
+            .isEqualTo(10);
+    }
+}
@@ -0,0 +1,307 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RList;
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.test.context.ActiveProfiles;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BulkEmailJobNotFoundException;
+import uk.gov.hmcts.reform.pip.publication.services.models.BulkEmailJobStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class BulkEmailJobTrackerTest {
+    private static final String REFERENCE_ID = "123";
+    private static final String KEY = "publication-services-bulk-job::" + REFERENCE_ID;
+    private static final List<Object> KEYS = List.of(KEY);
+    private static final String EXPIRY = String.valueOf(Duration.ofHours(24).toMillis());
+    private static final String EMAIL = "test@testing.com";
+    private static final String OTHER_EMAIL = "other@testing.com";
+    private static final String COUNTER_MESSAGE = "Counter does not match";
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RScript script;
+
+    @Mock
+    private RMap<String, String> job;
+
+    @Mock
+    private RList<String> failedRecipients;
+
+    private BulkEmailJobTracker bulkEmailJobTracker;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(redissonClient.getScript(StringCodec.INSTANCE)).thenReturn(script);
+        lenient().when(redissonClient.<String, String>getMap(KEY, StringCodec.INSTANCE)).thenReturn(job);
+        lenient().when(redissonClient.<String>getList(KEY + "::failed-recipients", StringCodec.INSTANCE))
+            .thenReturn(failedRecipients);
+        bulkEmailJobTracker = new BulkEmailJobTracker(redissonClient, 24);
+    }
+
+    @Test
+    void testStartInitialisesJob() {
+        bulkEmailJobTracker.start(REFERENCE_ID, 10);
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), eq("10"), eq("0"), anyString());
+    }
+
+    @Test
+    void testOpenInitialisesOpenJob() {
+        bulkEmailJobTracker.open(REFERENCE_ID);
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), eq("0"), eq("1"), anyString());
+    }
+
+    @Test
+    void testAddQueued() {
+        bulkEmailJobTracker.addQueued(REFERENCE_ID, 5);
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), eq("5"));
+    }
+
+    @Test
+    void testAddQueuedRecipientsReturnsOnlyNewRecipients() {
+        when(script.<List<String>>eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.MULTI),
+                                       eq(KEYS), eq(EXPIRY), eq(SubscriptionSendLedger.hash(EMAIL)),
+                                       eq(SubscriptionSendLedger.hash(OTHER_EMAIL))))
+            .thenReturn(List.of(SubscriptionSendLedger.hash(OTHER_EMAIL)));
+
+        assertThat(bulkEmailJobTracker.addQueued(REFERENCE_ID, List.of(EMAIL, OTHER_EMAIL)))
+            .as("Only recipients not already queued should be returned")
+            .containsExactly(OTHER_EMAIL);
+    }
+
+    @Test
+    void testAddQueuedWithNoRecipientsDoesNotCallRedis() {
+        assertThat(bulkEmailJobTracker.addQueued(REFERENCE_ID, List.of()))
+            .as("No recipients should be returned")
+            .isEmpty();
+
+        verifyNoInteractions(redissonClient);
+    }
+
+    @Test
+    void testClose() {
+        bulkEmailJobTracker.close(REFERENCE_ID);
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString());
+    }
+
+    @Test
+    void testMarkTruncated() {
+        bulkEmailJobTracker.markTruncated(REFERENCE_ID);
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY));
+    }
+
+    @Test
+    void testRecordSentRecordsRecipient() {
+        bulkEmailJobTracker.recordSent(REFERENCE_ID, EMAIL);
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("sent"), eq("1"), eq("0"),
+                            eq(SubscriptionSendLedger.hash(EMAIL)));
+    }
+
+    @Test
+    void testRecordRateLimitedRecordsEachRecipient() {
+        bulkEmailJobTracker.recordRateLimited(REFERENCE_ID, List.of(EMAIL, OTHER_EMAIL));
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("rate-limited"), eq("1"), eq("0"),
+                            eq(SubscriptionSendLedger.hash(EMAIL)), eq(SubscriptionSendLedger.hash(OTHER_EMAIL)));
+    }
+
+    @Test
+    void testRecordFailedCountsRecipientsWithoutAddress() {
+        bulkEmailJobTracker.recordFailed(REFERENCE_ID, 5);
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("failed"), eq("1"), eq("5"));
+    }
+
+    @Test
+    void testRecordDroppedKeepsEarlierOutcomes() {
+        bulkEmailJobTracker.recordDropped(REFERENCE_ID, List.of(EMAIL));
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("failed"), eq("0"), eq("0"),
+                            eq(SubscriptionSendLedger.hash(EMAIL)));
+    }
+
+    @Test
+    void testRecordSkippedRecordsRecipient() {
+        bulkEmailJobTracker.recordSkipped(REFERENCE_ID, List.of(EMAIL));
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("skipped"), eq("1"), eq("0"),
+                            eq(SubscriptionSendLedger.hash(EMAIL)));
+    }
+
+    @Test
+    void testRecordHeldKeepsEarlierOutcomes() {
+        bulkEmailJobTracker.recordHeld(REFERENCE_ID, List.of(EMAIL));
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("skipped"), eq("0"), eq("0"),
+                            eq(SubscriptionSendLedger.hash(EMAIL)));
+    }
+
+    @Test
+    void testRecordNotReservedWhenPendingKeepsEarlierOutcomes() {
+        bulkEmailJobTracker.recordNotReserved(REFERENCE_ID, EMAIL, new SubscriptionSendLedger.Reservation(
+            SubscriptionSendLedger.State.PENDING, REFERENCE_ID));
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("skipped"), eq("0"), eq("0"),
+                            eq(SubscriptionSendLedger.hash(EMAIL)));
+    }
+
+    @Test
+    void testRecordNotReservedWhenSentByJobRecordsSent() {
+        bulkEmailJobTracker.recordNotReserved(REFERENCE_ID, EMAIL, new SubscriptionSendLedger.Reservation(
+            SubscriptionSendLedger.State.SENT, REFERENCE_ID));
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("sent"), eq("1"), eq("0"),
+                            eq(SubscriptionSendLedger.hash(EMAIL)));
+    }
+
+    @Test
+    void testRecordNotReservedWhenSentByAnotherJobRecordsSkipped() {
+        bulkEmailJobTracker.recordNotReserved(REFERENCE_ID, EMAIL, new SubscriptionSendLedger.Reservation(
+            SubscriptionSendLedger.State.SENT, "otherRefId"));
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("skipped"), eq("1"), eq("0"),
+                            eq(SubscriptionSendLedger.hash(EMAIL)));
+    }
+
+    @Test
+    void testRecordNothingDoesNotCallRedis() {
+        bulkEmailJobTracker.recordSkipped(REFERENCE_ID, List.of());
+
+        verifyNoInteractions(redissonClient);
+    }
+
+    @Test
+    void testRecordFailedRecipientAddsMaskedRecipient() {
+        bulkEmailJobTracker.recordFailedRecipient(REFERENCE_ID, EMAIL, "Failed to send");
+
+        verify(failedRecipients).add("t***@testing.com: Failed to send");
+        verify(failedRecipients).expire(Duration.ofHours(24));
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(EXPIRY), anyString(), eq("failed"), eq("1"), eq("0"),
+                            eq(SubscriptionSendLedger.hash(EMAIL)));
+    }
+
+    @Test
+    void testRecordFailedRecipientKeepsFirstFailuresOnly() {
+        bulkEmailJobTracker.recordFailedRecipient(REFERENCE_ID, EMAIL, "Failed to send");
+
+        InOrder inOrder = inOrder(failedRecipients);
+        inOrder.verify(failedRecipients).add(anyString());
+        inOrder.verify(failedRecipients).trim(0, 99);
+        verify(failedRecipients, never()).size();
+    }
+
+    @Test
+    void testGetStatusInProgress() {
+        long now = System.currentTimeMillis();
+        when(job.getAll(anySet())).thenReturn(Map.of(
+            "queued", "100", "sent", "40", "rate-limited", "5", "failed", "5", "skipped", "0", "processed", "50",
+            "started-at", String.valueOf(now - 10_000), "finished-at", "0", "open", "0"
+        ));
+        when(failedRecipients.readAll()).thenReturn(List.of("t***@testing.com: Failed to send"));
+
+        BulkEmailJobStatus status = bulkEmailJobTracker.getStatus(REFERENCE_ID);
+
+        assertThat(status.getSent()).as(COUNTER_MESSAGE).isEqualTo(40);
+        assertThat(status.getRateLimited()).as(COUNTER_MESSAGE).isEqualTo(5);
+        assertThat(status.getFailed()).as(COUNTER_MESSAGE).isEqualTo(5);
+        assertThat(status.getFailedRecipients())
+            .as("Failed recipients do not match")
+            .containsExactly("t***@testing.com: Failed to send");
+        assertThat(status.isComplete()).as("Job should not be complete").isFalse();
+        assertThat(status.getThroughputPerSecond()).as("Throughput does not match").isBetween(3.0, 4.0);
+        assertThat(status.getEstimatedSecondsRemaining()).as("ETA does not match").isBetween(9L, 10L);
+    }
+
+    @Test
+    void testGetStatusComplete() {
+        when(job.getAll(anySet())).thenReturn(Map.of(
+            "queued", "10", "sent", "10", "processed", "10", "started-at", "1000", "finished-at", "6000", "open", "0"
+        ));
+
+        BulkEmailJobStatus status = bulkEmailJobTracker.getStatus(REFERENCE_ID);
+
+        assertThat(status.isComplete()).as("Job should be complete").isTrue();
+        assertThat(status.getThroughputPerSecond()).as("Throughput does not match").isEqualTo(2.0);
+        assertThat(status.getEstimatedSecondsRemaining()).as("ETA does not match").isZero();
+    }
+
+    @Test
+    void testGetStatusOpenJobNotComplete() {
+        when(job.getAll(anySet())).thenReturn(Map.of(
+            "queued", "10", "sent", "10", "processed", "10", "started-at", "1000", "finished-at", "0", "open", "1"
+        ));
+
+        BulkEmailJobStatus status = bulkEmailJobTracker.getStatus(REFERENCE_ID);
+
+        assertThat(status.isComplete()).as("Open job should not be complete").isFalse();
+    }
+
+    @Test
+    void testGetStatusTruncated() {
+        when(job.getAll(anySet())).thenReturn(Map.of(
+            "queued", "10", "sent", "10", "processed", "10", "started-at", "1000", "finished-at", "6000", "open", "0",
+            "truncated", "1"
+        ));
+
+        BulkEmailJobStatus status = bulkEmailJobTracker.getStatus(REFERENCE_ID);
+
+        assertThat(status.isTruncated()).as("Job should be truncated").isTrue();
+        assertThat(status.isComplete()).as("Job should be complete").isTrue();
+    }
+
+    @Test
+    void testGetStatusNotFound() {
+        when(job.getAll(anySet())).thenReturn(Map.of());
+
+        assertThatThrownBy(() -> bulkEmailJobTracker.getStatus(REFERENCE_ID))
+            .isInstanceOf(BulkEmailJobNotFoundException.class)
+            .hasMessage("Bulk email job with reference ID 123 not found");
+    }
+}
@@ -0,0 +1,474 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.altindag.log.LogCaptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.AutoClaimResult;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RStream;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.api.stream.StreamCreateGroupArgs;
+import org.redisson.api.stream.StreamReadGroupArgs;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.hmcts.reform.pip.model.publication.Artefact;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyUnavailableException;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.ServiceBusyException;
+import uk.gov.hmcts.reform.pip.publication.services.models.BatchEmailChunk;
+import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
+import uk.gov.hmcts.reform.pip.publication.services.models.SubscriptionEmailChunk;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.BulkSubscriptionEmail;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
+import uk.gov.hmcts.reform.pip.publication.services.service.NotifyCircuitBreaker;
+import uk.gov.hmcts.reform.pip.publication.services.service.SubscriptionNotificationService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class BulkSubscriptionQueueTest {
+    private static final String CONSUMER_GROUP = "publication-services";
+    private static final String PAYLOAD = "payload";
+    private static final String BATCH_PAYLOAD = "batch-payload";
+    private static final String TEMPLATE = "template";
+    private static final String REFERENCE_ID = UUID.randomUUID().toString();
+    private static final String LOCATION_NAME = "Location name";
+    private static final StreamMessageId MESSAGE_ID = new StreamMessageId(1, 0);
+
+    private final Artefact artefact = new Artefact();
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RStream<String, String> stream;
+
+    @Mock
+    private AutoClaimResult<String, String> autoClaimResult;
+
+    @Mock
+    private RAtomicLong deliveries;
+
+    @Mock
+    private SubscriptionNotificationService subscriptionNotificationService;
+
+    @Mock
+    private BatchEmailFanOut batchEmailFanOut;
+
+    @Mock
+    private BulkEmailJobTracker bulkEmailJobTracker;
+
+    @Mock
+    private ThreadPoolTaskExecutor notificationExecutor;
+
+    @Mock
+    private NotifyCircuitBreaker notifyCircuitBreaker;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private BulkSubscriptionQueue bulkSubscriptionQueue;
+
+    @BeforeEach
+    void setup() {
+        artefact.setArtefactId(UUID.randomUUID());
+        artefact.setIsFlatFile(false);
+
+        ReflectionTestUtils.setField(bulkSubscriptionQueue, "chunkSize", 2);
+        ReflectionTestUtils.setField(bulkSubscriptionQueue, "claimIdleTimeout", 10L);
+        ReflectionTestUtils.setField(bulkSubscriptionQueue, "maxDeliveries", 3);
+        ReflectionTestUtils.setField(bulkSubscriptionQueue, "maxBacklog", 10L);
+        ReflectionTestUtils.setField(bulkSubscriptionQueue, "retryAfterSeconds", 60L);
+
+        when(redissonClient.<String, String>getStream(anyString(), any(Codec.class))).thenReturn(stream);
+        lenient().when(notificationExecutor.getMaxPoolSize()).thenReturn(1);
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(notificationExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testEnqueueSplitsRecipientsIntoChunks() {
+        bulkSubscriptionQueue.enqueue(REFERENCE_ID, artefact, LOCATION_NAME, createRecipients(5));
+
+        verify(stream).createGroup(any(StreamCreateGroupArgs.class));
+        verify(stream, times(3)).add(any(StreamAddArgs.class));
+        verify(bulkEmailJobTracker).start(REFERENCE_ID, 5);
+    }
+
+    @Test
+    void testEnqueueChunkDoesNotStartJob() {
+        bulkSubscriptionQueue.enqueueChunk(REFERENCE_ID, artefact, LOCATION_NAME, createRecipients(5));
+
+        verify(stream).add(any(StreamAddArgs.class));
+        verifyNoInteractions(bulkEmailJobTracker);
+    }
+
+    @Test
+    void testEnqueueWhenConsumerGroupAlreadyExists() {
+        doThrow(new RedisException("BUSYGROUP Consumer Group name already exists"))
+            .when(stream).createGroup(any(StreamCreateGroupArgs.class));
+
+        bulkSubscriptionQueue.enqueue(REFERENCE_ID, artefact, LOCATION_NAME, createRecipients(1));
+
+        verify(stream).add(any(StreamAddArgs.class));
+    }
+
+    @Test
+    void testEnqueueBatchRecordsRateLimitedRecipients() {
+        List<EmailToSend> emails = createEmails(3);
+        List<String> recipients = new ArrayList<>(emails.stream().map(EmailToSend::getEmailAddress).toList());
+        recipients.add("limited@testing.com");
+        recipients.add("test0@testing.com");
+
+        bulkSubscriptionQueue.enqueueBatch(REFERENCE_ID, recipients, emails);
+
+        verify(bulkEmailJobTracker).start(REFERENCE_ID, 4);
+        verify(bulkEmailJobTracker).recordRateLimited(REFERENCE_ID, List.of("limited@testing.com"));
+        verify(stream, times(2)).add(any(StreamAddArgs.class));
+    }
+
+    @Test
+    void testPollProcessesBatchChunk() throws JsonProcessingException {
+        setupMessage(BATCH_PAYLOAD, createBatchPayload());
+        when(deliveries.incrementAndGet()).thenReturn(1L);
+
+        bulkSubscriptionQueue.poll();
+
+        ArgumentCaptor<BatchEmailChunk> captor = ArgumentCaptor.forClass(BatchEmailChunk.class);
+        verify(batchEmailFanOut).send(captor.capture());
+
+        assertThat(captor.getValue().getRecipients())
+            .as("Chunk recipients should be passed on")
+            .extracting(BatchEmailChunk.Recipient::getEmailAddress)
+            .containsExactly("test0@testing.com", "test1@testing.com");
+
+        verifyNoInteractions(subscriptionNotificationService);
+        verify(stream).ack(CONSUMER_GROUP, MESSAGE_ID);
+        verify(stream).remove(MESSAGE_ID);
+    }
+
+    @Test
+    void testPollPausesBatchChunkWhenNotifyUnavailable() throws JsonProcessingException {
+        setupMessage(BATCH_PAYLOAD, createBatchPayload());
+        when(deliveries.incrementAndGet()).thenReturn(1L);
+        doThrow(new NotifyUnavailableException("Unavailable", 0))
+            .when(batchEmailFanOut).send(any(BatchEmailChunk.class));
+
+        bulkSubscriptionQueue.poll();
+
+        verify(deliveries).decrementAndGet();
+        verify(stream, never()).ack(anyString(), any(StreamMessageId.class));
+    }
+
+    @Test
+    void testPollDropsBatchChunkAfterMaxDeliveries() throws JsonProcessingException {
+        setupMessage(BATCH_PAYLOAD, createBatchPayload());
+        when(deliveries.incrementAndGet()).thenReturn(4L);
+
+        bulkSubscriptionQueue.poll();
+
+        verifyNoInteractions(batchEmailFanOut);
+        verify(bulkEmailJobTracker).recordDropped(REFERENCE_ID, List.of("test0@testing.com", "test1@testing.com"));
+        verify(stream).ack(CONSUMER_GROUP, MESSAGE_ID);
+    }
+
+    @Test
+    void testPollProcessesRawDataChunk() throws JsonProcessingException {
+        setupMessage(createPayload());
+        when(deliveries.incrementAndGet()).thenReturn(1L);
+
+        bulkSubscriptionQueue.poll();
+
+        ArgumentCaptor<BulkSubscriptionEmail> captor = ArgumentCaptor.forClass(BulkSubscriptionEmail.class);
+        verify(subscriptionNotificationService).rawDataBulkSubscriptionEmailRequest(
+            captor.capture(), any(Artefact.class), eq(LOCATION_NAME), eq(REFERENCE_ID)
+        );
+
+        assertThat(captor.getValue().getSubscriptionEmails())
+            .as("Chunk recipients should be passed on")
+            .hasSize(2);
+
+        verify(deliveries).expire(any(Duration.class));
+        verify(stream).ack(CONSUMER_GROUP, MESSAGE_ID);
+        verify(stream).remove(MESSAGE_ID);
+        verify(deliveries).delete();
+    }
+
+    @Test
+    void testPollProcessesFlatFileChunk() throws JsonProcessingException {
+        artefact.setIsFlatFile(true);
+        setupMessage(createPayload());
+        when(deliveries.incrementAndGet()).thenReturn(1L);
+
+        bulkSubscriptionQueue.poll();
+
+        verify(subscriptionNotificationService).flatFileBulkSubscriptionEmailRequest(
+            any(BulkSubscriptionEmail.class), any(Artefact.class), eq(LOCATION_NAME), eq(REFERENCE_ID)
+        );
+        verify(stream).ack(CONSUMER_GROUP, MESSAGE_ID);
+    }
+
+    @Test
+    void testPollDoesNotAcknowledgeFailedChunk() throws JsonProcessingException {
+        setupMessage(createPayload());
+        when(deliveries.incrementAndGet()).thenReturn(1L);
+        doThrow(new IllegalStateException("Failed"))
+            .when(subscriptionNotificationService)
+            .rawDataBulkSubscriptionEmailRequest(any(), any(), any(), any());
+
+        try (LogCaptor logCaptor = LogCaptor.forClass(BulkSubscriptionQueue.class)) {
+            bulkSubscriptionQueue.poll();
+
+            assertThat(logCaptor.getErrorLogs().get(0))
+                .as("Error log does not match")
+                .contains("it will be retried");
+        }
+
+        verify(stream, never()).ack(anyString(), any(StreamMessageId.class));
+        verify(deliveries, never()).delete();
+    }
+
+    @Test
+    void testPollDropsChunkAfterMaxDeliveries() throws JsonProcessingException {
+        setupMessage(createPayload());
+        when(deliveries.incrementAndGet()).thenReturn(4L);
+
+        bulkSubscriptionQueue.poll();
+
+        verifyNoInteractions(subscriptionNotificationService);
+        verify(bulkEmailJobTracker).recordDropped(REFERENCE_ID, List.of("test0@testing.com", "test1@testing.com"));
+        verify(stream).ack(CONSUMER_GROUP, MESSAGE_ID);
+        verify(stream).remove(MESSAGE_ID);
+    }
+
+    @Test
+    void testPollDropsUnreadableChunk() {
+        setupMessage("invalid");
+        when(deliveries.incrementAndGet()).thenReturn(1L);
+
+        bulkSubscriptionQueue.poll();
+
+        verifyNoInteractions(subscriptionNotificationService);
+        verify(stream).ack(CONSUMER_GROUP, MESSAGE_ID);
+    }
+
+    @Test
+    void testPollReprocessesReclaimedChunk() throws JsonProcessingException {
+        when(stream.autoClaim(eq(CONSUMER_GROUP), anyString(), anyLong(), any(TimeUnit.class),
+                              any(StreamMessageId.class), anyInt()))
+            .thenReturn(autoClaimResult);
+        when(autoClaimResult.getMessages())
+            .thenReturn(Map.of(MESSAGE_ID, Map.of(PAYLOAD, createPayload())))
+            .thenReturn(Map.of());
+        when(stream.readGroup(eq(CONSUMER_GROUP), anyString(), any(StreamReadGroupArgs.class)))
+            .thenReturn(Map.of());
+        when(redissonClient.getAtomicLong(anyString())).thenReturn(deliveries);
+        when(deliveries.incrementAndGet()).thenReturn(2L);
+
+        bulkSubscriptionQueue.poll();
+
+        verify(subscriptionNotificationService).rawDataBulkSubscriptionEmailRequest(
+            any(BulkSubscriptionEmail.class), any(Artefact.class), eq(LOCATION_NAME), eq(REFERENCE_ID)
+        );
+        verify(deliveries, never()).expire(any(Duration.class));
+        verify(stream).ack(CONSUMER_GROUP, MESSAGE_ID);
+    }
+
+    @Test
+    void testPollLeavesChunkPendingWhenExecutorSaturated() throws JsonProcessingException {
+        setupMessage(createPayload());
+        doThrow(new RejectedExecutionException("Saturated")).when(notificationExecutor).execute(any(Runnable.class));
+
+        try (LogCaptor logCaptor = LogCaptor.forClass(BulkSubscriptionQueue.class)) {
+            bulkSubscriptionQueue.poll();
+
+            assertThat(logCaptor.getWarnLogs().get(0))
+                .as("Warn log does not match")
+                .contains("will be retried once it has been idle");
+        }
+
+        verifyNoInteractions(subscriptionNotificationService);
+        verify(stream, never()).ack(anyString(), any(StreamMessageId.class));
+    }
+
+    @Test
+    void testPollDoesNotReadMoreChunksThanThreads() throws JsonProcessingException {
+        setupMessage(createPayload());
+        List<Runnable> submitted = new ArrayList<>();
+        doAnswer(invocation -> submitted.add(invocation.getArgument(0)))
+            .when(notificationExecutor).execute(any(Runnable.class));
+
+        bulkSubscriptionQueue.poll();
+        bulkSubscriptionQueue.poll();
+
+        assertThat(submitted)
+            .as("Only one chunk should be in flight for a single thread")
+            .hasSize(1);
+        verify(stream).readGroup(eq(CONSUMER_GROUP), anyString(), any(StreamReadGroupArgs.class));
+
+        when(deliveries.incrementAndGet()).thenReturn(1L);
+        submitted.get(0).run();
+        bulkSubscriptionQueue.poll();
+
+        verify(stream, times(2)).readGroup(eq(CONSUMER_GROUP), anyString(), any(StreamReadGroupArgs.class));
+    }
+
+    @Test
+    void testPollDoesNotReadWhenNoIdleThread() {
+        when(notificationExecutor.getActiveCount()).thenReturn(1);
+
+        bulkSubscriptionQueue.poll();
+
+        verify(stream, never()).readGroup(anyString(), anyString(), any(StreamReadGroupArgs.class));
+        verifyNoInteractions(subscriptionNotificationService);
+    }
+
+    @Test
+    void testPollPausesChunkWhenNotifyUnavailable() throws JsonProcessingException {
+        setupMessage(createPayload());
+        when(deliveries.incrementAndGet()).thenReturn(1L);
+        doThrow(new NotifyUnavailableException("Unavailable", 30))
+            .when(subscriptionNotificationService)
+            .rawDataBulkSubscriptionEmailRequest(any(), any(), any(), any());
+
+        try (LogCaptor logCaptor = LogCaptor.forClass(BulkSubscriptionQueue.class)) {
+            bulkSubscriptionQueue.poll();
+
+            assertThat(logCaptor.getWarnLogs().get(0))
+                .as("Warn log does not match")
+                .contains("while GOV.UK Notify is unavailable");
+        }
+
+        verify(deliveries).decrementAndGet();
+        verify(stream, never()).ack(anyString(), any(StreamMessageId.class));
+        verify(deliveries, never()).delete();
+    }
+
+    @Test
+    void testPollDoesNotReadWhenNotifyUnavailable() {
+        when(notifyCircuitBreaker.isOpen()).thenReturn(true);
+
+        bulkSubscriptionQueue.poll();
+
+        verify(stream, never()).readGroup(anyString(), anyString(), any(StreamReadGroupArgs.class));
+        verifyNoInteractions(subscriptionNotificationService);
+    }
+
+    @Test
+    void testCheckAdmissionWhenBacklogFull() {
+        when(stream.size()).thenReturn(10L);
+
+        assertThatThrownBy(() -> bulkSubscriptionQueue.checkAdmission())
+            .isInstanceOf(ServiceBusyException.class)
+            .hasMessageContaining("Bulk subscription email queue is full with 10 chunks waiting")
+            .extracting("retryAfterSeconds")
+            .isEqualTo(60L);
+    }
+
+    @Test
+    void testCheckAdmissionWhenBacklogNotFull() {
+        when(stream.size()).thenReturn(9L);
+
+        bulkSubscriptionQueue.checkAdmission();
+
+        verify(stream).size();
+    }
+
+    @Test
+    void testPollHandlesRedisException() {
+        when(stream.autoClaim(eq(CONSUMER_GROUP), anyString(), anyLong(), any(TimeUnit.class),
+                              any(StreamMessageId.class), anyInt()))
+            .thenThrow(new RedisException("Connection lost"));
+
+        try (LogCaptor logCaptor = LogCaptor.forClass(BulkSubscriptionQueue.class)) {
+            bulkSubscriptionQueue.poll();
+
+            assertThat(logCaptor.getErrorLogs().get(0))
+                .as("Error log does not match")
+                .contains("Failed to read from the bulk subscription email queue: Connection lost");
+        }
+    }
+
+    private void setupMessage(String payload) {
+        setupMessage(PAYLOAD, payload);
+    }
+
+    private void setupMessage(String field, String payload) {
+        when(stream.autoClaim(eq(CONSUMER_GROUP), anyString(), anyLong(), any(TimeUnit.class),
+                              any(StreamMessageId.class), anyInt()))
+            .thenReturn(autoClaimResult);
+        when(autoClaimResult.getMessages()).thenReturn(Map.of());
+        when(stream.readGroup(eq(CONSUMER_GROUP), anyString(), any(StreamReadGroupArgs.class)))
+            .thenReturn(Map.of(MESSAGE_ID, Map.of(field, payload)))
+            .thenReturn(Map.of());
+        lenient().when(redissonClient.getAtomicLong(anyString())).thenReturn(deliveries);
+    }
+
+    private String createPayload() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(
+            new SubscriptionEmailChunk(REFERENCE_ID, artefact, LOCATION_NAME, createRecipients(2))
+        );
+    }
+
+    private String createBatchPayload() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(new BatchEmailChunk(REFERENCE_ID, createEmails(2).stream()
+            .map(BatchEmailChunk.Recipient::from)
+            .toList()));
+    }
+
+    private static List<EmailToSend> createEmails(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new EmailToSend("test" + i + "@testing.com", TEMPLATE, Map.of("key", "value"),
+                                           REFERENCE_ID))
+            .toList();
+    }
+
+    private static List<SubscriptionEmail> createRecipients(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> {
+                SubscriptionEmail subscriptionEmail = new SubscriptionEmail();
+                subscriptionEmail.setEmail("test" + i + "@testing.com");
+                return subscriptionEmail;
+            })
+            .toList();
+    }
+}
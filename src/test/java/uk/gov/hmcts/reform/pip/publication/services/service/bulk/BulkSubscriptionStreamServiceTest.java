@@ -0,0 +1,261 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+import uk.gov.hmcts.reform.pip.model.location.Location;
+import uk.gov.hmcts.reform.pip.model.publication.Artefact;
+import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.BadPayloadException;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
+import uk.gov.hmcts.reform.pip.publication.services.service.DataManagementService;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class BulkSubscriptionStreamServiceTest {
+    private static final UUID ARTEFACT_ID = UUID.randomUUID();
+    private static final String LOCATION_ID = "1";
+    private static final String LOCATION_NAME = "Location name";
+    private static final String SUBSCRIPTION = "{\"email\":\"%s\",\"subscriptions\":{\"LOCATION_ID\":[\"1\"]}}";
+    private static final String BAD_PAYLOAD_MESSAGE = "Exception does not match";
+    private static final String EMAIL_1 = "test1@testing.com";
+    private static final String EMAIL_2 = "test2@testing.com";
+    private static final String EMAIL_3 = "test3@testing.com";
+    private static final String REPEATED_EMAIL = "TEST1@testing.com";
+
+    private final Artefact artefact = new Artefact();
+
+    @Mock
+    private DataManagementService dataManagementService;
+
+    @Mock
+    private BulkSubscriptionQueue bulkSubscriptionQueue;
+
+    @Mock
+    private BulkEmailJobTracker bulkEmailJobTracker;
+
+    private BulkSubscriptionStreamService bulkSubscriptionStreamService;
+
+    @BeforeEach
+    void setup() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        bulkSubscriptionStreamService = new BulkSubscriptionStreamService(
+            new ObjectMapper(), validator, dataManagementService, bulkSubscriptionQueue, bulkEmailJobTracker
+        );
+
+        artefact.setArtefactId(ARTEFACT_ID);
+        artefact.setLocationId(LOCATION_ID);
+
+        Location location = new Location();
+        location.setName(LOCATION_NAME);
+
+        lenient().when(dataManagementService.getArtefact(ARTEFACT_ID)).thenReturn(artefact);
+        lenient().when(dataManagementService.getLocation(LOCATION_ID)).thenReturn(location);
+        lenient().when(bulkSubscriptionQueue.getChunkSize()).thenReturn(2);
+        lenient().when(bulkEmailJobTracker.addQueued(anyString(), anyCollection()))
+            .thenAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testIngestQueuesRecipientsInChunks() {
+        String referenceId = bulkSubscriptionStreamService.ingest(createRequest(
+            EMAIL_1, EMAIL_2, EMAIL_3
+        ));
+
+        assertThat(referenceId)
+            .as("Reference ID should be returned")
+            .isNotNull();
+
+        ArgumentCaptor<List<SubscriptionEmail>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bulkSubscriptionQueue, times(2))
+            .enqueueChunk(eq(referenceId), eq(artefact), eq(LOCATION_NAME), captor.capture());
+
+        assertThat(captor.getAllValues())
+            .as("Recipients should be queued in chunks")
+            .extracting(List::size)
+            .containsExactly(2, 1);
+
+        verify(bulkEmailJobTracker).open(referenceId);
+        verify(bulkEmailJobTracker).addQueued(referenceId, List.of(EMAIL_1, EMAIL_2));
+        verify(bulkEmailJobTracker).addQueued(referenceId, List.of(EMAIL_3));
+        verify(bulkEmailJobTracker).close(referenceId);
+        verify(bulkEmailJobTracker, never()).recordFailed(anyString(), anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testIngestMergesRepeatedRecipients() {
+        String referenceId = bulkSubscriptionStreamService.ingest(createRequest(
+            EMAIL_1, REPEATED_EMAIL, EMAIL_2
+        ));
+
+        ArgumentCaptor<List<SubscriptionEmail>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bulkSubscriptionQueue)
+            .enqueueChunk(eq(referenceId), eq(artefact), eq(LOCATION_NAME), captor.capture());
+
+        assertThat(captor.getValue())
+            .as("Repeated recipients should be merged")
+            .extracting(SubscriptionEmail::getEmail)
+            .containsExactly(EMAIL_1, EMAIL_2);
+
+        verify(bulkEmailJobTracker).addQueued(referenceId, List.of(EMAIL_1, EMAIL_2));
+        verify(bulkEmailJobTracker, never()).recordFailed(anyString(), anyLong());
+    }
+
+    @Test
+    void testIngestDropsRecipientQueuedInEarlierChunk() {
+        when(bulkEmailJobTracker.addQueued(anyString(), eq(List.of(REPEATED_EMAIL)))).thenReturn(Set.of());
+
+        String referenceId = bulkSubscriptionStreamService.ingest(createRequest(
+            EMAIL_1, EMAIL_2, REPEATED_EMAIL
+        ));
+
+        verify(bulkSubscriptionQueue).enqueueChunk(eq(referenceId), eq(artefact), eq(LOCATION_NAME), any());
+        verify(bulkEmailJobTracker).addQueued(referenceId, List.of(REPEATED_EMAIL));
+        verify(bulkEmailJobTracker).close(referenceId);
+        verify(bulkEmailJobTracker, never()).recordFailed(anyString(), anyLong());
+    }
+
+    @Test
+    void testIngestSkipsInvalidRecipients() {
+        String referenceId = bulkSubscriptionStreamService.ingest(createRequest(EMAIL_1, "invalid"));
+
+        verify(bulkSubscriptionQueue).enqueueChunk(eq(referenceId), eq(artefact), eq(LOCATION_NAME), any());
+        verify(bulkEmailJobTracker).recordFailed(referenceId, 1);
+        verify(bulkEmailJobTracker).close(referenceId);
+    }
+
+    @Test
+    void testIngestWithArtefactIdAfterSubscriptionEmails() {
+        InputStream request = toStream(
+            "{\"subscriptionEmails\":[" + String.format(SUBSCRIPTION, "test@testing.com") + "],"
+                + "\"artefactId\":\"" + ARTEFACT_ID + "\"}"
+        );
+
+        assertThatThrownBy(() -> bulkSubscriptionStreamService.ingest(request))
+            .as(BAD_PAYLOAD_MESSAGE)
+            .isInstanceOf(BadPayloadException.class)
+            .hasMessage("artefactId must be provided before subscriptionEmails");
+
+        verifyNoInteractions(bulkSubscriptionQueue);
+    }
+
+    @Test
+    void testIngestWithEmptySubscriptionEmails() {
+        InputStream request = createRequest();
+
+        assertThatThrownBy(() -> bulkSubscriptionStreamService.ingest(request))
+            .as(BAD_PAYLOAD_MESSAGE)
+            .isInstanceOf(BadPayloadException.class)
+            .hasMessage("subscriptionEmails must not be empty");
+
+        verifyNoInteractions(bulkEmailJobTracker);
+    }
+
+    @Test
+    void testIngestWithMalformedRequest() {
+        InputStream request = toStream("{\"artefactId\":\"" + ARTEFACT_ID + "\",\"subscriptionEmails\":[{\"email\"");
+
+        assertThatThrownBy(() -> bulkSubscriptionStreamService.ingest(request))
+            .as(BAD_PAYLOAD_MESSAGE)
+            .isInstanceOf(BadPayloadException.class)
+            .hasMessageStartingWith("Failed to read bulk subscription email request");
+    }
+
+    @Test
+    void testIngestWithMalformedRequestAfterChunkQueuedKeepsJob() {
+        InputStream request = toStream(
+            "{\"artefactId\":\"" + ARTEFACT_ID + "\",\"subscriptionEmails\":["
+                + String.format(SUBSCRIPTION, EMAIL_1) + ","
+                + String.format(SUBSCRIPTION, EMAIL_2) + ","
+                + String.format(SUBSCRIPTION, EMAIL_3) + ",{\"email\""
+        );
+
+        String referenceId = bulkSubscriptionStreamService.ingest(request);
+
+        assertThat(referenceId)
+            .as("Reference ID should be returned once recipients have been queued")
+            .isNotNull();
+
+        verify(bulkSubscriptionQueue, times(2))
+            .enqueueChunk(eq(referenceId), eq(artefact), eq(LOCATION_NAME), any());
+        verify(bulkEmailJobTracker).addQueued(referenceId, List.of(EMAIL_1, EMAIL_2));
+        verify(bulkEmailJobTracker).addQueued(referenceId, List.of(EMAIL_3));
+        verify(bulkEmailJobTracker).addQueued(referenceId, 1);
+        verify(bulkEmailJobTracker).recordFailed(referenceId, 1);
+        verify(bulkEmailJobTracker).markTruncated(referenceId);
+        verify(bulkEmailJobTracker).close(referenceId);
+    }
+
+    @Test
+    void testIngestSkipsEntriesThatCannotBeReadAsSubscriptionEmails() {
+        InputStream request = toStream(
+            "{\"artefactId\":\"" + ARTEFACT_ID + "\",\"subscriptionEmails\":["
+                + String.format(SUBSCRIPTION, EMAIL_1) + ","
+                + "{\"email\":\"" + EMAIL_3 + "\",\"subscriptions\":\"LOCATION_ID\"},"
+                + "\"" + EMAIL_3 + "\",null,"
+                + String.format(SUBSCRIPTION, EMAIL_2) + "]}"
+        );
+
+        String referenceId = bulkSubscriptionStreamService.ingest(request);
+
+        verify(bulkEmailJobTracker).addQueued(referenceId, List.of(EMAIL_1, EMAIL_2));
+        verify(bulkSubscriptionQueue).enqueueChunk(eq(referenceId), eq(artefact), eq(LOCATION_NAME), any());
+        verify(bulkEmailJobTracker).recordFailed(referenceId, 3);
+        verify(bulkEmailJobTracker, never()).markTruncated(anyString());
+        verify(bulkEmailJobTracker).close(referenceId);
+    }
+
+    @Test
+    void testIngestWithRequestThatIsNotAnObject() {
+        InputStream request = toStream("[]");
+
+        assertThatThrownBy(() -> bulkSubscriptionStreamService.ingest(request))
+            .as(BAD_PAYLOAD_MESSAGE)
+            .isInstanceOf(BadPayloadException.class)
+            .hasMessage("Bulk subscription email request must be a JSON object");
+    }
+
+    private static InputStream createRequest(String... emails) {
+        List<String> subscriptions = Arrays.stream(emails)
+            .map(email -> String.format(SUBSCRIPTION, email))
+            .toList();
+        return toStream("{\"artefactId\":\"" + ARTEFACT_ID + "\",\"subscriptionEmails\":["
+                            + String.join(",", subscriptions) + "]}");
+    }
+
+    private static InputStream toStream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
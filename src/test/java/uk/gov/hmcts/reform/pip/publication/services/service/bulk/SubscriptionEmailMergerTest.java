@@ -0,0 +1,119 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
+import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionTypes;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscriptionEmailMergerTest {
+    private static final String EMAIL = "test@testing.com";
+    private static final String OTHER_EMAIL = "other@testing.com";
+    private static final String CASE_NUMBER = "123";
+    private static final String LOCATION_ID = "1";
+
+    private static final String MERGED_MESSAGE = "Recipients have not been merged";
+    private static final String SUBSCRIPTIONS_MESSAGE = "Subscriptions do not match";
+
+    private SubscriptionEmail createSubscriptionEmail(String email, SubscriptionTypes type, String... values) {
+        SubscriptionEmail subscriptionEmail = new SubscriptionEmail();
+        subscriptionEmail.setEmail(email);
+        subscriptionEmail.setSubscriptions(Map.of(type, List.of(values)));
+        return subscriptionEmail;
+    }
+
+    @Test
+    void testMergeCombinesSubscriptionsForSameRecipient() {
+        List<SubscriptionEmail> merged = SubscriptionEmailMerger.merge(List.of(
+            createSubscriptionEmail(EMAIL, SubscriptionTypes.CASE_NUMBER, CASE_NUMBER),
+            createSubscriptionEmail(EMAIL, SubscriptionTypes.LOCATION_ID, LOCATION_ID)
+        ));
+
+        assertThat(merged)
+            .as(MERGED_MESSAGE)
+            .hasSize(1);
+
+        assertThat(merged.get(0).getSubscriptions())
+            .as(SUBSCRIPTIONS_MESSAGE)
+            .containsEntry(SubscriptionTypes.CASE_NUMBER, List.of(CASE_NUMBER))
+            .containsEntry(SubscriptionTypes.LOCATION_ID, List.of(LOCATION_ID));
+    }
+
+    @Test
+    void testMergeIgnoresCaseAndWhitespaceInEmail() {
+        List<SubscriptionEmail> merged = SubscriptionEmailMerger.merge(List.of(
+            createSubscriptionEmail(EMAIL, SubscriptionTypes.CASE_NUMBER, CASE_NUMBER),
+            createSubscriptionEmail(" TEST@Testing.com ", SubscriptionTypes.CASE_NUMBER, "456")
+        ));
+
+        assertThat(merged)
+            .as(MERGED_MESSAGE)
+            .hasSize(1);
+
+        assertThat(merged.get(0).getEmail())
+            .as("The first email address seen should be kept")
+            .isEqualTo(EMAIL);
+
+        assertThat(merged.get(0).getSubscriptions().get(SubscriptionTypes.CASE_NUMBER))
+            .as(SUBSCRIPTIONS_MESSAGE)
+            .containsExactly(CASE_NUMBER, "456");
+    }
+
+    @Test
+    void testMergeRemovesRepeatedSubscriptionValues() {
+        List<SubscriptionEmail> merged = SubscriptionEmailMerger.merge(List.of(
+            createSubscriptionEmail(EMAIL, SubscriptionTypes.LOCATION_ID, LOCATION_ID),
+            createSubscriptionEmail(EMAIL, SubscriptionTypes.LOCATION_ID, LOCATION_ID)
+        ));
+
+        assertThat(merged.get(0).getSubscriptions().get(SubscriptionTypes.LOCATION_ID))
+            .as(SUBSCRIPTIONS_MESSAGE)
+            .containsExactly(LOCATION_ID);
+    }
+
+    @Test
+    void testMergeKeepsDistinctRecipientsInOrder() {
+        SubscriptionEmail first = createSubscriptionEmail(EMAIL, SubscriptionTypes.LOCATION_ID, LOCATION_ID);
+        SubscriptionEmail second = createSubscriptionEmail(OTHER_EMAIL, SubscriptionTypes.LOCATION_ID, LOCATION_ID);
+
+        assertThat(SubscriptionEmailMerger.merge(List.of(first, second)))
+            .as("Distinct recipients should not be merged")
+            .containsExactly(first, second);
+    }
+
+    @Test
+    void testMergeDoesNotModifyOriginalEntries() {
+        SubscriptionEmail first = createSubscriptionEmail(EMAIL, SubscriptionTypes.CASE_NUMBER, CASE_NUMBER);
+        SubscriptionEmailMerger.merge(List.of(
+            first, createSubscriptionEmail(EMAIL, SubscriptionTypes.LOCATION_ID, LOCATION_ID)
+        ));
+
+        assertThat(first.getSubscriptions())
+            .as("Original entry should not be modified")
+            .containsOnlyKeys(SubscriptionTypes.CASE_NUMBER);
+    }
+
+    @Test
+    void testAddAndDrain() {
+        SubscriptionEmailMerger merger = new SubscriptionEmailMerger();
+
+        assertThat(merger.add(createSubscriptionEmail(EMAIL, SubscriptionTypes.CASE_NUMBER, CASE_NUMBER)))
+            .as("First entry should be a new recipient")
+            .isTrue();
+
+        assertThat(merger.add(createSubscriptionEmail(EMAIL, SubscriptionTypes.LOCATION_ID, LOCATION_ID)))
+            .as("Repeated entry should be merged")
+            .isFalse();
+
+        assertThat(merger.drain())
+            .as(MERGED_MESSAGE)
+            .hasSize(1);
+
+        assertThat(merger.size())
+            .as("Merger should be empty once drained")
+            .isZero();
+    }
+}
@@ -0,0 +1,193 @@
+package uk.gov.hmcts.reform.pip.publication.services.service.bulk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class SubscriptionSendLedgerTest {
+    private static final UUID ARTEFACT_ID = UUID.randomUUID();
+    private static final String EMAIL = "test@testing.com";
+    private static final String OTHER_EMAIL = "other@testing.com";
+    private static final String THIRD_EMAIL = "third@testing.com";
+    private static final String REFERENCE_ID = "123";
+    private static final String OTHER_REFERENCE_ID = "456";
+
+    private static final List<Object> KEYS = List.of("publication-services-sent-ledger::" + ARTEFACT_ID);
+    private static final String LEASE = "300000";
+    private static final String EXPIRY = "172800000";
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RMap<String, String> ledger;
+
+    @Mock
+    private RScript script;
+
+    private SubscriptionSendLedger subscriptionSendLedger;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(redissonClient.<String, String>getMap("publication-services-sent-ledger::" + ARTEFACT_ID,
+                                                             StringCodec.INSTANCE)).thenReturn(ledger);
+        lenient().when(redissonClient.getScript(StringCodec.INSTANCE)).thenReturn(script);
+        subscriptionSendLedger = new SubscriptionSendLedger(redissonClient, 48, 300);
+    }
+
+    @Test
+    void testReserveStoresHashedEmailWithLease() {
+        when(script.<List<String>>eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.MULTI),
+                                       eq(KEYS), anyString(), eq(REFERENCE_ID), anyString(), eq(LEASE)))
+            .thenReturn(List.of("reserved", REFERENCE_ID));
+
+        assertThat(subscriptionSendLedger.reserve(ARTEFACT_ID, EMAIL, REFERENCE_ID).isReserved())
+            .as("Recipient should be reserved")
+            .isTrue();
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.MULTI), eq(KEYS),
+                            captor.capture(), eq(REFERENCE_ID), anyString(), eq(LEASE));
+
+        assertThat(captor.getValue())
+            .as("Email address should not be stored")
+            .doesNotContain(EMAIL)
+            .hasSize(16);
+    }
+
+    @Test
+    void testReserveReturnsJobAlreadyHoldingRecipient() {
+        when(script.<List<String>>eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.MULTI),
+                                       eq(KEYS), anyString(), eq(REFERENCE_ID), anyString(), eq(LEASE)))
+            .thenReturn(List.of("pending", OTHER_REFERENCE_ID));
+
+        assertThat(subscriptionSendLedger.reserve(ARTEFACT_ID, EMAIL, REFERENCE_ID))
+            .as("Job holding the recipient should be returned")
+            .isEqualTo(new SubscriptionSendLedger.Reservation(SubscriptionSendLedger.State.PENDING,
+                                                              OTHER_REFERENCE_ID));
+    }
+
+    @Test
+    void testReserveReturnsJobThatSentRecipient() {
+        when(script.<List<String>>eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.MULTI),
+                                       eq(KEYS), anyString(), eq(REFERENCE_ID), anyString(), eq(LEASE)))
+            .thenReturn(List.of("sent", OTHER_REFERENCE_ID));
+
+        assertThat(subscriptionSendLedger.reserve(ARTEFACT_ID, EMAIL, REFERENCE_ID))
+            .as("Job that sent the recipient should be returned")
+            .isEqualTo(new SubscriptionSendLedger.Reservation(SubscriptionSendLedger.State.SENT,
+                                                              OTHER_REFERENCE_ID));
+    }
+
+    @Test
+    void testMarkSentStoresJobThatSentRecipient() {
+        subscriptionSendLedger.markSent(ARTEFACT_ID, EMAIL, REFERENCE_ID);
+
+        verify(ledger).fastPut(SubscriptionSendLedger.hash(EMAIL), "sent|" + REFERENCE_ID);
+    }
+
+    @Test
+    void testReleaseOnlyReturnsReservationOfJobToScreened() {
+        subscriptionSendLedger.release(ARTEFACT_ID, EMAIL, REFERENCE_ID);
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(SubscriptionSendLedger.hash(EMAIL)), eq(REFERENCE_ID));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindSentMatchesIgnoringCase() {
+        when(ledger.getAll(anySet())).thenReturn(Map.of(SubscriptionSendLedger.hash(EMAIL), "sent|" + REFERENCE_ID));
+
+        Map<String, String> sent = subscriptionSendLedger.findSent(ARTEFACT_ID, List.of("TEST@testing.com",
+                                                                                        OTHER_EMAIL));
+
+        ArgumentCaptor<Set<String>> keysCaptor = ArgumentCaptor.forClass(Set.class);
+        verify(ledger).getAll(keysCaptor.capture());
+
+        assertThat(keysCaptor.getValue())
+            .as("Every recipient should be looked up in a single call")
+            .hasSize(2);
+
+        assertThat(sent)
+            .as("Recipient sent by an earlier job should be returned")
+            .containsExactlyEntriesOf(Map.of("TEST@testing.com", REFERENCE_ID));
+    }
+
+    @Test
+    void testFindSentIgnoresPendingRecipients() {
+        when(ledger.getAll(anySet())).thenReturn(Map.of(
+            SubscriptionSendLedger.hash(EMAIL), "pending|" + REFERENCE_ID + "|1000",
+            SubscriptionSendLedger.hash(OTHER_EMAIL), OTHER_REFERENCE_ID
+        ));
+
+        assertThat(subscriptionSendLedger.findSent(ARTEFACT_ID, List.of(EMAIL, OTHER_EMAIL)))
+            .as("Only recipients sent should be returned, with entries without a state treated as sent")
+            .containsExactlyEntriesOf(Map.of(OTHER_EMAIL, OTHER_REFERENCE_ID));
+    }
+
+    @Test
+    void testFindScreenedOnlyReturnsDecisionsOfJob() {
+        when(ledger.getAll(anySet())).thenReturn(Map.of(
+            SubscriptionSendLedger.hash(EMAIL), "screened|" + REFERENCE_ID,
+            SubscriptionSendLedger.hash(OTHER_EMAIL), "limited|" + REFERENCE_ID,
+            SubscriptionSendLedger.hash(THIRD_EMAIL), "screened|" + OTHER_REFERENCE_ID
+        ));
+
+        assertThat(subscriptionSendLedger.findScreened(ARTEFACT_ID, List.of(EMAIL, OTHER_EMAIL, THIRD_EMAIL),
+                                                       REFERENCE_ID))
+            .as("Only recipients screened by the job should be returned")
+            .containsExactlyInAnyOrderEntriesOf(Map.of(EMAIL, true, OTHER_EMAIL, false));
+    }
+
+    @Test
+    void testFindScreenedTreatsReservationOfJobAsWithinRateLimit() {
+        when(ledger.getAll(anySet())).thenReturn(Map.of(
+            SubscriptionSendLedger.hash(EMAIL), "pending|" + REFERENCE_ID + "|1000",
+            SubscriptionSendLedger.hash(OTHER_EMAIL), "pending|" + OTHER_REFERENCE_ID + "|1000"
+        ));
+
+        assertThat(subscriptionSendLedger.findScreened(ARTEFACT_ID, List.of(EMAIL, OTHER_EMAIL), REFERENCE_ID))
+            .as("Recipient reserved by the job should be returned as within their rate limit")
+            .containsExactlyEntriesOf(Map.of(EMAIL, true));
+    }
+
+    @Test
+    void testMarkScreenedRecordsDecisionsInSingleCall() {
+        subscriptionSendLedger.markScreened(ARTEFACT_ID, List.of(EMAIL), List.of(OTHER_EMAIL), REFERENCE_ID);
+
+        verify(script).eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER), eq(KEYS),
+                            eq(REFERENCE_ID), eq(EXPIRY), eq(SubscriptionSendLedger.hash(EMAIL)), eq("screened"),
+                            eq(SubscriptionSendLedger.hash(OTHER_EMAIL)), eq("limited"));
+    }
+
+    @Test
+    void testRefreshExpiry() {
+        subscriptionSendLedger.refreshExpiry(ARTEFACT_ID);
+        verify(ledger).expire(Duration.ofHours(48));
+    }
+}
@@ -1,6 +1,5 @@
 package uk.gov.hmcts.reform.pip.publication.services.service.emailgeneration.subscription;
 
-import nl.altindag.log.LogCaptor;
 import org.assertj.core.api.SoftAssertions;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,18 +7,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.ActiveProfiles;
 import uk.gov.hmcts.reform.pip.model.publication.Artefact;
 import uk.gov.hmcts.reform.pip.model.publication.ListType;
-import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
 import uk.gov.hmcts.reform.pip.publication.services.models.PersonalisationLinks;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.ArtefactAttachments;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.FlatFileSubscriptionEmailData;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionTypes;
-import uk.gov.service.notify.NotificationClient;
 import uk.gov.service.notify.NotificationClientException;
 import uk.gov.service.notify.RetentionPeriodDuration;
 
@@ -30,11 +27,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.when;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_FLAT_FILE_EMAIL;
 
@@ -55,7 +47,6 @@ class FlatFileSubscriptionEmailGeneratorTest {
     private static final RetentionPeriodDuration RETENTION_PERIOD_DURATION = new RetentionPeriodDuration(
         FILE_RETENTION_WEEKS, ChronoUnit.WEEKS
     );
-    private static final String ERROR_MESSAGE = "Error message";
 
     private static final String LIST_TYPE_PERSONALISATION = "list_type";
     private static final String LINK_TO_FILE = "link_to_file";
@@ -79,7 +70,7 @@ class FlatFileSubscriptionEmailGeneratorTest {
     private FlatFileSubscriptionEmailGenerator emailGenerator;
 
     @BeforeEach
-    void setup() {
+    void setup() throws NotificationClientException {
         SubscriptionEmail subscriptionEmail = new SubscriptionEmail();
         subscriptionEmail.setEmail(EMAIL);
         subscriptionEmail.setSubscriptions(SUBSCRIPTIONS);
@@ -89,8 +80,9 @@ class FlatFileSubscriptionEmailGeneratorTest {
         artefact.setListType(LIST_TYPE);
         artefact.setContentDate(LocalDateTime.of(2024, Month.MAY, 1, 0, 0));
 
-        emailData = new FlatFileSubscriptionEmailData(subscriptionEmail, artefact, LOCATION_NAME, FLAT_FILE,
-                                                      FILE_RETENTION_WEEKS, REFERENCE_ID);
+        ArtefactAttachments attachments = ArtefactAttachments.forFlatFile(FLAT_FILE, RETENTION_PERIOD_DURATION);
+        emailData = new FlatFileSubscriptionEmailData(subscriptionEmail, artefact, LOCATION_NAME, attachments,
+                                                      REFERENCE_ID);
     }
 
     @Test
@@ -136,24 +128,6 @@ class FlatFileSubscriptionEmailGeneratorTest {
         softly.assertAll();
     }
 
-    @Test
-    void testFlatFileSubscriptionEmailWithException() {
-        try (MockedStatic<NotificationClient> mockStatic = mockStatic(NotificationClient.class);
-             LogCaptor logCaptor = LogCaptor.forClass(FlatFileSubscriptionEmailGenerator.class)) {
-
-            mockStatic.when(() -> NotificationClient.prepareUpload(eq(FLAT_FILE), eq(false),
-                                                                   any(RetentionPeriodDuration.class)))
-                .thenThrow(new NotificationClientException(ERROR_MESSAGE));
-            assertThatThrownBy(() -> emailGenerator.buildEmail(emailData, personalisationLinks))
-                .isInstanceOf(NotifyException.class)
-                .hasMessage(ERROR_MESSAGE);
-
-            assertTrue(logCaptor.getWarnLogs().get(0).contains(
-                "Error adding attachment to flat file email t***@testing.com. Artefact ID: " + ARTEFACT_ID),
-                       "Warning message is not correct");
-        }
-    }
-
     private void assertUploadFileContent(SoftAssertions softly, JSONObject fileToBeUploaded) {
         softly.assertThat(fileToBeUploaded.get("file"))
             .as(PERSONALISATION_MESSAGE)
@@ -8,7 +8,6 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.ActiveProfiles;
 import uk.gov.hmcts.reform.pip.model.publication.Artefact;
@@ -17,10 +16,11 @@ import uk.gov.hmcts.reform.pip.model.publication.ListType;
 import uk.gov.hmcts.reform.pip.publication.services.errorhandling.exceptions.NotifyException;
 import uk.gov.hmcts.reform.pip.publication.services.models.EmailToSend;
 import uk.gov.hmcts.reform.pip.publication.services.models.PersonalisationLinks;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.ArtefactAttachments;
 import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.RawDataSubscriptionEmailData;
+import uk.gov.hmcts.reform.pip.publication.services.models.emaildata.subscription.SharedPersonalisation;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionEmail;
 import uk.gov.hmcts.reform.pip.publication.services.models.request.SubscriptionTypes;
-import uk.gov.service.notify.NotificationClient;
 import uk.gov.service.notify.NotificationClientException;
 import uk.gov.service.notify.RetentionPeriodDuration;
 
@@ -31,11 +31,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_EXCEL_EMAIL;
 import static uk.gov.hmcts.reform.pip.publication.services.notify.Templates.MEDIA_SUBSCRIPTION_NO_DOWNLOAD_LINK_EMAIL;
@@ -59,7 +58,6 @@ class RawDataSubscriptionEmailGeneratorTest {
     private static final RetentionPeriodDuration RETENTION_PERIOD_DURATION = new RetentionPeriodDuration(
         FILE_RETENTION_WEEKS, ChronoUnit.WEEKS
     );
-    private static final String ERROR_MESSAGE = "Error message";
 
     private static final String CASE_NUMBER_PERSONALISATION = "case_num";
     private static final String CASE_URN_PERSONALISATION = "case_urn";
@@ -109,12 +107,12 @@ class RawDataSubscriptionEmailGeneratorTest {
     }
 
     @Test
-    void testRawDataSubscriptionEmailWithPdfAndExcelSuccess() {
+    void testRawDataSubscriptionEmailWithPdfAndExcelSuccess() throws NotificationClientException {
         artefact.setLanguage(Language.ENGLISH);
         artefact.setListType(ListType.SJP_PUBLIC_LIST);
-        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY, FILE_DATA,
-                                                     FILE_DATA, LOCATION_NAME, FILE_RETENTION_WEEKS,
-                                                     REFERENCE_ID);
+        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY,
+                                                     createAttachments(FILE_DATA, FILE_DATA),
+                                                     LOCATION_NAME, REFERENCE_ID);
 
         EmailToSend result = emailGenerator.buildEmail(emailData, personalisationLinks);
 
@@ -181,12 +179,12 @@ class RawDataSubscriptionEmailGeneratorTest {
     }
 
     @Test
-    void testRawDataSubscriptionEmailWithWelshPdfOnlySuccess() {
+    void testRawDataSubscriptionEmailWithWelshPdfOnlySuccess() throws NotificationClientException {
         artefact.setLanguage(Language.WELSH);
         artefact.setListType(ListType.CIVIL_DAILY_CAUSE_LIST);
-        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY, FILE_DATA,
-                                                     new byte[0], LOCATION_NAME, FILE_RETENTION_WEEKS,
-                                                     REFERENCE_ID);
+        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY,
+                                                     createAttachments(FILE_DATA, new byte[0]),
+                                                     LOCATION_NAME, REFERENCE_ID);
 
         EmailToSend result = emailGenerator.buildEmail(emailData, personalisationLinks);
 
@@ -252,12 +250,12 @@ class RawDataSubscriptionEmailGeneratorTest {
     }
 
     @Test
-    void testRawDataSubscriptionEmailWithExcelOnlySuccess() {
+    void testRawDataSubscriptionEmailWithExcelOnlySuccess() throws NotificationClientException {
         artefact.setLanguage(Language.ENGLISH);
         artefact.setListType(ListType.SJP_PUBLIC_LIST);
-        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY, new byte[0],
-                                                     FILE_DATA, LOCATION_NAME, FILE_RETENTION_WEEKS,
-                                                     REFERENCE_ID);
+        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY,
+                                                     createAttachments(new byte[0], FILE_DATA),
+                                                     LOCATION_NAME, REFERENCE_ID);
 
         EmailToSend result = emailGenerator.buildEmail(emailData, personalisationLinks);
 
@@ -323,12 +321,12 @@ class RawDataSubscriptionEmailGeneratorTest {
     }
 
     @Test
-    void testRawDataSubscriptionEmailWithNoDownloadLinkSuccess() {
+    void testRawDataSubscriptionEmailWithNoDownloadLinkSuccess() throws NotificationClientException {
         artefact.setLanguage(Language.ENGLISH);
         artefact.setListType(ListType.SJP_PUBLIC_LIST);
-        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY, new byte[0],
-                                                     new byte[0], LOCATION_NAME, FILE_RETENTION_WEEKS,
-                                                     REFERENCE_ID);
+        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY,
+                                                     createAttachments(new byte[0], new byte[0]),
+                                                     LOCATION_NAME, REFERENCE_ID);
 
         EmailToSend result = emailGenerator.buildEmail(emailData, personalisationLinks);
 
@@ -396,23 +394,18 @@ class RawDataSubscriptionEmailGeneratorTest {
     }
 
     @Test
-    void testRawDataSubscriptionEmailWithException() {
+    void testRawDataSubscriptionEmailWithException() throws NotificationClientException {
         artefact.setLanguage(Language.ENGLISH);
         artefact.setListType(ListType.CIVIL_DAILY_CAUSE_LIST);
+        artefact.setContentDate(null);
 
-        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY, FILE_DATA,
-                                                     new byte[0],  LOCATION_NAME, FILE_RETENTION_WEEKS,
-                                                     REFERENCE_ID);
+        emailData = new RawDataSubscriptionEmailData(subscriptionEmail, artefact, ARTEFACT_SUMMARY,
+                                                     createAttachments(FILE_DATA, new byte[0]),
+                                                     LOCATION_NAME, REFERENCE_ID);
 
-        try (MockedStatic<NotificationClient> mockStatic = mockStatic(NotificationClient.class);
-             LogCaptor logCaptor = LogCaptor.forClass(RawDataSubscriptionEmailGenerator.class)) {
-
-            mockStatic.when(() -> NotificationClient.prepareUpload(eq(FILE_DATA), eq(false),
-                                                                   any(RetentionPeriodDuration.class)))
-                .thenThrow(new NotificationClientException(ERROR_MESSAGE));
+        try (LogCaptor logCaptor = LogCaptor.forClass(RawDataSubscriptionEmailGenerator.class)) {
             assertThatThrownBy(() -> emailGenerator.buildEmail(emailData, personalisationLinks))
-                .isInstanceOf(NotifyException.class)
-                .hasMessage(ERROR_MESSAGE);
+                .isInstanceOf(NotifyException.class);
 
             assertTrue(logCaptor.getWarnLogs().get(0).contains(
                 "Error adding attachment to raw data email t***@testing.com. Artefact ID: " + ARTEFACT_ID),
@@ -420,6 +413,85 @@ class RawDataSubscriptionEmailGeneratorTest {
         }
     }
 
+    @Test
+    void testRawDataSubscriptionEmailSharesPersonalisationBetweenRecipients() throws NotificationClientException {
+        artefact.setLanguage(Language.ENGLISH);
+        artefact.setListType(ListType.SJP_PUBLIC_LIST);
+        ArtefactAttachments attachments = createAttachments(FILE_DATA, FILE_DATA);
+        SharedPersonalisation sharedPersonalisation = new SharedPersonalisation();
+
+        SubscriptionEmail caseUrnSubscriptionEmail = new SubscriptionEmail();
+        caseUrnSubscriptionEmail.setEmail("case.urn@testing.com");
+        caseUrnSubscriptionEmail.setSubscriptions(Map.of(SubscriptionTypes.CASE_URN, List.of("URN123")));
+
+        EmailToSend locationResult = emailGenerator.buildEmail(new RawDataSubscriptionEmailData(
+            subscriptionEmail, artefact, ARTEFACT_SUMMARY, attachments, LOCATION_NAME, REFERENCE_ID,
+            sharedPersonalisation
+        ), personalisationLinks);
+        EmailToSend caseUrnResult = emailGenerator.buildEmail(new RawDataSubscriptionEmailData(
+            caseUrnSubscriptionEmail, artefact, ARTEFACT_SUMMARY, attachments, LOCATION_NAME, REFERENCE_ID,
+            sharedPersonalisation
+        ), personalisationLinks);
+
+        SoftAssertions softly = new SoftAssertions();
+
+        softly.assertThat(locationResult.getPersonalisation().get(CASE_URN_PERSONALISATION))
+            .as(PERSONALISATION_MESSAGE)
+            .isEqualTo("");
+
+        softly.assertThat(caseUrnResult.getPersonalisation().get(CASE_URN_PERSONALISATION))
+            .as(PERSONALISATION_MESSAGE)
+            .isEqualTo(List.of("URN123"));
+
+        softly.assertThat(caseUrnResult.getPersonalisation())
+            .as(PERSONALISATION_MESSAGE)
+            .containsEntry(LOCATION_PERSONALISATION, LOCATION_NAME)
+            .containsEntry(CONTENT_DATE_PERSONALISATION, CONTENT_DATE)
+            .hasSize(locationResult.getPersonalisation().size());
+
+        softly.assertAll();
+
+        verify(personalisationLinks).getStartPageLink();
+    }
+
+    @Test
+    void testRawDataSubscriptionEmailReusesPersonalisationForSameSubscriptions() throws NotificationClientException {
+        artefact.setLanguage(Language.ENGLISH);
+        artefact.setListType(ListType.SJP_PUBLIC_LIST);
+        ArtefactAttachments attachments = createAttachments(FILE_DATA, FILE_DATA);
+        SharedPersonalisation sharedPersonalisation = new SharedPersonalisation();
+
+        SubscriptionEmail firstSubscriptionEmail = new SubscriptionEmail();
+        firstSubscriptionEmail.setEmail("first@testing.com");
+        firstSubscriptionEmail.setSubscriptions(Map.of(SubscriptionTypes.CASE_URN, List.of("URN1", "URN2")));
+
+        SubscriptionEmail secondSubscriptionEmail = new SubscriptionEmail();
+        secondSubscriptionEmail.setEmail("second@testing.com");
+        secondSubscriptionEmail.setSubscriptions(Map.of(SubscriptionTypes.CASE_URN, List.of("URN2", "URN1"),
+                                                        SubscriptionTypes.LOCATION_ID, List.of("123")));
+
+        EmailToSend firstResult = emailGenerator.buildEmail(new RawDataSubscriptionEmailData(
+            firstSubscriptionEmail, artefact, ARTEFACT_SUMMARY, attachments, LOCATION_NAME, REFERENCE_ID,
+            sharedPersonalisation
+        ), personalisationLinks);
+        EmailToSend secondResult = emailGenerator.buildEmail(new RawDataSubscriptionEmailData(
+            secondSubscriptionEmail, artefact, ARTEFACT_SUMMARY, attachments, LOCATION_NAME, REFERENCE_ID,
+            sharedPersonalisation
+        ), personalisationLinks);
+
+        assertThat(secondResult.getEmailAddress())
+            .as(EMAIL_ADDRESS_MESSAGE)
+            .isEqualTo("second@testing.com");
+
+        assertThat(secondResult.getPersonalisation())
+            .as("Personalisation should be reused for recipients with the same case subscriptions")
+            .isSameAs(firstResult.getPersonalisation());
+    }
+
+    private ArtefactAttachments createAttachments(byte[] pdf, byte[] excel) throws NotificationClientException {
+        return ArtefactAttachments.forRawData(pdf, excel, RETENTION_PERIOD_DURATION);
+    }
+
     private void assertUploadFileContent(SoftAssertions softly, JSONObject fileToBeUploaded) {
         softly.assertThat(fileToBeUploaded.get("file"))
             .as(PERSONALISATION_MESSAGE)